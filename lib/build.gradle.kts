@@ -237,6 +237,23 @@ sourceSets {
     }
 }
 
+// Benchmarks are kept out of the test sources so they don't run as unit tests.
+// Run them with `./gradlew lib:benchmark`
+val benchmark by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+}
+
+configurations[benchmark.implementationConfigurationName].extendsFrom(configurations.implementation.get())
+configurations[benchmark.runtimeOnlyConfigurationName].extendsFrom(configurations.runtimeOnly.get())
+
+tasks.register<JavaExec>("benchmark") {
+    description = "Runs the concurrent read benchmark"
+    group = "verification"
+    classpath = benchmark.runtimeClasspath
+    mainClass.set("org.automerge.ConcurrentReadBenchmark")
+}
+
 // Abstraction over the different prefixes and suffixes of native libraries on different platforms
 interface RustOutputName {
     abstract val name: String
@@ -287,6 +304,11 @@ if  (isDev) {
             showStandardStreams = true
         }
     }
+
+    tasks.named<JavaExec>("benchmark") {
+        dependsOn("createVersionedLibForTest")
+        systemProperty("java.library.path", "../rust/target/debug/")
+    }
 } else {
     // Load properties with priority: -P flags > local.properties
     // This allows CI/Docker to override via command-line without modifying local.properties
@@ -0,0 +1,73 @@
+package org.automerge;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Compares read throughput of a {@link Document} with and without concurrent
+ * reads enabled as the number of threads grows
+ *
+ * <p>
+ * Run it with {@code ./gradlew lib:benchmark}, passing arguments with
+ * {@code --args="<maxThreads> <readsPerThread>"}.
+ */
+public final class ConcurrentReadBenchmark {
+
+    private ConcurrentReadBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int maxThreads = args.length > 0
+                ? Integer.parseInt(args[0])
+                : Runtime.getRuntime().availableProcessors();
+        int reads = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+
+        Document doc = new Document();
+        try (Transaction tx = doc.startTransaction()) {
+            for (int i = 0; i < 1000; i++) {
+                tx.set(ObjectId.ROOT, "key" + i, i);
+            }
+            tx.commit();
+        }
+
+        System.out.println("threads  exclusive ops/s  concurrent ops/s");
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            doc.setConcurrentReads(false);
+            double exclusive = run(doc, threads, reads);
+            doc.setConcurrentReads(true);
+            double concurrent = run(doc, threads, reads);
+            System.out.printf("%7d  %15.0f  %16.0f%n", threads, exclusive, concurrent);
+        }
+        doc.free();
+    }
+
+    private static double run(Document doc, int threads, int reads) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < reads; i++) {
+                        doc.get(ObjectId.ROOT, "key" + (i % 1000));
+                    }
+                    return null;
+                }));
+            }
+            long begin = System.nanoTime();
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            double seconds = (System.nanoTime() - begin) / 1e9;
+            return (double) threads * reads / seconds;
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -203,4 +203,83 @@ public abstract class AmValue {
             return "Text [id=" + id + "]";
         }
     }
+
+    // Constructors for values decoded on the Java side (see Materialized). Values
+    // returned directly from the native library have their fields set by JNI.
+    static Null newNull() {
+        return new Null();
+    }
+
+    static Str newStr(String value) {
+        Str result = new Str();
+        result.value = value;
+        return result;
+    }
+
+    static Int newInt(long value) {
+        Int result = new Int();
+        result.value = value;
+        return result;
+    }
+
+    static UInt newUInt(long value) {
+        UInt result = new UInt();
+        result.value = value;
+        return result;
+    }
+
+    static F64 newF64(double value) {
+        F64 result = new F64();
+        result.value = value;
+        return result;
+    }
+
+    static Bool newBool(boolean value) {
+        Bool result = new Bool();
+        result.value = value;
+        return result;
+    }
+
+    static Bytes newBytes(byte[] value) {
+        Bytes result = new Bytes();
+        result.value = value;
+        return result;
+    }
+
+    static Counter newCounter(long value) {
+        Counter result = new Counter();
+        result.value = new org.automerge.Counter(value);
+        return result;
+    }
+
+    static Timestamp newTimestamp(Date value) {
+        Timestamp result = new Timestamp();
+        result.value = value;
+        return result;
+    }
+
+    static Unknown newUnknown(int typeCode, byte[] value) {
+        Unknown result = new Unknown();
+        result.typeCode = typeCode;
+        result.value = value;
+        return result;
+    }
+
+    static Map newMap(ObjectId id) {
+        Map result = new Map();
+        result.id = id;
+        return result;
+    }
+
+    static List newList(ObjectId id) {
+        List result = new List();
+        result.id = id;
+        return result;
+    }
+
+    static Text newText(ObjectId id) {
+        Text result = new Text();
+        result.id = id;
+        return result;
+    }
 }
@@ -1,5 +1,6 @@
 package org.automerge;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
@@ -10,6 +11,9 @@ import java.util.Optional;
 class AutomergeSys {
     protected class DocPointer {
         private long pointer;
+        // Set instead of pointer while the document is shared between readers,
+        // see shareDoc
+        private long shared;
     }
 
     protected class TransactionPointer {
@@ -41,10 +45,33 @@ class AutomergeSys {
 
     public static native DocPointer loadDoc(byte[] bytes);
 
+    public static native DocPointer loadDocFromBuffer(ByteBuffer buffer, int offset, int len);
+
+    public static native DocPointer createDocWithEncoding(byte[] actorId, TextEncoding encoding);
+
+    public static native DocPointer loadDocWithEncoding(byte[] bytes, TextEncoding encoding);
+
+    public static native DocPointer loadDocFromBufferWithEncoding(ByteBuffer buffer, int offset, int len,
+            TextEncoding encoding);
+
     public static native void freeDoc(DocPointer pointer);
 
+    // Move the document behind a read/write lock so reads can run in parallel.
+    // The caller must hold the document's write lock.
+    public static native void shareDoc(DocPointer pointer);
+
+    // Move a shared document back so it can be used exclusively. The caller must
+    // hold the document's write lock.
+    public static native void unshareDoc(DocPointer pointer);
+
     public static native byte[] saveDoc(DocPointer pointer);
 
+    public static native byte[] saveIncremental(DocPointer pointer);
+
+    public static native ByteBuffer saveDocToNativeBuffer(DocPointer pointer);
+
+    public static native void freeNativeBuffer(ByteBuffer buffer);
+
     public static native DocPointer forkDoc(DocPointer pointer);
 
     public static native DocPointer forkDocWithActor(DocPointer pointer, byte[] actorId);
@@ -57,8 +84,14 @@ class AutomergeSys {
 
     public static native void mergeDocLogPatches(DocPointer pointer, DocPointer other, PatchLogPointer patchLog);
 
+    public static native void mergeDocs(DocPointer pointer, DocPointer[] others);
+
+    public static native void mergeDocsLogPatches(DocPointer pointer, DocPointer[] others, PatchLogPointer patchLog);
+
     public static native byte[] getActorId(DocPointer pointer);
 
+    public static native int getTextEncoding(DocPointer pointer);
+
     public static native TransactionPointer startTransaction(DocPointer doc);
 
     public static native TransactionPointer startTransactionLogPatches(DocPointer doc, PatchLogPointer patchLog);
@@ -70,6 +103,8 @@ class AutomergeSys {
 
     public static native void applyEncodedChanges(DocPointer doc, byte[] changes);
 
+    public static native void applyEncodedChangesFromBuffer(DocPointer doc, ByteBuffer buffer, int offset, int len);
+
     public static native void applyEncodedChangesLogPatches(DocPointer doc, PatchLogPointer patchLog, byte[] changes);
 
     public static native ArrayList<Patch> makePatches(DocPointer doc, PatchLogPointer patchLog);
@@ -197,10 +232,39 @@ class AutomergeSys {
     public static native void splice(TransactionPointer tx, ObjectId obj, long start, long deleteCount,
             Iterator<NewValue> values);
 
+    public static native void spliceLongs(TransactionPointer tx, ObjectId obj, long start, long deleteCount,
+            long[] values);
+
+    public static native void spliceDoubles(TransactionPointer tx, ObjectId obj, long start, long deleteCount,
+            double[] values);
+
+    public static native void spliceBooleans(TransactionPointer tx, ObjectId obj, long start, long deleteCount,
+            boolean[] values);
+
+    public static native void spliceStrings(TransactionPointer tx, ObjectId obj, long start, long deleteCount,
+            String[] values);
+
+    // Batch
+    public static native ObjectId[] applyBatch(TransactionPointer tx, ObjectId[] objects, byte[] ops);
+
+    // Reconcile
+    public static native void reconcile(TransactionPointer tx, ObjectId obj, byte[] tree, String keyField);
+
     // Text
     public static native void spliceText(TransactionPointer tx, ObjectId obj, long start, long deleteCount,
             String text);
 
+    public static native void spliceTextChars(TransactionPointer tx, ObjectId obj, long start, long deleteCount,
+            char[] chars, int offset, int len);
+
+    public static native void spliceTextUtf8(TransactionPointer tx, ObjectId obj, long start, long deleteCount,
+            byte[] bytes, int offset, int len);
+
+    public static native void spliceTextUtf8Buffer(TransactionPointer tx, ObjectId obj, long start,
+            long deleteCount, ByteBuffer buffer, int offset, int len);
+
+    public static native void updateText(TransactionPointer tx, ObjectId obj, String value);
+
     public static native Optional<String> getTextInDoc(DocPointer pointer, ObjectId obj);
 
     public static native Optional<String> getTextInTx(TransactionPointer pointer, ObjectId obj);
@@ -251,6 +315,18 @@ class AutomergeSys {
 
     public static native List<Mark> getMarksInTx(TransactionPointer tx, ObjectId obj, Optional<ChangeHash[]> heads);
 
+    public static native List<Mark> getMarksInRangeInDoc(DocPointer doc, ObjectId obj, long start, long end,
+            Optional<ChangeHash[]> heads);
+
+    public static native List<Mark> getMarksInRangeInTx(TransactionPointer tx, ObjectId obj, long start, long end,
+            Optional<ChangeHash[]> heads);
+
+    public static native byte[] getSpansInDoc(DocPointer doc, ObjectId obj, long start, long end,
+            Optional<ChangeHash[]> heads);
+
+    public static native byte[] getSpansInTx(TransactionPointer tx, ObjectId obj, long start, long end,
+            Optional<ChangeHash[]> heads);
+
     public static native HashMap<String, AmValue> getMarksAtIndexInDoc(DocPointer doc, ObjectId obj, long index,
             Optional<ChangeHash[]> heads);
 
@@ -297,22 +373,21 @@ class AutomergeSys {
 
     public static native ChangeHash[] getHeadsInTx(TransactionPointer tx);
 
+    // Memory
+    public static native long nativeAllocatedBytes();
+
     // Object ID methods
     public static native ObjectId rootObjectId();
 
-    public static native boolean isRootObjectId(ObjectId obj);
-
     public static native String objectIdToString(ObjectId obj);
 
-    public static native boolean objectIdsEqual(ObjectId left, ObjectId right);
-
-    public static native int objectIdHash(ObjectId left);
-
     // Sync
     public static native SyncStatePointer createSyncState();
 
     public static native Optional<byte[]> generateSyncMessage(SyncStatePointer syncState, DocPointer doc);
 
+    public static native Optional<byte[]>[] generateSyncMessages(SyncStatePointer[] syncStates, DocPointer doc);
+
     public static native void receiveSyncMessage(SyncStatePointer syncState, DocPointer doc, byte[] message);
 
     public static native void receiveSyncMessageLogPatches(SyncStatePointer syncState, DocPointer doc,
@@ -326,6 +401,8 @@ class AutomergeSys {
 
     public static native ChangeHash[] syncStateSharedHeads(SyncStatePointer syncState);
 
+    public static native boolean syncStateIsInSync(SyncStatePointer syncState, DocPointer doc);
+
     public static native PatchLogPointer createPatchLog();
 
     public static native void freePatchLog(PatchLogPointer pointer);
@@ -343,13 +420,123 @@ class AutomergeSys {
     public static native long lookupCursorIndexInTx(TransactionPointer tx, ObjectId obj, Cursor cursor,
             Optional<ChangeHash[]> heads);
 
+    public static native Cursor[] makeCursorsInDoc(DocPointer doc, ObjectId obj, long[] indexes,
+            Optional<ChangeHash[]> heads);
+
+    public static native Cursor[] makeCursorsInTx(TransactionPointer tx, ObjectId obj, long[] indexes,
+            Optional<ChangeHash[]> heads);
+
+    public static native long[] lookupCursorIndicesInDoc(DocPointer doc, ObjectId obj, Cursor[] cursors,
+            Optional<ChangeHash[]> heads);
+
+    public static native long[] lookupCursorIndicesInTx(TransactionPointer tx, ObjectId obj, Cursor[] cursors,
+            Optional<ChangeHash[]> heads);
+
     public static native String cursorToString(Cursor cursor);
 
     public static native Cursor cursorFromString(String encoded);
 
     public static native Cursor cursorFromBytes(byte[] encoded);
 
-    public static native Optional<ObjectType> getObjectTypeInDoc(DocPointer doc, ObjectId obj);
+    public static native Optional<ObjectType> getObjectTypeInDoc(DocPointer doc, ObjectId obj,
+            Optional<ChangeHash[]> heads);
+
+    public static native Optional<ObjectType> getObjectTypeInTx(TransactionPointer tx, ObjectId obj,
+            Optional<ChangeHash[]> heads);
+
+    public static native Optional<byte[]> materializeInDoc(DocPointer doc, ObjectId obj,
+            Optional<ChangeHash[]> heads);
+
+    public static native Optional<byte[]> materializeInTx(TransactionPointer tx, ObjectId obj,
+            Optional<ChangeHash[]> heads);
+
+    public static native Optional<AmValue[]> getListItemsRangeInDoc(DocPointer doc, ObjectId obj, long start,
+            long end, Optional<ChangeHash[]> heads);
+
+    public static native Optional<AmValue[]> getListItemsRangeInTx(TransactionPointer tx, ObjectId obj, long start,
+            long end, Optional<ChangeHash[]> heads);
+
+    public static native Optional<String> getTextRangeInDoc(DocPointer doc, ObjectId obj, long start, long end,
+            Optional<ChangeHash[]> heads);
+
+    public static native Optional<String> getTextRangeInTx(TransactionPointer tx, ObjectId obj, long start, long end,
+            Optional<ChangeHash[]> heads);
+
+    public static native Optional<String[]> getKeysRangeInDoc(DocPointer doc, ObjectId obj, String fromKey, int limit,
+            Optional<ChangeHash[]> heads);
+
+    public static native Optional<String[]> getKeysRangeInTx(TransactionPointer tx, ObjectId obj, String fromKey,
+            int limit, Optional<ChangeHash[]> heads);
+
+    public static native Optional<MapEntry[]> getMapEntriesRangeInDoc(DocPointer doc, ObjectId obj, String fromKey,
+            int limit, Optional<ChangeHash[]> heads);
+
+    public static native Optional<MapEntry[]> getMapEntriesRangeInTx(TransactionPointer tx, ObjectId obj,
+            String fromKey, int limit, Optional<ChangeHash[]> heads);
+
+    // Primitive getters
+    public static native long getLongInMapInDoc(DocPointer doc, ObjectId obj, String key, long defaultValue);
+
+    public static native long getLongInMapInTx(TransactionPointer tx, ObjectId obj, String key, long defaultValue);
+
+    public static native long getLongInListInDoc(DocPointer doc, ObjectId obj, long index, long defaultValue);
+
+    public static native long getLongInListInTx(TransactionPointer tx, ObjectId obj, long index, long defaultValue);
+
+    public static native double getDoubleInMapInDoc(DocPointer doc, ObjectId obj, String key, double defaultValue);
+
+    public static native double getDoubleInMapInTx(TransactionPointer tx, ObjectId obj, String key,
+            double defaultValue);
+
+    public static native double getDoubleInListInDoc(DocPointer doc, ObjectId obj, long index, double defaultValue);
+
+    public static native double getDoubleInListInTx(TransactionPointer tx, ObjectId obj, long index,
+            double defaultValue);
+
+    public static native boolean getBooleanInMapInDoc(DocPointer doc, ObjectId obj, String key, boolean defaultValue);
+
+    public static native boolean getBooleanInMapInTx(TransactionPointer tx, ObjectId obj, String key,
+            boolean defaultValue);
+
+    public static native boolean getBooleanInListInDoc(DocPointer doc, ObjectId obj, long index, boolean defaultValue);
+
+    public static native boolean getBooleanInListInTx(TransactionPointer tx, ObjectId obj, long index,
+            boolean defaultValue);
+
+    public static native String getStringInMapInDoc(DocPointer doc, ObjectId obj, String key);
+
+    public static native String getStringInMapInTx(TransactionPointer tx, ObjectId obj, String key);
+
+    public static native String getStringInListInDoc(DocPointer doc, ObjectId obj, long index);
+
+    public static native String getStringInListInTx(TransactionPointer tx, ObjectId obj, long index);
+
+    // Paths
+    public static native Optional<AmValue> getPathInDoc(DocPointer doc, ObjectId obj, byte[] path,
+            Optional<ChangeHash[]> heads);
+
+    public static native Optional<AmValue> getPathInTx(TransactionPointer tx, ObjectId obj, byte[] path,
+            Optional<ChangeHash[]> heads);
+
+    public static native AmValue[] getManyInDoc(DocPointer doc, ObjectId obj, byte[] keys,
+            Optional<ChangeHash[]> heads);
+
+    public static native AmValue[] getManyInTx(TransactionPointer tx, ObjectId obj, byte[] keys,
+            Optional<ChangeHash[]> heads);
+
+    // Encoded patches
+    public static native byte[] makePatchesEncoded(DocPointer doc, PatchLogPointer patchLog);
+
+    public static native ArrayList<Patch> makeCoalescedPatches(DocPointer doc, PatchLogPointer patchLog);
+
+    public static native byte[] makeCoalescedPatchesEncoded(DocPointer doc, PatchLogPointer patchLog);
+
+    public static native byte[] diffEncoded(DocPointer doc, ChangeHash[] before, ChangeHash[] after);
+
+    // Change history
+    public static native byte[] getChangeHashesSince(DocPointer doc, ChangeHash[] heads);
+
+    public static native byte[] getChangeMetasByHash(DocPointer doc, byte[] hashes);
 
-    public static native Optional<ObjectType> getObjectTypeInTx(TransactionPointer tx, ObjectId obj);
+    public static native byte[] getChangesByHash(DocPointer doc, byte[] hashes);
 }
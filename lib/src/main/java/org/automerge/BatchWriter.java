@@ -0,0 +1,85 @@
+package org.automerge;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A growable buffer of big endian values in the encoding read by
+ * {@code rust/src/transaction/batch.rs}
+ *
+ * <p>
+ * This holds the operations of a {@link MutationBatch} and the trees passed to
+ * {@link Transaction#reconcile}. Integers are written big endian and strings
+ * and byte arrays are prefixed with their length.
+ */
+final class BatchWriter {
+    private byte[] buf;
+    private int len;
+
+    BatchWriter(int capacity) {
+        this.buf = new byte[capacity];
+    }
+
+    /** The number of bytes written so far */
+    int length() {
+        return len;
+    }
+
+    /** Drop everything written after the first {@code length} bytes */
+    void truncate(int length) {
+        len = length;
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(buf, len);
+    }
+
+    void writeByte(byte value) {
+        ensureCapacity(1);
+        buf[len++] = value;
+    }
+
+    void writeInt(int value) {
+        ensureCapacity(4);
+        buf[len++] = (byte) (value >>> 24);
+        buf[len++] = (byte) (value >>> 16);
+        buf[len++] = (byte) (value >>> 8);
+        buf[len++] = (byte) value;
+    }
+
+    void writeLong(long value) {
+        ensureCapacity(8);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            buf[len++] = (byte) (value >>> shift);
+        }
+    }
+
+    void writeDouble(double value) {
+        writeLong(Double.doubleToRawLongBits(value));
+    }
+
+    void writeBytes(byte[] value) {
+        writeInt(value.length);
+        ensureCapacity(value.length);
+        System.arraycopy(value, 0, buf, len, value.length);
+        len += value.length;
+    }
+
+    void writeString(String value) {
+        writeBytes(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void ensureCapacity(int additional) {
+        int required = len + additional;
+        if (required < 0) {
+            throw new IllegalStateException("encoded batch is too large");
+        }
+        if (required > buf.length) {
+            int newLength = Math.max(buf.length * 2, required);
+            if (newLength < 0) {
+                newLength = Integer.MAX_VALUE - 8;
+            }
+            buf = Arrays.copyOf(buf, newLength);
+        }
+    }
+}
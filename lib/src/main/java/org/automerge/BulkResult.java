@@ -0,0 +1,95 @@
+package org.automerge;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * The result of one item of a bulk operation such as
+ * {@link Document#loadAll(List)} or {@link Document#saveAll(List)}
+ *
+ * <p>
+ * Each item either succeeded, in which case {@link #getValue()} returns the
+ * result, or failed, in which case {@link #getError()} returns the exception
+ * which was thrown. A failure of one item does not affect the others.
+ *
+ * @param <T>
+ *            the type of the result
+ */
+public final class BulkResult<T> {
+    private final T value;
+    private final RuntimeException error;
+
+    private BulkResult(T value, RuntimeException error) {
+        this.value = value;
+        this.error = error;
+    }
+
+    /**
+     * @return whether this item succeeded
+     */
+    public boolean isOk() {
+        return error == null;
+    }
+
+    /**
+     * @return the result of this item or {@link Optional#empty()} if it failed
+     */
+    public Optional<T> getValue() {
+        return Optional.ofNullable(value);
+    }
+
+    /**
+     * @return the exception thrown by this item or {@link Optional#empty()} if it
+     *         succeeded
+     */
+    public Optional<RuntimeException> getError() {
+        return Optional.ofNullable(error);
+    }
+
+    /**
+     * Get the result of this item, throwing if it failed
+     *
+     * @return the result
+     * @throws RuntimeException
+     *             the exception this item failed with
+     */
+    public T getOrThrow() {
+        if (error != null) {
+            throw error;
+        }
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return isOk() ? "BulkResult [value=" + value + "]" : "BulkResult [error=" + error + "]";
+    }
+
+    /**
+     * Run {@code fn} on every item on {@code executor} and wait for all of them
+     * to finish
+     *
+     * @return the results in the same order as {@code items}
+     */
+    static <I, T> List<BulkResult<T>> runAll(List<I> items, Function<I, T> fn, Executor executor) {
+        List<CompletableFuture<BulkResult<T>>> pending = new ArrayList<>(items.size());
+        for (I item : items) {
+            pending.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return new BulkResult<T>(fn.apply(item), null);
+                } catch (RuntimeException e) {
+                    return new BulkResult<T>(null, e);
+                }
+            }, executor));
+        }
+        List<BulkResult<T>> results = new ArrayList<>(items.size());
+        for (CompletableFuture<BulkResult<T>> result : pending) {
+            results.add(result.join());
+        }
+        return results;
+    }
+}
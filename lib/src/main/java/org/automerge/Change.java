@@ -0,0 +1,26 @@
+package org.automerge;
+
+/**
+ * A single change in the history of a document along with its encoding
+ *
+ * <p>
+ * Returned by {@link Document#getChanges(ChangeHash[])} and
+ * {@link Document#getChangeByHash(ChangeHash)}. The bytes can be applied to
+ * another document with {@link Document#applyEncodedChanges(byte[])}.
+ */
+public final class Change extends ChangeMeta {
+    private final byte[] bytes;
+
+    Change(ChangeHash hash, byte[] actorId, long seq, long timestamp, String message, ChangeHash[] deps,
+            byte[] bytes) {
+        super(hash, actorId, seq, timestamp, message, deps);
+        this.bytes = bytes;
+    }
+
+    /**
+     * @return the encoded change
+     */
+    public byte[] getBytes() {
+        return bytes.clone();
+    }
+}
@@ -4,10 +4,14 @@ import java.util.Arrays;
 
 /** The hash of a single change to an automerge document */
 public class ChangeHash {
-    private byte[] hash;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final byte[] hash;
+    private final int hashCode;
 
     protected ChangeHash(byte[] hash) {
         this.hash = hash;
+        this.hashCode = 31 + Arrays.hashCode(hash);
     }
 
     /**
@@ -19,10 +23,7 @@ public class ChangeHash {
 
     @Override
     public int hashCode() {
-        final int prime = 31;
-        int result = 1;
-        result = prime * result + Arrays.hashCode(hash);
-        return result;
+        return hashCode;
     }
 
     @Override
@@ -34,8 +35,22 @@ public class ChangeHash {
         if (getClass() != obj.getClass())
             return false;
         ChangeHash other = (ChangeHash) obj;
-        if (!Arrays.equals(hash, other.hash))
+        if (hashCode != other.hashCode || !Arrays.equals(hash, other.hash))
             return false;
         return true;
     }
+
+    /**
+     * @return the hash encoded as lower case hex, the same as the string
+     *         representation used by the other automerge implementations
+     */
+    @Override
+    public String toString() {
+        char[] chars = new char[hash.length * 2];
+        for (int i = 0; i < hash.length; i++) {
+            chars[i * 2] = HEX[(hash[i] >> 4) & 0xf];
+            chars[i * 2 + 1] = HEX[hash[i] & 0xf];
+        }
+        return new String(chars);
+    }
 }
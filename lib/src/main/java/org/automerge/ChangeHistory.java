@@ -0,0 +1,97 @@
+package org.automerge;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterates over changes in the history of a document in batches
+ *
+ * <p>
+ * The hashes of the changes are fetched up front as a single byte array. The
+ * changes themselves are fetched {@link #BATCH_SIZE} at a time as the iterator
+ * advances, so only one batch is decoded at once however long the history is.
+ * Changes are never removed from a document so the hashes stay valid even if
+ * the document changes while iterating.
+ */
+final class ChangeHistory<T extends ChangeMeta> implements Iterator<T> {
+    static final int BATCH_SIZE = 256;
+    static final int HASH_LEN = 32;
+
+    private final Document doc;
+    private final byte[] hashes;
+    private final boolean withBytes;
+    private final ArrayDeque<ChangeMeta> batch = new ArrayDeque<>();
+    private int offset;
+
+    private ChangeHistory(Document doc, byte[] hashes, boolean withBytes) {
+        this.doc = doc;
+        this.hashes = hashes;
+        this.withBytes = withBytes;
+    }
+
+    static Iterator<Change> changes(Document doc, byte[] hashes) {
+        return new ChangeHistory<>(doc, hashes, true);
+    }
+
+    static Iterator<ChangeMeta> metas(Document doc, byte[] hashes) {
+        return new ChangeHistory<>(doc, hashes, false);
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !batch.isEmpty() || offset < hashes.length;
+    }
+
+    @Override
+    public T next() {
+        if (batch.isEmpty()) {
+            if (offset >= hashes.length) {
+                throw new NoSuchElementException();
+            }
+            int end = Math.min(hashes.length, offset + BATCH_SIZE * HASH_LEN);
+            byte[] encoded = doc.encodeChangesByHash(Arrays.copyOfRange(hashes, offset, end), withBytes);
+            offset = end;
+            batch.addAll(decode(encoded, withBytes));
+        }
+        // Only Change instances are decoded when withBytes is set
+        @SuppressWarnings("unchecked")
+        T result = (T) batch.removeFirst();
+        return result;
+    }
+
+    /**
+     * Decode a batch of changes returned by the native library
+     *
+     * @param withBytes
+     *            whether the batch includes the encoded changes, in which case
+     *            the result contains {@link Change} instances
+     */
+    static ArrayList<ChangeMeta> decode(byte[] encoded, boolean withBytes) {
+        Materialized.Decoder in = new Materialized.Decoder(encoded);
+        ArrayList<ChangeMeta> result = new ArrayList<>();
+        while (in.hasRemaining()) {
+            if (in.readByte() == 0) {
+                // The document has no change with this hash
+                continue;
+            }
+            ChangeHash hash = new ChangeHash(in.readBytes());
+            byte[] actorId = in.readBytes();
+            long seq = in.readLong();
+            long timestamp = in.readLong();
+            String message = in.readByte() == 0 ? null : in.readString();
+            ChangeHash[] deps = new ChangeHash[in.readInt()];
+            for (int i = 0; i < deps.length; i++) {
+                deps[i] = new ChangeHash(in.readBytes());
+            }
+            if (withBytes) {
+                result.add(new Change(hash, actorId, seq, timestamp, message, deps, in.readBytes()));
+            } else {
+                result.add(new ChangeMeta(hash, actorId, seq, timestamp, message, deps));
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,79 @@
+package org.automerge;
+
+import java.util.Optional;
+
+/**
+ * The metadata of a single change in the history of a document
+ *
+ * <p>
+ * Returned by {@link Document#getChangeMetas(ChangeHash[])} and
+ * {@link Document#getChangeMeta(ChangeHash)}. Use {@link Change} if you also
+ * need the encoded change.
+ */
+public class ChangeMeta {
+    private final ChangeHash hash;
+    private final byte[] actorId;
+    private final long seq;
+    private final long timestamp;
+    private final String message;
+    private final ChangeHash[] deps;
+
+    ChangeMeta(ChangeHash hash, byte[] actorId, long seq, long timestamp, String message, ChangeHash[] deps) {
+        this.hash = hash;
+        this.actorId = actorId;
+        this.seq = seq;
+        this.timestamp = timestamp;
+        this.message = message;
+        this.deps = deps;
+    }
+
+    /**
+     * @return the hash of the change
+     */
+    public ChangeHash getHash() {
+        return hash;
+    }
+
+    /**
+     * @return the ID of the actor which made the change
+     */
+    public byte[] getActorId() {
+        return actorId.clone();
+    }
+
+    /**
+     * @return the sequence number of the change, the first change made by an actor
+     *         has sequence number 1
+     */
+    public long getSeq() {
+        return seq;
+    }
+
+    /**
+     * @return the time the change was made in milliseconds since the epoch, as
+     *         recorded by the actor which made it
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @return the message the change was committed with, if any
+     */
+    public Optional<String> getMessage() {
+        return Optional.ofNullable(message);
+    }
+
+    /**
+     * @return the hashes of the changes this change depends on
+     */
+    public ChangeHash[] getDeps() {
+        return deps.clone();
+    }
+
+    @Override
+    public String toString() {
+        return "ChangeMeta [hash=" + hash + ", seq=" + seq + ", timestamp=" + timestamp + ", message=" + message
+                + "]";
+    }
+}
@@ -0,0 +1,166 @@
+package org.automerge;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/** Iterators which read an object a chunk at a time using the ranged reads */
+final class ChunkedReads {
+
+    private ChunkedReads() {
+    }
+
+    private abstract static class Chunked<T> implements Iterator<T> {
+        protected final Read read;
+        protected final ObjectId obj;
+        protected final int chunkSize;
+        private T[] chunk;
+        private int index;
+        private boolean exhausted;
+
+        Chunked(Read read, ObjectId obj, int chunkSize) {
+            if (chunkSize < 1) {
+                throw new IllegalArgumentException("chunkSize must be at least 1");
+            }
+            this.read = read;
+            this.obj = obj;
+            this.chunkSize = chunkSize;
+        }
+
+        /**
+         * Fetch the next chunk
+         *
+         * @return the chunk, which is empty when there is nothing left
+         */
+        protected abstract T[] fetch();
+
+        @Override
+        public boolean hasNext() {
+            while (chunk == null || index == chunk.length) {
+                if (exhausted) {
+                    return false;
+                }
+                chunk = fetch();
+                index = 0;
+                if (chunk.length == 0) {
+                    exhausted = true;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return chunk[index++];
+        }
+
+        protected void finish() {
+            exhausted = true;
+        }
+    }
+
+    static final class ListItems extends Chunked<AmValue> {
+        private long next = 0;
+
+        ListItems(Read read, ObjectId obj, int chunkSize) {
+            super(read, obj, chunkSize);
+        }
+
+        @Override
+        protected AmValue[] fetch() {
+            AmValue[] items = read.listItems(obj, next, next + chunkSize).orElse(new AmValue[0]);
+            next += items.length;
+            if (items.length < chunkSize) {
+                finish();
+            }
+            return items;
+        }
+    }
+
+    static final class TextChunks extends Chunked<String> {
+        private final TextEncoding encoding;
+        private long next = 0;
+
+        TextChunks(Read read, ObjectId obj, int chunkSize, TextEncoding encoding) {
+            super(read, obj, chunkSize);
+            this.encoding = encoding;
+        }
+
+        @Override
+        protected String[] fetch() {
+            // A chunk can be longer or shorter than chunkSize when a character
+            // straddles its end, so advance by the length of the chunk in the
+            // units of the document and only stop on an empty chunk
+            String text = read.text(obj, next, next + chunkSize).orElse("");
+            if (text.isEmpty()) {
+                return new String[0];
+            }
+            if (encoding == TextEncoding.UTF16_CODE_UNIT) {
+                next += text.length();
+            } else {
+                next += text.codePointCount(0, text.length());
+            }
+            return new String[]{text};
+        }
+    }
+
+    static final class Keys extends Chunked<String> {
+        private String last = null;
+
+        Keys(Read read, ObjectId obj, int chunkSize) {
+            super(read, obj, chunkSize);
+        }
+
+        @Override
+        protected String[] fetch() {
+            String[] keys;
+            if (last == null) {
+                keys = read.keys(obj, null, chunkSize).orElse(new String[0]);
+            } else {
+                // The page starts at the last key we returned, fetch one extra and
+                // skip it
+                String[] fetched = read.keys(obj, last, chunkSize + 1).orElse(new String[0]);
+                int skip = fetched.length > 0 && fetched[0].equals(last) ? 1 : 0;
+                keys = new String[fetched.length - skip];
+                System.arraycopy(fetched, skip, keys, 0, keys.length);
+            }
+            if (keys.length > 0) {
+                last = keys[keys.length - 1];
+            }
+            if (keys.length < chunkSize) {
+                finish();
+            }
+            return keys;
+        }
+    }
+
+    static final class MapEntries extends Chunked<MapEntry> {
+        private String last = null;
+
+        MapEntries(Read read, ObjectId obj, int chunkSize) {
+            super(read, obj, chunkSize);
+        }
+
+        @Override
+        protected MapEntry[] fetch() {
+            MapEntry[] entries;
+            if (last == null) {
+                entries = read.mapEntries(obj, null, chunkSize).orElse(new MapEntry[0]);
+            } else {
+                MapEntry[] fetched = read.mapEntries(obj, last, chunkSize + 1).orElse(new MapEntry[0]);
+                int skip = fetched.length > 0 && fetched[0].getKey().equals(last) ? 1 : 0;
+                entries = new MapEntry[fetched.length - skip];
+                System.arraycopy(fetched, skip, entries, 0, entries.length);
+            }
+            if (entries.length > 0) {
+                last = entries[entries.length - 1].getKey();
+            }
+            if (entries.length < chunkSize) {
+                finish();
+            }
+            return entries;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package org.automerge;
 
+import java.util.Arrays;
+
 /**
  * A stable reference to a position in a sequence
  * <p>
@@ -15,9 +17,14 @@ package org.automerge;
  * implementation. The {@link toBytes()} and {@link fromBytes(byte[])} methods
  * do not have equivalents in the JavaScript implementation so if interop is
  * important you should use the string methods.
+ * <p>
+ * Two cursors are equal if they have the same encoding. Equality and hashing
+ * are computed on the Java side.
  */
 public class Cursor {
     private byte[] raw;
+    private int hash;
+    private String string;
 
     static {
         LoadLibrary.initialize();
@@ -63,7 +70,12 @@ public class Cursor {
      */
     @Override
     public String toString() {
-        return AutomergeSys.cursorToString(this);
+        String result = string;
+        if (result == null) {
+            result = AutomergeSys.cursorToString(this);
+            string = result;
+        }
+        return result;
     }
 
     /**
@@ -74,4 +86,28 @@ public class Cursor {
     public byte[] toBytes() {
         return raw.clone();
     }
+
+    @Override
+    public int hashCode() {
+        // The raw bytes are set by the native library after construction so the
+        // hash is computed lazily, zero means not yet computed
+        int result = hash;
+        if (result == 0) {
+            result = Arrays.hashCode(raw);
+            hash = result;
+        }
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null)
+            return false;
+        if (getClass() != obj.getClass())
+            return false;
+        Cursor other = (Cursor) obj;
+        return hashCode() == other.hashCode() && Arrays.equals(raw, other.raw);
+    }
 }
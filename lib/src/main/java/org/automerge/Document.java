@@ -1,9 +1,34 @@
 package org.automerge;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
 import org.automerge.AutomergeSys.DocPointer;
 
 /**
@@ -67,6 +92,13 @@ import org.automerge.AutomergeSys.DocPointer;
  * overhead in storage as every actor ID has to be stored forever so if you
  * think you'll be storing a document for a long time or interacting with it
  * many times it may be worth reusing actor IDs.
+ *
+ * <h2>Text Encoding</h2>
+ *
+ * By default indices into text objects count unicode code points. A document
+ * can instead be created or loaded with {@link TextEncoding#UTF16_CODE_UNIT} so
+ * that indices match the indices of Java strings, see {@link TextEncoding}.
+ * Forks of a document use the same encoding as the document.
  */
 public class Document implements Read {
     static {
@@ -77,17 +109,61 @@ public class Document implements Read {
     // Keep actor ID here so we a) don't have to keep passing it across the JNI
     // boundary and b) can access it when a transaction is in progress
     private byte[] actorId;
+    private final TextEncoding textEncoding;
     // If a transaction is in progress we must forward all calls to the transaction.
     // In rust code the transaction holds a mutable reference to the document, so
     // any
     // calls to the document whilst the transaction exists would be unsafe
     private Optional<AutomergeSys.TransactionPointer> transactionPtr;
+    // Incremented whenever the committed state of the document may have changed,
+    // see version()
+    private volatile long version;
+    // Frees the native document if this Document is garbage collected without
+    // free() being called
+    private final NativeState nativeState;
+    // Null for documents lent to a callback by the repo layer, which owns them
+    private final NativeCleaner.Registration registration;
+    // Non null while concurrent reads are enabled, see setConcurrentReads
+    private volatile ReentrantReadWriteLock concurrentLock;
+    // Whether the native document is shared between readers. Only changed while
+    // holding both the monitor and the write lock of concurrentLock
+    private boolean shared;
+    // The order in which documents are locked when they are merged into another
+    private static final AtomicLong created = new AtomicLong();
+    private final long lockOrder = created.getAndIncrement();
+
+    /**
+     * The native resources owned by a Document. Kept separate from the Document
+     * so the cleanup action does not keep the Document reachable.
+     */
+    private static final class NativeState implements Runnable {
+        private final DocPointer doc;
+        // While a transaction is in progress the native document is owned by the
+        // transaction
+        private volatile AutomergeSys.TransactionPointer transaction;
+
+        NativeState(DocPointer doc) {
+            this.doc = doc;
+        }
+
+        @Override
+        public void run() {
+            AutomergeSys.TransactionPointer tx = transaction;
+            if (tx != null) {
+                AutomergeSys.rollbackTransaction(tx, doc);
+            }
+            AutomergeSys.freeDoc(doc);
+        }
+    }
 
     /** Create a new document with a random actor ID */
     public Document() {
         this.pointer = Optional.of(AutomergeSys.createDoc());
         this.actorId = AutomergeSys.getActorId(this.pointer.get());
+        this.textEncoding = textEncodingOf(this.pointer.get());
         this.transactionPtr = Optional.empty();
+        this.nativeState = new NativeState(this.pointer.get());
+        this.registration = NativeCleaner.register(this, NativeMemory.Kind.DOCUMENT, nativeState);
     }
 
     /**
@@ -99,13 +175,56 @@ public class Document implements Read {
     public Document(byte[] actorId) {
         this.actorId = actorId;
         this.pointer = Optional.of(AutomergeSys.createDocWithActor(actorId));
+        this.textEncoding = textEncodingOf(this.pointer.get());
         this.transactionPtr = Optional.empty();
+        this.nativeState = new NativeState(this.pointer.get());
+        this.registration = NativeCleaner.register(this, NativeMemory.Kind.DOCUMENT, nativeState);
+    }
+
+    /**
+     * Create a new document with a random actor ID which uses the given text
+     * encoding
+     *
+     * @param encoding
+     *            the units of indices into text objects in this document
+     */
+    public Document(TextEncoding encoding) {
+        this(AutomergeSys.createDocWithEncoding(null, encoding));
+    }
+
+    /**
+     * Create a new document with a specific actor ID which uses the given text
+     * encoding
+     *
+     * @param actorId
+     *            the actor ID to use for this document
+     * @param encoding
+     *            the units of indices into text objects in this document
+     */
+    public Document(byte[] actorId, TextEncoding encoding) {
+        this(AutomergeSys.createDocWithEncoding(actorId, encoding));
     }
 
     private Document(DocPointer pointer) {
+        this(pointer, true);
+    }
+
+    /**
+     * Wrap a native document
+     *
+     * <p>
+     * The repo layer calls this with {@code owned} false to lend one of its
+     * documents to a callback. A lent document is not registered with the
+     * {@link NativeCleaner}, so neither garbage collection nor {@link #free()}
+     * frees the native document while the repo still owns it.
+     */
+    private Document(DocPointer pointer, boolean owned) {
         this.pointer = Optional.of(pointer);
         this.actorId = AutomergeSys.getActorId(this.pointer.get());
+        this.textEncoding = textEncodingOf(pointer);
         this.transactionPtr = Optional.empty();
+        this.nativeState = new NativeState(pointer);
+        this.registration = owned ? NativeCleaner.register(this, NativeMemory.Kind.DOCUMENT, nativeState) : null;
     }
 
     /**
@@ -117,6 +236,15 @@ public class Document implements Read {
         return this.actorId;
     }
 
+    @Override
+    public TextEncoding getTextEncoding() {
+        return this.textEncoding;
+    }
+
+    private static TextEncoding textEncodingOf(DocPointer pointer) {
+        return TextEncoding.values()[AutomergeSys.getTextEncoding(pointer)];
+    }
+
     /**
      * Free the memory associated with this document
      *
@@ -128,7 +256,12 @@ public class Document implements Read {
     public synchronized void free() {
         requireNoTransaction();
         if (this.pointer.isPresent()) {
-            AutomergeSys.freeDoc(this.pointer.get());
+            // Wait for concurrent reads to finish
+            unshare();
+            concurrentLock = null;
+            if (registration != null) {
+                registration.free();
+            }
             this.pointer = Optional.empty();
         }
     }
@@ -141,6 +274,9 @@ public class Document implements Read {
      * Subsequent operations on this Document will fail.
      */
     synchronized void invalidate() {
+        if (registration != null) {
+            registration.disarm();
+        }
         this.pointer = Optional.empty();
     }
 
@@ -160,6 +296,182 @@ public class Document implements Read {
         return new Document(AutomergeSys.loadDoc(bytes));
     }
 
+    /**
+     * Load a document from the remaining bytes of a buffer
+     *
+     * <p>
+     * If the buffer is direct (for example a memory mapped file) the native
+     * library reads the bytes in place without copying them onto the Java heap.
+     * Heap buffers are copied. On success the position of the buffer is advanced
+     * to its limit.
+     *
+     * @param buffer
+     *            The buffer containing the bytes of the document to load
+     * @return The loaded document
+     */
+    public static Document load(ByteBuffer buffer) {
+        LoadLibrary.initialize();
+        DocPointer pointer;
+        if (buffer.isDirect()) {
+            pointer = AutomergeSys.loadDocFromBuffer(buffer, buffer.position(), buffer.remaining());
+        } else {
+            pointer = AutomergeSys.loadDoc(remainingBytes(buffer));
+        }
+        buffer.position(buffer.limit());
+        return new Document(pointer);
+    }
+
+    /**
+     * Load a document from a file
+     *
+     * <p>
+     * The file is memory mapped and read in place by the native library, so the
+     * contents of the file are never copied onto the Java heap.
+     *
+     * @param path
+     *            The file containing the bytes of the document to load
+     * @return The loaded document
+     * @throws IOException
+     *             if the file could not be read
+     * @throws IllegalArgumentException
+     *             if the file is larger than 2GB
+     */
+    public static Document load(Path path) throws IOException {
+        return load(path, TextEncoding.UNICODE_CODE_POINT);
+    }
+
+    /**
+     * Load a document which uses the given text encoding
+     *
+     * @see #load(byte[])
+     * @param bytes
+     *            The bytes of the document to load
+     * @param encoding
+     *            The units of indices into text objects in the loaded document
+     * @return The loaded document
+     */
+    public static Document load(byte[] bytes, TextEncoding encoding) {
+        LoadLibrary.initialize();
+        return new Document(AutomergeSys.loadDocWithEncoding(bytes, encoding));
+    }
+
+    /**
+     * Load a document which uses the given text encoding from the remaining bytes
+     * of a buffer
+     *
+     * @see #load(ByteBuffer)
+     * @param buffer
+     *            The buffer containing the bytes of the document to load
+     * @param encoding
+     *            The units of indices into text objects in the loaded document
+     * @return The loaded document
+     */
+    public static Document load(ByteBuffer buffer, TextEncoding encoding) {
+        LoadLibrary.initialize();
+        DocPointer pointer;
+        if (buffer.isDirect()) {
+            pointer = AutomergeSys.loadDocFromBufferWithEncoding(buffer, buffer.position(), buffer.remaining(),
+                    encoding);
+        } else {
+            pointer = AutomergeSys.loadDocWithEncoding(remainingBytes(buffer), encoding);
+        }
+        buffer.position(buffer.limit());
+        return new Document(pointer);
+    }
+
+    /**
+     * Load a document which uses the given text encoding from a file
+     *
+     * @see #load(Path)
+     * @param path
+     *            The file containing the bytes of the document to load
+     * @param encoding
+     *            The units of indices into text objects in the loaded document
+     * @return The loaded document
+     * @throws IOException
+     *             if the file could not be read
+     * @throws IllegalArgumentException
+     *             if the file is larger than 2GB
+     */
+    public static Document load(Path path, TextEncoding encoding) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("file is too large to load: " + size + " bytes");
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return load(mapped, encoding);
+        }
+    }
+
+    /**
+     * Load many documents in parallel on the common fork join pool
+     *
+     * @see #loadAll(List, Executor)
+     * @param documents
+     *            The bytes of each document to load
+     * @return The result of loading each document, in the same order as
+     *         {@code documents}
+     */
+    public static List<BulkResult<Document>> loadAll(List<byte[]> documents) {
+        return loadAll(documents, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Load many documents in parallel
+     *
+     * <p>
+     * Documents share no state in the native library so each document is loaded
+     * as a separate task on {@code executor}. This method waits for every task to
+     * finish. If a document fails to load the exception is recorded in its result
+     * and the other documents are still loaded.
+     *
+     * @param documents
+     *            The bytes of each document to load
+     * @param executor
+     *            The executor to load the documents on
+     * @return The result of loading each document, in the same order as
+     *         {@code documents}
+     */
+    public static List<BulkResult<Document>> loadAll(List<byte[]> documents, Executor executor) {
+        LoadLibrary.initialize();
+        return BulkResult.runAll(documents, Document::load, executor);
+    }
+
+    /**
+     * Load many documents from buffers in parallel on the common fork join pool
+     *
+     * @see #loadAllBuffers(List, Executor)
+     * @param buffers
+     *            The buffers containing the bytes of each document to load
+     * @return The result of loading each document, in the same order as
+     *         {@code buffers}
+     */
+    public static List<BulkResult<Document>> loadAllBuffers(List<ByteBuffer> buffers) {
+        return loadAllBuffers(buffers, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Load many documents from buffers in parallel
+     *
+     * <p>
+     * Each buffer is loaded as by {@link #load(ByteBuffer)}, so direct buffers are
+     * read in place. The buffers must be distinct objects as their positions are
+     * updated concurrently. Otherwise this behaves like
+     * {@link #loadAll(List, Executor)}.
+     *
+     * @param buffers
+     *            The buffers containing the bytes of each document to load
+     * @param executor
+     *            The executor to load the documents on
+     * @return The result of loading each document, in the same order as
+     *         {@code buffers}
+     */
+    public static List<BulkResult<Document>> loadAllBuffers(List<ByteBuffer> buffers, Executor executor) {
+        LoadLibrary.initialize();
+        return BulkResult.runAll(buffers, Document::load, executor);
+    }
+
     /**
      * Save a document
      *
@@ -168,9 +480,135 @@ public class Document implements Read {
      *
      * @return The bytes of the saved document
      */
-    public synchronized byte[] save() {
+    public byte[] save() {
+        return readDoc(AutomergeSys::saveDoc);
+    }
+
+    /**
+     * Save a document to a stream
+     *
+     * <p>
+     * The saved bytes are written straight from native memory to the stream, no
+     * byte array containing the whole document is allocated on the Java heap.
+     *
+     * @param out
+     *            The stream to write the saved document to. The stream is not
+     *            closed.
+     * @throws IOException
+     *             if writing to the stream fails
+     */
+    public void save(OutputStream out) throws IOException {
+        ByteBuffer saved = readDoc(AutomergeSys::saveDocToNativeBuffer);
+        try {
+            WritableByteChannel channel = Channels.newChannel(out);
+            while (saved.hasRemaining()) {
+                channel.write(saved);
+            }
+        } finally {
+            AutomergeSys.freeNativeBuffer(saved);
+        }
+    }
+
+    /**
+     * Save a document into a buffer
+     *
+     * <p>
+     * The saved bytes are written at the current position of the buffer, which is
+     * then advanced past them. If the buffer does not have enough room nothing is
+     * written.
+     *
+     * @param dest
+     *            The buffer to write the saved document to
+     * @return The number of bytes written
+     * @throws java.nio.BufferOverflowException
+     *             if there is not enough space remaining in the buffer
+     */
+    public int saveTo(ByteBuffer dest) {
+        ByteBuffer saved = readDoc(AutomergeSys::saveDocToNativeBuffer);
+        try {
+            int len = saved.remaining();
+            dest.put(saved);
+            return len;
+        } finally {
+            AutomergeSys.freeNativeBuffer(saved);
+        }
+    }
+
+    /**
+     * Save many documents in parallel on the common fork join pool
+     *
+     * @see #saveAll(List, Executor)
+     * @param documents
+     *            The documents to save
+     * @return The result of saving each document, in the same order as
+     *         {@code documents}
+     */
+    public static List<BulkResult<byte[]>> saveAll(List<Document> documents) {
+        return saveAll(documents, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Save many documents in parallel
+     *
+     * <p>
+     * Each document is saved as a separate task on {@code executor}. This method
+     * waits for every task to finish. If a document fails to save, for example
+     * because it has a transaction in progress, the exception is recorded in its
+     * result and the other documents are still saved.
+     *
+     * @param documents
+     *            The documents to save
+     * @param executor
+     *            The executor to save the documents on
+     * @return The result of saving each document, in the same order as
+     *         {@code documents}
+     */
+    public static List<BulkResult<byte[]>> saveAll(List<Document> documents, Executor executor) {
+        return BulkResult.runAll(documents, Document::save, executor);
+    }
+
+    /**
+     * Save the changes made since the last call to this method
+     *
+     * <p>
+     * The first call on a new document returns all changes, the first call on a
+     * document obtained with {@link load} returns the changes made since it was
+     * loaded. If nothing has changed the returned array is empty.
+     *
+     * <p>
+     * This is much cheaper than {@link save} for a large document with a small
+     * number of new changes. The output can be appended to a previously saved
+     * document: the concatenation of a {@link save} and any number of incremental
+     * saves can be passed to {@link load}, or each chunk can be passed to
+     * {@link loadIncremental} in turn.
+     *
+     * @return The encoded changes
+     * @throws TransactionInProgress
+     *             if a transaction is in progress
+     */
+    public synchronized byte[] saveIncremental() {
+        requireNoTransaction();
+        return AutomergeSys.saveIncremental(exclusivePointer());
+    }
+
+    /**
+     * Load the output of {@link saveIncremental} or {@link save} into this
+     * document
+     *
+     * <p>
+     * Changes which are already present in this document are ignored
+     *
+     * @param bytes
+     *            The bytes to load
+     * @throws TransactionInProgress
+     *             if a transaction is in progress
+     * @throws AutomergeException
+     *             if the bytes are not valid
+     */
+    public synchronized void loadIncremental(byte[] bytes) {
         requireNoTransaction();
-        return AutomergeSys.saveDoc(this.pointer.get());
+        AutomergeSys.applyEncodedChanges(exclusivePointer(), bytes);
+        version++;
     }
 
     /**
@@ -178,9 +616,8 @@ public class Document implements Read {
      *
      * @return The new document
      */
-    public synchronized Document fork() {
-        requireNoTransaction();
-        return new Document(AutomergeSys.forkDoc(this.pointer.get()));
+    public Document fork() {
+        return new Document(readDoc(AutomergeSys::forkDoc));
     }
 
     /**
@@ -190,9 +627,9 @@ public class Document implements Read {
      *            The actor ID to use for the new document
      * @return The new document
      */
-    public synchronized Document fork(byte[] newActor) {
-        requireNoTransaction();
-        return new Document(AutomergeSys.forkDocWithActor(this.pointer.get(), newActor));
+    public Document fork(byte[] newActor) {
+        DocPointer forked = readDoc(doc -> AutomergeSys.forkDocWithActor(doc, newActor));
+        return new Document(forked);
     }
 
     /**
@@ -202,9 +639,9 @@ public class Document implements Read {
      *            The heads to fork the document at
      * @return The new document
      */
-    public synchronized Document fork(ChangeHash[] heads) {
-        requireNoTransaction();
-        return new Document(AutomergeSys.forkDocAt(this.pointer.get(), heads));
+    public Document fork(ChangeHash[] heads) {
+        DocPointer forked = readDoc(doc -> AutomergeSys.forkDocAt(doc, heads));
+        return new Document(forked);
     }
 
     /**
@@ -216,9 +653,70 @@ public class Document implements Read {
      *            The actor ID to use for the new document
      * @return The new document
      */
-    public synchronized Document fork(ChangeHash[] heads, byte[] newActor) {
-        requireNoTransaction();
-        return new Document(AutomergeSys.forkDocAtWithActor(this.pointer.get(), heads, newActor));
+    public Document fork(ChangeHash[] heads, byte[] newActor) {
+        DocPointer forked = readDoc(doc -> AutomergeSys.forkDocAtWithActor(doc, heads, newActor));
+        return new Document(forked);
+    }
+
+    /**
+     * Create a read only view of the document as it is now
+     *
+     * <p>
+     * The snapshot is a point in time view pinned to the heads of the document
+     * when it is created. Changes committed to the document afterwards do not
+     * affect it. If a transaction is in progress the snapshot does not include
+     * the uncommitted changes in the transaction.
+     *
+     * @return the snapshot
+     */
+    public synchronized Snapshot snapshot() {
+        return new Snapshot(this, getHeads());
+    }
+
+    /**
+     * Enable or disable concurrent reads of this document
+     *
+     * <p>
+     * By default every method of a document holds the document's lock, so reads
+     * from different threads run one at a time. With concurrent reads enabled the
+     * methods of {@link Read} take the read half of a read/write lock instead and
+     * the native document is shared between them, so any number of reads run in
+     * parallel. The same goes for the other methods which only read the document,
+     * such as saving, forking, reading changes, generating sync messages and
+     * making patches. Methods which change the document need it to itself and
+     * wait for the reads in progress to finish. Moving the native document between the
+     * shared and the exclusive state is cheap but not free, so this pays off for
+     * documents which are read much more often than they are changed.
+     *
+     * <p>
+     * While a transaction is in progress reads go through the transaction and
+     * run one at a time.
+     *
+     * @param enabled
+     *            whether reads may run in parallel
+     * @throws IllegalStateException
+     *             if this document is owned by a repo
+     */
+    public synchronized void setConcurrentReads(boolean enabled) {
+        if (enabled) {
+            if (registration == null) {
+                throw new IllegalStateException("concurrent reads are not supported for documents owned by a repo");
+            }
+            if (concurrentLock == null) {
+                concurrentLock = new ReentrantReadWriteLock();
+            }
+        } else if (concurrentLock != null) {
+            unshare();
+            concurrentLock = null;
+        }
+    }
+
+    /**
+     * @return whether concurrent reads are enabled
+     * @see #setConcurrentReads(boolean)
+     */
+    public boolean isConcurrentReads() {
+        return concurrentLock != null;
     }
 
     /**
@@ -233,7 +731,14 @@ public class Document implements Read {
     public synchronized void merge(Document other) {
         requireNoTransaction();
         other.requireNoTransaction();
-        AutomergeSys.mergeDoc(this.pointer.get(), other.pointer.get());
+        DocPointer doc = exclusivePointer();
+        List<Lock> locks = lockForMerge(Collections.singletonList(other));
+        try {
+            AutomergeSys.mergeDoc(doc, other.pointer.get());
+        } finally {
+            unlockAll(locks);
+        }
+        version++;
     }
 
     /**
@@ -251,9 +756,129 @@ public class Document implements Read {
     public synchronized void merge(Document other, PatchLog patchLog) {
         requireNoTransaction();
         other.requireNoTransaction();
-        patchLog.with((pointer) -> {
-            AutomergeSys.mergeDocLogPatches(this.pointer.get(), other.pointer.get(), pointer);
-        });
+        DocPointer doc = exclusivePointer();
+        List<Lock> locks = lockForMerge(Collections.singletonList(other));
+        try {
+            patchLog.with((pointer) -> {
+                AutomergeSys.mergeDocLogPatches(doc, other.pointer.get(), pointer);
+            });
+        } finally {
+            unlockAll(locks);
+        }
+        version++;
+    }
+
+    /**
+     * Merge many documents into this one
+     *
+     * <p>
+     * This is equivalent to calling {@link #merge(Document)} with each document
+     * in turn but is much cheaper when the documents share most of their history,
+     * as replicas of the same document do. The changes missing from this document
+     * are collected from every other document and deduplicated, then applied
+     * together in a single pass. The other documents with concurrent reads
+     * enabled are all read locked before the merge starts and stay locked until
+     * it is done, so changes to them wait for the whole merge, while reads of
+     * them carry on. Passing this document or the same document more than once
+     * is allowed, they are ignored.
+     *
+     * @param others
+     *            The documents to merge into this one
+     * @throws TransactionInProgress
+     *             if there is a transaction in progress on this document or on
+     *             any of the other documents
+     */
+    public synchronized void mergeAll(Document... others) {
+        requireNoTransaction();
+        DocPointer doc = exclusivePointer();
+        List<Document> distinct = distinctOthers(others);
+        List<Lock> locks = lockForMerge(distinct);
+        try {
+            AutomergeSys.mergeDocs(doc, pointersOf(distinct));
+        } finally {
+            unlockAll(locks);
+        }
+        version++;
+    }
+
+    /**
+     * Merge many documents into this one logging patches
+     *
+     * @see #mergeAll(Document...)
+     * @param patchLog
+     *            The patch log in which to record any changes to the current state
+     *            which occur as a result of the merge
+     * @param others
+     *            The documents to merge into this one
+     * @throws TransactionInProgress
+     *             if there is a transaction in progress on this document or on
+     *             any of the other documents
+     */
+    public synchronized void mergeAll(PatchLog patchLog, Document... others) {
+        requireNoTransaction();
+        DocPointer doc = exclusivePointer();
+        List<Document> distinct = distinctOthers(others);
+        List<Lock> locks = lockForMerge(distinct);
+        try {
+            DocPointer[] pointers = pointersOf(distinct);
+            patchLog.with((pointer) -> {
+                AutomergeSys.mergeDocsLogPatches(doc, pointers, pointer);
+            });
+        } finally {
+            unlockAll(locks);
+        }
+        version++;
+    }
+
+    private List<Document> distinctOthers(Document[] others) {
+        // The native side locks each document so this document and duplicates
+        // have to be removed to avoid locking a document twice
+        Set<Document> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        seen.add(this);
+        List<Document> distinct = new ArrayList<>(others.length);
+        for (Document other : others) {
+            if (seen.add(other)) {
+                other.requireNoTransaction();
+                distinct.add(other);
+            }
+        }
+        return distinct;
+    }
+
+    private static DocPointer[] pointersOf(List<Document> docs) {
+        DocPointer[] pointers = new DocPointer[docs.size()];
+        for (int i = 0; i < pointers.length; i++) {
+            pointers[i] = docs.get(i).pointer.get();
+        }
+        return pointers;
+    }
+
+    /**
+     * Read lock the documents being merged into this one which have concurrent
+     * reads enabled, so that they stay shared, or stay unshared, while the native
+     * library reads them. The locks are taken in the order the documents were
+     * created so that two merges running at once cannot deadlock.
+     *
+     * @return the locks to release once the merge is done
+     */
+    private static List<Lock> lockForMerge(List<Document> others) {
+        List<Document> ordered = new ArrayList<>(others);
+        ordered.sort(Comparator.comparingLong(other -> other.lockOrder));
+        List<Lock> locks = new ArrayList<>(ordered.size());
+        for (Document other : ordered) {
+            ReentrantReadWriteLock lock = other.concurrentLock;
+            if (lock != null) {
+                lock.readLock().lock();
+                locks.add(lock.readLock());
+            }
+        }
+        return locks;
+    }
+
+    private static void unlockAll(List<Lock> locks) {
+        for (Lock lock : locks) {
+            lock.unlock();
+        }
     }
 
     /**
@@ -267,9 +892,86 @@ public class Document implements Read {
      *            The heads to encode changes since
      * @return The encoded changes
      */
-    public synchronized byte[] encodeChangesSince(ChangeHash[] heads) {
-        requireNoTransaction();
-        return AutomergeSys.encodeChangesSince(this.pointer.get(), heads);
+    public byte[] encodeChangesSince(ChangeHash[] heads) {
+        return readDoc(doc -> AutomergeSys.encodeChangesSince(doc, heads));
+    }
+
+    /**
+     * Iterate over the changes made since the given heads
+     *
+     * <p>
+     * Changes are returned in causal order, every change comes after the changes
+     * it depends on. The iterator fetches changes from the document in batches
+     * so iterating over a long history does not need to hold all of it in
+     * memory. The changes returned are those which were in the document when
+     * this method was called.
+     *
+     * @param heads
+     *            The heads to return changes since, pass an empty array for the
+     *            whole history
+     * @return An iterator over the changes
+     * @throws TransactionInProgress
+     *             if a transaction is in progress, including when advancing the
+     *             iterator
+     */
+    public Iterator<Change> getChanges(ChangeHash[] heads) {
+        return ChangeHistory.changes(this, readDoc(doc -> AutomergeSys.getChangeHashesSince(doc, heads)));
+    }
+
+    /**
+     * Iterate over the metadata of the changes made since the given heads
+     *
+     * <p>
+     * This is the same as {@link #getChanges(ChangeHash[])} but does not copy
+     * the encoded changes into Java.
+     *
+     * @param heads
+     *            The heads to return changes since, pass an empty array for the
+     *            whole history
+     * @return An iterator over the metadata of the changes
+     * @throws TransactionInProgress
+     *             if a transaction is in progress, including when advancing the
+     *             iterator
+     */
+    public Iterator<ChangeMeta> getChangeMetas(ChangeHash[] heads) {
+        return ChangeHistory.metas(this, readDoc(doc -> AutomergeSys.getChangeHashesSince(doc, heads)));
+    }
+
+    /**
+     * Get a single change
+     *
+     * @param hash
+     *            The hash of the change
+     * @return The change or Optional.empty if this document does not contain it
+     * @throws TransactionInProgress
+     *             if a transaction is in progress
+     */
+    public Optional<Change> getChangeByHash(ChangeHash hash) {
+        List<ChangeMeta> changes = ChangeHistory.decode(encodeChangesByHash(hash.getBytes(), true), true);
+        return changes.isEmpty() ? Optional.empty() : Optional.of((Change) changes.get(0));
+    }
+
+    /**
+     * Get the metadata of a single change
+     *
+     * @param hash
+     *            The hash of the change
+     * @return The metadata or Optional.empty if this document does not contain
+     *         the change
+     * @throws TransactionInProgress
+     *             if a transaction is in progress
+     */
+    public Optional<ChangeMeta> getChangeMeta(ChangeHash hash) {
+        List<ChangeMeta> changes = ChangeHistory.decode(encodeChangesByHash(hash.getBytes(), false), false);
+        return changes.isEmpty() ? Optional.empty() : Optional.of(changes.get(0));
+    }
+
+    byte[] encodeChangesByHash(byte[] hashes, boolean withBytes) {
+        if (withBytes) {
+            return readDoc(doc -> AutomergeSys.getChangesByHash(doc, hashes));
+        } else {
+            return readDoc(doc -> AutomergeSys.getChangeMetasByHash(doc, hashes));
+        }
     }
 
     /**
@@ -285,7 +987,35 @@ public class Document implements Read {
      */
     public synchronized void applyEncodedChanges(byte[] changes) {
         requireNoTransaction();
-        AutomergeSys.applyEncodedChanges(this.pointer.get(), changes);
+        AutomergeSys.applyEncodedChanges(exclusivePointer(), changes);
+        version++;
+    }
+
+    /**
+     * Incorporate changes from the remaining bytes of a buffer into this document
+     *
+     * <p>
+     * Direct buffers are read in place by the native library, heap buffers are
+     * copied. On success the position of the buffer is advanced to its limit.
+     *
+     * @param changes
+     *            The changes to incorporate. Produced by {@link encodeChangesSince}
+     *            or {@link save}
+     * @throws TransactionInProgress
+     *             if a transaction is in progress
+     * @throws AutomergeException
+     *             if the changes are not valid
+     */
+    public synchronized void applyEncodedChanges(ByteBuffer changes) {
+        requireNoTransaction();
+        if (changes.isDirect()) {
+            AutomergeSys.applyEncodedChangesFromBuffer(exclusivePointer(), changes, changes.position(),
+                    changes.remaining());
+        } else {
+            AutomergeSys.applyEncodedChanges(exclusivePointer(), remainingBytes(changes));
+        }
+        changes.position(changes.limit());
+        version++;
     }
 
     /**
@@ -308,101 +1038,104 @@ public class Document implements Read {
      */
     public synchronized void applyEncodedChanges(byte[] changes, PatchLog patchLog) {
         requireNoTransaction();
+        // Wait for concurrent reads, which may be using the patch log, before locking it
+        DocPointer doc = exclusivePointer();
         patchLog.with((AutomergeSys.PatchLogPointer patchLogPointer) -> AutomergeSys
-                .applyEncodedChangesLogPatches(this.pointer.get(), patchLogPointer, changes));
+                .applyEncodedChangesLogPatches(doc, patchLogPointer, changes));
+        version++;
     }
 
-    public synchronized Optional<AmValue> get(ObjectId obj, String key) {
+    public Optional<AmValue> get(ObjectId obj, String key) {
         return read(
                 tx -> AutomergeSys.getInMapInTx(tx, obj, key),
                 doc -> AutomergeSys.getInMapInDoc(doc, obj, key));
     }
 
-    public synchronized Optional<AmValue> get(ObjectId obj, long key) {
+    public Optional<AmValue> get(ObjectId obj, long key) {
         return read(
                 tx -> AutomergeSys.getInListInTx(tx, obj, key),
                 doc -> AutomergeSys.getInListInDoc(doc, obj, key));
     }
 
-    public synchronized Optional<AmValue> get(ObjectId obj, String key, ChangeHash[] heads) {
+    public Optional<AmValue> get(ObjectId obj, String key, ChangeHash[] heads) {
         return read(
                 tx -> AutomergeSys.getAtInMapInTx(tx, obj, key, heads),
                 doc -> AutomergeSys.getAtInMapInDoc(doc, obj, key, heads));
     }
 
-    public synchronized Optional<AmValue> get(ObjectId obj, long idx, ChangeHash[] heads) {
+    public Optional<AmValue> get(ObjectId obj, long idx, ChangeHash[] heads) {
         return read(
                 tx -> AutomergeSys.getAtInListInTx(tx, obj, idx, heads),
                 doc -> AutomergeSys.getAtInListInDoc(doc, obj, idx, heads));
     }
 
-    public synchronized Optional<Conflicts> getAll(ObjectId obj, String key) {
+    public Optional<Conflicts> getAll(ObjectId obj, String key) {
         return read(
                 tx -> AutomergeSys.getAllInMapInTx(tx, obj, key),
                 doc -> AutomergeSys.getAllInMapInDoc(doc, obj, key));
     }
 
-    public synchronized Optional<Conflicts> getAll(ObjectId obj, long idx) {
+    public Optional<Conflicts> getAll(ObjectId obj, long idx) {
         return read(
                 tx -> AutomergeSys.getAllInListInTx(tx, obj, idx),
                 doc -> AutomergeSys.getAllInListInDoc(doc, obj, idx));
     }
 
-    public synchronized Optional<Conflicts> getAll(ObjectId obj, String key, ChangeHash[] heads) {
+    public Optional<Conflicts> getAll(ObjectId obj, String key, ChangeHash[] heads) {
         return read(
                 tx -> AutomergeSys.getAllAtInMapInTx(tx, obj, key, heads),
                 doc -> AutomergeSys.getAllAtInMapInDoc(doc, obj, key, heads));
     }
 
-    public synchronized Optional<Conflicts> getAll(ObjectId obj, long idx, ChangeHash[] heads) {
+    public Optional<Conflicts> getAll(ObjectId obj, long idx, ChangeHash[] heads) {
         return read(
                 tx -> AutomergeSys.getAllAtInListInTx(tx, obj, idx, heads),
                 doc -> AutomergeSys.getAllAtInListInDoc(doc, obj, idx, heads));
     }
 
-    public synchronized Optional<String> text(ObjectId obj) {
+    public Optional<String> text(ObjectId obj) {
         return read(
                 tx -> AutomergeSys.getTextInTx(tx, obj),
                 doc -> AutomergeSys.getTextInDoc(doc, obj));
     }
 
-    public synchronized Optional<String> text(ObjectId obj, ChangeHash[] heads) {
+    public Optional<String> text(ObjectId obj, ChangeHash[] heads) {
         return read(
                 tx -> AutomergeSys.getTextAtInTx(tx, obj, heads),
                 doc -> AutomergeSys.getTextAtInDoc(doc, obj, heads));
     }
 
-    public synchronized Optional<String[]> keys(ObjectId obj) {
+    public Optional<String[]> keys(ObjectId obj) {
         return read(
                 tx -> AutomergeSys.getKeysInTx(tx, obj),
                 doc -> AutomergeSys.getKeysInDoc(doc, obj));
     }
 
-    public synchronized Optional<String[]> keys(ObjectId obj, ChangeHash[] heads) {
+    public Optional<String[]> keys(ObjectId obj, ChangeHash[] heads) {
         return read(
                 tx -> AutomergeSys.getKeysAtInTx(tx, obj, heads),
                 doc -> AutomergeSys.getKeysAtInDoc(doc, obj, heads));
     }
 
-    public synchronized Optional<MapEntry[]> mapEntries(ObjectId obj) {
+    public Optional<MapEntry[]> mapEntries(ObjectId obj) {
         return read(
                 tx -> AutomergeSys.getMapEntriesInTx(tx, obj),
                 doc -> AutomergeSys.getMapEntriesInDoc(doc, obj));
     }
 
-    public synchronized Optional<MapEntry[]> mapEntries(ObjectId obj, ChangeHash[] heads) {
+    public Optional<MapEntry[]> mapEntries(ObjectId obj, ChangeHash[] heads) {
         return read(
                 tx -> AutomergeSys.getMapEntriesAtInTx(tx, obj, heads),
                 doc -> AutomergeSys.getMapEntriesAtInDoc(doc, obj, heads));
     }
 
-    public synchronized long length(ObjectId obj) {
+    public long length(ObjectId obj) {
         return read(
                 tx -> AutomergeSys.getListLengthInTx(tx, obj),
                 doc -> AutomergeSys.getListLengthInDoc(doc, obj));
     }
 
-    public synchronized long length(ObjectId obj, ChangeHash[] heads) {
+    public long length(ObjectId obj, ChangeHash[] heads) {
         return read(
                 tx -> AutomergeSys.getListLengthAtInTx(tx, obj, heads),
                 doc -> AutomergeSys.getListLengthAtInDoc(doc, obj, heads));
@@ -423,8 +1156,9 @@ public class Document implements Read {
      */
     public synchronized Transaction startTransaction() {
         requireNoTransaction();
-        AutomergeSys.TransactionPointer ptr = AutomergeSys.startTransaction(this.pointer.get());
+        AutomergeSys.TransactionPointer ptr = AutomergeSys.startTransaction(exclusivePointer());
         this.transactionPtr = Optional.of(ptr);
+        nativeState.transaction = ptr;
         return new TransactionImpl(this, ptr);
     }
 
@@ -446,9 +1180,10 @@ public class Document implements Read {
     public synchronized Transaction startTransaction(PatchLog patchLog) {
         requireNoTransaction();
         AutomergeSys.PatchLogPointer patchLogPointer = patchLog.take();
-        AutomergeSys.TransactionPointer ptr = AutomergeSys.startTransactionLogPatches(this.pointer.get(),
+        AutomergeSys.TransactionPointer ptr = AutomergeSys.startTransactionLogPatches(exclusivePointer(),
                 patchLogPointer);
         this.transactionPtr = Optional.of(ptr);
+        nativeState.transaction = ptr;
         return new TransactionImpl(this, ptr, (AutomergeSys.PatchLogPointer returnedPointer) -> {
             patchLog.put(returnedPointer);
         });
@@ -477,45 +1212,114 @@ public class Document implements Read {
      */
     public synchronized Transaction startTransactionAt(PatchLog patchLog, ChangeHash[] heads) {
         requireNoTransaction();
-        AutomergeSys.TransactionPointer ptr = AutomergeSys.startTransactionAt(this.pointer.get(), patchLog.take(),
+        AutomergeSys.TransactionPointer ptr = AutomergeSys.startTransactionAt(exclusivePointer(), patchLog.take(),
                 heads);
+        nativeState.transaction = ptr;
         return new TransactionImpl(this, ptr, (AutomergeSys.PatchLogPointer returnedPointer) -> {
             patchLog.put(returnedPointer);
         });
     }
 
-    public synchronized Optional<AmValue[]> listItems(ObjectId obj) {
+    public Optional<AmValue[]> listItems(ObjectId obj) {
         return read(
                 tx -> AutomergeSys.getListItemsInTx(tx, obj),
                 doc -> AutomergeSys.getListItemsInDoc(doc, obj));
     }
 
-    public synchronized Optional<AmValue[]> listItems(ObjectId obj, ChangeHash[] heads) {
+    public Optional<AmValue[]> listItems(ObjectId obj, ChangeHash[] heads) {
         return read(
                 tx -> AutomergeSys.getListItemsAtInTx(tx, obj, heads),
                 doc -> AutomergeSys.getListItemsAtInDoc(doc, obj, heads));
     }
 
-    public synchronized ChangeHash[] getHeads() {
+    public ChangeHash[] getHeads() {
         return read(
                 tx -> AutomergeSys.getHeadsInTx(tx),
                 doc -> AutomergeSys.getHeadsInDoc(doc));
     }
 
-    public synchronized List<Mark> marks(ObjectId obj) {
+    public List<Mark> marks(ObjectId obj) {
         return read(
                 tx -> AutomergeSys.getMarksInTx(tx, obj, Optional.empty()),
                 doc -> AutomergeSys.getMarksInDoc(doc, obj, Optional.empty()));
     }
 
-    public synchronized List<Mark> marks(ObjectId obj, ChangeHash[] heads) {
+    public List<Mark> marks(ObjectId obj, ChangeHash[] heads) {
         return read(
                 tx -> AutomergeSys.getMarksInTx(tx, obj, Optional.of(heads)),
                 doc -> AutomergeSys.getMarksInDoc(doc, obj, Optional.of(heads)));
     }
 
+    public List<Mark> marks(ObjectId obj, long start, long end) {
+        return read(
+                tx -> AutomergeSys.getMarksInRangeInTx(tx, obj, start, end, Optional.empty()),
+                doc -> AutomergeSys.getMarksInRangeInDoc(doc, obj, start, end, Optional.empty()));
+    }
+
+    public List<Mark> marks(ObjectId obj, long start, long end, ChangeHash[] heads) {
+        return read(
+                tx -> AutomergeSys.getMarksInRangeInTx(tx, obj, start, end, Optional.of(heads)),
+                doc -> AutomergeSys.getMarksInRangeInDoc(doc, obj, start, end, Optional.of(heads)));
+    }
+
+    public List<Span> spans(ObjectId obj) {
+        return spans(obj, 0, Long.MAX_VALUE);
+    }
+
+    public List<Span> spans(ObjectId obj, ChangeHash[] heads) {
+        return spans(obj, 0, Long.MAX_VALUE, heads);
+    }
+
+    public List<Span> spans(ObjectId obj, long start, long end) {
+        byte[] encoded = readSpans(obj, start, end, Optional.empty());
+        return Span.decode(encoded);
+    }
+
+    public List<Span> spans(ObjectId obj, long start, long end, ChangeHash[] heads) {
+        byte[] encoded = readSpans(obj, start, end, Optional.of(heads));
+        return Span.decode(encoded);
+    }
+
+    // The spans are decoded outside the lock
+    private byte[] readSpans(ObjectId obj, long start, long end, Optional<ChangeHash[]> heads) {
+        return read(
+                tx -> AutomergeSys.getSpansInTx(tx, obj, start, end, heads),
+                doc -> AutomergeSys.getSpansInDoc(doc, obj, start, end, heads));
+    }
+
     protected synchronized void clearTransaction() {
         this.transactionPtr = Optional.empty();
+        nativeState.transaction = null;
+        version++;
+    }
+
+    /**
+     * A counter which changes whenever the document may have changed
+     *
+     * <p>
+     * The version is incremented whenever a transaction is committed or rolled
+     * back and whenever changes are merged, applied, loaded or received in a sync
+     * message, so if the version is the same as when it was last read the
+     * document has not changed. It may be incremented by an operation which turns
+     * out not to change anything. Reading the version does not take the document
+     * lock or call into the native library so it is cheap enough to poll.
+     *
+     * <p>
+     * Changes made in a transaction which has not been committed yet are not
+     * reflected in the version.
+     *
+     * @return the current version
+     */
+    public long version() {
+        return version;
+    }
+
+    /**
+     * The version of the document, or -1 if a transaction is in progress as the
+     * document can then change without the version changing
+     */
+    synchronized long getStableVersion() {
+        return this.transactionPtr.isPresent() ? -1 : version;
     }
 
     DocPointer getDocPointer() {
@@ -529,20 +1333,173 @@ public class Document implements Read {
         }
     }
 
+    /** Copy the remaining bytes of a heap buffer without moving its position. */
+    private static byte[] remainingBytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+
     /** Route a read operation through the transaction (if active) or the document. */
     private <T> T read(
             Function<AutomergeSys.TransactionPointer, T> txFn,
             Function<DocPointer, T> docFn) {
-        if (this.transactionPtr.isPresent()) {
-            return txFn.apply(this.transactionPtr.get());
-        } else {
-            return docFn.apply(this.pointer.get());
+        Lock lock = lockShared();
+        if (lock != null) {
+            try {
+                return docFn.apply(this.pointer.get());
+            } finally {
+                lock.unlock();
+            }
+        }
+        synchronized (this) {
+            if (this.transactionPtr.isPresent()) {
+                return txFn.apply(this.transactionPtr.get());
+            } else {
+                return docFn.apply(this.pointer.get());
+            }
         }
     }
 
-    protected synchronized Optional<byte[]> generateSyncMessage(AutomergeSys.SyncStatePointer syncState) {
-        requireNoTransaction();
-        return AutomergeSys.generateSyncMessage(syncState, this.pointer.get());
+    /** {@link #read} for reads which return a {@code long}, without boxing it. */
+    private long readLong(
+            ToLongFunction<AutomergeSys.TransactionPointer> txFn,
+            ToLongFunction<DocPointer> docFn) {
+        Lock lock = lockShared();
+        if (lock != null) {
+            try {
+                return docFn.applyAsLong(this.pointer.get());
+            } finally {
+                lock.unlock();
+            }
+        }
+        synchronized (this) {
+            if (this.transactionPtr.isPresent()) {
+                return txFn.applyAsLong(this.transactionPtr.get());
+            } else {
+                return docFn.applyAsLong(this.pointer.get());
+            }
+        }
+    }
+
+    /** {@link #read} for reads which return a {@code double}, without boxing it. */
+    private double readDouble(
+            ToDoubleFunction<AutomergeSys.TransactionPointer> txFn,
+            ToDoubleFunction<DocPointer> docFn) {
+        Lock lock = lockShared();
+        if (lock != null) {
+            try {
+                return docFn.applyAsDouble(this.pointer.get());
+            } finally {
+                lock.unlock();
+            }
+        }
+        synchronized (this) {
+            if (this.transactionPtr.isPresent()) {
+                return txFn.applyAsDouble(this.transactionPtr.get());
+            } else {
+                return docFn.applyAsDouble(this.pointer.get());
+            }
+        }
+    }
+
+    /** {@link #read} for reads which return a {@code boolean}, without boxing it. */
+    private boolean readBoolean(
+            Predicate<AutomergeSys.TransactionPointer> txFn,
+            Predicate<DocPointer> docFn) {
+        Lock lock = lockShared();
+        if (lock != null) {
+            try {
+                return docFn.test(this.pointer.get());
+            } finally {
+                lock.unlock();
+            }
+        }
+        synchronized (this) {
+            if (this.transactionPtr.isPresent()) {
+                return txFn.test(this.transactionPtr.get());
+            } else {
+                return docFn.test(this.pointer.get());
+            }
+        }
+    }
+
+    /**
+     * Route a read which needs the document itself rather than a transaction
+     *
+     * @throws TransactionInProgress
+     *             if a transaction is in progress
+     */
+    private <T> T readDoc(Function<DocPointer, T> docFn) {
+        return read(tx -> {
+            throw new TransactionInProgress();
+        }, docFn);
+    }
+
+    /**
+     * Take the read lock for a concurrent read, sharing the native document
+     * first if an exclusive operation has run since the last read
+     *
+     * @return the read lock, or null if the read must hold the monitor instead
+     *         because concurrent reads are disabled, a transaction is in progress
+     *         or the document has been freed
+     */
+    private Lock lockShared() {
+        ReentrantReadWriteLock lock = concurrentLock;
+        if (lock == null) {
+            return null;
+        }
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        if (shared) {
+            return readLock;
+        }
+        readLock.unlock();
+        synchronized (this) {
+            if (concurrentLock != lock || this.transactionPtr.isPresent() || !this.pointer.isPresent()) {
+                return null;
+            }
+            lock.writeLock().lock();
+            try {
+                if (!shared) {
+                    AutomergeSys.shareDoc(this.pointer.get());
+                    shared = true;
+                }
+                // Downgrade to the read lock before letting other readers in
+                readLock.lock();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return readLock;
+        }
+    }
+
+    /**
+     * Move the native document back out of the shared state so it can be used
+     * exclusively. Must be called while holding the monitor, which stops readers
+     * sharing it again until the exclusive operation is done.
+     */
+    private void unshare() {
+        if (shared) {
+            ReentrantReadWriteLock lock = concurrentLock;
+            lock.writeLock().lock();
+            try {
+                AutomergeSys.unshareDoc(this.pointer.get());
+                shared = false;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /** The native document for an operation which needs it to itself. */
+    private DocPointer exclusivePointer() {
+        unshare();
+        return this.pointer.get();
+    }
+
+    protected Optional<byte[]> generateSyncMessage(AutomergeSys.SyncStatePointer syncState) {
+        return readDoc(doc -> AutomergeSys.generateSyncMessage(syncState, doc));
     }
 
     /**
@@ -553,13 +1510,58 @@ public class Document implements Read {
      * @return the sync message to send to the other side, or {@link Optional#empty}
      *         if there is nothing to send
      */
-    public synchronized Optional<byte[]> generateSyncMessage(SyncState syncState) {
-        return syncState.generateSyncMessage(this);
+    public Optional<byte[]> generateSyncMessage(SyncState syncState) {
+        // Lock the document before the sync state, as receiving a message does
+        return readDoc(doc -> syncState.generateSyncMessage(this));
+    }
+
+    boolean isInSync(SyncState syncState) {
+        return read(tx -> {
+            // The document can't be passed to the native library while a
+            // transaction holds it, so compare the heads here
+            Set<ChangeHash> shared = new HashSet<>(Arrays.asList(syncState.sharedHeads()));
+            return shared.equals(new HashSet<>(Arrays.asList(AutomergeSys.getHeadsInTx(tx))));
+        }, doc -> syncState.isInSync(doc));
+    }
+
+    /**
+     * Generate sync messages for many connections at once
+     *
+     * <p>
+     * The result is the same as calling {@link #generateSyncMessage(SyncState)}
+     * for each sync state in turn, but all the messages are generated in a single
+     * call while holding the document lock once. Peers which are in the same
+     * sync state, as is typical for many peers which are all up to date with a
+     * busy document, share the work of generating their message, so the cost
+     * grows with the number of distinct sync states rather than the number of
+     * peers.
+     *
+     * <p>
+     * The sync states must not be used concurrently from other threads while
+     * this method runs.
+     *
+     * @param syncStates
+     *            the {@link SyncState}s for the connections you are syncing with
+     * @return the sync message to send on each connection, or
+     *         {@link Optional#empty} if there is nothing to send, in the same
+     *         order as {@code syncStates}
+     * @throws TransactionInProgress
+     *             if a transaction is in progress
+     */
+    public Optional<byte[]>[] generateSyncMessages(SyncState[] syncStates) {
+        return readDoc(doc -> {
+            AutomergeSys.SyncStatePointer[] pointers = new AutomergeSys.SyncStatePointer[syncStates.length];
+            for (int i = 0; i < syncStates.length; i++) {
+                pointers[i] = syncStates[i].getPointer();
+            }
+            return AutomergeSys.generateSyncMessages(pointers, doc);
+        });
     }
 
     protected synchronized void receiveSyncMessage(AutomergeSys.SyncStatePointer syncState, byte[] message) {
         requireNoTransaction();
-        AutomergeSys.receiveSyncMessage(syncState, this.pointer.get(), message);
+        AutomergeSys.receiveSyncMessage(syncState, exclusivePointer(), message);
+        version++;
     }
 
     /**
@@ -577,6 +1579,9 @@ public class Document implements Read {
      *             if a transaction is already in progress
      */
     public synchronized void receiveSyncMessage(SyncState syncState, byte[] message) {
+        // Wait for concurrent reads, which may be generating a message from the
+        // sync state, before locking the sync state
+        unshare();
         syncState.receiveSyncMessage(this, message);
     }
 
@@ -593,17 +1598,22 @@ public class Document implements Read {
      *             if a transaction is already in progress
      */
     public synchronized void receiveSyncMessage(SyncState syncState, PatchLog patchLog, byte[] message) {
+        unshare();
         syncState.receiveSyncMessageLogPatches(this, patchLog, message);
     }
 
-    public synchronized List<Patch> makePatches(PatchLog patchLog) {
-        requireNoTransaction();
-        return patchLog.with((AutomergeSys.PatchLogPointer p) -> AutomergeSys.makePatches(this.pointer.get(), p));
+    public List<Patch> makePatches(PatchLog patchLog) {
+        if (patchLog.isCoalescing()) {
+            return readDoc(doc -> patchLog
+                    .with((AutomergeSys.PatchLogPointer p) -> AutomergeSys.makeCoalescedPatches(doc, p)));
+        }
+        return readDoc(doc -> patchLog.with((AutomergeSys.PatchLogPointer p) -> AutomergeSys.makePatches(doc, p)));
     }
 
     protected synchronized void receiveSyncMessageLogPatches(AutomergeSys.SyncStatePointer syncState,
             AutomergeSys.PatchLogPointer patchLog, byte[] message) {
-        AutomergeSys.receiveSyncMessageLogPatches(syncState, this.pointer.get(), patchLog, message);
+        AutomergeSys.receiveSyncMessageLogPatches(syncState, exclusivePointer(), patchLog, message);
+        version++;
     }
 
     /**
@@ -617,56 +1627,294 @@ public class Document implements Read {
      * @return The patches required to transform the state at `before` to the state
      *         at `after`
      */
-    public synchronized List<Patch> diff(ChangeHash[] before, ChangeHash[] after) {
-        return AutomergeSys.diff(this.pointer.get(), before, after);
+    public List<Patch> diff(ChangeHash[] before, ChangeHash[] after) {
+        return readDoc(doc -> AutomergeSys.diff(doc, before, after));
+    }
+
+    /**
+     * Pass the patches in a patch log to a visitor one at a time
+     *
+     * <p>
+     * This produces the same patches as {@link #makePatches(PatchLog)} but
+     * without holding all of them in memory as Java objects. The visitor is
+     * called after the patches have been read from the document, so it is free to
+     * read from or modify the document.
+     *
+     * @param patchLog
+     *            the patch log to make patches from
+     * @param visitor
+     *            the visitor to pass each patch to
+     * @throws TransactionInProgress
+     *             if a transaction is already in progress
+     */
+    public void makePatches(PatchLog patchLog, PatchVisitor visitor) {
+        byte[] encoded;
+        if (patchLog.isCoalescing()) {
+            encoded = readDoc(doc -> patchLog
+                    .with((AutomergeSys.PatchLogPointer p) -> AutomergeSys.makeCoalescedPatchesEncoded(doc, p)));
+        } else {
+            encoded = readDoc(
+                    doc -> patchLog.with((AutomergeSys.PatchLogPointer p) -> AutomergeSys.makePatchesEncoded(doc, p)));
+        }
+        PatchDecoder.visit(encoded, visitor);
+    }
+
+    /**
+     * Pass the patches required to modify the state at `before` to become the
+     * state at `after` to a visitor one at a time
+     *
+     * @param before
+     *            The heads of the state to start from
+     * @param after
+     *            The heads of the state to end at
+     * @param visitor
+     *            the visitor to pass each patch to
+     * @see #makePatches(PatchLog, PatchVisitor)
+     */
+    public void diff(ChangeHash[] before, ChangeHash[] after, PatchVisitor visitor) {
+        byte[] encoded = readDoc(doc -> AutomergeSys.diffEncoded(doc, before, after));
+        PatchDecoder.visit(encoded, visitor);
     }
 
     @Override
-    public synchronized HashMap<String, AmValue> getMarksAtIndex(ObjectId obj, long index) {
+    public HashMap<String, AmValue> getMarksAtIndex(ObjectId obj, long index) {
         return read(
                 tx -> AutomergeSys.getMarksAtIndexInTx(tx, obj, index, Optional.empty()),
                 doc -> AutomergeSys.getMarksAtIndexInDoc(doc, obj, index, Optional.empty()));
     }
 
     @Override
-    public synchronized HashMap<String, AmValue> getMarksAtIndex(ObjectId obj, long index, ChangeHash[] heads) {
+    public HashMap<String, AmValue> getMarksAtIndex(ObjectId obj, long index, ChangeHash[] heads) {
         return read(
                 tx -> AutomergeSys.getMarksAtIndexInTx(tx, obj, index, Optional.of(heads)),
                 doc -> AutomergeSys.getMarksAtIndexInDoc(doc, obj, index, Optional.of(heads)));
     }
 
     @Override
-    public synchronized Cursor makeCursor(ObjectId obj, long index) {
+    public Cursor makeCursor(ObjectId obj, long index) {
         return read(
                 tx -> AutomergeSys.makeCursorInTx(tx, obj, index, Optional.empty()),
                 doc -> AutomergeSys.makeCursorInDoc(doc, obj, index, Optional.empty()));
     }
 
     @Override
-    public synchronized Cursor makeCursor(ObjectId obj, long index, ChangeHash[] heads) {
+    public Cursor makeCursor(ObjectId obj, long index, ChangeHash[] heads) {
         return read(
                 tx -> AutomergeSys.makeCursorInTx(tx, obj, index, Optional.of(heads)),
                 doc -> AutomergeSys.makeCursorInDoc(doc, obj, index, Optional.of(heads)));
     }
 
     @Override
-    public synchronized long lookupCursorIndex(ObjectId obj, Cursor cursor) {
+    public long lookupCursorIndex(ObjectId obj, Cursor cursor) {
         return read(
                 tx -> AutomergeSys.lookupCursorIndexInTx(tx, obj, cursor, Optional.empty()),
                 doc -> AutomergeSys.lookupCursorIndexInDoc(doc, obj, cursor, Optional.empty()));
     }
 
     @Override
-    public synchronized long lookupCursorIndex(ObjectId obj, Cursor cursor, ChangeHash[] heads) {
+    public long lookupCursorIndex(ObjectId obj, Cursor cursor, ChangeHash[] heads) {
         return read(
                 tx -> AutomergeSys.lookupCursorIndexInTx(tx, obj, cursor, Optional.of(heads)),
                 doc -> AutomergeSys.lookupCursorIndexInDoc(doc, obj, cursor, Optional.of(heads)));
     }
 
     @Override
-    public synchronized Optional<ObjectType> getObjectType(ObjectId obj) {
+    public Cursor[] makeCursors(ObjectId obj, long[] indexes) {
+        return read(
+                tx -> AutomergeSys.makeCursorsInTx(tx, obj, indexes, Optional.empty()),
+                doc -> AutomergeSys.makeCursorsInDoc(doc, obj, indexes, Optional.empty()));
+    }
+
+    @Override
+    public Cursor[] makeCursors(ObjectId obj, long[] indexes, ChangeHash[] heads) {
+        return read(
+                tx -> AutomergeSys.makeCursorsInTx(tx, obj, indexes, Optional.of(heads)),
+                doc -> AutomergeSys.makeCursorsInDoc(doc, obj, indexes, Optional.of(heads)));
+    }
+
+    @Override
+    public long[] lookupCursorIndices(ObjectId obj, Cursor[] cursors) {
+        return read(
+                tx -> AutomergeSys.lookupCursorIndicesInTx(tx, obj, cursors, Optional.empty()),
+                doc -> AutomergeSys.lookupCursorIndicesInDoc(doc, obj, cursors, Optional.empty()));
+    }
+
+    @Override
+    public long[] lookupCursorIndices(ObjectId obj, Cursor[] cursors, ChangeHash[] heads) {
+        return read(
+                tx -> AutomergeSys.lookupCursorIndicesInTx(tx, obj, cursors, Optional.of(heads)),
+                doc -> AutomergeSys.lookupCursorIndicesInDoc(doc, obj, cursors, Optional.of(heads)));
+    }
+
+    @Override
+    public Optional<ObjectType> getObjectType(ObjectId obj) {
+        return read(
+                tx -> AutomergeSys.getObjectTypeInTx(tx, obj, Optional.empty()),
+                doc -> AutomergeSys.getObjectTypeInDoc(doc, obj, Optional.empty()));
+    }
+
+    Optional<ObjectType> getObjectTypeAt(ObjectId obj, ChangeHash[] heads) {
+        return read(
+                tx -> AutomergeSys.getObjectTypeInTx(tx, obj, Optional.of(heads)),
+                doc -> AutomergeSys.getObjectTypeInDoc(doc, obj, Optional.of(heads)));
+    }
+
+    @Override
+    public Optional<Materialized> materialize(ObjectId obj) {
+        return read(
+                tx -> AutomergeSys.materializeInTx(tx, obj, Optional.empty()),
+                doc -> AutomergeSys.materializeInDoc(doc, obj, Optional.empty())).map(Materialized::decode);
+    }
+
+    @Override
+    public Optional<Materialized> materialize(ObjectId obj, ChangeHash[] heads) {
+        return read(
+                tx -> AutomergeSys.materializeInTx(tx, obj, Optional.of(heads)),
+                doc -> AutomergeSys.materializeInDoc(doc, obj, Optional.of(heads))).map(Materialized::decode);
+    }
+
+    @Override
+    public Optional<AmValue[]> listItems(ObjectId obj, long start, long end) {
+        return read(
+                tx -> AutomergeSys.getListItemsRangeInTx(tx, obj, start, end, Optional.empty()),
+                doc -> AutomergeSys.getListItemsRangeInDoc(doc, obj, start, end, Optional.empty()));
+    }
+
+    @Override
+    public Optional<AmValue[]> listItems(ObjectId obj, long start, long end, ChangeHash[] heads) {
+        return read(
+                tx -> AutomergeSys.getListItemsRangeInTx(tx, obj, start, end, Optional.of(heads)),
+                doc -> AutomergeSys.getListItemsRangeInDoc(doc, obj, start, end, Optional.of(heads)));
+    }
+
+    @Override
+    public Optional<String> text(ObjectId obj, long start, long end) {
+        return read(
+                tx -> AutomergeSys.getTextRangeInTx(tx, obj, start, end, Optional.empty()),
+                doc -> AutomergeSys.getTextRangeInDoc(doc, obj, start, end, Optional.empty()));
+    }
+
+    @Override
+    public Optional<String> text(ObjectId obj, long start, long end, ChangeHash[] heads) {
+        return read(
+                tx -> AutomergeSys.getTextRangeInTx(tx, obj, start, end, Optional.of(heads)),
+                doc -> AutomergeSys.getTextRangeInDoc(doc, obj, start, end, Optional.of(heads)));
+    }
+
+    @Override
+    public Optional<String[]> keys(ObjectId obj, String fromKey, int limit) {
+        return read(
+                tx -> AutomergeSys.getKeysRangeInTx(tx, obj, fromKey, limit, Optional.empty()),
+                doc -> AutomergeSys.getKeysRangeInDoc(doc, obj, fromKey, limit, Optional.empty()));
+    }
+
+    @Override
+    public Optional<String[]> keys(ObjectId obj, String fromKey, int limit, ChangeHash[] heads) {
+        return read(
+                tx -> AutomergeSys.getKeysRangeInTx(tx, obj, fromKey, limit, Optional.of(heads)),
+                doc -> AutomergeSys.getKeysRangeInDoc(doc, obj, fromKey, limit, Optional.of(heads)));
+    }
+
+    @Override
+    public Optional<MapEntry[]> mapEntries(ObjectId obj, String fromKey, int limit) {
+        return read(
+                tx -> AutomergeSys.getMapEntriesRangeInTx(tx, obj, fromKey, limit, Optional.empty()),
+                doc -> AutomergeSys.getMapEntriesRangeInDoc(doc, obj, fromKey, limit, Optional.empty()));
+    }
+
+    @Override
+    public Optional<MapEntry[]> mapEntries(ObjectId obj, String fromKey, int limit, ChangeHash[] heads) {
+        return read(
+                tx -> AutomergeSys.getMapEntriesRangeInTx(tx, obj, fromKey, limit, Optional.of(heads)),
+                doc -> AutomergeSys.getMapEntriesRangeInDoc(doc, obj, fromKey, limit, Optional.of(heads)));
+    }
+
+    // The primitive getters use readLong() etc. rather than read() so that the
+    // result is not boxed
+    @Override
+    public long getLong(ObjectId obj, String key, long defaultValue) {
+        return readLong(
+                tx -> AutomergeSys.getLongInMapInTx(tx, obj, key, defaultValue),
+                doc -> AutomergeSys.getLongInMapInDoc(doc, obj, key, defaultValue));
+    }
+
+    @Override
+    public long getLong(ObjectId obj, long idx, long defaultValue) {
+        return readLong(
+                tx -> AutomergeSys.getLongInListInTx(tx, obj, idx, defaultValue),
+                doc -> AutomergeSys.getLongInListInDoc(doc, obj, idx, defaultValue));
+    }
+
+    @Override
+    public double getDouble(ObjectId obj, String key, double defaultValue) {
+        return readDouble(
+                tx -> AutomergeSys.getDoubleInMapInTx(tx, obj, key, defaultValue),
+                doc -> AutomergeSys.getDoubleInMapInDoc(doc, obj, key, defaultValue));
+    }
+
+    @Override
+    public double getDouble(ObjectId obj, long idx, double defaultValue) {
+        return readDouble(
+                tx -> AutomergeSys.getDoubleInListInTx(tx, obj, idx, defaultValue),
+                doc -> AutomergeSys.getDoubleInListInDoc(doc, obj, idx, defaultValue));
+    }
+
+    @Override
+    public boolean getBoolean(ObjectId obj, String key, boolean defaultValue) {
+        return readBoolean(
+                tx -> AutomergeSys.getBooleanInMapInTx(tx, obj, key, defaultValue),
+                doc -> AutomergeSys.getBooleanInMapInDoc(doc, obj, key, defaultValue));
+    }
+
+    @Override
+    public boolean getBoolean(ObjectId obj, long idx, boolean defaultValue) {
+        return readBoolean(
+                tx -> AutomergeSys.getBooleanInListInTx(tx, obj, idx, defaultValue),
+                doc -> AutomergeSys.getBooleanInListInDoc(doc, obj, idx, defaultValue));
+    }
+
+    @Override
+    public String getStringOrNull(ObjectId obj, String key) {
+        return read(
+                tx -> AutomergeSys.getStringInMapInTx(tx, obj, key),
+                doc -> AutomergeSys.getStringInMapInDoc(doc, obj, key));
+    }
+
+    @Override
+    public String getStringOrNull(ObjectId obj, long idx) {
+        return read(
+                tx -> AutomergeSys.getStringInListInTx(tx, obj, idx),
+                doc -> AutomergeSys.getStringInListInDoc(doc, obj, idx));
+    }
+
+    @Override
+    public Optional<AmValue> getPath(ObjectId obj, Object... path) {
+        byte[] encoded = ReadPath.encodePath(path);
+        return read(
+                tx -> AutomergeSys.getPathInTx(tx, obj, encoded, Optional.empty()),
+                doc -> AutomergeSys.getPathInDoc(doc, obj, encoded, Optional.empty()));
+    }
+
+    Optional<AmValue> getPathAt(ObjectId obj, ChangeHash[] heads, Object[] path) {
+        byte[] encoded = ReadPath.encodePath(path);
+        return read(
+                tx -> AutomergeSys.getPathInTx(tx, obj, encoded, Optional.of(heads)),
+                doc -> AutomergeSys.getPathInDoc(doc, obj, encoded, Optional.of(heads)));
+    }
+
+    @Override
+    public AmValue[] getMany(ObjectId obj, String[] keys) {
+        byte[] encoded = ReadPath.encodeKeys(keys);
+        return read(
+                tx -> AutomergeSys.getManyInTx(tx, obj, encoded, Optional.empty()),
+                doc -> AutomergeSys.getManyInDoc(doc, obj, encoded, Optional.empty()));
+    }
+
+    @Override
+    public AmValue[] getMany(ObjectId obj, String[] keys, ChangeHash[] heads) {
+        byte[] encoded = ReadPath.encodeKeys(keys);
         return read(
-                tx -> AutomergeSys.getObjectTypeInTx(tx, obj),
-                doc -> AutomergeSys.getObjectTypeInDoc(doc, obj));
+                tx -> AutomergeSys.getManyInTx(tx, obj, encoded, Optional.of(heads)),
+                doc -> AutomergeSys.getManyInDoc(doc, obj, encoded, Optional.of(heads)));
     }
 }
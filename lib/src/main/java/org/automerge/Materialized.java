@@ -0,0 +1,333 @@
+package org.automerge;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Optional;
+
+/**
+ * An immutable snapshot of an object and everything beneath it
+ *
+ * <p>
+ * Returned by {@link Read#materialize(ObjectId)}. Unlike reading the document
+ * one level at a time with {@link Read#mapEntries} and {@link Read#listItems}
+ * the whole subtree is read in a single call into the native library.
+ *
+ * <p>
+ * Each nested class represents one kind of node in the tree. Composite nodes
+ * ({@link Map}, {@link List} and {@link Text}) carry the {@link ObjectId} of
+ * the object they were read from so they can be used for subsequent edits.
+ * Primitive values are represented by a {@link Scalar} wrapping the
+ * corresponding {@link AmValue}. Use instanceof to figure out what kind of node
+ * you have.
+ */
+public abstract class Materialized {
+
+    // Node tags, these must match the constants in `rust/src/materialize.rs`
+    private static final byte NULL = 0;
+    private static final byte STR = 1;
+    private static final byte INT = 2;
+    private static final byte UINT = 3;
+    private static final byte F64 = 4;
+    private static final byte BOOL = 5;
+    private static final byte BYTES = 6;
+    private static final byte COUNTER = 7;
+    private static final byte TIMESTAMP = 8;
+    private static final byte UNKNOWN = 9;
+    private static final byte MAP = 16;
+    private static final byte LIST = 17;
+    private static final byte TEXT = 18;
+
+    private Materialized() {
+    }
+
+    /** A map object */
+    public static final class Map extends Materialized {
+        private final ObjectId id;
+        private final java.util.Map<String, Materialized> entries;
+
+        private Map(ObjectId id, java.util.Map<String, Materialized> entries) {
+            this.id = id;
+            this.entries = Collections.unmodifiableMap(entries);
+        }
+
+        public ObjectId getId() {
+            return id;
+        }
+
+        /**
+         * The entries in this map in key order
+         *
+         * @return an unmodifiable view of the entries
+         */
+        public java.util.Map<String, Materialized> getEntries() {
+            return entries;
+        }
+
+        /**
+         * Get the value of a key in the map
+         *
+         * @param key
+         *            the key to look up
+         * @return the value or {@link Optional#empty} if the key is not present
+         */
+        public Optional<Materialized> get(String key) {
+            return Optional.ofNullable(entries.get(key));
+        }
+
+        public int size() {
+            return entries.size();
+        }
+
+        @Override
+        public String toString() {
+            return "Map [id=" + id + ", entries=" + entries + "]";
+        }
+    }
+
+    /** A list object */
+    public static final class List extends Materialized {
+        private final ObjectId id;
+        private final java.util.List<Materialized> items;
+
+        private List(ObjectId id, java.util.List<Materialized> items) {
+            this.id = id;
+            this.items = Collections.unmodifiableList(items);
+        }
+
+        public ObjectId getId() {
+            return id;
+        }
+
+        /**
+         * The items in this list
+         *
+         * @return an unmodifiable view of the items
+         */
+        public java.util.List<Materialized> getItems() {
+            return items;
+        }
+
+        /**
+         * Get the item at an index in the list
+         *
+         * @param index
+         *            the index of the item
+         * @return the item
+         * @throws IndexOutOfBoundsException
+         *             if the index is out of range
+         */
+        public Materialized get(int index) {
+            return items.get(index);
+        }
+
+        public int size() {
+            return items.size();
+        }
+
+        @Override
+        public String toString() {
+            return "List [id=" + id + ", items=" + items + "]";
+        }
+    }
+
+    /** A text object */
+    public static final class Text extends Materialized {
+        private final ObjectId id;
+        private final String value;
+
+        private Text(ObjectId id, String value) {
+            this.id = id;
+            this.value = value;
+        }
+
+        public ObjectId getId() {
+            return id;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return "Text [id=" + id + ", value=" + value + "]";
+        }
+    }
+
+    /** A primitive value */
+    public static final class Scalar extends Materialized {
+        private final AmValue value;
+
+        private Scalar(AmValue value) {
+            this.value = value;
+        }
+
+        public AmValue getValue() {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return value.toString();
+        }
+    }
+
+    /**
+     * Decode the output of the native materialize methods
+     *
+     * <p>
+     * The encoding is a pre-order walk of the tree where every node starts with a
+     * one byte tag. Integers are big endian, strings and byte arrays are prefixed
+     * with their length as a four byte integer and composite nodes are prefixed
+     * with their object ID and number of children.
+     */
+    static Materialized decode(byte[] encoded) {
+        Decoder decoder = new Decoder(encoded);
+        Materialized result = decoder.readNode();
+        if (decoder.offset != encoded.length) {
+            throw new AutomergeException("trailing data after materialized value");
+        }
+        return result;
+    }
+
+    /**
+     * Reads the encoding produced by materialize.rs, also used by
+     * {@link PatchDecoder} for the values in patches
+     */
+    static final class Decoder {
+        private final byte[] buf;
+        private int offset;
+
+        Decoder(byte[] buf) {
+            this.buf = buf;
+            this.offset = 0;
+        }
+
+        Materialized readNode() {
+            byte tag = buf[offset++];
+            switch (tag) {
+                case MAP : {
+                    ObjectId id = readObjectId();
+                    int count = readInt();
+                    LinkedHashMap<String, Materialized> entries = new LinkedHashMap<>(capacityFor(count));
+                    for (int i = 0; i < count; i++) {
+                        String key = readString();
+                        entries.put(key, readNode());
+                    }
+                    return new Map(id, entries);
+                }
+                case LIST : {
+                    ObjectId id = readObjectId();
+                    int count = readInt();
+                    ArrayList<Materialized> items = new ArrayList<>(count);
+                    for (int i = 0; i < count; i++) {
+                        items.add(readNode());
+                    }
+                    return new List(id, items);
+                }
+                case TEXT : {
+                    ObjectId id = readObjectId();
+                    return new Text(id, readString());
+                }
+                default :
+                    return new Scalar(readScalar(tag));
+            }
+        }
+
+        AmValue readScalar(byte tag) {
+            switch (tag) {
+                case NULL :
+                    return AmValue.newNull();
+                case STR :
+                    return AmValue.newStr(readString());
+                case INT :
+                    return AmValue.newInt(readLong());
+                case UINT :
+                    return AmValue.newUInt(readLong());
+                case F64 :
+                    return AmValue.newF64(Double.longBitsToDouble(readLong()));
+                case BOOL :
+                    return AmValue.newBool(buf[offset++] != 0);
+                case BYTES :
+                    return AmValue.newBytes(readBytes());
+                case COUNTER :
+                    return AmValue.newCounter(readLong());
+                case TIMESTAMP :
+                    return AmValue.newTimestamp(new Date(readLong()));
+                case UNKNOWN : {
+                    int typeCode = buf[offset++] & 0xff;
+                    return AmValue.newUnknown(typeCode, readBytes());
+                }
+                default :
+                    throw new AutomergeException("unknown materialized value tag: " + tag);
+            }
+        }
+
+        ObjectId readObjectId() {
+            return new ObjectId(readBytes());
+        }
+
+        int readInt() {
+            int result = ((buf[offset] & 0xff) << 24) | ((buf[offset + 1] & 0xff) << 16)
+                    | ((buf[offset + 2] & 0xff) << 8) | (buf[offset + 3] & 0xff);
+            offset += 4;
+            return result;
+        }
+
+        long readLong() {
+            long result = 0;
+            for (int i = 0; i < 8; i++) {
+                result = (result << 8) | (buf[offset++] & 0xff);
+            }
+            return result;
+        }
+
+        byte[] readBytes() {
+            int len = readInt();
+            byte[] result = new byte[len];
+            System.arraycopy(buf, offset, result, 0, len);
+            offset += len;
+            return result;
+        }
+
+        String readString() {
+            int len = readInt();
+            String result = new String(buf, offset, len, StandardCharsets.UTF_8);
+            offset += len;
+            return result;
+        }
+
+        /**
+         * Read a value as it appears in a patch, where objects are represented by
+         * their ID rather than their contents
+         */
+        AmValue readValue() {
+            byte tag = readByte();
+            switch (tag) {
+                case MAP :
+                    return AmValue.newMap(readObjectId());
+                case LIST :
+                    return AmValue.newList(readObjectId());
+                case TEXT :
+                    return AmValue.newText(readObjectId());
+                default :
+                    return readScalar(tag);
+            }
+        }
+
+        byte readByte() {
+            return buf[offset++];
+        }
+
+        boolean hasRemaining() {
+            return offset < buf.length;
+        }
+
+        private static int capacityFor(int count) {
+            return count < 3 ? count + 1 : (int) (count / 0.75f + 1.0f);
+        }
+    }
+}
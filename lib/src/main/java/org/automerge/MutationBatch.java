@@ -0,0 +1,702 @@
+package org.automerge;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * A sequence of mutations to be applied to a transaction in one go
+ *
+ * <p>
+ * Every mutating method on {@link Transaction} crosses into the native library
+ * separately. When writing a large number of values this overhead dominates.
+ * A {@code MutationBatch} records the operations in a compact buffer on the
+ * Java side which is then replayed in a single native call by
+ * {@link Transaction#applyBatch(MutationBatch)}.
+ *
+ * <p>
+ * Operations which create objects return a {@link Pending} handle which can be
+ * used as the target of subsequent operations in the same batch. Once the
+ * batch has been applied the {@link ObjectId} of the created object is found
+ * at {@link Pending#getIndex()} in the array returned by
+ * {@link Transaction#applyBatch(MutationBatch)}.
+ *
+ * <pre>{@code
+ * MutationBatch batch = new MutationBatch();
+ * MutationBatch.Pending list = batch.set(ObjectId.ROOT, "items", ObjectType.LIST);
+ * for (int i = 0; i < 1000; i++) {
+ *     batch.insert(list, i, NewValue.integer(i));
+ * }
+ * ObjectId[] created = tx.applyBatch(batch);
+ * ObjectId listId = created[list.getIndex()];
+ * }</pre>
+ *
+ * <p>
+ * A batch holds no native resources. It can be applied to more than one
+ * transaction and reused after calling {@link clear()}. Batches are not thread
+ * safe.
+ */
+public final class MutationBatch {
+    // Opcodes, these must match the constants in `rust/src/transaction/batch.rs`
+    static final byte OP_PUT = 0;
+    static final byte OP_PUT_OBJECT = 1;
+    static final byte OP_INSERT = 2;
+    static final byte OP_INSERT_OBJECT = 3;
+    static final byte OP_INCREMENT = 4;
+    static final byte OP_DELETE = 5;
+    static final byte OP_SPLICE_TEXT = 6;
+    static final byte OP_MARK = 7;
+
+    static final byte PROP_KEY = 0;
+    static final byte PROP_INDEX = 1;
+
+    static final byte VALUE_NULL = 0;
+    static final byte VALUE_STR = 1;
+    static final byte VALUE_INT = 2;
+    static final byte VALUE_UINT = 3;
+    static final byte VALUE_F64 = 4;
+    static final byte VALUE_BOOL = 5;
+    static final byte VALUE_BYTES = 6;
+    static final byte VALUE_COUNTER = 7;
+    static final byte VALUE_TIMESTAMP = 8;
+
+    /**
+     * A handle to an object which will be created when the batch is applied
+     */
+    public static final class Pending {
+        private final MutationBatch batch;
+        // The value of `batch.generation` when this handle was created
+        private final int generation;
+        private final int index;
+
+        private Pending(MutationBatch batch, int index) {
+            this.batch = batch;
+            this.generation = batch.generation;
+            this.index = index;
+        }
+
+        /**
+         * The index of the created object in the array returned by
+         * {@link Transaction#applyBatch(MutationBatch)}
+         *
+         * @return the index of the object
+         */
+        public int getIndex() {
+            return index;
+        }
+    }
+
+    private final BatchWriter out;
+    private int opCount;
+    // The offset in `out` of the operation currently being written
+    private int opStart;
+    private int createdCount;
+    // Incremented by clear() so that handles from before it are rejected
+    private int generation;
+    private final List<ObjectId> objects;
+    private final IdentityHashMap<ObjectId, Integer> objectIndices;
+
+    /** Create an empty batch */
+    public MutationBatch() {
+        this(256);
+    }
+
+    /**
+     * Create an empty batch with space for roughly {@code expectedBytes} bytes of
+     * encoded operations before it needs to grow
+     *
+     * @param expectedBytes
+     *            the initial capacity of the buffer
+     */
+    public MutationBatch(int expectedBytes) {
+        if (expectedBytes < 0) {
+            throw new IllegalArgumentException("expectedBytes cannot be negative");
+        }
+        this.out = new BatchWriter(Math.max(expectedBytes, 16));
+        this.objects = new ArrayList<>();
+        this.objectIndices = new IdentityHashMap<>();
+    }
+
+    /**
+     * The number of operations recorded in this batch
+     *
+     * @return the number of operations
+     */
+    public int size() {
+        return opCount;
+    }
+
+    /**
+     * Whether this batch has any operations in it
+     *
+     * @return true if no operations have been recorded
+     */
+    public boolean isEmpty() {
+        return opCount == 0;
+    }
+
+    /**
+     * Remove all operations from this batch
+     *
+     * <p>
+     * Any {@link Pending} handles obtained before calling this method can no
+     * longer be used with this batch, passing one to it afterwards throws an
+     * {@link IllegalArgumentException}.
+     */
+    public void clear() {
+        generation++;
+        out.truncate(0);
+        opCount = 0;
+        createdCount = 0;
+        objects.clear();
+        objectIndices.clear();
+    }
+
+    /**
+     * Set a value in a map
+     *
+     * @param obj
+     *            the object id of the map
+     * @param key
+     *            the key in the map
+     * @param value
+     *            the value to set
+     * @return this batch
+     */
+    public MutationBatch set(ObjectId obj, String key, NewValue value) {
+        return set(ref(obj), key, value);
+    }
+
+    /**
+     * Set a value in a map created earlier in this batch
+     *
+     * @param obj
+     *            the pending map
+     * @param key
+     *            the key in the map
+     * @param value
+     *            the value to set
+     * @return this batch
+     */
+    public MutationBatch set(Pending obj, String key, NewValue value) {
+        return set(ref(obj), key, value);
+    }
+
+    /**
+     * Set a value in a list
+     *
+     * @param obj
+     *            the object id of the list
+     * @param index
+     *            the index in the list
+     * @param value
+     *            the value to set
+     * @return this batch
+     */
+    public MutationBatch set(ObjectId obj, long index, NewValue value) {
+        return set(ref(obj), index, value);
+    }
+
+    /**
+     * Set a value in a list created earlier in this batch
+     *
+     * @param obj
+     *            the pending list
+     * @param index
+     *            the index in the list
+     * @param value
+     *            the value to set
+     * @return this batch
+     */
+    public MutationBatch set(Pending obj, long index, NewValue value) {
+        return set(ref(obj), index, value);
+    }
+
+    /**
+     * Create a new object in a map
+     *
+     * @param parent
+     *            the object id of the map
+     * @param key
+     *            the key in the map
+     * @param objType
+     *            the type of object to create
+     * @return a handle to the object which will be created
+     */
+    public Pending set(ObjectId parent, String key, ObjectType objType) {
+        return setObject(ref(parent), key, objType);
+    }
+
+    /**
+     * Create a new object in a map created earlier in this batch
+     *
+     * @param parent
+     *            the pending map
+     * @param key
+     *            the key in the map
+     * @param objType
+     *            the type of object to create
+     * @return a handle to the object which will be created
+     */
+    public Pending set(Pending parent, String key, ObjectType objType) {
+        return setObject(ref(parent), key, objType);
+    }
+
+    /**
+     * Create a new object at an index in a list
+     *
+     * @param parent
+     *            the object id of the list
+     * @param index
+     *            the index in the list
+     * @param objType
+     *            the type of object to create
+     * @return a handle to the object which will be created
+     */
+    public Pending set(ObjectId parent, long index, ObjectType objType) {
+        return setObject(ref(parent), index, objType);
+    }
+
+    /**
+     * Create a new object at an index in a list created earlier in this batch
+     *
+     * @param parent
+     *            the pending list
+     * @param index
+     *            the index in the list
+     * @param objType
+     *            the type of object to create
+     * @return a handle to the object which will be created
+     */
+    public Pending set(Pending parent, long index, ObjectType objType) {
+        return setObject(ref(parent), index, objType);
+    }
+
+    /**
+     * Insert a value into a list
+     *
+     * @param obj
+     *            the object id of the list
+     * @param index
+     *            the index to insert at
+     * @param value
+     *            the value to insert
+     * @return this batch
+     */
+    public MutationBatch insert(ObjectId obj, long index, NewValue value) {
+        return insert(ref(obj), index, value);
+    }
+
+    /**
+     * Insert a value into a list created earlier in this batch
+     *
+     * @param obj
+     *            the pending list
+     * @param index
+     *            the index to insert at
+     * @param value
+     *            the value to insert
+     * @return this batch
+     */
+    public MutationBatch insert(Pending obj, long index, NewValue value) {
+        return insert(ref(obj), index, value);
+    }
+
+    /**
+     * Insert a new object into a list
+     *
+     * @param parent
+     *            the object id of the list
+     * @param index
+     *            the index to insert at
+     * @param objType
+     *            the type of object to create
+     * @return a handle to the object which will be created
+     */
+    public Pending insert(ObjectId parent, long index, ObjectType objType) {
+        return insertObject(ref(parent), index, objType);
+    }
+
+    /**
+     * Insert a new object into a list created earlier in this batch
+     *
+     * @param parent
+     *            the pending list
+     * @param index
+     *            the index to insert at
+     * @param objType
+     *            the type of object to create
+     * @return a handle to the object which will be created
+     */
+    public Pending insert(Pending parent, long index, ObjectType objType) {
+        return insertObject(ref(parent), index, objType);
+    }
+
+    /**
+     * Increment a counter in a map
+     *
+     * @param obj
+     *            the object id of the map
+     * @param key
+     *            the key of the counter
+     * @param amount
+     *            the amount to increment by
+     * @return this batch
+     */
+    public MutationBatch increment(ObjectId obj, String key, long amount) {
+        return increment(ref(obj), key, amount);
+    }
+
+    /**
+     * Increment a counter in a map created earlier in this batch
+     *
+     * @param obj
+     *            the pending map
+     * @param key
+     *            the key of the counter
+     * @param amount
+     *            the amount to increment by
+     * @return this batch
+     */
+    public MutationBatch increment(Pending obj, String key, long amount) {
+        return increment(ref(obj), key, amount);
+    }
+
+    /**
+     * Increment a counter in a list
+     *
+     * @param obj
+     *            the object id of the list
+     * @param index
+     *            the index of the counter
+     * @param amount
+     *            the amount to increment by
+     * @return this batch
+     */
+    public MutationBatch increment(ObjectId obj, long index, long amount) {
+        return increment(ref(obj), index, amount);
+    }
+
+    /**
+     * Increment a counter in a list created earlier in this batch
+     *
+     * @param obj
+     *            the pending list
+     * @param index
+     *            the index of the counter
+     * @param amount
+     *            the amount to increment by
+     * @return this batch
+     */
+    public MutationBatch increment(Pending obj, long index, long amount) {
+        return increment(ref(obj), index, amount);
+    }
+
+    /**
+     * Delete a key from a map
+     *
+     * @param obj
+     *            the object id of the map
+     * @param key
+     *            the key to delete
+     * @return this batch
+     */
+    public MutationBatch delete(ObjectId obj, String key) {
+        return delete(ref(obj), key);
+    }
+
+    /**
+     * Delete a key from a map created earlier in this batch
+     *
+     * @param obj
+     *            the pending map
+     * @param key
+     *            the key to delete
+     * @return this batch
+     */
+    public MutationBatch delete(Pending obj, String key) {
+        return delete(ref(obj), key);
+    }
+
+    /**
+     * Delete an element from a list
+     *
+     * @param obj
+     *            the object id of the list
+     * @param index
+     *            the index of the element to delete
+     * @return this batch
+     */
+    public MutationBatch delete(ObjectId obj, long index) {
+        return delete(ref(obj), index);
+    }
+
+    /**
+     * Delete an element from a list created earlier in this batch
+     *
+     * @param obj
+     *            the pending list
+     * @param index
+     *            the index of the element to delete
+     * @return this batch
+     */
+    public MutationBatch delete(Pending obj, long index) {
+        return delete(ref(obj), index);
+    }
+
+    /**
+     * Splice text into a text object
+     *
+     * @param obj
+     *            the object id of the text object
+     * @param start
+     *            the index in the text to start splicing
+     * @param deleteCount
+     *            the number of characters to delete
+     * @param text
+     *            the new text to insert
+     * @return this batch
+     */
+    public MutationBatch spliceText(ObjectId obj, long start, long deleteCount, String text) {
+        return spliceText(ref(obj), start, deleteCount, text);
+    }
+
+    /**
+     * Splice text into a text object created earlier in this batch
+     *
+     * @param obj
+     *            the pending text object
+     * @param start
+     *            the index in the text to start splicing
+     * @param deleteCount
+     *            the number of characters to delete
+     * @param text
+     *            the new text to insert
+     * @return this batch
+     */
+    public MutationBatch spliceText(Pending obj, long start, long deleteCount, String text) {
+        return spliceText(ref(obj), start, deleteCount, text);
+    }
+
+    /**
+     * Create a mark
+     *
+     * @param obj
+     *            the object id of the text object to create the mark on
+     * @param start
+     *            the index in the text object to start the mark at
+     * @param end
+     *            the index in the text object to end the mark at
+     * @param markName
+     *            the name of the mark
+     * @param value
+     *            the value to associate with the mark
+     * @param expand
+     *            how to expand the mark
+     * @return this batch
+     */
+    public MutationBatch mark(ObjectId obj, long start, long end, String markName, NewValue value,
+            ExpandMark expand) {
+        return mark(ref(obj), start, end, markName, value, expand);
+    }
+
+    /**
+     * Create a mark on a text object created earlier in this batch
+     *
+     * @param obj
+     *            the pending text object
+     * @param start
+     *            the index in the text object to start the mark at
+     * @param end
+     *            the index in the text object to end the mark at
+     * @param markName
+     *            the name of the mark
+     * @param value
+     *            the value to associate with the mark
+     * @param expand
+     *            how to expand the mark
+     * @return this batch
+     */
+    public MutationBatch mark(Pending obj, long start, long end, String markName, NewValue value, ExpandMark expand) {
+        return mark(ref(obj), start, end, markName, value, expand);
+    }
+
+    ObjectId[] objects() {
+        return objects.toArray(new ObjectId[0]);
+    }
+
+    byte[] encoded() {
+        return out.toByteArray();
+    }
+
+    private MutationBatch set(int obj, String key, NewValue value) {
+        requireNonNull(key, "key");
+        requireValue(value);
+        writeOp(OP_PUT, obj);
+        writeKey(key);
+        writeValue(value);
+        return this;
+    }
+
+    private MutationBatch set(int obj, long index, NewValue value) {
+        requireValue(value);
+        writeOp(OP_PUT, obj);
+        writeIndex(index);
+        writeValue(value);
+        return this;
+    }
+
+    private Pending setObject(int parent, String key, ObjectType objType) {
+        requireNonNull(key, "key");
+        requireNonNull(objType, "objType");
+        writeOp(OP_PUT_OBJECT, parent);
+        writeKey(key);
+        out.writeByte((byte) objType.ordinal());
+        return new Pending(this, createdCount++);
+    }
+
+    private Pending setObject(int parent, long index, ObjectType objType) {
+        requireNonNull(objType, "objType");
+        writeOp(OP_PUT_OBJECT, parent);
+        writeIndex(index);
+        out.writeByte((byte) objType.ordinal());
+        return new Pending(this, createdCount++);
+    }
+
+    private MutationBatch insert(int obj, long index, NewValue value) {
+        requireValue(value);
+        writeOp(OP_INSERT, obj);
+        out.writeLong(index);
+        writeValue(value);
+        return this;
+    }
+
+    private Pending insertObject(int parent, long index, ObjectType objType) {
+        requireNonNull(objType, "objType");
+        writeOp(OP_INSERT_OBJECT, parent);
+        out.writeLong(index);
+        out.writeByte((byte) objType.ordinal());
+        return new Pending(this, createdCount++);
+    }
+
+    private MutationBatch increment(int obj, String key, long amount) {
+        requireNonNull(key, "key");
+        writeOp(OP_INCREMENT, obj);
+        writeKey(key);
+        out.writeLong(amount);
+        return this;
+    }
+
+    private MutationBatch increment(int obj, long index, long amount) {
+        writeOp(OP_INCREMENT, obj);
+        writeIndex(index);
+        out.writeLong(amount);
+        return this;
+    }
+
+    private MutationBatch delete(int obj, String key) {
+        requireNonNull(key, "key");
+        writeOp(OP_DELETE, obj);
+        writeKey(key);
+        return this;
+    }
+
+    private MutationBatch delete(int obj, long index) {
+        writeOp(OP_DELETE, obj);
+        writeIndex(index);
+        return this;
+    }
+
+    private MutationBatch spliceText(int obj, long start, long deleteCount, String text) {
+        requireNonNull(text, "text");
+        writeOp(OP_SPLICE_TEXT, obj);
+        out.writeLong(start);
+        out.writeLong(deleteCount);
+        out.writeString(text);
+        return this;
+    }
+
+    private MutationBatch mark(int obj, long start, long end, String markName, NewValue value, ExpandMark expand) {
+        requireNonNull(markName, "markName");
+        requireValue(value);
+        requireNonNull(expand, "expand");
+        writeOp(OP_MARK, obj);
+        out.writeLong(start);
+        out.writeLong(end);
+        out.writeString(markName);
+        writeValue(value);
+        out.writeByte((byte) expand.ordinal());
+        return this;
+    }
+
+    // Existing objects are encoded as their (non-negative) index in `objects`,
+    // objects created in this batch as `-(index + 1)`
+    private int ref(ObjectId obj) {
+        if (obj == null) {
+            throw new IllegalArgumentException("ObjectId cannot be null");
+        }
+        Integer existing = objectIndices.get(obj);
+        if (existing != null) {
+            return existing;
+        }
+        int index = objects.size();
+        objects.add(obj);
+        objectIndices.put(obj, index);
+        return index;
+    }
+
+    private int ref(Pending obj) {
+        if (obj == null) {
+            throw new IllegalArgumentException("Pending object cannot be null");
+        }
+        if (obj.batch == this && obj.generation != generation) {
+            throw new IllegalArgumentException("Pending object was created before the batch was cleared");
+        }
+        if (obj.batch != this || obj.index >= createdCount) {
+            throw new IllegalArgumentException("Pending object does not belong to this batch");
+        }
+        return -(obj.index + 1);
+    }
+
+    // Arguments are checked before the operation is started so that a rejected
+    // operation leaves nothing behind in the buffer
+    private static void requireNonNull(Object value, String name) {
+        if (value == null) {
+            throw new IllegalArgumentException(name + " cannot be null");
+        }
+    }
+
+    private static void requireValue(NewValue value) {
+        if (value == null) {
+            throw new IllegalArgumentException("value cannot be null, use NewValue.NULL");
+        }
+    }
+
+    private void writeOp(byte op, int obj) {
+        opStart = out.length();
+        out.writeByte(op);
+        out.writeInt(obj);
+        opCount++;
+    }
+
+    private void writeKey(String key) {
+        out.writeByte(PROP_KEY);
+        out.writeString(key);
+    }
+
+    private void writeIndex(long index) {
+        out.writeByte(PROP_INDEX);
+        out.writeLong(index);
+    }
+
+    private void writeValue(NewValue value) {
+        try {
+            value.encode(out);
+        } catch (RuntimeException e) {
+            // Drop the partially written operation
+            out.truncate(opStart);
+            opCount--;
+            throw e;
+        }
+    }
+}
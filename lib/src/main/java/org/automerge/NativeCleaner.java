@@ -0,0 +1,128 @@
+package org.automerge;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Frees native objects whose Java owner was garbage collected without being
+ * freed
+ *
+ * <p>
+ * This does the job of {@code java.lang.ref.Cleaner}, which is not available on
+ * Java 8. Each owner registers an action which frees its native memory. The
+ * action must not refer to the owner, otherwise the owner would never become
+ * unreachable. Calling {@link Registration#free()} runs the action
+ * immediately, otherwise it is run on a background thread once the owner has
+ * been collected.
+ */
+final class NativeCleaner {
+    private static final Logger log = LoggerFactory.getLogger(NativeCleaner.class);
+
+    private static final ReferenceQueue<Object> QUEUE = new ReferenceQueue<>();
+    // Phantom references are only enqueued if they are themselves reachable
+    private static final Set<Registration> LIVE = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+    static {
+        Thread thread = new Thread(NativeCleaner::run, "automerge-cleaner");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private NativeCleaner() {
+    }
+
+    static final class Registration extends PhantomReference<Object> {
+        private final NativeMemory.Kind kind;
+        private final Runnable action;
+        private final Throwable allocationSite;
+        private final AtomicBoolean done = new AtomicBoolean(false);
+
+        private Registration(Object owner, NativeMemory.Kind kind, Runnable action, Throwable allocationSite) {
+            super(owner, QUEUE);
+            this.kind = kind;
+            this.action = action;
+            this.allocationSite = allocationSite;
+        }
+
+        /** Run the action now. Subsequent calls do nothing. */
+        void free() {
+            if (finish()) {
+                action.run();
+            }
+        }
+
+        /**
+         * Stop tracking without running the action, used when ownership of the
+         * native object has moved elsewhere
+         */
+        void disarm() {
+            finish();
+        }
+
+        private boolean finish() {
+            if (!done.compareAndSet(false, true)) {
+                return false;
+            }
+            LIVE.remove(this);
+            clear();
+            NativeMemory.released(kind);
+            return true;
+        }
+
+        private void reclaim() {
+            if (!finish()) {
+                return;
+            }
+            NativeMemory.reclaimed(kind);
+            if (allocationSite != null) {
+                log.warn("{} was garbage collected without being freed", kind, allocationSite);
+            } else {
+                log.debug("{} was garbage collected without being freed", kind);
+            }
+            try {
+                action.run();
+            } catch (RuntimeException e) {
+                log.error("failed to free {}", kind, e);
+            }
+        }
+    }
+
+    static Registration register(Object owner, NativeMemory.Kind kind, Runnable action) {
+        Throwable site = NativeMemory.isLeakTracking() ? new Throwable(kind + " allocated here") : null;
+        Registration registration = new Registration(owner, kind, action, site);
+        LIVE.add(registration);
+        NativeMemory.allocated(kind);
+        return registration;
+    }
+
+    static List<NativeMemory.AllocationSite> unfreedAllocations() {
+        List<NativeMemory.AllocationSite> result = new ArrayList<>();
+        for (Registration registration : LIVE) {
+            if (registration.allocationSite != null) {
+                result.add(new NativeMemory.AllocationSite(registration.kind,
+                        registration.allocationSite.getStackTrace()));
+            }
+        }
+        return result;
+    }
+
+    private static void run() {
+        while (true) {
+            try {
+                ((Registration) QUEUE.remove()).reclaim();
+            } catch (InterruptedException e) {
+                // The cleaner thread runs for the lifetime of the process
+            } catch (Throwable e) {
+                log.error("error in automerge cleaner thread", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package org.automerge;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Accounting for the memory held by the native library
+ *
+ * <p>
+ * {@link Document}, {@link SyncState} and {@link PatchLog} are wrappers around
+ * objects allocated in native memory which the JVM cannot see. They should be
+ * freed by calling {@code free()} when no longer needed. As a safety net, if
+ * one of them is garbage collected without having been freed the native object
+ * is freed on a background thread. Relying on this is not recommended as the
+ * garbage collector has no idea how much native memory an object holds and so
+ * may not collect it promptly.
+ *
+ * <p>
+ * This class reports how many of each kind of object are currently alive, how
+ * many were reclaimed by the garbage collector rather than being freed, and the
+ * total number of bytes currently allocated by the native library.
+ *
+ * <p>
+ * To find out where leaked objects come from enable leak tracking with
+ * {@link #setLeakTracking(boolean)}. Every object created while tracking is
+ * enabled records the stack trace of its allocation. The stack traces of
+ * objects which are still alive are returned by
+ * {@link #getUnfreedAllocations()} and the stack trace of an object which is
+ * reclaimed by the garbage collector is logged as a warning. Capturing stack
+ * traces is expensive so this is intended for debugging.
+ */
+public final class NativeMemory {
+    static {
+        LoadLibrary.initialize();
+    }
+
+    /** The kinds of native object which are tracked */
+    public enum Kind {
+        DOCUMENT, SYNC_STATE, PATCH_LOG
+    }
+
+    private static final int KINDS = Kind.values().length;
+    private static final AtomicLongArray live = new AtomicLongArray(KINDS);
+    private static final AtomicLongArray reclaimed = new AtomicLongArray(KINDS);
+    private static volatile boolean leakTracking = false;
+
+    private NativeMemory() {
+    }
+
+    /** Where a native object which has not been freed was created */
+    public static final class AllocationSite {
+        private final Kind kind;
+        private final StackTraceElement[] stackTrace;
+
+        AllocationSite(Kind kind, StackTraceElement[] stackTrace) {
+            this.kind = kind;
+            this.stackTrace = stackTrace;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public StackTraceElement[] getStackTrace() {
+            return stackTrace.clone();
+        }
+
+        @Override
+        public String toString() {
+            return "AllocationSite [kind=" + kind + ", stackTrace=" + Arrays.toString(stackTrace) + "]";
+        }
+    }
+
+    /**
+     * @param kind
+     *            the kind of object
+     * @return the number of objects of this kind which have been created and not
+     *         yet freed
+     */
+    public static long getLiveCount(Kind kind) {
+        return live.get(kind.ordinal());
+    }
+
+    /**
+     * @param kind
+     *            the kind of object
+     * @return the number of objects of this kind which were freed because they
+     *         were garbage collected rather than by calling {@code free()}
+     */
+    public static long getReclaimedCount(Kind kind) {
+        return reclaimed.get(kind.ordinal());
+    }
+
+    /**
+     * The number of bytes currently allocated by the native library
+     *
+     * <p>
+     * This includes everything the native library has allocated, not just the
+     * objects counted by {@link #getLiveCount(Kind)}. Allocations are counted
+     * from the moment the library is loaded, whether or not leak tracking is
+     * enabled.
+     *
+     * @return the number of bytes
+     */
+    public static long getAllocatedBytes() {
+        return AutomergeSys.nativeAllocatedBytes();
+    }
+
+    /**
+     * Enable or disable recording where native objects are allocated
+     *
+     * <p>
+     * This only affects objects created after it is called.
+     *
+     * @param enabled
+     *            whether to record allocation sites
+     */
+    public static void setLeakTracking(boolean enabled) {
+        leakTracking = enabled;
+    }
+
+    public static boolean isLeakTracking() {
+        return leakTracking;
+    }
+
+    /**
+     * The allocation sites of objects which were created while leak tracking was
+     * enabled and have not been freed yet
+     *
+     * @return the allocation sites
+     */
+    public static List<AllocationSite> getUnfreedAllocations() {
+        return NativeCleaner.unfreedAllocations();
+    }
+
+    static void allocated(Kind kind) {
+        live.incrementAndGet(kind.ordinal());
+    }
+
+    static void released(Kind kind) {
+        live.decrementAndGet(kind.ordinal());
+    }
+
+    static void reclaimed(Kind kind) {
+        reclaimed.incrementAndGet(kind.ordinal());
+    }
+}
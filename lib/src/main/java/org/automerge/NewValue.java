@@ -22,6 +22,11 @@ public abstract class NewValue {
     protected abstract void mark(Transaction tx, ObjectId obj, long start, long end, String markName,
             ExpandMark expand);
 
+    // Write this value in the value encoding of a MutationBatch
+    void encode(BatchWriter out) {
+        throw new IllegalArgumentException("unsupported value type: " + getClass().getName());
+    }
+
     /**
      * Create a new unsigned integer value
      *
@@ -145,6 +150,12 @@ public abstract class NewValue {
         protected void mark(Transaction tx, ObjectId obj, long start, long end, String markName, ExpandMark expand) {
             tx.markUint(obj, start, end, markName, value, expand);
         }
+
+        @Override
+        void encode(BatchWriter out) {
+            out.writeByte(MutationBatch.VALUE_UINT);
+            out.writeLong(value);
+        }
     }
 
     /** A new integer value */
@@ -174,6 +185,12 @@ public abstract class NewValue {
         protected void mark(Transaction tx, ObjectId obj, long start, long end, String markName, ExpandMark expand) {
             tx.mark(obj, start, end, markName, value, expand);
         }
+
+        @Override
+        void encode(BatchWriter out) {
+            out.writeByte(MutationBatch.VALUE_INT);
+            out.writeLong(value);
+        }
     }
 
     /** A new floating point value */
@@ -203,6 +220,12 @@ public abstract class NewValue {
         protected void mark(Transaction tx, ObjectId obj, long start, long end, String markName, ExpandMark expand) {
             tx.mark(obj, start, end, markName, value, expand);
         }
+
+        @Override
+        void encode(BatchWriter out) {
+            out.writeByte(MutationBatch.VALUE_F64);
+            out.writeDouble(value);
+        }
     }
 
     /** A new string value */
@@ -232,6 +255,12 @@ public abstract class NewValue {
         protected void mark(Transaction tx, ObjectId obj, long start, long end, String markName, ExpandMark expand) {
             tx.mark(obj, start, end, markName, value, expand);
         }
+
+        @Override
+        void encode(BatchWriter out) {
+            out.writeByte(MutationBatch.VALUE_STR);
+            out.writeString(value);
+        }
     }
 
     /** A new boolean value */
@@ -261,6 +290,12 @@ public abstract class NewValue {
         protected void mark(Transaction tx, ObjectId obj, long start, long end, String markName, ExpandMark expand) {
             tx.mark(obj, start, end, markName, value, expand);
         }
+
+        @Override
+        void encode(BatchWriter out) {
+            out.writeByte(MutationBatch.VALUE_BOOL);
+            out.writeByte((byte) (value ? 1 : 0));
+        }
     }
 
     /** A new null value */
@@ -284,6 +319,11 @@ public abstract class NewValue {
         protected void mark(Transaction tx, ObjectId obj, long start, long end, String markName, ExpandMark expand) {
             tx.markNull(obj, start, end, markName, expand);
         }
+
+        @Override
+        void encode(BatchWriter out) {
+            out.writeByte(MutationBatch.VALUE_NULL);
+        }
     }
 
     /** A new byte array value */
@@ -313,6 +353,12 @@ public abstract class NewValue {
         protected void mark(Transaction tx, ObjectId obj, long start, long end, String markName, ExpandMark expand) {
             tx.mark(obj, start, end, markName, value, expand);
         }
+
+        @Override
+        void encode(BatchWriter out) {
+            out.writeByte(MutationBatch.VALUE_BYTES);
+            out.writeBytes(value);
+        }
     }
 
     /** A new counter value */
@@ -342,6 +388,12 @@ public abstract class NewValue {
         protected void mark(Transaction tx, ObjectId obj, long start, long end, String markName, ExpandMark expand) {
             tx.mark(obj, start, end, markName, new org.automerge.Counter(value), expand);
         }
+
+        @Override
+        void encode(BatchWriter out) {
+            out.writeByte(MutationBatch.VALUE_COUNTER);
+            out.writeLong(value);
+        }
     }
 
     /** A new timestamp value */
@@ -371,5 +423,11 @@ public abstract class NewValue {
         protected void mark(Transaction tx, ObjectId obj, long start, long end, String markName, ExpandMark expand) {
             tx.mark(obj, start, end, markName, value, expand);
         }
+
+        @Override
+        void encode(BatchWriter out) {
+            out.writeByte(MutationBatch.VALUE_TIMESTAMP);
+            out.writeLong(value.getTime());
+        }
     }
 }
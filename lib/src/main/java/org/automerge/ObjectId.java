@@ -1,5 +1,10 @@
 package org.automerge;
 
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.WeakHashMap;
+
 /**
  * The ID of a composite object in an automerge document
  *
@@ -7,9 +12,17 @@ package org.automerge;
  * Composite objects are objects that contain other objects, such as lists and
  * maps. The ID of the object is used to read and write to the object. The root
  * object in automerge is a map, the ID of whic his {@link ObjectId#ROOT}.
+ *
+ * <p>
+ * Equality and hashing are computed from the encoded ID on the Java side, so
+ * object IDs are cheap to use as keys in hash maps.
  */
 public class ObjectId {
-    private byte[] raw;
+    private final byte[] raw;
+    private final int hash;
+    private String string;
+
+    private static final Map<ObjectId, WeakReference<ObjectId>> INTERNED = new WeakHashMap<>();
 
     static {
         LoadLibrary.initialize();
@@ -18,24 +31,56 @@ public class ObjectId {
     public static ObjectId ROOT;
 
     static {
-        ROOT = AutomergeSys.rootObjectId();
+        ROOT = AutomergeSys.rootObjectId().intern();
     }
 
-    private ObjectId(byte[] raw) {
+    ObjectId(byte[] raw) {
         this.raw = raw;
+        this.hash = Arrays.hashCode(raw);
     }
 
     public boolean isRoot() {
-        return AutomergeSys.isRootObjectId(this);
+        return this == ROOT || Arrays.equals(raw, ROOT.raw);
+    }
+
+    /**
+     * Return a canonical instance of this object ID
+     *
+     * <p>
+     * Like {@link String#intern} this returns the same instance for every object
+     * ID which is equal to this one, so interned IDs can be compared with
+     * {@code ==}. This is useful when the same IDs are read over and over and kept
+     * around, as in caches keyed by object ID. The pool only holds weak references
+     * so IDs which are no longer in use are garbage collected.
+     *
+     * @return the canonical instance
+     */
+    public ObjectId intern() {
+        synchronized (INTERNED) {
+            WeakReference<ObjectId> existing = INTERNED.get(this);
+            ObjectId canonical = existing == null ? null : existing.get();
+            if (canonical == null) {
+                INTERNED.put(this, new WeakReference<>(this));
+                canonical = this;
+            }
+            return canonical;
+        }
     }
 
     public String toString() {
-        return AutomergeSys.objectIdToString(this);
+        // The string form is produced by the native library, cache it so it is
+        // only computed once per instance
+        String result = string;
+        if (result == null) {
+            result = AutomergeSys.objectIdToString(this);
+            string = result;
+        }
+        return result;
     }
 
     @Override
     public int hashCode() {
-        return AutomergeSys.objectIdHash(this);
+        return hash;
     }
 
     @Override
@@ -47,6 +92,6 @@ public class ObjectId {
         if (getClass() != obj.getClass())
             return false;
         ObjectId other = (ObjectId) obj;
-        return AutomergeSys.objectIdsEqual(this, other);
+        return hash == other.hash && Arrays.equals(raw, other.raw);
     }
 }
@@ -0,0 +1,161 @@
+package org.automerge;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Decodes the binary patch encoding produced by patches.rs and passes each
+ * patch to a {@link PatchVisitor}
+ *
+ * <p>
+ * Each patch is encoded as the number of path elements it shares with the
+ * previous patch, the number of new path elements followed by those elements,
+ * the ID of the object the patch modifies and then a one byte action tag
+ * followed by the fields of the action. Values use the encoding from
+ * {@link Materialized}.
+ */
+final class PatchDecoder {
+    // These must match the constants in patches.rs
+    private static final byte ACTION_PUT_MAP = 0;
+    private static final byte ACTION_PUT_LIST = 1;
+    private static final byte ACTION_INSERT = 2;
+    private static final byte ACTION_SPLICE_TEXT = 3;
+    private static final byte ACTION_INCREMENT = 4;
+    private static final byte ACTION_DELETE_MAP = 5;
+    private static final byte ACTION_DELETE_LIST = 6;
+    private static final byte ACTION_MARK = 7;
+    private static final byte ACTION_CONFLICT = 8;
+
+    private static final byte PROP_KEY = 0;
+    private static final byte PROP_INDEX = 1;
+
+    private final Materialized.Decoder in;
+    private final Path path = new Path();
+
+    private PatchDecoder(byte[] encoded) {
+        this.in = new Materialized.Decoder(encoded);
+    }
+
+    static void visit(byte[] encoded, PatchVisitor visitor) {
+        PatchDecoder decoder = new PatchDecoder(encoded);
+        while (decoder.in.hasRemaining()) {
+            decoder.visitNext(visitor);
+        }
+    }
+
+    private void visitNext(PatchVisitor visitor) {
+        int shared = in.readInt();
+        int added = in.readInt();
+        path.truncate(shared);
+        for (int i = 0; i < added; i++) {
+            ObjectId id = in.readObjectId();
+            path.push(new PathElement(id, readProp()));
+        }
+        ObjectId obj = in.readObjectId();
+        byte action = in.readByte();
+        switch (action) {
+            case ACTION_PUT_MAP : {
+                String key = in.readString();
+                AmValue value = in.readValue();
+                visitor.putMap(obj, path, key, value, in.readByte() != 0);
+                break;
+            }
+            case ACTION_PUT_LIST : {
+                long index = in.readLong();
+                AmValue value = in.readValue();
+                visitor.putList(obj, path, index, value, in.readByte() != 0);
+                break;
+            }
+            case ACTION_INSERT : {
+                long index = in.readLong();
+                int count = in.readInt();
+                ArrayList<AmValue> values = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    values.add(in.readValue());
+                }
+                visitor.insert(obj, path, index, Collections.unmodifiableList(values));
+                break;
+            }
+            case ACTION_SPLICE_TEXT : {
+                long index = in.readLong();
+                visitor.spliceText(obj, path, index, in.readString());
+                break;
+            }
+            case ACTION_INCREMENT : {
+                Prop prop = readProp();
+                visitor.increment(obj, path, prop, in.readLong());
+                break;
+            }
+            case ACTION_DELETE_MAP :
+                visitor.deleteMap(obj, path, in.readString());
+                break;
+            case ACTION_DELETE_LIST : {
+                long index = in.readLong();
+                visitor.deleteList(obj, path, index, in.readLong());
+                break;
+            }
+            case ACTION_MARK : {
+                Mark[] marks = new Mark[in.readInt()];
+                for (int i = 0; i < marks.length; i++) {
+                    long start = in.readLong();
+                    long end = in.readLong();
+                    String name = in.readString();
+                    marks[i] = new Mark(start, end, name, in.readScalar(in.readByte()));
+                }
+                visitor.mark(obj, path, marks);
+                break;
+            }
+            case ACTION_CONFLICT :
+                visitor.flagConflict(obj, path, readProp());
+                break;
+            default :
+                throw new AutomergeException("unknown patch action tag: " + action);
+        }
+    }
+
+    private Prop readProp() {
+        byte tag = in.readByte();
+        switch (tag) {
+            case PROP_KEY :
+                return new Prop.Key(in.readString());
+            case PROP_INDEX :
+                return new Prop.Index(in.readLong());
+            default :
+                throw new AutomergeException("unknown prop tag: " + tag);
+        }
+    }
+
+    /** A read only view of the path of the current patch */
+    private static final class Path extends AbstractList<PathElement> {
+        private PathElement[] elements = new PathElement[8];
+        private int size;
+
+        void truncate(int newSize) {
+            Arrays.fill(elements, newSize, size, null);
+            size = newSize;
+        }
+
+        void push(PathElement element) {
+            if (size == elements.length) {
+                elements = Arrays.copyOf(elements, size * 2);
+            }
+            elements[size++] = element;
+        }
+
+        @Override
+        public PathElement get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("index " + index + " out of bounds for size " + size);
+            }
+            return elements[index];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
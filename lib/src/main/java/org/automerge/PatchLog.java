@@ -5,15 +5,75 @@ import java.util.function.Consumer;
 import java.util.function.Function;
 import org.automerge.AutomergeSys.PatchLogPointer;
 
+/**
+ * Records the changes made to a document so that they can be turned into
+ * patches with {@link Document#makePatches(PatchLog)}
+ *
+ * <p>
+ * A patch log can be created in coalescing mode with
+ * {@link #PatchLog(boolean)}. A log which collects patches across many small
+ * transactions contains every intermediate state, for example one
+ * {@link PatchAction.PutMap} for each time a key was set or one
+ * {@link PatchAction.SpliceText} for each character typed. In coalescing mode
+ * runs of adjacent patches like these are merged before they are returned, so
+ * the patches describe the same change to the document in as few patches as
+ * possible. The patches are merged in the native library before any Java
+ * objects are created for them.
+ */
 public class PatchLog {
     private Optional<PatchLogPointer> pointer;
+    private final boolean coalescing;
+    private final NativeState nativeState;
+    private final NativeCleaner.Registration registration;
+
+    /**
+     * The pointer to free if this PatchLog is garbage collected without being
+     * freed. Kept separate from the PatchLog so the cleanup action does not keep
+     * the PatchLog reachable.
+     */
+    private static final class NativeState implements Runnable {
+        // Empty whilst the patch log is owned by a transaction
+        private volatile PatchLogPointer pointer;
+
+        NativeState(PatchLogPointer pointer) {
+            this.pointer = pointer;
+        }
+
+        @Override
+        public void run() {
+            PatchLogPointer p = pointer;
+            if (p != null) {
+                AutomergeSys.freePatchLog(p);
+            }
+        }
+    }
 
     static {
         LoadLibrary.initialize();
     }
 
     public PatchLog() {
+        this(false);
+    }
+
+    /**
+     * @param coalescing
+     *            whether to merge redundant patches when making patches from this
+     *            log
+     */
+    public PatchLog(boolean coalescing) {
+        this.coalescing = coalescing;
         pointer = Optional.of(AutomergeSys.createPatchLog());
+        nativeState = new NativeState(pointer.get());
+        registration = NativeCleaner.register(this, NativeMemory.Kind.PATCH_LOG, nativeState);
+    }
+
+    /**
+     * @return whether redundant patches are merged when making patches from this
+     *         log
+     */
+    public boolean isCoalescing() {
+        return coalescing;
     }
 
     synchronized <T> T with(Function<PatchLogPointer, T> f) {
@@ -24,6 +84,7 @@ public class PatchLog {
         if (pointer.isPresent()) {
             PatchLogPointer p = pointer.get();
             pointer = Optional.empty();
+            nativeState.pointer = null;
             return p;
         } else {
             throw new IllegalStateException("PatchLog already in use");
@@ -35,6 +96,7 @@ public class PatchLog {
             throw new IllegalStateException("PatchLog already in use");
         } else {
             pointer = Optional.of(p);
+            nativeState.pointer = p;
         }
     }
 
@@ -43,7 +105,9 @@ public class PatchLog {
     }
 
     public synchronized void free() {
-        pointer.ifPresent(AutomergeSys::freePatchLog);
-        pointer = Optional.empty();
+        if (pointer.isPresent()) {
+            registration.free();
+            pointer = Optional.empty();
+        }
     }
 }
@@ -0,0 +1,162 @@
+package org.automerge;
+
+import java.util.List;
+
+/**
+ * Receives patches one at a time
+ *
+ * <p>
+ * This is an alternative to the {@link Patch} lists returned by
+ * {@link Document#makePatches(PatchLog)} and
+ * {@link Document#diff(ChangeHash[], ChangeHash[])} for when there are too many
+ * patches to hold in memory at once, for example after a large merge. Pass a
+ * visitor to {@link Document#makePatches(PatchLog, PatchVisitor)} or
+ * {@link Document#diff(ChangeHash[], ChangeHash[], PatchVisitor)} and it is
+ * called once for each patch, in the same order as the patches in the list
+ * would be. Patches are decoded as they are visited so no {@link Patch} or
+ * {@link PatchAction} objects are created.
+ *
+ * <p>
+ * Each method receives the object the patch modifies and the path from the
+ * root of the document to that object. The path is only valid for the duration
+ * of the call, consecutive patches share the elements of their paths which are
+ * the same. Copy the path if you need to keep it.
+ *
+ * <p>
+ * Every method does nothing by default, override the ones for the kinds of
+ * patch you are interested in.
+ */
+public interface PatchVisitor {
+    /**
+     * A key in a map was set
+     *
+     * @param obj
+     *            the map which was modified
+     * @param path
+     *            the path to the map
+     * @param key
+     *            the key which was set
+     * @param value
+     *            the new value
+     * @param conflict
+     *            whether there is now a conflict on this key
+     */
+    default void putMap(ObjectId obj, List<PathElement> path, String key, AmValue value, boolean conflict) {
+    }
+
+    /**
+     * An index in a list was set
+     *
+     * @param obj
+     *            the list which was modified
+     * @param path
+     *            the path to the list
+     * @param index
+     *            the index which was set
+     * @param value
+     *            the new value
+     * @param conflict
+     *            whether there is now a conflict at this index
+     */
+    default void putList(ObjectId obj, List<PathElement> path, long index, AmValue value, boolean conflict) {
+    }
+
+    /**
+     * Values were inserted into a list
+     *
+     * @param obj
+     *            the list which was modified
+     * @param path
+     *            the path to the list
+     * @param index
+     *            the index of the first inserted value
+     * @param values
+     *            the inserted values
+     */
+    default void insert(ObjectId obj, List<PathElement> path, long index, List<AmValue> values) {
+    }
+
+    /**
+     * Text was inserted into a text object
+     *
+     * @param obj
+     *            the text object which was modified
+     * @param path
+     *            the path to the text object
+     * @param index
+     *            the index the text was inserted at
+     * @param text
+     *            the inserted text
+     */
+    default void spliceText(ObjectId obj, List<PathElement> path, long index, String text) {
+    }
+
+    /**
+     * A counter was incremented
+     *
+     * @param obj
+     *            the object containing the counter
+     * @param path
+     *            the path to the object
+     * @param prop
+     *            the property of the counter
+     * @param value
+     *            the amount it was incremented by
+     */
+    default void increment(ObjectId obj, List<PathElement> path, Prop prop, long value) {
+    }
+
+    /**
+     * A key was deleted from a map
+     *
+     * @param obj
+     *            the map which was modified
+     * @param path
+     *            the path to the map
+     * @param key
+     *            the key which was deleted
+     */
+    default void deleteMap(ObjectId obj, List<PathElement> path, String key) {
+    }
+
+    /**
+     * Values were deleted from a list or text object
+     *
+     * @param obj
+     *            the object which was modified
+     * @param path
+     *            the path to the object
+     * @param index
+     *            the index of the first deleted value
+     * @param length
+     *            the number of values deleted
+     */
+    default void deleteList(ObjectId obj, List<PathElement> path, long index, long length) {
+    }
+
+    /**
+     * Marks were added to a text object
+     *
+     * @param obj
+     *            the text object which was modified
+     * @param path
+     *            the path to the text object
+     * @param marks
+     *            the marks which were added
+     */
+    default void mark(ObjectId obj, List<PathElement> path, Mark[] marks) {
+    }
+
+    /**
+     * A property became conflicted
+     *
+     * @param obj
+     *            the object containing the property
+     * @param path
+     *            the path to the object
+     * @param prop
+     *            the property which is conflicted
+     */
+    default void flagConflict(ObjectId obj, List<PathElement> path, Prop prop) {
+    }
+}
@@ -1,6 +1,7 @@
 package org.automerge;
 
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 
@@ -174,6 +175,13 @@ public interface Read {
      */
     public Optional<Conflicts> getAll(ObjectId obj, long idx, ChangeHash[] heads);
 
+    /**
+     * Get the units of indices into text objects in this document
+     *
+     * @return the text encoding of the document
+     */
+    public TextEncoding getTextEncoding();
+
     /**
      * Get the value of a text object
      *
@@ -198,6 +206,63 @@ public interface Read {
      */
     public Optional<String> text(ObjectId obj, ChangeHash[] heads);
 
+    /**
+     * Get part of the value of a text object
+     *
+     * <p>
+     * Indices are in the same units as {@link Transaction#spliceText}. Only the
+     * requested part of the text is copied into Java.
+     *
+     * @param obj
+     *            - The ID of the text object to get the value from
+     * @param start
+     *            - The index of the first character to return
+     * @param end
+     *            - The index after the last character to return. If this is past
+     *            the end of the text the text up to the end is returned
+     * @return The text or None if no such object exists
+     * @throws IllegalArgumentException
+     *             if start is negative or end is less than start
+     */
+    public Optional<String> text(ObjectId obj, long start, long end);
+
+    /**
+     * Get part of the value of a text object as at the given heads
+     *
+     * @param obj
+     *            - The ID of the text object to get the value from
+     * @param start
+     *            - The index of the first character to return
+     * @param end
+     *            - The index after the last character to return
+     * @param heads
+     *            - The heads of the version of the document to get the value from
+     * @return The text or None if no such object exists
+     * @throws IllegalArgumentException
+     *             if start is negative or end is less than start
+     */
+    public Optional<String> text(ObjectId obj, long start, long end, ChangeHash[] heads);
+
+    /**
+     * Iterate over a text object in chunks
+     *
+     * <p>
+     * Each chunk is fetched from the document as the iterator reaches it, so only
+     * one chunk is held in memory at a time. Changes made to the document during
+     * iteration are visible to chunks fetched after them, iterate over a
+     * {@link Snapshot} if you need a consistent view.
+     *
+     * @param obj
+     *            - The ID of the text object
+     * @param chunkSize
+     *            - The number of characters to fetch at a time
+     * @return An iterator over the chunks of the text, which is empty if no such
+     *         object exists
+     */
+    public default Iterator<String> textChunks(ObjectId obj, int chunkSize) {
+        return new ChunkedReads.TextChunks(this, obj, chunkSize, getTextEncoding());
+    }
+
     /**
      * Get the keys of the object given by obj
      *
@@ -218,6 +283,57 @@ public interface Read {
      */
     public Optional<String[]> keys(ObjectId obj, ChangeHash[] heads);
 
+    /**
+     * Get a page of the keys of the map given by obj
+     *
+     * @param obj
+     *            - The ID of the map to get the keys from
+     * @param fromKey
+     *            - The first key to return, or null to start from the first key in
+     *            the map. The key does not need to be present in the map, the page
+     *            starts at the first key which sorts at or after it
+     * @param limit
+     *            - The maximum number of keys to return
+     * @return The keys in sorted order or None if the object is not a map
+     * @throws IllegalArgumentException
+     *             if limit is negative
+     */
+    public Optional<String[]> keys(ObjectId obj, String fromKey, int limit);
+
+    /**
+     * Get a page of the keys of the map given by obj as at the given heads
+     *
+     * @param obj
+     *            - The ID of the map to get the keys from
+     * @param fromKey
+     *            - The first key to return, or null to start from the first key
+     * @param limit
+     *            - The maximum number of keys to return
+     * @param heads
+     *            - The heads of the version of the document to get the keys from
+     * @return The keys in sorted order or None if the object is not a map
+     * @throws IllegalArgumentException
+     *             if limit is negative
+     */
+    public Optional<String[]> keys(ObjectId obj, String fromKey, int limit, ChangeHash[] heads);
+
+    /**
+     * Iterate over the keys of a map, fetching them in chunks
+     *
+     * <p>
+     * See {@link textChunks} for how changes during iteration are handled.
+     *
+     * @param obj
+     *            - The ID of the map
+     * @param chunkSize
+     *            - The number of keys to fetch at a time
+     * @return An iterator over the keys in sorted order, which is empty if the
+     *         object is not a map
+     */
+    public default Iterator<String> keysIterator(ObjectId obj, int chunkSize) {
+        return new ChunkedReads.Keys(this, obj, chunkSize);
+    }
+
     /**
      * Get the entries of the map given by obj
      *
@@ -238,6 +354,57 @@ public interface Read {
      */
     public Optional<MapEntry[]> mapEntries(ObjectId obj, ChangeHash[] heads);
 
+    /**
+     * Get a page of the entries of the map given by obj
+     *
+     * @param obj
+     *            - The ID of the map to get the entries from
+     * @param fromKey
+     *            - The key of the first entry to return, or null to start from the
+     *            first entry in the map
+     * @param limit
+     *            - The maximum number of entries to return
+     * @return The entries in key order or None if the object is not a map
+     * @throws IllegalArgumentException
+     *             if limit is negative
+     */
+    public Optional<MapEntry[]> mapEntries(ObjectId obj, String fromKey, int limit);
+
+    /**
+     * Get a page of the entries of the map given by obj as at the given heads
+     *
+     * @param obj
+     *            - The ID of the map to get the entries from
+     * @param fromKey
+     *            - The key of the first entry to return, or null to start from the
+     *            first entry in the map
+     * @param limit
+     *            - The maximum number of entries to return
+     * @param heads
+     *            - The heads of the version of the document to get the entries from
+     * @return The entries in key order or None if the object is not a map
+     * @throws IllegalArgumentException
+     *             if limit is negative
+     */
+    public Optional<MapEntry[]> mapEntries(ObjectId obj, String fromKey, int limit, ChangeHash[] heads);
+
+    /**
+     * Iterate over the entries of a map, fetching them in chunks
+     *
+     * <p>
+     * See {@link textChunks} for how changes during iteration are handled.
+     *
+     * @param obj
+     *            - The ID of the map
+     * @param chunkSize
+     *            - The number of entries to fetch at a time
+     * @return An iterator over the entries in key order, which is empty if the
+     *         object is not a map
+     */
+    public default Iterator<MapEntry> mapEntriesIterator(ObjectId obj, int chunkSize) {
+        return new ChunkedReads.MapEntries(this, obj, chunkSize);
+    }
+
     /**
      * Get the values in the list given by obj
      *
@@ -258,6 +425,56 @@ public interface Read {
      */
     public Optional<AmValue[]> listItems(ObjectId obj, ChangeHash[] heads);
 
+    /**
+     * Get a range of the values in the list given by obj
+     *
+     * @param obj
+     *            - The ID of the list to get the values from
+     * @param start
+     *            - The index of the first value to return
+     * @param end
+     *            - The index after the last value to return. If this is past the
+     *            end of the list the values up to the end are returned
+     * @return The values or None if the object is not a list
+     * @throws IllegalArgumentException
+     *             if start is negative or end is less than start
+     */
+    public Optional<AmValue[]> listItems(ObjectId obj, long start, long end);
+
+    /**
+     * Get a range of the values in the list given by obj as at the given heads
+     *
+     * @param obj
+     *            - The ID of the list to get the values from
+     * @param start
+     *            - The index of the first value to return
+     * @param end
+     *            - The index after the last value to return
+     * @param heads
+     *            - The heads of the version of the document to get the values from
+     * @return The values or None if the object is not a list
+     * @throws IllegalArgumentException
+     *             if start is negative or end is less than start
+     */
+    public Optional<AmValue[]> listItems(ObjectId obj, long start, long end, ChangeHash[] heads);
+
+    /**
+     * Iterate over the values in a list, fetching them in chunks
+     *
+     * <p>
+     * See {@link textChunks} for how changes during iteration are handled.
+     *
+     * @param obj
+     *            - The ID of the list
+     * @param chunkSize
+     *            - The number of values to fetch at a time
+     * @return An iterator over the values, which is empty if the object is not a
+     *         list
+     */
+    public default Iterator<AmValue> listItemsIterator(ObjectId obj, int chunkSize) {
+        return new ChunkedReads.ListItems(this, obj, chunkSize);
+    }
+
     /**
      * Get the length of the list given by obj
      *
@@ -302,6 +519,117 @@ public interface Read {
      */
     public List<Mark> marks(ObjectId obj, ChangeHash[] heads);
 
+    /**
+     * Get the marks which overlap a range of the text object given by obj
+     *
+     * <p>
+     * Only the part of the text up to the end of the range is visited so this is
+     * much cheaper than {@link #marks(ObjectId)} for a small range near the start
+     * of a large text. The returned marks are clipped to the range, a mark which
+     * starts before {@code start} is returned as starting at {@code start} and a
+     * mark which ends after {@code end} is returned as ending at {@code end}.
+     *
+     * @param obj
+     *            - The ID of the text object to get the marks from
+     * @param start
+     *            - The index of the start of the range
+     * @param end
+     *            - The index of the end of the range (exclusive)
+     * @return The marks which overlap the range, ordered by where they start
+     * @throws IllegalArgumentException
+     *             if start is negative or end is less than start
+     */
+    public List<Mark> marks(ObjectId obj, long start, long end);
+
+    /**
+     * Get the marks which overlap a range of the text object given by obj as at
+     * the given heads
+     *
+     * @see #marks(ObjectId, long, long)
+     * @param obj
+     *            - The ID of the text object to get the marks from
+     * @param start
+     *            - The index of the start of the range
+     * @param end
+     *            - The index of the end of the range (exclusive)
+     * @param heads
+     *            - The heads of the version of the document to get the marks from
+     * @return The marks which overlap the range, ordered by where they start
+     * @throws IllegalArgumentException
+     *             if start is negative or end is less than start
+     */
+    public List<Mark> marks(ObjectId obj, long start, long end, ChangeHash[] heads);
+
+    /**
+     * Get the text object given by obj as runs of text which have the same marks
+     *
+     * <p>
+     * This returns the text and its marks in a single call, see {@link Span}.
+     *
+     * @param obj
+     *            - The ID of the text object to get the spans of
+     * @return The spans of the text object in order
+     * @throws AutomergeException
+     *             if the object ID is not a text object
+     */
+    public List<Span> spans(ObjectId obj);
+
+    /**
+     * Get the text object given by obj as runs of text which have the same marks
+     * as at the given heads
+     *
+     * @param obj
+     *            - The ID of the text object to get the spans of
+     * @param heads
+     *            - The heads of the version of the document to get the spans from
+     * @return The spans of the text object in order
+     * @throws AutomergeException
+     *             if the object ID is not a text object
+     */
+    public List<Span> spans(ObjectId obj, ChangeHash[] heads);
+
+    /**
+     * Get the spans which overlap a range of the text object given by obj
+     *
+     * <p>
+     * The first and last spans are clipped to the range. Only the part of the
+     * text up to the end of the range is visited.
+     *
+     * @param obj
+     *            - The ID of the text object to get the spans of
+     * @param start
+     *            - The index of the start of the range
+     * @param end
+     *            - The index of the end of the range (exclusive)
+     * @return The spans which overlap the range in order
+     * @throws AutomergeException
+     *             if the object ID is not a text object
+     * @throws IllegalArgumentException
+     *             if start is negative or end is less than start
+     */
+    public List<Span> spans(ObjectId obj, long start, long end);
+
+    /**
+     * Get the spans which overlap a range of the text object given by obj as at
+     * the given heads
+     *
+     * @see #spans(ObjectId, long, long)
+     * @param obj
+     *            - The ID of the text object to get the spans of
+     * @param start
+     *            - The index of the start of the range
+     * @param end
+     *            - The index of the end of the range (exclusive)
+     * @param heads
+     *            - The heads of the version of the document to get the spans from
+     * @return The spans which overlap the range in order
+     * @throws AutomergeException
+     *             if the object ID is not a text object
+     * @throws IllegalArgumentException
+     *             if start is negative or end is less than start
+     */
+    public List<Span> spans(ObjectId obj, long start, long end, ChangeHash[] heads);
+
     /**
      * Get the marks defined at the given index in a text object
      *
@@ -419,4 +747,309 @@ public interface Read {
      *         in this document
      */
     public Optional<ObjectType> getObjectType(ObjectId obj);
+
+    /**
+     * Read an object and everything beneath it in a single call
+     *
+     * <p>
+     * This is much faster than walking the object with {@link mapEntries},
+     * {@link listItems} and {@link text} when you need the whole subtree, for
+     * example when rendering a document.
+     *
+     * @param obj
+     *            - The ID of the object to read
+     *
+     * @return The contents of the object or Optional.empty if the object does not
+     *         exist in this document
+     */
+    public Optional<Materialized> materialize(ObjectId obj);
+
+    /**
+     * Read an object and everything beneath it in a single call as at the given
+     * heads
+     *
+     * @param obj
+     *            - The ID of the object to read
+     * @param heads
+     *            - The heads of the version of the document to read
+     *
+     * @return The contents of the object or Optional.empty if the object does not
+     *         exist in this version of the document
+     */
+    public Optional<Materialized> materialize(ObjectId obj, ChangeHash[] heads);
+
+    /**
+     * Get an integer from the map given by obj without allocating an
+     * {@link AmValue}
+     *
+     * <p>
+     * Ints, uints and counters are returned as their value and timestamps as
+     * milliseconds since the epoch. If the key is not present or holds a value of
+     * any other type {@code defaultValue} is returned. As with {@link get} if
+     * there are conflicting values one of them is chosen arbitrarily.
+     *
+     * @param obj
+     *            - The ID of the map to get the value from
+     * @param key
+     *            - The key to get the value for
+     * @param defaultValue
+     *            - The value to return if there is no integer at the key
+     * @return The value of the key or {@code defaultValue}
+     * @throws AutomergeException
+     *             if the object ID is not a map
+     */
+    public long getLong(ObjectId obj, String key, long defaultValue);
+
+    /**
+     * Get an integer from the list given by obj without allocating an
+     * {@link AmValue}
+     *
+     * @param obj
+     *            - The ID of the list to get the value from
+     * @param idx
+     *            - The index to get the value for
+     * @param defaultValue
+     *            - The value to return if there is no integer at the index
+     * @return The value at the index or {@code defaultValue}
+     * @throws AutomergeException
+     *             if the object ID is not a list
+     * @see #getLong(ObjectId, String, long)
+     */
+    public long getLong(ObjectId obj, long idx, long defaultValue);
+
+    /**
+     * Get a float from the map given by obj without allocating an {@link AmValue}
+     *
+     * @param obj
+     *            - The ID of the map to get the value from
+     * @param key
+     *            - The key to get the value for
+     * @param defaultValue
+     *            - The value to return if the key is not present or does not hold
+     *            a float
+     * @return The value of the key or {@code defaultValue}
+     * @throws AutomergeException
+     *             if the object ID is not a map
+     */
+    public double getDouble(ObjectId obj, String key, double defaultValue);
+
+    /**
+     * Get a float from the list given by obj without allocating an
+     * {@link AmValue}
+     *
+     * @param obj
+     *            - The ID of the list to get the value from
+     * @param idx
+     *            - The index to get the value for
+     * @param defaultValue
+     *            - The value to return if the index is out of bounds or does not
+     *            hold a float
+     * @return The value at the index or {@code defaultValue}
+     * @throws AutomergeException
+     *             if the object ID is not a list
+     */
+    public double getDouble(ObjectId obj, long idx, double defaultValue);
+
+    /**
+     * Get a boolean from the map given by obj without allocating an
+     * {@link AmValue}
+     *
+     * @param obj
+     *            - The ID of the map to get the value from
+     * @param key
+     *            - The key to get the value for
+     * @param defaultValue
+     *            - The value to return if the key is not present or does not hold
+     *            a boolean
+     * @return The value of the key or {@code defaultValue}
+     * @throws AutomergeException
+     *             if the object ID is not a map
+     */
+    public boolean getBoolean(ObjectId obj, String key, boolean defaultValue);
+
+    /**
+     * Get a boolean from the list given by obj without allocating an
+     * {@link AmValue}
+     *
+     * @param obj
+     *            - The ID of the list to get the value from
+     * @param idx
+     *            - The index to get the value for
+     * @param defaultValue
+     *            - The value to return if the index is out of bounds or does not
+     *            hold a boolean
+     * @return The value at the index or {@code defaultValue}
+     * @throws AutomergeException
+     *             if the object ID is not a list
+     */
+    public boolean getBoolean(ObjectId obj, long idx, boolean defaultValue);
+
+    /**
+     * Get a string from the map given by obj without allocating an
+     * {@link Optional} or an {@link AmValue}
+     *
+     * <p>
+     * Only string values are returned, the contents of a text object are not.
+     * Use {@link text} for those.
+     *
+     * @param obj
+     *            - The ID of the map to get the value from
+     * @param key
+     *            - The key to get the value for
+     * @return The value of the key or null if the key is not present or does not
+     *         hold a string
+     * @throws AutomergeException
+     *             if the object ID is not a map
+     */
+    public String getStringOrNull(ObjectId obj, String key);
+
+    /**
+     * Get a string from the list given by obj without allocating an
+     * {@link Optional} or an {@link AmValue}
+     *
+     * @param obj
+     *            - The ID of the list to get the value from
+     * @param idx
+     *            - The index to get the value for
+     * @return The value at the index or null if the index is out of bounds or does
+     *         not hold a string
+     * @throws AutomergeException
+     *             if the object ID is not a list
+     */
+    public String getStringOrNull(ObjectId obj, long idx);
+
+    /**
+     * Follow a path of keys and indices from obj and get the value at the end of
+     * it in a single call
+     *
+     * <p>
+     * For example {@code getPath(ObjectId.ROOT, "users", 42, "name")} is
+     * equivalent to looking up "users" in the root, then index 42 in that list,
+     * then "name" in that map. To read the same path repeatedly use a
+     * {@link ReadPath}.
+     *
+     * @param obj
+     *            - The ID of the object to start from
+     * @param path
+     *            - The keys and indices to follow, each must be a String or an
+     *            integer
+     * @return The value at the end of the path or Optional.empty if any segment
+     *         of the path is not present or is not an object
+     * @throws AutomergeException
+     *             if a segment is a key but the object is not a map or an index
+     *             but the object is not a list
+     * @throws IllegalArgumentException
+     *             if the path is empty or a segment is not a String or a non
+     *             negative integer
+     */
+    public Optional<AmValue> getPath(ObjectId obj, Object... path);
+
+    /**
+     * Get the values of several keys in the map given by obj in a single call
+     *
+     * @param obj
+     *            - The ID of the map to get the values from
+     * @param keys
+     *            - The keys to get the values for
+     * @return An array the same length as keys containing the value of each key,
+     *         or null where the key is not present
+     * @throws AutomergeException
+     *             if the object ID is not a map
+     */
+    public AmValue[] getMany(ObjectId obj, String[] keys);
+
+    /**
+     * Get the values of several keys in the map given by obj as at the given
+     * heads in a single call
+     *
+     * @param obj
+     *            - The ID of the map to get the values from
+     * @param keys
+     *            - The keys to get the values for
+     * @param heads
+     *            - The heads of the version of the document to read
+     * @return An array the same length as keys containing the value of each key,
+     *         or null where the key is not present
+     * @throws AutomergeException
+     *             if the object ID is not a map
+     */
+    public AmValue[] getMany(ObjectId obj, String[] keys, ChangeHash[] heads);
+
+    /**
+     * Get cursors which refer to each of the given indexes in a list or text
+     * object in a single call
+     *
+     * @param obj
+     *            - The ID of the list or text object to get the cursors for
+     * @param indexes
+     *            - The indexes to get cursors for
+     *
+     * @return An array the same length as indexes containing the cursor for each
+     *         index
+     *
+     * @throws AutomergeException
+     *             if the object ID refers to an object which is not a list or text
+     *             object or if any index is out of range
+     */
+    public Cursor[] makeCursors(ObjectId obj, long[] indexes);
+
+    /**
+     * Get cursors which refer to each of the given indexes in a list or text
+     * object as at the given heads in a single call
+     *
+     * @param obj
+     *            - The ID of the list or text object to get the cursors for
+     * @param indexes
+     *            - The indexes to get cursors for
+     * @param heads
+     *            - The heads of the version of the document to make the cursors
+     *            from
+     *
+     * @return An array the same length as indexes containing the cursor for each
+     *         index
+     *
+     * @throws AutomergeException
+     *             if the object ID refers to an object which is not a list or text
+     *             object or if any index is out of range
+     */
+    public Cursor[] makeCursors(ObjectId obj, long[] indexes, ChangeHash[] heads);
+
+    /**
+     * Given several cursors for an object, get the index each cursor points at in
+     * a single call
+     *
+     * @param obj
+     *            - The ID of the object the cursors refer into
+     * @param cursors
+     *            - The cursors
+     *
+     * @return An array the same length as cursors containing the index each
+     *         cursor points at
+     * @throws AutomergeException
+     *             if the object ID refers to an object which is not a list or text
+     *             object or if any cursor does not refer to an element in the
+     *             object
+     */
+    public long[] lookupCursorIndices(ObjectId obj, Cursor[] cursors);
+
+    /**
+     * Given several cursors for an object, get the index each cursor points at as
+     * at the given heads in a single call
+     *
+     * @param obj
+     *            - The ID of the object the cursors refer into
+     * @param cursors
+     *            - The cursors
+     * @param heads
+     *            - The heads of the version of the document to look the cursors
+     *            up in
+     *
+     * @return An array the same length as cursors containing the index each
+     *         cursor points at
+     * @throws AutomergeException
+     *             if the object ID refers to an object which is not a list or text
+     *             object or if any cursor does not refer to an element in the
+     *             object
+     */
+    public long[] lookupCursorIndices(ObjectId obj, Cursor[] cursors, ChangeHash[] heads);
 }
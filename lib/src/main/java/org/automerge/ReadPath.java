@@ -0,0 +1,222 @@
+package org.automerge;
+
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+/**
+ * A path to a value in a document which can be read repeatedly
+ *
+ * <p>
+ * A path is a root object followed by a sequence of segments, each of which is
+ * either a {@link String} key in a map or an integer index in a list, for
+ * example {@code ReadPath.compile(ObjectId.ROOT, "users", 42, "name")}. Reading
+ * a path with {@link Read#getPath(ObjectId, Object...)} resolves every segment
+ * on each call. A compiled path remembers the ID of the object which contains
+ * the value it points at, so that reading it again only has to look up the
+ * final segment. The remembered ID is discarded whenever the document changes.
+ *
+ * <p>
+ * Reads from a {@link Document} are cached until the next change to the
+ * document, reads from a {@link Snapshot} are cached for as long as the
+ * snapshot is used. Reads within a transaction, or from a document while a
+ * transaction is in progress, are never cached as the document may change
+ * between reads.
+ *
+ * <p>
+ * Compiled paths are safe to share between threads.
+ */
+public final class ReadPath {
+    // These must match the constants in read_methods/path.rs
+    static final byte SEGMENT_KEY = 0;
+    static final byte SEGMENT_INDEX = 1;
+
+    private final ObjectId root;
+    private final Object[] segments;
+    private final Object[] parents;
+    private final Object leaf;
+    private volatile Resolved resolved;
+
+    private static final class Resolved {
+        private final WeakReference<Read> read;
+        private final long version;
+        private final ObjectId parent;
+
+        Resolved(Read read, long version, ObjectId parent) {
+            this.read = new WeakReference<>(read);
+            this.version = version;
+            this.parent = parent;
+        }
+    }
+
+    private ReadPath(ObjectId root, Object[] segments) {
+        this.root = root;
+        this.segments = segments;
+        this.parents = new Object[segments.length - 1];
+        System.arraycopy(segments, 0, parents, 0, parents.length);
+        this.leaf = segments[segments.length - 1];
+    }
+
+    /**
+     * Compile a path
+     *
+     * @param root
+     *            - The ID of the object the path starts from
+     * @param segments
+     *            - The keys and indices to follow from the root
+     * @return The compiled path
+     * @throws IllegalArgumentException
+     *             if there are no segments or a segment is not a String or a non
+     *             negative integer
+     */
+    public static ReadPath compile(ObjectId root, Object... segments) {
+        if (segments.length == 0) {
+            throw new IllegalArgumentException("path must have at least one segment");
+        }
+        Object[] copy = new Object[segments.length];
+        for (int i = 0; i < segments.length; i++) {
+            Object segment = segments[i];
+            copy[i] = segment instanceof String ? segment : Long.valueOf(index(segment));
+        }
+        return new ReadPath(root, copy);
+    }
+
+    /**
+     * Read the value at this path
+     *
+     * @param read
+     *            - The document, transaction or snapshot to read from
+     * @return The value at the path or Optional.empty if any segment of the path
+     *         is not present
+     * @throws AutomergeException
+     *             if a segment is a key but the object is not a map or an index
+     *             but the object is not a list
+     */
+    public Optional<AmValue> get(Read read) {
+        long version = versionOf(read);
+        if (version < 0) {
+            return read.getPath(root, segments);
+        }
+        Resolved current = resolved;
+        ObjectId parent;
+        if (current != null && current.read.get() == read && current.version == version) {
+            parent = current.parent;
+        } else {
+            parent = resolveParent(read);
+            resolved = new Resolved(read, version, parent);
+        }
+        if (parent == null) {
+            return Optional.empty();
+        } else if (leaf instanceof String) {
+            return read.get(parent, (String) leaf);
+        } else {
+            return read.get(parent, (Long) leaf);
+        }
+    }
+
+    /**
+     * @return The ID of the object this path starts from
+     */
+    public ObjectId getRoot() {
+        return root;
+    }
+
+    /**
+     * @return The keys and indices of this path
+     */
+    public Object[] getSegments() {
+        return segments.clone();
+    }
+
+    private ObjectId resolveParent(Read read) {
+        if (parents.length == 0) {
+            return root;
+        }
+        Optional<AmValue> value = read.getPath(root, parents);
+        if (!value.isPresent()) {
+            return null;
+        }
+        AmValue parent = value.get();
+        if (parent instanceof AmValue.Map) {
+            return ((AmValue.Map) parent).getId();
+        } else if (parent instanceof AmValue.List) {
+            return ((AmValue.List) parent).getId();
+        } else if (parent instanceof AmValue.Text) {
+            return ((AmValue.Text) parent).getId();
+        }
+        return null;
+    }
+
+    /**
+     * A number which changes whenever the contents of {@code read} may have
+     * changed, or -1 if that can't be determined
+     */
+    private static long versionOf(Read read) {
+        if (read instanceof Snapshot) {
+            return 0;
+        } else if (read instanceof Document) {
+            return ((Document) read).getStableVersion();
+        }
+        return -1;
+    }
+
+    private static long index(Object segment) {
+        if (segment instanceof Long || segment instanceof Integer || segment instanceof Short
+                || segment instanceof Byte) {
+            long index = ((Number) segment).longValue();
+            if (index < 0) {
+                throw new IllegalArgumentException("index cannot be negative");
+            }
+            return index;
+        }
+        throw new IllegalArgumentException("path segments must be a String or an integer, got " + segment);
+    }
+
+    static byte[] encodePath(Object[] segments) {
+        if (segments.length == 0) {
+            throw new IllegalArgumentException("path must have at least one segment");
+        }
+        byte[][] keys = new byte[segments.length][];
+        int size = 0;
+        for (int i = 0; i < segments.length; i++) {
+            if (segments[i] instanceof String) {
+                keys[i] = ((String) segments[i]).getBytes(StandardCharsets.UTF_8);
+                size += 1 + 4 + keys[i].length;
+            } else {
+                index(segments[i]);
+                size += 1 + 8;
+            }
+        }
+        ByteBuffer buf = ByteBuffer.allocate(size);
+        for (int i = 0; i < segments.length; i++) {
+            if (keys[i] != null) {
+                buf.put(SEGMENT_KEY);
+                buf.putInt(keys[i].length);
+                buf.put(keys[i]);
+            } else {
+                buf.put(SEGMENT_INDEX);
+                buf.putLong(((Number) segments[i]).longValue());
+            }
+        }
+        return buf.array();
+    }
+
+    static byte[] encodeKeys(String[] keys) {
+        byte[][] encoded = new byte[keys.length][];
+        int size = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] == null) {
+                throw new IllegalArgumentException("keys cannot be null");
+            }
+            encoded[i] = keys[i].getBytes(StandardCharsets.UTF_8);
+            size += 4 + encoded[i].length;
+        }
+        ByteBuffer buf = ByteBuffer.allocate(size);
+        for (byte[] key : encoded) {
+            buf.putInt(key.length);
+            buf.put(key);
+        }
+        return buf.array();
+    }
+}
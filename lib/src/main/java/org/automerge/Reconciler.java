@@ -0,0 +1,83 @@
+package org.automerge;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes a tree of plain Java values for {@link Transaction#reconcile}
+ *
+ * <p>
+ * Maps and lists are encoded as a tag and element count followed by their
+ * entries. Any other value is encoded as a scalar in the same format as the
+ * values of a {@link MutationBatch}. The encoding is decoded by
+ * {@code rust/src/transaction/reconcile.rs}.
+ */
+final class Reconciler {
+    // Node tags, these must match the constants in
+    // `rust/src/transaction/reconcile.rs`
+    static final byte NODE_MAP = 16;
+    static final byte NODE_LIST = 17;
+
+    private Reconciler() {
+    }
+
+    static byte[] encode(Object tree) {
+        BatchWriter out = new BatchWriter(256);
+        encode(out, tree);
+        return out.toByteArray();
+    }
+
+    private static void encode(BatchWriter out, Object value) {
+        if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            out.writeByte(NODE_MAP);
+            out.writeInt(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                if (!(entry.getKey() instanceof String)) {
+                    throw new IllegalArgumentException("map keys must be strings: " + entry.getKey());
+                }
+                out.writeString((String) entry.getKey());
+                encode(out, entry.getValue());
+            }
+        } else if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            out.writeByte(NODE_LIST);
+            out.writeInt(list.size());
+            for (Object item : list) {
+                encode(out, item);
+            }
+        } else {
+            encodeScalar(out, value);
+        }
+    }
+
+    private static void encodeScalar(BatchWriter out, Object value) {
+        if (value == null) {
+            out.writeByte(MutationBatch.VALUE_NULL);
+        } else if (value instanceof NewValue) {
+            ((NewValue) value).encode(out);
+        } else if (value instanceof String) {
+            out.writeByte(MutationBatch.VALUE_STR);
+            out.writeString((String) value);
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short
+                || value instanceof Byte) {
+            out.writeByte(MutationBatch.VALUE_INT);
+            out.writeLong(((Number) value).longValue());
+        } else if (value instanceof Double || value instanceof Float) {
+            out.writeByte(MutationBatch.VALUE_F64);
+            out.writeDouble(((Number) value).doubleValue());
+        } else if (value instanceof Boolean) {
+            out.writeByte(MutationBatch.VALUE_BOOL);
+            out.writeByte((byte) (((Boolean) value) ? 1 : 0));
+        } else if (value instanceof byte[]) {
+            out.writeByte(MutationBatch.VALUE_BYTES);
+            out.writeBytes((byte[]) value);
+        } else if (value instanceof Date) {
+            out.writeByte(MutationBatch.VALUE_TIMESTAMP);
+            out.writeLong(((Date) value).getTime());
+        } else {
+            throw new IllegalArgumentException("cannot reconcile value of type " + value.getClass().getName());
+        }
+    }
+}
@@ -0,0 +1,387 @@
+package org.automerge;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A read only view of a {@link Document} as it was at a particular set of heads
+ *
+ * <p>
+ * Created with {@link Document#snapshot()}. Every read on a snapshot is
+ * performed against the document at the heads the snapshot was created with,
+ * so the view does not change as new changes are applied to the document and a
+ * series of reads always sees a consistent state. The snapshot does not copy
+ * the document, it reads the history which the document already retains. The
+ * overloads which accept explicit heads read at those heads instead.
+ *
+ * <p>
+ * Snapshots are safe to use from multiple threads. Each read briefly locks the
+ * underlying document, the document is not locked in between reads. A snapshot
+ * is only valid as long as the document it was created from has not been
+ * freed.
+ */
+public final class Snapshot implements Read {
+    private final Document doc;
+    private final ChangeHash[] heads;
+
+    Snapshot(Document doc, ChangeHash[] heads) {
+        this.doc = doc;
+        this.heads = heads;
+    }
+
+    /**
+     * @return the document this snapshot reads from
+     */
+    public Document getDocument() {
+        return doc;
+    }
+
+    @Override
+    public Optional<AmValue> get(ObjectId obj, String key) {
+        return doc.get(obj, key, heads);
+    }
+
+    @Override
+    public Optional<AmValue> get(ObjectId obj, String key, ChangeHash[] heads) {
+        return doc.get(obj, key, heads);
+    }
+
+    @Override
+    public Optional<AmValue> get(ObjectId obj, long idx) {
+        return doc.get(obj, idx, heads);
+    }
+
+    @Override
+    public Optional<AmValue> get(ObjectId obj, long idx, ChangeHash[] heads) {
+        return doc.get(obj, idx, heads);
+    }
+
+    @Override
+    public Optional<Conflicts> getAll(ObjectId obj, String key) {
+        return doc.getAll(obj, key, heads);
+    }
+
+    @Override
+    public Optional<Conflicts> getAll(ObjectId obj, String key, ChangeHash[] heads) {
+        return doc.getAll(obj, key, heads);
+    }
+
+    @Override
+    public Optional<Conflicts> getAll(ObjectId obj, long idx) {
+        return doc.getAll(obj, idx, heads);
+    }
+
+    @Override
+    public Optional<Conflicts> getAll(ObjectId obj, long idx, ChangeHash[] heads) {
+        return doc.getAll(obj, idx, heads);
+    }
+
+    @Override
+    public Optional<String> text(ObjectId obj) {
+        return doc.text(obj, heads);
+    }
+
+    @Override
+    public Optional<String> text(ObjectId obj, ChangeHash[] heads) {
+        return doc.text(obj, heads);
+    }
+
+    @Override
+    public Optional<String[]> keys(ObjectId obj) {
+        return doc.keys(obj, heads);
+    }
+
+    @Override
+    public Optional<String[]> keys(ObjectId obj, ChangeHash[] heads) {
+        return doc.keys(obj, heads);
+    }
+
+    @Override
+    public Optional<MapEntry[]> mapEntries(ObjectId obj) {
+        return doc.mapEntries(obj, heads);
+    }
+
+    @Override
+    public Optional<MapEntry[]> mapEntries(ObjectId obj, ChangeHash[] heads) {
+        return doc.mapEntries(obj, heads);
+    }
+
+    @Override
+    public Optional<AmValue[]> listItems(ObjectId obj) {
+        return doc.listItems(obj, heads);
+    }
+
+    @Override
+    public Optional<AmValue[]> listItems(ObjectId obj, ChangeHash[] heads) {
+        return doc.listItems(obj, heads);
+    }
+
+    @Override
+    public long length(ObjectId obj) {
+        return doc.length(obj, heads);
+    }
+
+    @Override
+    public long length(ObjectId obj, ChangeHash[] heads) {
+        return doc.length(obj, heads);
+    }
+
+    @Override
+    public List<Mark> marks(ObjectId obj) {
+        return doc.marks(obj, heads);
+    }
+
+    @Override
+    public List<Mark> marks(ObjectId obj, ChangeHash[] heads) {
+        return doc.marks(obj, heads);
+    }
+
+    @Override
+    public List<Mark> marks(ObjectId obj, long start, long end) {
+        return doc.marks(obj, start, end, heads);
+    }
+
+    @Override
+    public List<Mark> marks(ObjectId obj, long start, long end, ChangeHash[] heads) {
+        return doc.marks(obj, start, end, heads);
+    }
+
+    @Override
+    public List<Span> spans(ObjectId obj) {
+        return doc.spans(obj, heads);
+    }
+
+    @Override
+    public List<Span> spans(ObjectId obj, ChangeHash[] heads) {
+        return doc.spans(obj, heads);
+    }
+
+    @Override
+    public List<Span> spans(ObjectId obj, long start, long end) {
+        return doc.spans(obj, start, end, heads);
+    }
+
+    @Override
+    public List<Span> spans(ObjectId obj, long start, long end, ChangeHash[] heads) {
+        return doc.spans(obj, start, end, heads);
+    }
+
+    @Override
+    public HashMap<String, AmValue> getMarksAtIndex(ObjectId obj, long index) {
+        return doc.getMarksAtIndex(obj, index, heads);
+    }
+
+    @Override
+    public HashMap<String, AmValue> getMarksAtIndex(ObjectId obj, long index, ChangeHash[] heads) {
+        return doc.getMarksAtIndex(obj, index, heads);
+    }
+
+    /**
+     * @return the heads this snapshot is pinned at
+     */
+    @Override
+    public ChangeHash[] getHeads() {
+        return heads.clone();
+    }
+
+    @Override
+    public Cursor makeCursor(ObjectId obj, long index) {
+        return doc.makeCursor(obj, index, heads);
+    }
+
+    @Override
+    public Cursor makeCursor(ObjectId obj, long index, ChangeHash[] heads) {
+        return doc.makeCursor(obj, index, heads);
+    }
+
+    @Override
+    public long lookupCursorIndex(ObjectId obj, Cursor cursor) {
+        return doc.lookupCursorIndex(obj, cursor, heads);
+    }
+
+    @Override
+    public long lookupCursorIndex(ObjectId obj, Cursor cursor, ChangeHash[] heads) {
+        return doc.lookupCursorIndex(obj, cursor, heads);
+    }
+
+    @Override
+    public Cursor[] makeCursors(ObjectId obj, long[] indexes) {
+        return doc.makeCursors(obj, indexes, heads);
+    }
+
+    @Override
+    public Cursor[] makeCursors(ObjectId obj, long[] indexes, ChangeHash[] heads) {
+        return doc.makeCursors(obj, indexes, heads);
+    }
+
+    @Override
+    public long[] lookupCursorIndices(ObjectId obj, Cursor[] cursors) {
+        return doc.lookupCursorIndices(obj, cursors, heads);
+    }
+
+    @Override
+    public long[] lookupCursorIndices(ObjectId obj, Cursor[] cursors, ChangeHash[] heads) {
+        return doc.lookupCursorIndices(obj, cursors, heads);
+    }
+
+    /**
+     * An object which was created after the snapshot was taken, or had already
+     * been deleted when it was taken, is reported as absent
+     */
+    @Override
+    public Optional<ObjectType> getObjectType(ObjectId obj) {
+        return doc.getObjectTypeAt(obj, heads);
+    }
+
+    @Override
+    public Optional<Materialized> materialize(ObjectId obj) {
+        return doc.materialize(obj, heads);
+    }
+
+    @Override
+    public Optional<Materialized> materialize(ObjectId obj, ChangeHash[] heads) {
+        return doc.materialize(obj, heads);
+    }
+
+    @Override
+    public Optional<AmValue[]> listItems(ObjectId obj, long start, long end) {
+        return doc.listItems(obj, start, end, heads);
+    }
+
+    @Override
+    public Optional<AmValue[]> listItems(ObjectId obj, long start, long end, ChangeHash[] heads) {
+        return doc.listItems(obj, start, end, heads);
+    }
+
+    @Override
+    public TextEncoding getTextEncoding() {
+        return doc.getTextEncoding();
+    }
+
+    @Override
+    public Optional<String> text(ObjectId obj, long start, long end) {
+        return doc.text(obj, start, end, heads);
+    }
+
+    @Override
+    public Optional<String> text(ObjectId obj, long start, long end, ChangeHash[] heads) {
+        return doc.text(obj, start, end, heads);
+    }
+
+    @Override
+    public Optional<String[]> keys(ObjectId obj, String fromKey, int limit) {
+        return doc.keys(obj, fromKey, limit, heads);
+    }
+
+    @Override
+    public Optional<String[]> keys(ObjectId obj, String fromKey, int limit, ChangeHash[] heads) {
+        return doc.keys(obj, fromKey, limit, heads);
+    }
+
+    @Override
+    public Optional<MapEntry[]> mapEntries(ObjectId obj, String fromKey, int limit) {
+        return doc.mapEntries(obj, fromKey, limit, heads);
+    }
+
+    @Override
+    public Optional<MapEntry[]> mapEntries(ObjectId obj, String fromKey, int limit, ChangeHash[] heads) {
+        return doc.mapEntries(obj, fromKey, limit, heads);
+    }
+
+    // The primitive getters have no native variant which reads at heads so these
+    // unpack the result of get
+
+    @Override
+    public long getLong(ObjectId obj, String key, long defaultValue) {
+        return asLong(doc.get(obj, key, heads), defaultValue);
+    }
+
+    @Override
+    public long getLong(ObjectId obj, long idx, long defaultValue) {
+        return asLong(doc.get(obj, idx, heads), defaultValue);
+    }
+
+    @Override
+    public double getDouble(ObjectId obj, String key, double defaultValue) {
+        return asDouble(doc.get(obj, key, heads), defaultValue);
+    }
+
+    @Override
+    public double getDouble(ObjectId obj, long idx, double defaultValue) {
+        return asDouble(doc.get(obj, idx, heads), defaultValue);
+    }
+
+    @Override
+    public boolean getBoolean(ObjectId obj, String key, boolean defaultValue) {
+        return asBoolean(doc.get(obj, key, heads), defaultValue);
+    }
+
+    @Override
+    public boolean getBoolean(ObjectId obj, long idx, boolean defaultValue) {
+        return asBoolean(doc.get(obj, idx, heads), defaultValue);
+    }
+
+    @Override
+    public String getStringOrNull(ObjectId obj, String key) {
+        return asString(doc.get(obj, key, heads));
+    }
+
+    @Override
+    public String getStringOrNull(ObjectId obj, long idx) {
+        return asString(doc.get(obj, idx, heads));
+    }
+
+    @Override
+    public Optional<AmValue> getPath(ObjectId obj, Object... path) {
+        return doc.getPathAt(obj, heads, path);
+    }
+
+    @Override
+    public AmValue[] getMany(ObjectId obj, String[] keys) {
+        return doc.getMany(obj, keys, heads);
+    }
+
+    @Override
+    public AmValue[] getMany(ObjectId obj, String[] keys, ChangeHash[] heads) {
+        return doc.getMany(obj, keys, heads);
+    }
+
+    private static long asLong(Optional<AmValue> value, long defaultValue) {
+        if (!value.isPresent()) {
+            return defaultValue;
+        }
+        AmValue v = value.get();
+        if (v instanceof AmValue.Int) {
+            return ((AmValue.Int) v).getValue();
+        } else if (v instanceof AmValue.UInt) {
+            return ((AmValue.UInt) v).getValue();
+        } else if (v instanceof AmValue.Counter) {
+            return ((AmValue.Counter) v).getValue();
+        } else if (v instanceof AmValue.Timestamp) {
+            return ((AmValue.Timestamp) v).getValue().getTime();
+        }
+        return defaultValue;
+    }
+
+    private static double asDouble(Optional<AmValue> value, double defaultValue) {
+        if (value.isPresent() && value.get() instanceof AmValue.F64) {
+            return ((AmValue.F64) value.get()).getValue();
+        }
+        return defaultValue;
+    }
+
+    private static boolean asBoolean(Optional<AmValue> value, boolean defaultValue) {
+        if (value.isPresent() && value.get() instanceof AmValue.Bool) {
+            return ((AmValue.Bool) value.get()).getValue();
+        }
+        return defaultValue;
+    }
+
+    private static String asString(Optional<AmValue> value) {
+        if (value.isPresent() && value.get() instanceof AmValue.Str) {
+            return ((AmValue.Str) value.get()).getValue();
+        }
+        return null;
+    }
+}
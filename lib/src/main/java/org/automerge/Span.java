@@ -0,0 +1,122 @@
+package org.automerge;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A run of a text object in which every character has the same marks
+ *
+ * <p>
+ * Returned by {@link Read#spans(ObjectId)}. Concatenating the text of the
+ * spans of a text object gives the text of the object and the marks of each
+ * span are the marks which are active on every character in it, so a text can
+ * be rendered with its formatting from the spans alone. Spans which have the
+ * same marks share a single instance of the marks map.
+ *
+ * <p>
+ * A text object may also contain blocks, which occupy one index and have no
+ * text. These are represented by a span for which {@link #isBlock()} returns
+ * true.
+ */
+public final class Span {
+    private static final byte SPAN_TEXT = 0;
+    private static final byte SPAN_BLOCK = 1;
+
+    private final long start;
+    private final long end;
+    private final String text;
+    private final Map<String, AmValue> marks;
+    private final boolean block;
+
+    private Span(long start, long end, String text, Map<String, AmValue> marks, boolean block) {
+        this.start = start;
+        this.end = end;
+        this.text = text;
+        this.marks = marks;
+        this.block = block;
+    }
+
+    /**
+     * @return the index of the start of this span
+     */
+    public long getStart() {
+        return start;
+    }
+
+    /**
+     * @return the index of the end of this span (exclusive)
+     */
+    public long getEnd() {
+        return end;
+    }
+
+    /**
+     * @return the text of this span, empty for a block
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * @return the marks active on this span keyed by mark name, this map is
+     *         unmodifiable
+     */
+    public Map<String, AmValue> getMarks() {
+        return marks;
+    }
+
+    /**
+     * @return whether this span is a block rather than text
+     */
+    public boolean isBlock() {
+        return block;
+    }
+
+    @Override
+    public String toString() {
+        if (block) {
+            return "Span [start=" + start + ", end=" + end + ", block]";
+        }
+        return "Span [start=" + start + ", end=" + end + ", text=" + text + ", marks=" + marks + "]";
+    }
+
+    /** Decode the encoding produced by read_methods/spans.rs */
+    static List<Span> decode(byte[] encoded) {
+        Materialized.Decoder in = new Materialized.Decoder(encoded);
+        int setCount = in.readInt();
+        List<Map<String, AmValue>> markSets = new ArrayList<>(setCount);
+        for (int i = 0; i < setCount; i++) {
+            int count = in.readInt();
+            HashMap<String, AmValue> marks = new HashMap<>();
+            for (int j = 0; j < count; j++) {
+                String name = in.readString();
+                marks.put(name, in.readScalar(in.readByte()));
+            }
+            markSets.add(Collections.unmodifiableMap(marks));
+        }
+        Map<String, AmValue> noMarks = Collections.emptyMap();
+        ArrayList<Span> spans = new ArrayList<>();
+        while (in.hasRemaining()) {
+            byte kind = in.readByte();
+            long start = in.readLong();
+            long end = in.readLong();
+            switch (kind) {
+                case SPAN_TEXT : {
+                    String text = in.readString();
+                    int markSet = in.readInt();
+                    spans.add(new Span(start, end, text, markSet < 0 ? noMarks : markSets.get(markSet), false));
+                    break;
+                }
+                case SPAN_BLOCK :
+                    spans.add(new Span(start, end, "", noMarks, true));
+                    break;
+                default :
+                    throw new AutomergeException("unknown span kind: " + kind);
+            }
+        }
+        return spans;
+    }
+}
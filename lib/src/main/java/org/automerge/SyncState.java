@@ -1,9 +1,6 @@
 package org.automerge;
 
-import java.util.Arrays;
-import java.util.HashSet;
 import java.util.Optional;
-import java.util.Set;
 
 /**
  * The state of an active sync connection
@@ -28,6 +25,7 @@ import java.util.Set;
  */
 public class SyncState {
     private Optional<AutomergeSys.SyncStatePointer> pointer;
+    private final NativeCleaner.Registration registration;
 
     static {
         LoadLibrary.initialize();
@@ -35,6 +33,8 @@ public class SyncState {
 
     private SyncState(AutomergeSys.SyncStatePointer pointer) {
         this.pointer = Optional.of(pointer);
+        this.registration = NativeCleaner.register(this, NativeMemory.Kind.SYNC_STATE,
+                () -> AutomergeSys.freeSyncState(pointer));
     }
 
     /** Create a new sync state for a new connection */
@@ -59,6 +59,10 @@ public class SyncState {
         return doc.generateSyncMessage(this.pointer.get());
     }
 
+    synchronized AutomergeSys.SyncStatePointer getPointer() {
+        return this.pointer.get();
+    }
+
     protected synchronized void receiveSyncMessage(Document doc, byte[] message) {
         doc.receiveSyncMessage(this.pointer.get(), message);
     }
@@ -81,7 +85,7 @@ public class SyncState {
     /** Free the memory associated with this sync state */
     public synchronized void free() {
         if (this.pointer.isPresent()) {
-            AutomergeSys.freeSyncState(this.pointer.get());
+            registration.free();
             this.pointer = Optional.empty();
         }
     }
@@ -93,10 +97,17 @@ public class SyncState {
      *            The document to check we are in sync with
      * @return Whether we are in sync
      */
-    public synchronized boolean isInSync(Document doc) {
-        Set<ChangeHash> shared = new HashSet<ChangeHash>(
-                Arrays.asList(AutomergeSys.syncStateSharedHeads(this.pointer.get())));
-        Set<ChangeHash> ours = new HashSet<ChangeHash>(Arrays.asList(doc.getHeads()));
-        return shared.equals(ours);
+    public boolean isInSync(Document doc) {
+        // The document locks itself before calling back in here, in the same
+        // order as generating and receiving messages
+        return doc.isInSync(this);
+    }
+
+    synchronized boolean isInSync(AutomergeSys.DocPointer doc) {
+        return AutomergeSys.syncStateIsInSync(this.pointer.get(), doc);
+    }
+
+    synchronized ChangeHash[] sharedHeads() {
+        return AutomergeSys.syncStateSharedHeads(this.pointer.get());
     }
 }
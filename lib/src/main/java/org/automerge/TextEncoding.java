@@ -0,0 +1,28 @@
+package org.automerge;
+
+/**
+ * The units in which indices into text objects are expressed
+ *
+ * <p>
+ * The encoding of a document is chosen when it is created or loaded, see
+ * {@link Document#Document(TextEncoding)} and
+ * {@link Document#load(byte[], TextEncoding)}. It applies to every index into a
+ * text object in the API of the document, including the indices passed to
+ * {@link Transaction#spliceText}, {@link Read#length}, cursors, mark ranges,
+ * spans and the indices in {@link PatchAction.SpliceText} and
+ * {@link PatchAction.DeleteList} patches. The encoding is not stored in the
+ * saved document, so documents with different encodings can sync with each
+ * other.
+ */
+public enum TextEncoding {
+    /**
+     * Indices count unicode code points. This is the default.
+     */
+    UNICODE_CODE_POINT,
+    /**
+     * Indices count UTF-16 code units, the same as the indices of a Java
+     * {@link String}. Characters outside the basic multilingual plane, such as
+     * most emoji, occupy two indices.
+     */
+    UTF16_CODE_UNIT,
+}
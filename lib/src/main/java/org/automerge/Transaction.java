@@ -1,5 +1,6 @@
 package org.automerge;
 
+import java.nio.ByteBuffer;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.Optional;
@@ -567,9 +568,99 @@ public interface Transaction extends Read, AutoCloseable {
      */
     public void splice(ObjectId obj, long start, long deleteCount, Iterator<NewValue> items);
 
+    /**
+     * Splice multiple integers into a list
+     *
+     * <p>
+     * The values are passed to the native library in a single call, which is
+     * much faster than {@link #splice(ObjectId, long, long, Iterator)} for large
+     * numbers of values. Each value is inserted as an {@link AmValue.Int}.
+     *
+     * @param obj
+     *            the object id of the list
+     * @param start
+     *            the index in the list to start splicing
+     * @param deleteCount
+     *            the number of elements to delete
+     * @param items
+     *            the new values to insert
+     * @throws AutomergeException
+     *             if the object is not a list or the start index is out of range
+     */
+    public void splice(ObjectId obj, long start, long deleteCount, long[] items);
+
+    /**
+     * Splice multiple floating point numbers into a list
+     *
+     * <p>
+     * The values are passed to the native library in a single call, which is
+     * much faster than {@link #splice(ObjectId, long, long, Iterator)} for large
+     * numbers of values. Each value is inserted as an {@link AmValue.F64}.
+     *
+     * @param obj
+     *            the object id of the list
+     * @param start
+     *            the index in the list to start splicing
+     * @param deleteCount
+     *            the number of elements to delete
+     * @param items
+     *            the new values to insert
+     * @throws AutomergeException
+     *             if the object is not a list or the start index is out of range
+     */
+    public void splice(ObjectId obj, long start, long deleteCount, double[] items);
+
+    /**
+     * Splice multiple booleans into a list
+     *
+     * <p>
+     * The values are passed to the native library in a single call, which is
+     * much faster than {@link #splice(ObjectId, long, long, Iterator)} for large
+     * numbers of values. Each value is inserted as an {@link AmValue.Bool}.
+     *
+     * @param obj
+     *            the object id of the list
+     * @param start
+     *            the index in the list to start splicing
+     * @param deleteCount
+     *            the number of elements to delete
+     * @param items
+     *            the new values to insert
+     * @throws AutomergeException
+     *             if the object is not a list or the start index is out of range
+     */
+    public void splice(ObjectId obj, long start, long deleteCount, boolean[] items);
+
+    /**
+     * Splice multiple strings into a list
+     *
+     * <p>
+     * The values are passed to the native library in a single call, which is
+     * much faster than {@link #splice(ObjectId, long, long, Iterator)} for large
+     * numbers of values. Each value is inserted as an {@link AmValue.Str}.
+     *
+     * @param obj
+     *            the object id of the list
+     * @param start
+     *            the index in the list to start splicing
+     * @param deleteCount
+     *            the number of elements to delete
+     * @param items
+     *            the new values to insert
+     * @throws AutomergeException
+     *             if the object is not a list or the start index is out of range
+     * @throws IllegalArgumentException
+     *             if {@code items} contains null
+     */
+    public void splice(ObjectId obj, long start, long deleteCount, String[] items);
+
     /**
      * Splice text into a text object
      *
+     * <p>
+     * {@code start} and {@code deleteCount} are in the units of the
+     * {@link TextEncoding} of the document.
+     *
      * @param obj
      *            the object id of the text object
      * @param start
@@ -584,6 +675,98 @@ public interface Transaction extends Read, AutoCloseable {
      */
     public void spliceText(ObjectId obj, long start, long deleteCount, String text);
 
+    /**
+     * Splice text into a text object
+     *
+     * <p>
+     * This allows splicing the contents of a {@link StringBuilder} or other
+     * {@link CharSequence} without converting it to a {@link String} first.
+     *
+     * @param obj
+     *            the object id of the text object
+     * @param start
+     *            the index in the text to start splicing
+     * @param deleteCount
+     *            the number of characters to delete
+     * @param text
+     *            the new text to insert
+     * @throws AutomergeException
+     *             if the object is not a text object or the start index is out of
+     *             range
+     */
+    public void spliceText(ObjectId obj, long start, long deleteCount, CharSequence text);
+
+    /**
+     * Splice a range of a character array into a text object
+     *
+     * @param obj
+     *            the object id of the text object
+     * @param start
+     *            the index in the text to start splicing
+     * @param deleteCount
+     *            the number of characters to delete
+     * @param chars
+     *            the array containing the new text to insert
+     * @param offset
+     *            the index in {@code chars} of the first character to insert
+     * @param length
+     *            the number of characters of {@code chars} to insert
+     * @throws AutomergeException
+     *             if the object is not a text object or the start index is out of
+     *             range
+     * @throws IndexOutOfBoundsException
+     *             if the range is outside of {@code chars}
+     * @throws IllegalArgumentException
+     *             if the range is not valid UTF-16, for example because it splits
+     *             a surrogate pair
+     */
+    public void spliceText(ObjectId obj, long start, long deleteCount, char[] chars, int offset, int length);
+
+    /**
+     * Splice UTF-8 encoded text into a text object
+     *
+     * <p>
+     * The remaining bytes of {@code utf8} are inserted. The bytes of a direct
+     * buffer are read in place by the native library, so text received from the
+     * network can be inserted without decoding it on the Java heap first. On
+     * success the position of the buffer is advanced to its limit.
+     *
+     * @param obj
+     *            the object id of the text object
+     * @param start
+     *            the index in the text to start splicing
+     * @param deleteCount
+     *            the number of characters to delete
+     * @param utf8
+     *            the buffer containing the UTF-8 encoded text to insert
+     * @throws AutomergeException
+     *             if the object is not a text object or the start index is out of
+     *             range
+     * @throws IllegalArgumentException
+     *             if the remaining bytes are not valid UTF-8
+     */
+    public void spliceText(ObjectId obj, long start, long deleteCount, ByteBuffer utf8);
+
+    /**
+     * Replace the value of a text object with a new string
+     *
+     * <p>
+     * The new value is diffed against the current text by the native library and
+     * only the splices needed to turn one into the other are applied. This is
+     * useful when only the new value of an edited field is known, the size of
+     * the resulting change depends on how much of the text was edited rather
+     * than on the length of the text. Marks and cursors on unchanged parts of the
+     * text are preserved.
+     *
+     * @param obj
+     *            the object id of the text object
+     * @param newValue
+     *            the new value of the text
+     * @throws AutomergeException
+     *             if the object is not a text object
+     */
+    public void updateText(ObjectId obj, String newValue);
+
     /**
      * Create a mark
      *
@@ -810,6 +993,97 @@ public interface Transaction extends Read, AutoCloseable {
      */
     public void unmark(ObjectId obj, String markName, long start, long end, ExpandMark expand);
 
+    /**
+     * Apply all the operations recorded in a {@link MutationBatch}
+     *
+     * <p>
+     * The operations are applied in the order they were recorded using a single
+     * call into the native library, which is much faster than calling the
+     * individual methods on this interface when writing many values.
+     *
+     * <p>
+     * If an operation fails then the operations before it remain applied to this
+     * transaction. Use {@link rollback()} to discard them.
+     *
+     * @param batch
+     *            the operations to apply
+     * @return the IDs of the objects created by the batch, indexed by
+     *         {@link MutationBatch.Pending#getIndex()}
+     * @throws AutomergeException
+     *             if any of the operations fail
+     */
+    public ObjectId[] applyBatch(MutationBatch batch);
+
+    /**
+     * Update an object to match a tree of plain Java values
+     *
+     * <p>
+     * The tree is compared with the current contents of the object by the native
+     * library and only the operations needed to make the object match the tree
+     * are applied. Values which have not changed are left alone, so reconciling
+     * an unchanged tree applies no operations and reconciling a tree from an
+     * external source on every poll only records what actually changed.
+     *
+     * <p>
+     * The tree is made up of {@link java.util.Map}s with string keys,
+     * {@link java.util.List}s and scalars. Scalars may be {@code null},
+     * {@link String}, {@link Long}, {@link Integer}, {@link Short}, {@link Byte},
+     * {@link Double}, {@link Float}, {@link Boolean}, {@code byte[]},
+     * {@link Date} or a {@link NewValue}. Entries of a map which are not in the
+     * tree are deleted. A string which replaces a text object is applied as by
+     * {@link #updateText(ObjectId, String)}, new strings are created as scalar
+     * strings. Counters are incremented to their new value.
+     *
+     * <p>
+     * Lists are reconciled by position. Elements at the start and end of a list
+     * which have not changed are kept, so inserting or removing elements only
+     * touches the elements around the edit. A map or list element is only
+     * unchanged if all of its contents are. The changed elements in between
+     * are paired up by position, so to follow the elements of a list of maps
+     * which change as well as move use {@link #reconcile(ObjectId, Object, String)}.
+     *
+     * @param obj
+     *            the object to update, a map if {@code tree} is a
+     *            {@link java.util.Map}, a list if it is a {@link java.util.List} or
+     *            a text object if it is a {@link String}
+     * @param tree
+     *            the new contents of the object
+     * @throws AutomergeException
+     *             if the tree does not match the type of the object
+     * @throws IllegalArgumentException
+     *             if the tree contains a value which cannot be stored in a
+     *             document
+     */
+    public void reconcile(ObjectId obj, Object tree);
+
+    /**
+     * Update an object to match a tree of plain Java values, matching the
+     * elements of lists of maps by key
+     *
+     * <p>
+     * This behaves like {@link #reconcile(ObjectId, Object)} except for lists in
+     * which every element is a map with a scalar value for {@code keyField}. The
+     * elements of these lists are matched with the existing elements which have
+     * the same key, so that an element which is inserted, removed or changed
+     * does not affect the other elements. Automerge has no move operation so
+     * when elements are reordered the largest set of elements which are still in
+     * order is kept and the others are deleted and inserted again at their new
+     * position.
+     *
+     * @param obj
+     *            the object to update
+     * @param tree
+     *            the new contents of the object
+     * @param keyField
+     *            the name of the map entry which identifies the elements of a list
+     * @throws AutomergeException
+     *             if the tree does not match the type of the object
+     * @throws IllegalArgumentException
+     *             if the tree contains a value which cannot be stored in a
+     *             document
+     */
+    public void reconcile(ObjectId obj, Object tree, String keyField);
+
     @Override
     public void close();
 }
@@ -1,5 +1,6 @@
 package org.automerge;
 
+import java.nio.ByteBuffer;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -229,10 +230,73 @@ public class TransactionImpl implements Transaction {
         AutomergeSys.splice(this.pointer.get(), obj, start, deleteCount, items);
     }
 
+    public void splice(ObjectId obj, long start, long deleteCount, long[] items) {
+        AutomergeSys.spliceLongs(this.pointer.get(), obj, start, deleteCount, items);
+    }
+
+    public void splice(ObjectId obj, long start, long deleteCount, double[] items) {
+        AutomergeSys.spliceDoubles(this.pointer.get(), obj, start, deleteCount, items);
+    }
+
+    public void splice(ObjectId obj, long start, long deleteCount, boolean[] items) {
+        AutomergeSys.spliceBooleans(this.pointer.get(), obj, start, deleteCount, items);
+    }
+
+    public void splice(ObjectId obj, long start, long deleteCount, String[] items) {
+        AutomergeSys.spliceStrings(this.pointer.get(), obj, start, deleteCount, items);
+    }
+
     public void spliceText(ObjectId obj, long start, long deleteCount, String text) {
         AutomergeSys.spliceText(this.pointer.get(), obj, start, deleteCount, text);
     }
 
+    public void spliceText(ObjectId obj, long start, long deleteCount, CharSequence text) {
+        AutomergeSys.spliceText(this.pointer.get(), obj, start, deleteCount, text.toString());
+    }
+
+    public void spliceText(ObjectId obj, long start, long deleteCount, char[] chars, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > chars.length - length) {
+            throw new IndexOutOfBoundsException(
+                    "offset " + offset + " and length " + length + " are outside of an array of length "
+                            + chars.length);
+        }
+        AutomergeSys.spliceTextChars(this.pointer.get(), obj, start, deleteCount, chars, offset, length);
+    }
+
+    public void spliceText(ObjectId obj, long start, long deleteCount, ByteBuffer utf8) {
+        if (utf8.isDirect()) {
+            AutomergeSys.spliceTextUtf8Buffer(this.pointer.get(), obj, start, deleteCount, utf8, utf8.position(),
+                    utf8.remaining());
+        } else if (utf8.hasArray()) {
+            AutomergeSys.spliceTextUtf8(this.pointer.get(), obj, start, deleteCount, utf8.array(),
+                    utf8.arrayOffset() + utf8.position(), utf8.remaining());
+        } else {
+            byte[] bytes = new byte[utf8.remaining()];
+            utf8.duplicate().get(bytes);
+            AutomergeSys.spliceTextUtf8(this.pointer.get(), obj, start, deleteCount, bytes, 0, bytes.length);
+        }
+        utf8.position(utf8.limit());
+    }
+
+    public void updateText(ObjectId obj, String newValue) {
+        AutomergeSys.updateText(this.pointer.get(), obj, newValue);
+    }
+
+    public synchronized ObjectId[] applyBatch(MutationBatch batch) {
+        if (batch.isEmpty()) {
+            return new ObjectId[0];
+        }
+        return AutomergeSys.applyBatch(this.pointer.get(), batch.objects(), batch.encoded());
+    }
+
+    public void reconcile(ObjectId obj, Object tree) {
+        AutomergeSys.reconcile(this.pointer.get(), obj, Reconciler.encode(tree), null);
+    }
+
+    public void reconcile(ObjectId obj, Object tree, String keyField) {
+        AutomergeSys.reconcile(this.pointer.get(), obj, Reconciler.encode(tree), keyField);
+    }
+
     public synchronized Optional<String> text(ObjectId obj) {
         return AutomergeSys.getTextInTx(this.pointer.get(), obj);
     }
@@ -346,6 +410,30 @@ public class TransactionImpl implements Transaction {
         return AutomergeSys.getMarksInTx(this.pointer.get(), obj, Optional.of(heads));
     }
 
+    public synchronized List<Mark> marks(ObjectId obj, long start, long end) {
+        return AutomergeSys.getMarksInRangeInTx(this.pointer.get(), obj, start, end, Optional.empty());
+    }
+
+    public synchronized List<Mark> marks(ObjectId obj, long start, long end, ChangeHash[] heads) {
+        return AutomergeSys.getMarksInRangeInTx(this.pointer.get(), obj, start, end, Optional.of(heads));
+    }
+
+    public synchronized List<Span> spans(ObjectId obj) {
+        return spans(obj, 0, Long.MAX_VALUE);
+    }
+
+    public synchronized List<Span> spans(ObjectId obj, ChangeHash[] heads) {
+        return spans(obj, 0, Long.MAX_VALUE, heads);
+    }
+
+    public synchronized List<Span> spans(ObjectId obj, long start, long end) {
+        return Span.decode(AutomergeSys.getSpansInTx(this.pointer.get(), obj, start, end, Optional.empty()));
+    }
+
+    public synchronized List<Span> spans(ObjectId obj, long start, long end, ChangeHash[] heads) {
+        return Span.decode(AutomergeSys.getSpansInTx(this.pointer.get(), obj, start, end, Optional.of(heads)));
+    }
+
     public synchronized void close() {
         if (this.pointer.isPresent()) {
             this.rollback();
@@ -382,9 +470,138 @@ public class TransactionImpl implements Transaction {
         return AutomergeSys.lookupCursorIndexInTx(this.pointer.get(), obj, cursor, Optional.of(heads));
     }
 
+    @Override
+    public synchronized Cursor[] makeCursors(ObjectId obj, long[] indexes) {
+        return AutomergeSys.makeCursorsInTx(this.pointer.get(), obj, indexes, Optional.empty());
+    }
+
+    @Override
+    public synchronized Cursor[] makeCursors(ObjectId obj, long[] indexes, ChangeHash[] heads) {
+        return AutomergeSys.makeCursorsInTx(this.pointer.get(), obj, indexes, Optional.of(heads));
+    }
+
+    @Override
+    public synchronized long[] lookupCursorIndices(ObjectId obj, Cursor[] cursors) {
+        return AutomergeSys.lookupCursorIndicesInTx(this.pointer.get(), obj, cursors, Optional.empty());
+    }
+
+    @Override
+    public synchronized long[] lookupCursorIndices(ObjectId obj, Cursor[] cursors, ChangeHash[] heads) {
+        return AutomergeSys.lookupCursorIndicesInTx(this.pointer.get(), obj, cursors, Optional.of(heads));
+    }
+
     @Override
     public synchronized Optional<ObjectType> getObjectType(ObjectId obj) {
-        return AutomergeSys.getObjectTypeInTx(this.pointer.get(), obj);
+        return AutomergeSys.getObjectTypeInTx(this.pointer.get(), obj, Optional.empty());
+    }
+
+    @Override
+    public synchronized Optional<Materialized> materialize(ObjectId obj) {
+        return AutomergeSys.materializeInTx(this.pointer.get(), obj, Optional.empty()).map(Materialized::decode);
+    }
+
+    @Override
+    public synchronized Optional<Materialized> materialize(ObjectId obj, ChangeHash[] heads) {
+        return AutomergeSys.materializeInTx(this.pointer.get(), obj, Optional.of(heads)).map(Materialized::decode);
+    }
+
+    @Override
+    public synchronized Optional<AmValue[]> listItems(ObjectId obj, long start, long end) {
+        return AutomergeSys.getListItemsRangeInTx(this.pointer.get(), obj, start, end, Optional.empty());
     }
 
+    @Override
+    public synchronized Optional<AmValue[]> listItems(ObjectId obj, long start, long end, ChangeHash[] heads) {
+        return AutomergeSys.getListItemsRangeInTx(this.pointer.get(), obj, start, end, Optional.of(heads));
+    }
+
+    @Override
+    public TextEncoding getTextEncoding() {
+        return doc.getTextEncoding();
+    }
+
+    @Override
+    public synchronized Optional<String> text(ObjectId obj, long start, long end) {
+        return AutomergeSys.getTextRangeInTx(this.pointer.get(), obj, start, end, Optional.empty());
+    }
+
+    @Override
+    public synchronized Optional<String> text(ObjectId obj, long start, long end, ChangeHash[] heads) {
+        return AutomergeSys.getTextRangeInTx(this.pointer.get(), obj, start, end, Optional.of(heads));
+    }
+
+    @Override
+    public synchronized Optional<String[]> keys(ObjectId obj, String fromKey, int limit) {
+        return AutomergeSys.getKeysRangeInTx(this.pointer.get(), obj, fromKey, limit, Optional.empty());
+    }
+
+    @Override
+    public synchronized Optional<String[]> keys(ObjectId obj, String fromKey, int limit, ChangeHash[] heads) {
+        return AutomergeSys.getKeysRangeInTx(this.pointer.get(), obj, fromKey, limit, Optional.of(heads));
+    }
+
+    @Override
+    public synchronized Optional<MapEntry[]> mapEntries(ObjectId obj, String fromKey, int limit) {
+        return AutomergeSys.getMapEntriesRangeInTx(this.pointer.get(), obj, fromKey, limit, Optional.empty());
+    }
+
+    @Override
+    public synchronized Optional<MapEntry[]> mapEntries(ObjectId obj, String fromKey, int limit, ChangeHash[] heads) {
+        return AutomergeSys.getMapEntriesRangeInTx(this.pointer.get(), obj, fromKey, limit, Optional.of(heads));
+    }
+
+    @Override
+    public synchronized long getLong(ObjectId obj, String key, long defaultValue) {
+        return AutomergeSys.getLongInMapInTx(this.pointer.get(), obj, key, defaultValue);
+    }
+
+    @Override
+    public synchronized long getLong(ObjectId obj, long idx, long defaultValue) {
+        return AutomergeSys.getLongInListInTx(this.pointer.get(), obj, idx, defaultValue);
+    }
+
+    @Override
+    public synchronized double getDouble(ObjectId obj, String key, double defaultValue) {
+        return AutomergeSys.getDoubleInMapInTx(this.pointer.get(), obj, key, defaultValue);
+    }
+
+    @Override
+    public synchronized double getDouble(ObjectId obj, long idx, double defaultValue) {
+        return AutomergeSys.getDoubleInListInTx(this.pointer.get(), obj, idx, defaultValue);
+    }
+
+    @Override
+    public synchronized boolean getBoolean(ObjectId obj, String key, boolean defaultValue) {
+        return AutomergeSys.getBooleanInMapInTx(this.pointer.get(), obj, key, defaultValue);
+    }
+
+    @Override
+    public synchronized boolean getBoolean(ObjectId obj, long idx, boolean defaultValue) {
+        return AutomergeSys.getBooleanInListInTx(this.pointer.get(), obj, idx, defaultValue);
+    }
+
+    @Override
+    public synchronized String getStringOrNull(ObjectId obj, String key) {
+        return AutomergeSys.getStringInMapInTx(this.pointer.get(), obj, key);
+    }
+
+    @Override
+    public synchronized String getStringOrNull(ObjectId obj, long idx) {
+        return AutomergeSys.getStringInListInTx(this.pointer.get(), obj, idx);
+    }
+
+    @Override
+    public synchronized Optional<AmValue> getPath(ObjectId obj, Object... path) {
+        return AutomergeSys.getPathInTx(this.pointer.get(), obj, ReadPath.encodePath(path), Optional.empty());
+    }
+
+    @Override
+    public synchronized AmValue[] getMany(ObjectId obj, String[] keys) {
+        return AutomergeSys.getManyInTx(this.pointer.get(), obj, ReadPath.encodeKeys(keys), Optional.empty());
+    }
+
+    @Override
+    public synchronized AmValue[] getMany(ObjectId obj, String[] keys, ChangeHash[] heads) {
+        return AutomergeSys.getManyInTx(this.pointer.get(), obj, ReadPath.encodeKeys(keys), Optional.of(heads));
+    }
 }
@@ -0,0 +1,94 @@
+package org.automerge;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public final class TestBulkLoadSave {
+
+    private static List<Document> makeDocs(int count) {
+        List<Document> docs = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Document doc = new Document();
+            try (Transaction tx = doc.startTransaction()) {
+                tx.set(ObjectId.ROOT, "index", i);
+                tx.commit();
+            }
+            docs.add(doc);
+        }
+        return docs;
+    }
+
+    private static void assertIndex(long expected, Document doc) {
+        Assertions.assertEquals(expected, doc.getLong(ObjectId.ROOT, "index", -1));
+    }
+
+    @Test
+    public void testSaveAllThenLoadAll() {
+        List<Document> docs = makeDocs(20);
+        List<BulkResult<byte[]>> saved = Document.saveAll(docs);
+        Assertions.assertEquals(20, saved.size());
+        List<byte[]> bytes = new ArrayList<>();
+        for (BulkResult<byte[]> result : saved) {
+            Assertions.assertTrue(result.isOk());
+            bytes.add(result.getOrThrow());
+        }
+
+        List<BulkResult<Document>> loaded = Document.loadAll(bytes);
+        for (int i = 0; i < loaded.size(); i++) {
+            assertIndex(i, loaded.get(i).getOrThrow());
+        }
+    }
+
+    @Test
+    public void testLoadAllBuffersOnExecutor() {
+        List<Document> docs = makeDocs(5);
+        List<ByteBuffer> buffers = new ArrayList<>();
+        for (Document doc : docs) {
+            byte[] saved = doc.save();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(saved.length);
+            buffer.put(saved);
+            buffer.flip();
+            buffers.add(buffer);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<BulkResult<Document>> loaded = Document.loadAllBuffers(buffers, executor);
+            for (int i = 0; i < loaded.size(); i++) {
+                assertIndex(i, loaded.get(i).getOrThrow());
+                Assertions.assertFalse(buffers.get(i).hasRemaining());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testLoadFailureDoesNotAbortBatch() {
+        byte[] good = makeDocs(1).get(0).save();
+        List<BulkResult<Document>> loaded = Document.loadAll(Arrays.asList(good, new byte[]{1, 2, 3}, good));
+        Assertions.assertTrue(loaded.get(0).isOk());
+        Assertions.assertFalse(loaded.get(1).isOk());
+        Assertions.assertTrue(loaded.get(1).getError().isPresent());
+        Assertions.assertFalse(loaded.get(1).getValue().isPresent());
+        Assertions.assertThrows(RuntimeException.class, () -> loaded.get(1).getOrThrow());
+        assertIndex(0, loaded.get(2).getOrThrow());
+    }
+
+    @Test
+    public void testSaveFailureDoesNotAbortBatch() {
+        List<Document> docs = makeDocs(3);
+        try (Transaction tx = docs.get(1).startTransaction()) {
+            tx.set(ObjectId.ROOT, "key", 1.23);
+            List<BulkResult<byte[]>> saved = Document.saveAll(docs);
+            Assertions.assertTrue(saved.get(0).isOk());
+            Assertions.assertTrue(saved.get(1).getError().get() instanceof TransactionInProgress);
+            Assertions.assertTrue(saved.get(2).isOk());
+        }
+    }
+}
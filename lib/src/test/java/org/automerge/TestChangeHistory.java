@@ -0,0 +1,110 @@
+package org.automerge;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public final class TestChangeHistory {
+
+    private static ChangeHash commit(Document doc, String key, long value) {
+        try (Transaction tx = doc.startTransaction()) {
+            tx.set(ObjectId.ROOT, key, value);
+            return tx.commit().get();
+        }
+    }
+
+    private static <T> List<T> collect(Iterator<T> iter) {
+        List<T> result = new ArrayList<>();
+        iter.forEachRemaining(result::add);
+        return result;
+    }
+
+    @Test
+    public void testGetAllChanges() {
+        Document doc = new Document();
+        ChangeHash first = commit(doc, "a", 1);
+        ChangeHash second = commit(doc, "b", 2);
+
+        List<Change> changes = collect(doc.getChanges(new ChangeHash[0]));
+        Assertions.assertEquals(2, changes.size());
+        Assertions.assertEquals(first, changes.get(0).getHash());
+        Assertions.assertEquals(1, changes.get(0).getSeq());
+        Assertions.assertEquals(0, changes.get(0).getDeps().length);
+        Assertions.assertFalse(changes.get(0).getMessage().isPresent());
+        Assertions.assertArrayEquals(doc.getActorId(), changes.get(0).getActorId());
+
+        Assertions.assertEquals(second, changes.get(1).getHash());
+        Assertions.assertEquals(2, changes.get(1).getSeq());
+        Assertions.assertArrayEquals(new ChangeHash[]{first}, changes.get(1).getDeps());
+    }
+
+    @Test
+    public void testGetChangesSince() {
+        Document doc = new Document();
+        commit(doc, "a", 1);
+        ChangeHash[] heads = doc.getHeads();
+        ChangeHash second = commit(doc, "b", 2);
+
+        List<ChangeMeta> metas = collect(doc.getChangeMetas(heads));
+        Assertions.assertEquals(1, metas.size());
+        Assertions.assertEquals(second, metas.get(0).getHash());
+        Assertions.assertFalse(doc.getChangeMetas(doc.getHeads()).hasNext());
+    }
+
+    @Test
+    public void testIterateAcrossBatches() {
+        Document doc = new Document();
+        int count = ChangeHistory.BATCH_SIZE * 2 + 3;
+        for (int i = 0; i < count; i++) {
+            commit(doc, "key", i);
+        }
+        long seq = 0;
+        Iterator<ChangeMeta> metas = doc.getChangeMetas(new ChangeHash[0]);
+        while (metas.hasNext()) {
+            Assertions.assertEquals(++seq, metas.next().getSeq());
+        }
+        Assertions.assertEquals(count, seq);
+    }
+
+    @Test
+    public void testGetChangeByHash() {
+        Document doc = new Document();
+        ChangeHash hash = commit(doc, "a", 1);
+
+        Change change = doc.getChangeByHash(hash).get();
+        Assertions.assertEquals(hash, change.getHash());
+        Document other = new Document();
+        other.applyEncodedChanges(change.getBytes());
+        Assertions.assertArrayEquals(doc.getHeads(), other.getHeads());
+
+        ChangeMeta meta = doc.getChangeMeta(hash).get();
+        Assertions.assertEquals(1, meta.getSeq());
+        Assertions.assertFalse(meta instanceof Change);
+    }
+
+    @Test
+    public void testGetMissingChange() {
+        Document doc = new Document();
+        commit(doc, "a", 1);
+        Document other = new Document();
+        ChangeHash missing = commit(other, "a", 1);
+
+        Assertions.assertEquals(Optional.empty(), doc.getChangeByHash(missing));
+        Assertions.assertEquals(Optional.empty(), doc.getChangeMeta(missing));
+    }
+
+    @Test
+    public void testGetChangesDuringTransaction() {
+        Document doc = new Document();
+        commit(doc, "a", 1);
+        try (Transaction tx = doc.startTransaction()) {
+            tx.set(ObjectId.ROOT, "b", 2);
+            Assertions.assertThrows(TransactionInProgress.class, () -> {
+                doc.getChanges(new ChangeHash[0]);
+            });
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package org.automerge;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public final class TestConcurrentReads {
+    private Document doc;
+
+    public TestConcurrentReads() {
+        super();
+    }
+
+    @BeforeEach
+    public void setup() {
+        doc = new Document();
+        setKey(doc, 1);
+        doc.setConcurrentReads(true);
+    }
+
+    private static void setKey(Document doc, long value) {
+        try (Transaction tx = doc.startTransaction()) {
+            tx.set(ObjectId.ROOT, "key", value);
+            tx.commit();
+        }
+    }
+
+    private static long readKey(Read read) {
+        return ((AmValue.Int) read.get(ObjectId.ROOT, "key").get()).getValue();
+    }
+
+    @Test
+    public void testReadsSeeCommittedChanges() {
+        Assertions.assertTrue(doc.isConcurrentReads());
+        Assertions.assertEquals(1, readKey(doc));
+        setKey(doc, 2);
+        Assertions.assertEquals(2, readKey(doc));
+        Assertions.assertEquals(2, doc.getLong(ObjectId.ROOT, "key", -1));
+
+        Document other = doc.fork();
+        try (Transaction tx = other.startTransaction()) {
+            tx.set(ObjectId.ROOT, "other", "value");
+            tx.commit();
+        }
+        doc.merge(other);
+        Assertions.assertEquals("value", doc.getStringOrNull(ObjectId.ROOT, "other"));
+
+        Document loaded = Document.load(doc.save());
+        Assertions.assertEquals(2, readKey(loaded));
+    }
+
+    @Test
+    public void testReadDuringTransaction() {
+        Assertions.assertEquals(1, readKey(doc));
+        Transaction tx = doc.startTransaction();
+        tx.set(ObjectId.ROOT, "key", 5);
+        Assertions.assertEquals(5, readKey(doc));
+        tx.commit();
+        Assertions.assertEquals(5, readKey(doc));
+    }
+
+    @Test
+    public void testMergeSharedDocuments() {
+        Document first = doc.fork();
+        setKey(first, 3);
+        first.setConcurrentReads(true);
+        Document second = doc.fork();
+        try (Transaction tx = second.startTransaction()) {
+            tx.set(ObjectId.ROOT, "second", true);
+            tx.commit();
+        }
+        second.setConcurrentReads(true);
+        // Reading shares the documents before they are merged
+        Assertions.assertEquals(3, readKey(first));
+        Assertions.assertEquals(1, readKey(second));
+        Assertions.assertEquals(1, readKey(doc));
+
+        Document target = new Document();
+        target.mergeAll(doc, first, second);
+        Assertions.assertEquals(3, readKey(target));
+        Assertions.assertTrue(target.getBoolean(ObjectId.ROOT, "second", false));
+
+        doc.merge(first);
+        Assertions.assertEquals(3, readKey(doc));
+        Assertions.assertEquals(3, readKey(first));
+    }
+
+    @Test
+    public void testReadOnlyOperationsOnSharedDocument() {
+        ChangeHash[] before = doc.getHeads();
+        setKey(doc, 2);
+        Assertions.assertEquals(2, readKey(doc));
+
+        Assertions.assertEquals(2, readKey(Document.load(doc.save())));
+        Assertions.assertEquals(2, readKey(doc.fork()));
+        Assertions.assertEquals(1, readKey(doc.fork(before)));
+        Assertions.assertTrue(doc.getChanges(before).hasNext());
+        Assertions.assertTrue(doc.encodeChangesSince(before).length > 0);
+        Assertions.assertEquals(1, doc.diff(before, doc.getHeads()).size());
+        Assertions.assertTrue(doc.generateSyncMessage(new SyncState()).isPresent());
+        Assertions.assertEquals(2, readKey(doc));
+
+        Transaction tx = doc.startTransaction();
+        Assertions.assertThrows(TransactionInProgress.class, () -> doc.save());
+        tx.commit();
+    }
+
+    @Test
+    public void testReadsFromManyThreads() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Long>> results = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                results.add(executor.submit(() -> readKey(doc)));
+                results.add(executor.submit(() -> doc.getLong(ObjectId.ROOT, "key", -1)));
+                if (i % 20 == 19) {
+                    // Writes wait for the reads in progress
+                    setKey(doc, i / 20 + 2);
+                }
+            }
+            for (Future<Long> result : results) {
+                long value = result.get();
+                Assertions.assertTrue(value >= 1 && value <= 11, "unexpected value " + value);
+            }
+            Assertions.assertEquals(11, readKey(doc));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testDisableConcurrentReads() {
+        Assertions.assertEquals(1, readKey(doc));
+        doc.setConcurrentReads(false);
+        Assertions.assertFalse(doc.isConcurrentReads());
+        Assertions.assertEquals(1, readKey(doc));
+        setKey(doc, 2);
+        Assertions.assertEquals(2, readKey(doc));
+    }
+
+    @Test
+    public void testFreeSharedDocument() {
+        Assertions.assertEquals(1, readKey(doc));
+        doc.free();
+        Assertions.assertFalse(doc.isConcurrentReads());
+        Assertions.assertThrows(Exception.class, () -> readKey(doc));
+    }
+}
@@ -81,4 +81,57 @@ public final class TestCursor {
             Cursor.fromBytes(new byte[]{0x11, 0x01});
         });
     }
+
+    @Test
+    public void testEquality() {
+        Cursor cursor = doc.makeCursor(text, 3);
+        Cursor decoded = Cursor.fromString(cursor.toString());
+        Assertions.assertEquals(cursor, decoded);
+        Assertions.assertEquals(cursor.hashCode(), decoded.hashCode());
+        Assertions.assertEquals(cursor, Cursor.fromBytes(cursor.toBytes()));
+        Assertions.assertNotEquals(cursor, doc.makeCursor(text, 2));
+    }
+
+    @Test
+    public void testBatchedCursorsInDoc() {
+        Cursor[] cursors = doc.makeCursors(text, new long[]{0, 3, 6});
+        Assertions.assertEquals(3, cursors.length);
+        Assertions.assertEquals(doc.makeCursor(text, 3), cursors[1]);
+        Assertions.assertArrayEquals(new long[]{0, 3, 6}, doc.lookupCursorIndices(text, cursors));
+
+        ChangeHash[] heads = doc.getHeads();
+        try (Transaction tx = doc.startTransaction()) {
+            tx.spliceText(text, 1, 0, "!!");
+            tx.commit();
+        }
+        Assertions.assertArrayEquals(new long[]{0, 5, 8}, doc.lookupCursorIndices(text, cursors));
+        Assertions.assertArrayEquals(new long[]{0, 3, 6}, doc.lookupCursorIndices(text, cursors, heads));
+
+        Cursor[] oldCursors = doc.makeCursors(text, new long[]{3}, heads);
+        Assertions.assertArrayEquals(new long[]{5}, doc.lookupCursorIndices(text, oldCursors));
+        Assertions.assertArrayEquals(new long[]{3}, doc.lookupCursorIndices(text, oldCursors, heads));
+    }
+
+    @Test
+    public void testBatchedCursorsInTx() {
+        try (Transaction tx = doc.startTransaction()) {
+            Cursor[] cursors = tx.makeCursors(text, new long[]{2, 4});
+            tx.spliceText(text, 0, 0, "a");
+            Assertions.assertArrayEquals(new long[]{3, 5}, tx.lookupCursorIndices(text, cursors));
+            Assertions.assertArrayEquals(new long[]{3, 5}, doc.lookupCursorIndices(text, cursors));
+        }
+    }
+
+    @Test
+    public void testBatchedCursorsEmpty() {
+        Assertions.assertEquals(0, doc.makeCursors(text, new long[0]).length);
+        Assertions.assertEquals(0, doc.lookupCursorIndices(text, new Cursor[0]).length);
+    }
+
+    @Test
+    public void testMakeCursorsRejectsNegativeIndex() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            doc.makeCursors(text, new long[]{1, -1});
+        });
+    }
 }
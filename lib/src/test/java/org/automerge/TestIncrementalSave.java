@@ -0,0 +1,76 @@
+package org.automerge;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public final class TestIncrementalSave {
+
+    public TestIncrementalSave() {
+        super();
+    }
+
+    private static void setKey(Document doc, String key, long value) {
+        try (Transaction tx = doc.startTransaction()) {
+            tx.set(ObjectId.ROOT, key, value);
+            tx.commit();
+        }
+    }
+
+    @Test
+    public void testSaveIncrementalOnlyReturnsNewChanges() {
+        Document doc = new Document();
+        setKey(doc, "first", 1);
+        byte[] first = doc.saveIncremental();
+        Assertions.assertTrue(first.length > 0);
+        Assertions.assertEquals(0, doc.saveIncremental().length);
+
+        setKey(doc, "second", 2);
+        byte[] second = doc.saveIncremental();
+        Assertions.assertTrue(second.length > 0);
+
+        Document loaded = new Document();
+        loaded.loadIncremental(first);
+        Assertions.assertFalse(loaded.get(ObjectId.ROOT, "second").isPresent());
+        loaded.loadIncremental(second);
+        Assertions.assertEquals(2, ((AmValue.Int) loaded.get(ObjectId.ROOT, "second").get()).getValue());
+        Assertions.assertArrayEquals(doc.getHeads(), loaded.getHeads());
+    }
+
+    @Test
+    public void testConcatenatedSavesCanBeLoaded() throws IOException {
+        Document doc = new Document();
+        setKey(doc, "first", 1);
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        log.write(doc.save());
+        doc.saveIncremental();
+        for (int i = 0; i < 5; i++) {
+            setKey(doc, "key" + i, i);
+            log.write(doc.saveIncremental());
+        }
+        Document loaded = Document.load(log.toByteArray());
+        Assertions.assertEquals(4, ((AmValue.Int) loaded.get(ObjectId.ROOT, "key4").get()).getValue());
+        Assertions.assertArrayEquals(doc.getHeads(), loaded.getHeads());
+    }
+
+    @Test
+    public void testLoadIncrementalIgnoresDuplicates() {
+        Document doc = new Document();
+        setKey(doc, "key", 1);
+        byte[] changes = doc.saveIncremental();
+        Document other = new Document();
+        other.loadIncremental(changes);
+        other.loadIncremental(changes);
+        Assertions.assertArrayEquals(doc.getHeads(), other.getHeads());
+    }
+
+    @Test
+    public void testSaveIncrementalDuringTransactionThrows() {
+        Document doc = new Document();
+        doc.startTransaction();
+        Assertions.assertThrows(TransactionInProgress.class, () -> {
+            doc.saveIncremental();
+        });
+    }
+}
@@ -202,4 +202,70 @@ class TestMarks {
     private interface MarkValueAssertion {
         void assertMarkValue(AmValue value);
     }
+
+    @Test
+    public void testMarksInRange() {
+        Document doc = new Document();
+        ObjectId text;
+        try (Transaction tx = doc.startTransaction()) {
+            text = tx.set(ObjectId.ROOT, "text", ObjectType.TEXT);
+            tx.spliceText(text, 0, 0, "the quick brown fox");
+            tx.mark(text, 0, 3, "bold", true, ExpandMark.NONE);
+            tx.mark(text, 4, 15, "italic", true, ExpandMark.NONE);
+            tx.mark(text, 16, 19, "bold", true, ExpandMark.NONE);
+            tx.commit();
+        }
+        ChangeHash[] heads = doc.getHeads();
+
+        List<Mark> marks = doc.marks(text, 5, 12);
+        Assertions.assertEquals(1, marks.size());
+        assertMark(marks.get(0), 5, 12, "italic", value -> Assertions.assertTrue(((AmValue.Bool) value).getValue()));
+
+        marks = doc.marks(text, 2, 17);
+        Assertions.assertEquals(3, marks.size());
+        assertMark(marks.get(0), 2, 3, "bold", value -> Assertions.assertTrue(((AmValue.Bool) value).getValue()));
+        assertMark(marks.get(1), 4, 15, "italic", value -> Assertions.assertTrue(((AmValue.Bool) value).getValue()));
+        assertMark(marks.get(2), 16, 17, "bold", value -> Assertions.assertTrue(((AmValue.Bool) value).getValue()));
+
+        Assertions.assertEquals(0, doc.marks(text, 15, 16).size());
+        Assertions.assertEquals(0, doc.marks(text, 3, 3).size());
+
+        try (Transaction tx = doc.startTransaction()) {
+            tx.mark(text, 5, 8, "italic", false, ExpandMark.NONE);
+            Assertions.assertEquals(3, tx.marks(text, 4, 10).size());
+            tx.commit();
+        }
+        Assertions.assertEquals(3, doc.marks(text, 4, 10).size());
+        Assertions.assertEquals(1, doc.marks(text, 4, 10, heads).size());
+    }
+
+    @Test
+    public void testMarksInEmptyRange() {
+        Document doc = new Document();
+        ObjectId text;
+        try (Transaction tx = doc.startTransaction()) {
+            text = tx.set(ObjectId.ROOT, "text", ObjectType.TEXT);
+            tx.spliceText(text, 0, 0, "the quick brown fox");
+            tx.mark(text, 4, 15, "italic", true, ExpandMark.NONE);
+            tx.commit();
+        }
+        // An empty range inside a mark does not overlap it
+        Assertions.assertEquals(0, doc.marks(text, 8, 8).size());
+        Assertions.assertEquals(0, doc.marks(text, 4, 4).size());
+        Assertions.assertEquals(0, doc.marks(text, 0, 0).size());
+        Assertions.assertTrue(doc.spans(text, 8, 8).isEmpty());
+        Assertions.assertEquals(1, doc.marks(text, 8, 9).size());
+    }
+
+    @Test
+    public void testMarksInRangeRejectsInvalidRange() {
+        Document doc = new Document();
+        ObjectId text;
+        try (Transaction tx = doc.startTransaction()) {
+            text = tx.set(ObjectId.ROOT, "text", ObjectType.TEXT);
+            tx.commit();
+        }
+        Assertions.assertThrows(IllegalArgumentException.class, () -> doc.marks(text, 3, 1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> doc.marks(text, -1, 1));
+    }
 }
@@ -0,0 +1,124 @@
+package org.automerge;
+
+import java.util.Optional;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public final class TestMaterialize {
+    private Document doc;
+    private ObjectId list;
+    private ObjectId text;
+
+    public TestMaterialize() {
+        super();
+    }
+
+    @BeforeEach
+    public void setup() {
+        doc = new Document();
+        try (Transaction tx = doc.startTransaction()) {
+            tx.set(ObjectId.ROOT, "name", "automerge");
+            tx.set(ObjectId.ROOT, "count", new Counter(3));
+            list = tx.set(ObjectId.ROOT, "items", ObjectType.LIST);
+            tx.insert(list, 0, 1);
+            tx.insert(list, 1, true);
+            ObjectId nested = tx.insert(list, 2, ObjectType.MAP);
+            tx.set(nested, "key", 1.5);
+            text = tx.set(ObjectId.ROOT, "text", ObjectType.TEXT);
+            tx.spliceText(text, 0, 0, "hello");
+            tx.commit();
+        }
+    }
+
+    @Test
+    public void testMaterializeRoot() {
+        Materialized.Map root = (Materialized.Map) doc.materialize(ObjectId.ROOT).get();
+        Assertions.assertEquals(ObjectId.ROOT, root.getId());
+        Assertions.assertEquals(4, root.size());
+
+        AmValue name = ((Materialized.Scalar) root.get("name").get()).getValue();
+        Assertions.assertEquals("automerge", ((AmValue.Str) name).getValue());
+        AmValue count = ((Materialized.Scalar) root.get("count").get()).getValue();
+        Assertions.assertEquals(3, ((AmValue.Counter) count).getValue());
+
+        Materialized.List items = (Materialized.List) root.get("items").get();
+        Assertions.assertEquals(list, items.getId());
+        Assertions.assertEquals(3, items.size());
+        Assertions.assertEquals(1, ((AmValue.Int) ((Materialized.Scalar) items.get(0)).getValue()).getValue());
+        Assertions.assertTrue(((AmValue.Bool) ((Materialized.Scalar) items.get(1)).getValue()).getValue());
+        Materialized.Map nested = (Materialized.Map) items.get(2);
+        AmValue key = ((Materialized.Scalar) nested.get("key").get()).getValue();
+        Assertions.assertEquals(1.5, ((AmValue.F64) key).getValue());
+
+        Materialized.Text textNode = (Materialized.Text) root.get("text").get();
+        Assertions.assertEquals(text, textNode.getId());
+        Assertions.assertEquals("hello", textNode.getValue());
+    }
+
+    @Test
+    public void testMaterializeSubtree() {
+        Materialized.List items = (Materialized.List) doc.materialize(list).get();
+        Assertions.assertEquals(3, items.size());
+    }
+
+    @Test
+    public void testMaterializeAtHeads() {
+        ChangeHash[] heads = doc.getHeads();
+        try (Transaction tx = doc.startTransaction()) {
+            tx.insert(list, 3, "new");
+            tx.commit();
+        }
+        Assertions.assertEquals(4, ((Materialized.List) doc.materialize(list).get()).size());
+        Assertions.assertEquals(3, ((Materialized.List) doc.materialize(list, heads).get()).size());
+    }
+
+    @Test
+    public void testMaterializeAtHeadsBeforeObjectCreated() {
+        ChangeHash[] before = doc.getHeads();
+        ObjectId created;
+        try (Transaction tx = doc.startTransaction()) {
+            created = tx.set(ObjectId.ROOT, "created", ObjectType.MAP);
+            tx.set(created, "key", "value");
+            tx.commit();
+        }
+        ChangeHash[] after = doc.getHeads();
+        try (Transaction tx = doc.startTransaction()) {
+            tx.delete(ObjectId.ROOT, "created");
+            tx.commit();
+        }
+        Assertions.assertFalse(doc.materialize(created, before).isPresent());
+        Materialized.Map atCreation = (Materialized.Map) doc.materialize(created, after).get();
+        Assertions.assertEquals(1, atCreation.size());
+    }
+
+    @Test
+    public void testMaterializeInTransaction() {
+        try (Transaction tx = doc.startTransaction()) {
+            tx.set(ObjectId.ROOT, "name", "changed");
+            Materialized.Map root = (Materialized.Map) tx.materialize(ObjectId.ROOT).get();
+            AmValue name = ((Materialized.Scalar) root.get("name").get()).getValue();
+            Assertions.assertEquals("changed", ((AmValue.Str) name).getValue());
+        }
+    }
+
+    @Test
+    public void testMaterializedTreeIsImmutable() {
+        Materialized.Map root = (Materialized.Map) doc.materialize(ObjectId.ROOT).get();
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> {
+            root.getEntries().remove("name");
+        });
+    }
+
+    @Test
+    public void testMaterializeMissingObject() {
+        ObjectId missing;
+        Document other = new Document();
+        try (Transaction tx = other.startTransaction()) {
+            missing = tx.set(ObjectId.ROOT, "list", ObjectType.LIST);
+            tx.commit();
+        }
+        Optional<Materialized> result = doc.materialize(missing);
+        Assertions.assertFalse(result.isPresent());
+    }
+}
@@ -1,5 +1,7 @@
 package org.automerge;
 
+import java.util.Arrays;
+import java.util.HashSet;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
@@ -40,4 +42,69 @@ class TestMerge {
             doc1.merge(doc2);
         });
     }
+
+    @Test
+    public void testMergeAll() {
+        Document base = new Document();
+        try (Transaction tx = base.startTransaction()) {
+            tx.set(ObjectId.ROOT, "shared", 1);
+            tx.commit();
+        }
+        Document[] replicas = new Document[5];
+        for (int i = 0; i < replicas.length; i++) {
+            replicas[i] = base.fork();
+            try (Transaction tx = replicas[i].startTransaction()) {
+                tx.set(ObjectId.ROOT, "key" + i, i);
+                tx.commit();
+            }
+        }
+        Document doc = base.fork();
+        doc.mergeAll(replicas);
+        Assertions.assertEquals(1, doc.getLong(ObjectId.ROOT, "shared", -1));
+        for (int i = 0; i < replicas.length; i++) {
+            Assertions.assertEquals(i, doc.getLong(ObjectId.ROOT, "key" + i, -1));
+        }
+
+        Document expected = base.fork();
+        for (Document replica : replicas) {
+            expected.merge(replica);
+        }
+        Assertions.assertEquals(new HashSet<>(Arrays.asList(expected.getHeads())),
+                new HashSet<>(Arrays.asList(doc.getHeads())));
+    }
+
+    @Test
+    public void testMergeAllIgnoresSelfAndDuplicates() {
+        Document doc1 = new Document();
+        Document doc2 = new Document();
+        try (Transaction tx = doc2.startTransaction()) {
+            tx.set(ObjectId.ROOT, "key", "value");
+            tx.commit();
+        }
+        doc1.mergeAll(doc1, doc2, doc2);
+        Assertions.assertEquals("value", doc1.getStringOrNull(ObjectId.ROOT, "key"));
+    }
+
+    @Test
+    public void testMergeAllLogPatches() {
+        Document doc1 = new Document();
+        Document doc2 = new Document();
+        try (Transaction tx = doc2.startTransaction()) {
+            tx.set(ObjectId.ROOT, "key", "value");
+            tx.commit();
+        }
+        PatchLog patchLog = new PatchLog();
+        doc1.mergeAll(patchLog, doc2);
+        Assertions.assertEquals(1, doc1.makePatches(patchLog).size());
+    }
+
+    @Test
+    public void testMergeAllThrowsIfOtherTransactionInProgress() {
+        Document doc1 = new Document();
+        Document doc2 = new Document();
+        doc2.startTransaction();
+        Assertions.assertThrows(TransactionInProgress.class, () -> {
+            doc1.mergeAll(new Document(), doc2);
+        });
+    }
 }
@@ -0,0 +1,184 @@
+package org.automerge;
+
+import java.util.Date;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public final class TestMutationBatch {
+    private Document doc;
+    private Transaction tx;
+
+    public TestMutationBatch() {
+        super();
+    }
+
+    @BeforeEach
+    public void setup() {
+        doc = new Document();
+        tx = doc.startTransaction();
+    }
+
+    @Test
+    public void testSetScalarsInMap() {
+        MutationBatch batch = new MutationBatch();
+        batch.set(ObjectId.ROOT, "str", NewValue.str("hello"));
+        batch.set(ObjectId.ROOT, "int", NewValue.integer(-5));
+        batch.set(ObjectId.ROOT, "uint", NewValue.uint(5));
+        batch.set(ObjectId.ROOT, "f64", NewValue.f64(1.5));
+        batch.set(ObjectId.ROOT, "bool", NewValue.bool(true));
+        batch.set(ObjectId.ROOT, "bytes", NewValue.bytes(new byte[]{1, 2, 3}));
+        batch.set(ObjectId.ROOT, "counter", NewValue.counter(10));
+        batch.set(ObjectId.ROOT, "date", NewValue.timestamp(new Date(1000)));
+        batch.set(ObjectId.ROOT, "null", NewValue.NULL);
+        Assertions.assertEquals(9, batch.size());
+
+        ObjectId[] created = tx.applyBatch(batch);
+        Assertions.assertEquals(0, created.length);
+
+        Assertions.assertEquals("hello", ((AmValue.Str) tx.get(ObjectId.ROOT, "str").get()).getValue());
+        Assertions.assertEquals(-5, ((AmValue.Int) tx.get(ObjectId.ROOT, "int").get()).getValue());
+        Assertions.assertEquals(5, ((AmValue.UInt) tx.get(ObjectId.ROOT, "uint").get()).getValue());
+        Assertions.assertEquals(1.5, ((AmValue.F64) tx.get(ObjectId.ROOT, "f64").get()).getValue());
+        Assertions.assertTrue(((AmValue.Bool) tx.get(ObjectId.ROOT, "bool").get()).getValue());
+        Assertions.assertArrayEquals(new byte[]{1, 2, 3},
+                ((AmValue.Bytes) tx.get(ObjectId.ROOT, "bytes").get()).getValue());
+        Assertions.assertEquals(10, ((AmValue.Counter) tx.get(ObjectId.ROOT, "counter").get()).getValue());
+        Assertions.assertEquals(new Date(1000),
+                ((AmValue.Timestamp) tx.get(ObjectId.ROOT, "date").get()).getValue());
+        Assertions.assertInstanceOf(AmValue.Null.class, tx.get(ObjectId.ROOT, "null").get());
+    }
+
+    @Test
+    public void testCreatedObjectsAreReturned() {
+        MutationBatch batch = new MutationBatch();
+        MutationBatch.Pending list = batch.set(ObjectId.ROOT, "list", ObjectType.LIST);
+        for (int i = 0; i < 100; i++) {
+            batch.insert(list, i, NewValue.integer(i));
+        }
+        MutationBatch.Pending nested = batch.insert(list, 100, ObjectType.MAP);
+        batch.set(nested, "key", NewValue.str("value"));
+
+        ObjectId[] created = tx.applyBatch(batch);
+        Assertions.assertEquals(2, created.length);
+        ObjectId listId = created[list.getIndex()];
+        Assertions.assertEquals(listId, ((AmValue.List) tx.get(ObjectId.ROOT, "list").get()).getId());
+        Assertions.assertEquals(101, tx.length(listId));
+        Assertions.assertEquals(42, ((AmValue.Int) tx.get(listId, 42).get()).getValue());
+
+        ObjectId nestedId = created[nested.getIndex()];
+        Assertions.assertEquals("value", ((AmValue.Str) tx.get(nestedId, "key").get()).getValue());
+    }
+
+    @Test
+    public void testIncrementAndDelete() {
+        tx.set(ObjectId.ROOT, "counter", new Counter(1));
+        tx.set(ObjectId.ROOT, "gone", "value");
+        MutationBatch batch = new MutationBatch();
+        batch.increment(ObjectId.ROOT, "counter", 4);
+        batch.delete(ObjectId.ROOT, "gone");
+        tx.applyBatch(batch);
+        Assertions.assertEquals(5, ((AmValue.Counter) tx.get(ObjectId.ROOT, "counter").get()).getValue());
+        Assertions.assertFalse(tx.get(ObjectId.ROOT, "gone").isPresent());
+    }
+
+    @Test
+    public void testTextAndMarks() {
+        MutationBatch batch = new MutationBatch();
+        MutationBatch.Pending text = batch.set(ObjectId.ROOT, "text", ObjectType.TEXT);
+        batch.spliceText(text, 0, 0, "hello world");
+        batch.mark(text, 0, 5, "bold", NewValue.bool(true), ExpandMark.NONE);
+        ObjectId textId = tx.applyBatch(batch)[text.getIndex()];
+
+        Assertions.assertEquals("hello world", tx.text(textId).get());
+        List<Mark> marks = tx.marks(textId);
+        Assertions.assertEquals(1, marks.size());
+        Assertions.assertEquals("bold", marks.get(0).getName());
+        Assertions.assertEquals(0, marks.get(0).getStart());
+        Assertions.assertEquals(5, marks.get(0).getEnd());
+    }
+
+    @Test
+    public void testBatchCanBeReused() {
+        MutationBatch batch = new MutationBatch();
+        batch.set(ObjectId.ROOT, "key", NewValue.integer(1));
+        tx.applyBatch(batch);
+        batch.clear();
+        Assertions.assertTrue(batch.isEmpty());
+        batch.set(ObjectId.ROOT, "key", NewValue.integer(2));
+        tx.applyBatch(batch);
+        Assertions.assertEquals(2, ((AmValue.Int) tx.get(ObjectId.ROOT, "key").get()).getValue());
+    }
+
+    @Test
+    public void testClearRejectsStalePending() {
+        MutationBatch batch = new MutationBatch();
+        MutationBatch.Pending stale = batch.set(ObjectId.ROOT, "old", ObjectType.MAP);
+        batch.clear();
+        MutationBatch.Pending fresh = batch.set(ObjectId.ROOT, "new", ObjectType.LIST);
+        // The stale handle has the same index as the new object
+        Assertions.assertEquals(stale.getIndex(), fresh.getIndex());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            batch.set(stale, "key", NewValue.integer(1));
+        });
+        batch.insert(fresh, 0, NewValue.integer(1));
+        Assertions.assertEquals(2, batch.size());
+    }
+
+    @Test
+    public void testFailingOperationThrows() {
+        MutationBatch batch = new MutationBatch();
+        batch.set(ObjectId.ROOT, "key", NewValue.integer(1));
+        batch.insert(ObjectId.ROOT, 0, NewValue.integer(2));
+        Assertions.assertThrows(AutomergeException.class, () -> {
+            tx.applyBatch(batch);
+        });
+    }
+
+    @Test
+    public void testBatchCanBeReusedAfterRejectedOperation() {
+        MutationBatch batch = new MutationBatch();
+        batch.set(ObjectId.ROOT, "first", NewValue.integer(1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            batch.set(ObjectId.ROOT, "null", (NewValue) null);
+        });
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            batch.set(ObjectId.ROOT, "unsupported", new NewValue() {
+                @Override
+                protected void set(Transaction tx, ObjectId obj, String key) {
+                }
+
+                @Override
+                protected void set(Transaction tx, ObjectId obj, long idx) {
+                }
+
+                @Override
+                protected void insert(Transaction tx, ObjectId obj, long idx) {
+                }
+
+                @Override
+                protected void mark(Transaction tx, ObjectId obj, long start, long end, String markName,
+                        ExpandMark expand) {
+                }
+            });
+        });
+        batch.set(ObjectId.ROOT, "second", NewValue.integer(2));
+        Assertions.assertEquals(2, batch.size());
+
+        tx.applyBatch(batch);
+        Assertions.assertEquals(1, ((AmValue.Int) tx.get(ObjectId.ROOT, "first").get()).getValue());
+        Assertions.assertEquals(2, ((AmValue.Int) tx.get(ObjectId.ROOT, "second").get()).getValue());
+        Assertions.assertEquals(2, tx.keys(ObjectId.ROOT).get().length);
+    }
+
+    @Test
+    public void testPendingFromOtherBatchIsRejected() {
+        MutationBatch first = new MutationBatch();
+        MutationBatch.Pending list = first.set(ObjectId.ROOT, "list", ObjectType.LIST);
+        MutationBatch second = new MutationBatch();
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            second.insert(list, 0, NewValue.integer(1));
+        });
+    }
+}
@@ -0,0 +1,83 @@
+package org.automerge;
+
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public final class TestNativeMemory {
+
+    public TestNativeMemory() {
+        super();
+    }
+
+    @AfterEach
+    public void teardown() {
+        NativeMemory.setLeakTracking(false);
+    }
+
+    @Test
+    public void testLiveCounts() {
+        long docs = NativeMemory.getLiveCount(NativeMemory.Kind.DOCUMENT);
+        Document doc = new Document();
+        Document fork = doc.fork();
+        SyncState syncState = new SyncState();
+        PatchLog patchLog = new PatchLog();
+        Assertions.assertTrue(NativeMemory.getLiveCount(NativeMemory.Kind.DOCUMENT) >= docs + 2);
+        Assertions.assertTrue(NativeMemory.getLiveCount(NativeMemory.Kind.SYNC_STATE) >= 1);
+        Assertions.assertTrue(NativeMemory.getLiveCount(NativeMemory.Kind.PATCH_LOG) >= 1);
+
+        long before = NativeMemory.getLiveCount(NativeMemory.Kind.DOCUMENT);
+        doc.free();
+        doc.free();
+        fork.free();
+        syncState.free();
+        patchLog.free();
+        Assertions.assertTrue(NativeMemory.getLiveCount(NativeMemory.Kind.DOCUMENT) <= before - 2);
+    }
+
+    @Test
+    public void testAllocatedBytes() {
+        Assertions.assertFalse(NativeMemory.isLeakTracking());
+        long before = NativeMemory.getAllocatedBytes();
+        Document doc = new Document();
+        try (Transaction tx = doc.startTransaction()) {
+            tx.set(ObjectId.ROOT, "key", new byte[1 << 20]);
+            tx.commit();
+        }
+        Assertions.assertTrue(NativeMemory.getAllocatedBytes() > before);
+        doc.free();
+    }
+
+    @Test
+    public void testUnfreedDocumentIsReclaimed() throws InterruptedException {
+        long reclaimed = NativeMemory.getReclaimedCount(NativeMemory.Kind.DOCUMENT);
+        createAndDrop();
+        for (int i = 0; i < 100 && NativeMemory.getReclaimedCount(NativeMemory.Kind.DOCUMENT) == reclaimed; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        Assertions.assertTrue(NativeMemory.getReclaimedCount(NativeMemory.Kind.DOCUMENT) > reclaimed);
+    }
+
+    private static void createAndDrop() {
+        Document doc = new Document();
+        // Leave a transaction open so the cleaner has to roll it back
+        doc.startTransaction().set(ObjectId.ROOT, "key", 1);
+    }
+
+    @Test
+    public void testLeakTracking() {
+        NativeMemory.setLeakTracking(true);
+        Document doc = new Document();
+        List<NativeMemory.AllocationSite> sites = NativeMemory.getUnfreedAllocations();
+        Assertions.assertTrue(sites.stream()
+                .filter(site -> site.getKind() == NativeMemory.Kind.DOCUMENT)
+                .flatMap(site -> Arrays.stream(site.getStackTrace()))
+                .anyMatch(frame -> frame.getMethodName().equals("testLeakTracking")));
+        int count = sites.size();
+        doc.free();
+        Assertions.assertEquals(count - 1, NativeMemory.getUnfreedAllocations().size());
+    }
+}
@@ -1,5 +1,6 @@
 package org.automerge;
 
+import java.util.HashMap;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
@@ -14,4 +15,56 @@ public final class TestObjectId {
         ObjectId root = ObjectId.ROOT;
         Assertions.assertTrue(root.isRoot());
     }
+
+    @Test
+    public final void testEqualityAndHashing() {
+        Document doc = new Document();
+        ObjectId list;
+        try (Transaction tx = doc.startTransaction()) {
+            list = tx.set(ObjectId.ROOT, "list", ObjectType.LIST);
+            tx.commit();
+        }
+        ObjectId read = ((AmValue.List) doc.get(ObjectId.ROOT, "list").get()).getId();
+        Assertions.assertNotSame(list, read);
+        Assertions.assertEquals(list, read);
+        Assertions.assertEquals(list.hashCode(), read.hashCode());
+        Assertions.assertNotEquals(ObjectId.ROOT, list);
+        Assertions.assertFalse(list.isRoot());
+
+        HashMap<ObjectId, String> map = new HashMap<>();
+        map.put(list, "list");
+        Assertions.assertEquals("list", map.get(read));
+        Assertions.assertEquals(list.toString(), read.toString());
+        Assertions.assertEquals("_root", ObjectId.ROOT.toString());
+    }
+
+    @Test
+    public final void testIntern() {
+        Document doc = new Document();
+        try (Transaction tx = doc.startTransaction()) {
+            tx.set(ObjectId.ROOT, "map", ObjectType.MAP);
+            tx.commit();
+        }
+        ObjectId first = ((AmValue.Map) doc.get(ObjectId.ROOT, "map").get()).getId();
+        ObjectId second = ((AmValue.Map) doc.get(ObjectId.ROOT, "map").get()).getId();
+        Assertions.assertNotSame(first, second);
+        Assertions.assertSame(first.intern(), second.intern());
+        Assertions.assertSame(first, first.intern());
+        Assertions.assertSame(ObjectId.ROOT, ObjectId.ROOT.intern());
+    }
+
+    @Test
+    public final void testChangeHashToString() {
+        Document doc = new Document();
+        try (Transaction tx = doc.startTransaction()) {
+            tx.set(ObjectId.ROOT, "key", 1);
+            tx.commit();
+        }
+        ChangeHash head = doc.getHeads()[0];
+        String hex = head.toString();
+        Assertions.assertEquals(64, hex.length());
+        Assertions.assertTrue(hex.matches("[0-9a-f]+"));
+        Assertions.assertEquals(head, doc.getHeads()[0]);
+        Assertions.assertEquals(head.hashCode(), doc.getHeads()[0].hashCode());
+    }
 }
@@ -0,0 +1,159 @@
+package org.automerge;
+
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public final class TestPatchCoalescing {
+    private Document doc;
+    private ObjectId text;
+    private ObjectId list;
+
+    public TestPatchCoalescing() {
+        super();
+    }
+
+    @BeforeEach
+    public void setup() {
+        doc = new Document();
+        try (Transaction tx = doc.startTransaction()) {
+            text = tx.set(ObjectId.ROOT, "text", ObjectType.TEXT);
+            tx.spliceText(text, 0, 0, "hello world");
+            list = tx.set(ObjectId.ROOT, "list", ObjectType.LIST);
+            for (int i = 0; i < 5; i++) {
+                tx.insert(list, i, i);
+            }
+            tx.commit();
+        }
+    }
+
+    @Test
+    public void testRepeatedPutsAreMerged() {
+        PatchLog patchLog = new PatchLog(true);
+        for (int i = 0; i < 10; i++) {
+            try (Transaction tx = doc.startTransaction(patchLog)) {
+                tx.set(ObjectId.ROOT, "key", i);
+                tx.commit();
+            }
+        }
+        List<Patch> patches = doc.makePatches(patchLog);
+        Assertions.assertEquals(1, patches.size());
+        PatchAction.PutMap action = (PatchAction.PutMap) patches.get(0).getAction();
+        Assertions.assertEquals("key", action.getKey());
+        Assertions.assertEquals(9, ((AmValue.Int) action.getValue()).getValue());
+        patchLog.free();
+    }
+
+    @Test
+    public void testPutThenDeleteIsMerged() {
+        PatchLog patchLog = new PatchLog(true);
+        try (Transaction tx = doc.startTransaction(patchLog)) {
+            tx.set(ObjectId.ROOT, "key", 1);
+            tx.commit();
+        }
+        try (Transaction tx = doc.startTransaction(patchLog)) {
+            tx.delete(ObjectId.ROOT, "key");
+            tx.commit();
+        }
+        List<Patch> patches = doc.makePatches(patchLog);
+        Assertions.assertEquals(1, patches.size());
+        Assertions.assertEquals("key", ((PatchAction.DeleteMap) patches.get(0).getAction()).getKey());
+        patchLog.free();
+    }
+
+    @Test
+    public void testTypingIsMergedIntoOneSplice() {
+        PatchLog patchLog = new PatchLog(true);
+        String typed = " there";
+        for (int i = 0; i < typed.length(); i++) {
+            try (Transaction tx = doc.startTransaction(patchLog)) {
+                tx.spliceText(text, 5 + i, 0, typed.substring(i, i + 1));
+                tx.commit();
+            }
+        }
+        // Backspace over the last two characters
+        for (int i = 0; i < 2; i++) {
+            try (Transaction tx = doc.startTransaction(patchLog)) {
+                tx.spliceText(text, 5 + typed.length() - 1 - i, 1, "");
+                tx.commit();
+            }
+        }
+        List<Patch> patches = doc.makePatches(patchLog);
+        Assertions.assertEquals(1, patches.size());
+        PatchAction.SpliceText action = (PatchAction.SpliceText) patches.get(0).getAction();
+        Assertions.assertEquals(5, action.getIndex());
+        Assertions.assertEquals(" the", action.getText());
+        Assertions.assertEquals(text, patches.get(0).getObj());
+        Assertions.assertEquals("hello the world", doc.text(text).get());
+        patchLog.free();
+    }
+
+    @Test
+    public void testDeletesAreMerged() {
+        PatchLog patchLog = new PatchLog(true);
+        // Forward deletes at the same index then a backward delete before them
+        for (int i = 0; i < 2; i++) {
+            try (Transaction tx = doc.startTransaction(patchLog)) {
+                tx.delete(list, 2);
+                tx.commit();
+            }
+        }
+        try (Transaction tx = doc.startTransaction(patchLog)) {
+            tx.delete(list, 1);
+            tx.commit();
+        }
+        List<Patch> patches = doc.makePatches(patchLog);
+        Assertions.assertEquals(1, patches.size());
+        PatchAction.DeleteList action = (PatchAction.DeleteList) patches.get(0).getAction();
+        Assertions.assertEquals(1, action.getIndex());
+        Assertions.assertEquals(3, action.getLength());
+        patchLog.free();
+    }
+
+    @Test
+    public void testUnrelatedPatchesAreKept() {
+        PatchLog patchLog = new PatchLog(true);
+        try (Transaction tx = doc.startTransaction(patchLog)) {
+            tx.set(ObjectId.ROOT, "a", 1);
+            tx.set(ObjectId.ROOT, "b", 2);
+            tx.spliceText(text, 0, 0, "x");
+            tx.commit();
+        }
+        Assertions.assertEquals(3, doc.makePatches(patchLog).size());
+        patchLog.free();
+    }
+
+    @Test
+    public void testVisitorSeesCoalescedPatches() {
+        PatchLog patchLog = new PatchLog(true);
+        for (int i = 0; i < 3; i++) {
+            try (Transaction tx = doc.startTransaction(patchLog)) {
+                tx.spliceText(text, i, 0, "a");
+                tx.commit();
+            }
+        }
+        StringBuilder spliced = new StringBuilder();
+        int[] count = {0};
+        doc.makePatches(patchLog, new PatchVisitor() {
+            @Override
+            public void spliceText(ObjectId obj, List<PathElement> path, long index, String value) {
+                spliced.append(value);
+                count[0]++;
+            }
+        });
+        Assertions.assertEquals(1, count[0]);
+        Assertions.assertEquals("aaa", spliced.toString());
+        patchLog.free();
+    }
+
+    @Test
+    public void testNotCoalescingByDefault() {
+        PatchLog plain = new PatchLog();
+        PatchLog coalescing = new PatchLog(true);
+        Assertions.assertFalse(plain.isCoalescing());
+        Assertions.assertTrue(coalescing.isCoalescing());
+        plain.free();
+        coalescing.free();
+    }
+}
@@ -0,0 +1,147 @@
+package org.automerge;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public final class TestPatchVisitor {
+
+    /** Records each patch as a string so the visited patches can be compared */
+    private static final class Recorder implements PatchVisitor {
+        private final List<String> patches = new ArrayList<>();
+        private final List<List<PathElement>> paths = new ArrayList<>();
+
+        private void record(ObjectId obj, List<PathElement> path, String action) {
+            patches.add(obj + " " + action);
+            paths.add(new ArrayList<>(path));
+        }
+
+        @Override
+        public void putMap(ObjectId obj, List<PathElement> path, String key, AmValue value, boolean conflict) {
+            record(obj, path, "putMap " + key + " " + value + " " + conflict);
+        }
+
+        @Override
+        public void putList(ObjectId obj, List<PathElement> path, long index, AmValue value, boolean conflict) {
+            record(obj, path, "putList " + index + " " + value + " " + conflict);
+        }
+
+        @Override
+        public void insert(ObjectId obj, List<PathElement> path, long index, List<AmValue> values) {
+            record(obj, path, "insert " + index + " " + values);
+        }
+
+        @Override
+        public void spliceText(ObjectId obj, List<PathElement> path, long index, String text) {
+            record(obj, path, "spliceText " + index + " " + text);
+        }
+
+        @Override
+        public void increment(ObjectId obj, List<PathElement> path, Prop prop, long value) {
+            record(obj, path, "increment " + value);
+        }
+
+        @Override
+        public void deleteMap(ObjectId obj, List<PathElement> path, String key) {
+            record(obj, path, "deleteMap " + key);
+        }
+
+        @Override
+        public void deleteList(ObjectId obj, List<PathElement> path, long index, long length) {
+            record(obj, path, "deleteList " + index + " " + length);
+        }
+    }
+
+    @Test
+    public void testVisitMakePatches() {
+        Document doc = new Document();
+        PatchLog patchLog = new PatchLog();
+        ObjectId list;
+        ObjectId text;
+        try (Transaction tx = doc.startTransaction(patchLog)) {
+            tx.set(ObjectId.ROOT, "key", "value");
+            tx.set(ObjectId.ROOT, "counter", new Counter(1));
+            list = tx.set(ObjectId.ROOT, "list", ObjectType.LIST);
+            tx.insert(list, 0, 1);
+            tx.insert(list, 1, 2);
+            text = tx.set(ObjectId.ROOT, "text", ObjectType.TEXT);
+            tx.spliceText(text, 0, 0, "hello");
+            tx.commit();
+        }
+        Recorder recorder = new Recorder();
+        doc.makePatches(patchLog, recorder);
+
+        List<String> expected = new ArrayList<>();
+        expected.add(ObjectId.ROOT + " putMap key " + AmValue.newStr("value") + " false");
+        expected.add(ObjectId.ROOT + " putMap counter " + AmValue.newCounter(1) + " false");
+        expected.add(ObjectId.ROOT + " putMap list " + AmValue.newList(list) + " false");
+        expected.add(list + " insert 0 [" + AmValue.newInt(1) + ", " + AmValue.newInt(2) + "]");
+        expected.add(ObjectId.ROOT + " putMap text " + AmValue.newText(text) + " false");
+        expected.add(text + " spliceText 0 hello");
+        Assertions.assertEquals(expected, recorder.patches);
+
+        Assertions.assertEquals(0, recorder.paths.get(0).size());
+        List<PathElement> listPath = recorder.paths.get(3);
+        Assertions.assertEquals(1, listPath.size());
+        Assertions.assertEquals(ObjectId.ROOT, listPath.get(0).getObjectId());
+        Assertions.assertEquals(new Prop.Key("list"), listPath.get(0).getProp());
+        patchLog.free();
+    }
+
+    @Test
+    public void testVisitDiffMatchesPatchList() {
+        Document doc = new Document();
+        ObjectId map;
+        ChangeHash[] before;
+        try (Transaction tx = doc.startTransaction()) {
+            map = tx.set(ObjectId.ROOT, "map", ObjectType.MAP);
+            ObjectId nested = tx.set(map, "nested", ObjectType.LIST);
+            tx.insert(nested, 0, "a");
+            tx.set(map, "counter", new Counter(0));
+            tx.set(map, "old", true);
+            tx.commit();
+        }
+        before = doc.getHeads();
+        try (Transaction tx = doc.startTransaction()) {
+            ObjectId nested = ((AmValue.List) doc.get(map, "nested").get()).getId();
+            tx.insert(nested, 1, "b");
+            tx.set(nested, 0, "c");
+            tx.delete(nested, 1);
+            tx.increment(map, "counter", 5);
+            tx.delete(map, "old");
+            tx.commit();
+        }
+        ChangeHash[] after = doc.getHeads();
+
+        List<Patch> patches = doc.diff(before, after);
+        Recorder recorder = new Recorder();
+        doc.diff(before, after, recorder);
+
+        Assertions.assertEquals(patches.size(), recorder.patches.size());
+        for (int i = 0; i < patches.size(); i++) {
+            Assertions.assertTrue(recorder.patches.get(i).startsWith(patches.get(i).getObj().toString()));
+            Assertions.assertEquals(patches.get(i).getPath(), recorder.paths.get(i));
+        }
+    }
+
+    @Test
+    public void testPathIsReadOnly() {
+        Document doc = new Document();
+        ChangeHash[] before = doc.getHeads();
+        try (Transaction tx = doc.startTransaction()) {
+            ObjectId map = tx.set(ObjectId.ROOT, "map", ObjectType.MAP);
+            tx.set(map, "key", 1);
+            tx.commit();
+        }
+        List<List<PathElement>> seen = new ArrayList<>();
+        doc.diff(before, doc.getHeads(), new PatchVisitor() {
+            @Override
+            public void putMap(ObjectId obj, List<PathElement> path, String key, AmValue value, boolean conflict) {
+                Assertions.assertThrows(UnsupportedOperationException.class, () -> path.add(null));
+                seen.add(new ArrayList<>(path));
+            }
+        });
+        Assertions.assertEquals(2, seen.size());
+    }
+}
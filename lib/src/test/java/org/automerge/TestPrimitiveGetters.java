@@ -0,0 +1,97 @@
+package org.automerge;
+
+import java.util.Date;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public final class TestPrimitiveGetters {
+    private Document doc;
+    private ObjectId list;
+
+    public TestPrimitiveGetters() {
+        super();
+    }
+
+    @BeforeEach
+    public void setup() {
+        doc = new Document();
+        try (Transaction tx = doc.startTransaction()) {
+            tx.set(ObjectId.ROOT, "int", 42);
+            tx.set(ObjectId.ROOT, "uint", NewValue.uint(7));
+            tx.set(ObjectId.ROOT, "counter", new Counter(3));
+            tx.set(ObjectId.ROOT, "timestamp", new Date(1000));
+            tx.set(ObjectId.ROOT, "float", 1.5);
+            tx.set(ObjectId.ROOT, "bool", true);
+            tx.set(ObjectId.ROOT, "str", "hello");
+            list = tx.set(ObjectId.ROOT, "list", ObjectType.LIST);
+            tx.insert(list, 0, 5);
+            tx.insert(list, 1, 2.5);
+            tx.insert(list, 2, false);
+            tx.insert(list, 3, "item");
+            tx.commit();
+        }
+    }
+
+    @Test
+    public void testGetFromMap() {
+        Assertions.assertEquals(42, doc.getLong(ObjectId.ROOT, "int", -1));
+        Assertions.assertEquals(7, doc.getLong(ObjectId.ROOT, "uint", -1));
+        Assertions.assertEquals(3, doc.getLong(ObjectId.ROOT, "counter", -1));
+        Assertions.assertEquals(1000, doc.getLong(ObjectId.ROOT, "timestamp", -1));
+        Assertions.assertEquals(1.5, doc.getDouble(ObjectId.ROOT, "float", -1));
+        Assertions.assertTrue(doc.getBoolean(ObjectId.ROOT, "bool", false));
+        Assertions.assertEquals("hello", doc.getStringOrNull(ObjectId.ROOT, "str"));
+    }
+
+    @Test
+    public void testGetFromList() {
+        Assertions.assertEquals(5, doc.getLong(list, 0, -1));
+        Assertions.assertEquals(2.5, doc.getDouble(list, 1, -1));
+        Assertions.assertFalse(doc.getBoolean(list, 2, true));
+        Assertions.assertEquals("item", doc.getStringOrNull(list, 3));
+        Assertions.assertEquals(-1, doc.getLong(list, 10, -1));
+        Assertions.assertNull(doc.getStringOrNull(list, 10));
+    }
+
+    @Test
+    public void testMissingOrMismatchedReturnsDefault() {
+        Assertions.assertEquals(-1, doc.getLong(ObjectId.ROOT, "missing", -1));
+        Assertions.assertEquals(-1, doc.getLong(ObjectId.ROOT, "str", -1));
+        Assertions.assertEquals(-1, doc.getLong(ObjectId.ROOT, "float", -1));
+        Assertions.assertEquals(-1, doc.getDouble(ObjectId.ROOT, "int", -1));
+        Assertions.assertTrue(doc.getBoolean(ObjectId.ROOT, "int", true));
+        Assertions.assertNull(doc.getStringOrNull(ObjectId.ROOT, "int"));
+        Assertions.assertNull(doc.getStringOrNull(ObjectId.ROOT, "list"));
+    }
+
+    @Test
+    public void testGetInTransaction() {
+        try (Transaction tx = doc.startTransaction()) {
+            tx.set(ObjectId.ROOT, "int", 43);
+            Assertions.assertEquals(43, tx.getLong(ObjectId.ROOT, "int", -1));
+            Assertions.assertEquals(43, doc.getLong(ObjectId.ROOT, "int", -1));
+            Assertions.assertEquals("item", tx.getStringOrNull(list, 3));
+        }
+    }
+
+    @Test
+    public void testGetFromSnapshot() {
+        Snapshot snapshot = doc.snapshot();
+        try (Transaction tx = doc.startTransaction()) {
+            tx.set(ObjectId.ROOT, "int", 43);
+            tx.commit();
+        }
+        Assertions.assertEquals(42, snapshot.getLong(ObjectId.ROOT, "int", -1));
+        Assertions.assertEquals(5, snapshot.getLong(list, 0, -1));
+        Assertions.assertEquals("hello", snapshot.getStringOrNull(ObjectId.ROOT, "str"));
+        Assertions.assertTrue(snapshot.getBoolean(ObjectId.ROOT, "bool", false));
+    }
+
+    @Test
+    public void testGetFromWrongObjectTypeThrows() {
+        Assertions.assertThrows(AutomergeException.class, () -> {
+            doc.getLong(list, "key", -1);
+        });
+    }
+}
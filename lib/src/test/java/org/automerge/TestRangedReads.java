@@ -0,0 +1,136 @@
+package org.automerge;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public final class TestRangedReads {
+    private Document doc;
+    private ObjectId list;
+    private ObjectId map;
+    private ObjectId text;
+
+    public TestRangedReads() {
+        super();
+    }
+
+    @BeforeEach
+    public void setup() {
+        doc = new Document();
+        try (Transaction tx = doc.startTransaction()) {
+            list = tx.set(ObjectId.ROOT, "list", ObjectType.LIST);
+            for (int i = 0; i < 25; i++) {
+                tx.insert(list, i, i);
+            }
+            map = tx.set(ObjectId.ROOT, "map", ObjectType.MAP);
+            for (char c = 'a'; c <= 'j'; c++) {
+                tx.set(map, String.valueOf(c), (long) c);
+            }
+            text = tx.set(ObjectId.ROOT, "text", ObjectType.TEXT);
+            tx.spliceText(text, 0, 0, "hello world");
+            tx.commit();
+        }
+    }
+
+    private static long intValue(AmValue value) {
+        return ((AmValue.Int) value).getValue();
+    }
+
+    @Test
+    public void testListItemsRange() {
+        AmValue[] items = doc.listItems(list, 5, 8).get();
+        Assertions.assertEquals(3, items.length);
+        Assertions.assertEquals(5, intValue(items[0]));
+        Assertions.assertEquals(7, intValue(items[2]));
+
+        Assertions.assertEquals(5, doc.listItems(list, 20, 100).get().length);
+        Assertions.assertEquals(0, doc.listItems(list, 30, 40).get().length);
+        Assertions.assertFalse(doc.listItems(map, 0, 1).isPresent());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            doc.listItems(list, 5, 4);
+        });
+    }
+
+    @Test
+    public void testListItemsRangeAtHeads() {
+        ChangeHash[] heads = doc.getHeads();
+        try (Transaction tx = doc.startTransaction()) {
+            tx.delete(list, 0);
+            tx.commit();
+        }
+        Assertions.assertEquals(1, intValue(doc.listItems(list, 0, 1).get()[0]));
+        Assertions.assertEquals(0, intValue(doc.listItems(list, 0, 1, heads).get()[0]));
+    }
+
+    @Test
+    public void testTextRange() {
+        Assertions.assertEquals("world", doc.text(text, 6, 11).get());
+        Assertions.assertEquals("world", doc.text(text, 6, 100).get());
+        Assertions.assertFalse(doc.text(list, 0, 1).isPresent());
+        try (Transaction tx = doc.startTransaction()) {
+            Assertions.assertEquals("hello", tx.text(text, 0, 5).get());
+        }
+    }
+
+    @Test
+    public void testKeysPage() {
+        Assertions.assertArrayEquals(new String[]{"a", "b", "c"}, doc.keys(map, null, 3).get());
+        Assertions.assertArrayEquals(new String[]{"c", "d"}, doc.keys(map, "c", 2).get());
+        Assertions.assertArrayEquals(new String[]{"d"}, doc.keys(map, "cc", 1).get());
+        Assertions.assertEquals(0, doc.keys(map, "z", 10).get().length);
+
+        MapEntry[] entries = doc.mapEntries(map, "i", 10).get();
+        Assertions.assertEquals(2, entries.length);
+        Assertions.assertEquals("i", entries[0].getKey());
+        Assertions.assertEquals('j', intValue(entries[1].getValue()));
+    }
+
+    @Test
+    public void testIterators() {
+        List<Long> values = new ArrayList<>();
+        doc.listItemsIterator(list, 7).forEachRemaining(v -> values.add(intValue(v)));
+        Assertions.assertEquals(25, values.size());
+        Assertions.assertEquals(24L, (long) values.get(24));
+
+        List<String> keys = new ArrayList<>();
+        doc.keysIterator(map, 3).forEachRemaining(keys::add);
+        Assertions.assertEquals(10, keys.size());
+        Assertions.assertEquals("j", keys.get(9));
+
+        List<String> entryKeys = new ArrayList<>();
+        doc.mapEntriesIterator(map, 5).forEachRemaining(e -> entryKeys.add(e.getKey()));
+        Assertions.assertEquals(keys, entryKeys);
+
+        StringBuilder builder = new StringBuilder();
+        Iterator<String> chunks = doc.textChunks(text, 4);
+        int count = 0;
+        while (chunks.hasNext()) {
+            builder.append(chunks.next());
+            count++;
+        }
+        Assertions.assertEquals("hello world", builder.toString());
+        Assertions.assertEquals(3, count);
+
+        Assertions.assertFalse(doc.listItemsIterator(map, 10).hasNext());
+    }
+
+    @Test
+    public void testSnapshotIteration() {
+        Snapshot snapshot = doc.snapshot();
+        Iterator<AmValue> items = snapshot.listItemsIterator(list, 10);
+        items.next();
+        try (Transaction tx = doc.startTransaction()) {
+            tx.delete(list, 0);
+            tx.commit();
+        }
+        int count = 1;
+        while (items.hasNext()) {
+            items.next();
+            count++;
+        }
+        Assertions.assertEquals(25, count);
+    }
+}
@@ -0,0 +1,121 @@
+package org.automerge;
+
+import java.util.Optional;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public final class TestReadPath {
+    private Document doc;
+    private ObjectId profile;
+
+    public TestReadPath() {
+        super();
+    }
+
+    @BeforeEach
+    public void setup() {
+        doc = new Document();
+        try (Transaction tx = doc.startTransaction()) {
+            ObjectId users = tx.set(ObjectId.ROOT, "users", ObjectType.LIST);
+            tx.insert(users, 0, ObjectType.MAP);
+            ObjectId user = tx.insert(users, 1, ObjectType.MAP);
+            profile = tx.set(user, "profile", ObjectType.MAP);
+            tx.set(profile, "name", "alice");
+            tx.set(profile, "age", 30);
+            tx.commit();
+        }
+    }
+
+    private static String str(Optional<AmValue> value) {
+        return ((AmValue.Str) value.get()).getValue();
+    }
+
+    @Test
+    public void testGetPath() {
+        Assertions.assertEquals("alice", str(doc.getPath(ObjectId.ROOT, "users", 1, "profile", "name")));
+        Assertions.assertEquals("alice", str(doc.getPath(profile, "name")));
+        AmValue profileValue = doc.getPath(ObjectId.ROOT, "users", 1L, "profile").get();
+        Assertions.assertEquals(profile, ((AmValue.Map) profileValue).getId());
+    }
+
+    @Test
+    public void testGetPathMissing() {
+        Assertions.assertFalse(doc.getPath(ObjectId.ROOT, "missing", "name").isPresent());
+        Assertions.assertFalse(doc.getPath(ObjectId.ROOT, "users", 5, "profile").isPresent());
+        Assertions.assertFalse(doc.getPath(ObjectId.ROOT, "users", 1, "profile", "name", "more").isPresent());
+    }
+
+    @Test
+    public void testGetPathInvalidSegments() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> doc.getPath(ObjectId.ROOT));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> doc.getPath(ObjectId.ROOT, "users", -1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> doc.getPath(ObjectId.ROOT, "users", 1.5));
+    }
+
+    @Test
+    public void testGetPathInTransactionAndSnapshot() {
+        Snapshot snapshot = doc.snapshot();
+        try (Transaction tx = doc.startTransaction()) {
+            tx.set(profile, "name", "bob");
+            Assertions.assertEquals("bob", str(tx.getPath(ObjectId.ROOT, "users", 1, "profile", "name")));
+            tx.commit();
+        }
+        Assertions.assertEquals("alice", str(snapshot.getPath(ObjectId.ROOT, "users", 1, "profile", "name")));
+    }
+
+    @Test
+    public void testGetMany() {
+        AmValue[] values = doc.getMany(profile, new String[]{"name", "missing", "age"});
+        Assertions.assertEquals(3, values.length);
+        Assertions.assertEquals("alice", ((AmValue.Str) values[0]).getValue());
+        Assertions.assertNull(values[1]);
+        Assertions.assertEquals(30, ((AmValue.Int) values[2]).getValue());
+    }
+
+    @Test
+    public void testGetManyAtHeads() {
+        ChangeHash[] heads = doc.getHeads();
+        try (Transaction tx = doc.startTransaction()) {
+            tx.set(profile, "name", "bob");
+            tx.commit();
+        }
+        AmValue[] values = doc.getMany(profile, new String[]{"name"}, heads);
+        Assertions.assertEquals("alice", ((AmValue.Str) values[0]).getValue());
+    }
+
+    @Test
+    public void testCompiledPathSeesChanges() {
+        ReadPath path = ReadPath.compile(ObjectId.ROOT, "users", 1, "profile", "name");
+        Assertions.assertEquals("alice", str(path.get(doc)));
+        Assertions.assertEquals("alice", str(path.get(doc)));
+
+        // Replace the profile object so the cached parent is stale
+        try (Transaction tx = doc.startTransaction()) {
+            ObjectId user = ((AmValue.Map) doc.getPath(ObjectId.ROOT, "users", 1).get()).getId();
+            ObjectId newProfile = tx.set(user, "profile", ObjectType.MAP);
+            tx.set(newProfile, "name", "carol");
+            Assertions.assertEquals("carol", str(path.get(tx)));
+            Assertions.assertEquals("carol", str(path.get(doc)));
+            tx.commit();
+        }
+        Assertions.assertEquals("carol", str(path.get(doc)));
+    }
+
+    @Test
+    public void testCompiledPathMissing() {
+        ReadPath path = ReadPath.compile(ObjectId.ROOT, "missing", "name");
+        Assertions.assertFalse(path.get(doc).isPresent());
+        try (Transaction tx = doc.startTransaction()) {
+            ObjectId missing = tx.set(ObjectId.ROOT, "missing", ObjectType.MAP);
+            tx.set(missing, "name", "dave");
+            tx.commit();
+        }
+        Assertions.assertEquals("dave", str(path.get(doc)));
+    }
+
+    @Test
+    public void testCompileRejectsEmptyPath() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ReadPath.compile(ObjectId.ROOT));
+    }
+}
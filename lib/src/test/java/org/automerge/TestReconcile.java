@@ -0,0 +1,184 @@
+package org.automerge;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public final class TestReconcile {
+    private Document doc;
+
+    @BeforeEach
+    public void setup() {
+        doc = new Document();
+    }
+
+    private static Map<String, Object> item(String id, long value) {
+        Map<String, Object> item = new HashMap<>();
+        item.put("id", id);
+        item.put("value", value);
+        return item;
+    }
+
+    private static Map<String, Object> tree() {
+        Map<String, Object> settings = new HashMap<>();
+        settings.put("theme", "dark");
+        settings.put("volume", 7);
+        Map<String, Object> tree = new HashMap<>();
+        tree.put("name", "widget");
+        tree.put("enabled", true);
+        tree.put("ratio", 0.5);
+        tree.put("settings", settings);
+        tree.put("tags", new ArrayList<>(Arrays.asList("a", "b", "c")));
+        tree.put("nothing", null);
+        return tree;
+    }
+
+    private List<Patch> reconcileForPatches(ObjectId obj, Object tree, String keyField) {
+        PatchLog patchLog = new PatchLog();
+        try (Transaction tx = doc.startTransaction(patchLog)) {
+            if (keyField == null) {
+                tx.reconcile(obj, tree);
+            } else {
+                tx.reconcile(obj, tree, keyField);
+            }
+            tx.commit();
+        }
+        return doc.makePatches(patchLog);
+    }
+
+    private ObjectId listAt(ObjectId obj, String key) {
+        return ((AmValue.List) doc.get(obj, key).get()).getId();
+    }
+
+    private ObjectId mapAt(ObjectId obj, long index) {
+        return ((AmValue.Map) doc.get(obj, index).get()).getId();
+    }
+
+    @Test
+    public void testReconcileTree() {
+        reconcileForPatches(ObjectId.ROOT, tree(), null);
+        Assertions.assertEquals("widget", ((AmValue.Str) doc.get(ObjectId.ROOT, "name").get()).getValue());
+        Assertions.assertTrue(((AmValue.Bool) doc.get(ObjectId.ROOT, "enabled").get()).getValue());
+        Assertions.assertTrue(doc.get(ObjectId.ROOT, "nothing").get() instanceof AmValue.Null);
+        ObjectId settings = ((AmValue.Map) doc.get(ObjectId.ROOT, "settings").get()).getId();
+        Assertions.assertEquals(7, doc.getLong(settings, "volume", -1));
+        ObjectId tags = listAt(ObjectId.ROOT, "tags");
+        Assertions.assertEquals(3, doc.length(tags));
+    }
+
+    @Test
+    public void testReconcileUnchangedTreeAppliesNothing() {
+        reconcileForPatches(ObjectId.ROOT, tree(), null);
+        try (Transaction tx = doc.startTransaction()) {
+            tx.reconcile(ObjectId.ROOT, tree());
+            Assertions.assertEquals(Optional.empty(), tx.commit());
+        }
+    }
+
+    @Test
+    public void testReconcileOnlyChangedValues() {
+        reconcileForPatches(ObjectId.ROOT, tree(), null);
+        Map<String, Object> changed = tree();
+        changed.remove("ratio");
+        Map<String, Object> settings = new HashMap<>();
+        settings.put("theme", "dark");
+        settings.put("volume", 8);
+        changed.put("settings", settings);
+
+        List<Patch> patches = reconcileForPatches(ObjectId.ROOT, changed, null);
+        Assertions.assertEquals(2, patches.size());
+        Assertions.assertFalse(doc.get(ObjectId.ROOT, "ratio").isPresent());
+        ObjectId settingsId = ((AmValue.Map) doc.get(ObjectId.ROOT, "settings").get()).getId();
+        Assertions.assertEquals(8, doc.getLong(settingsId, "volume", -1));
+    }
+
+    @Test
+    public void testReconcileListInsertAtStart() {
+        reconcileForPatches(ObjectId.ROOT, tree(), null);
+        Map<String, Object> changed = tree();
+        changed.put("tags", Arrays.asList("z", "a", "b", "c"));
+
+        List<Patch> patches = reconcileForPatches(ObjectId.ROOT, changed, null);
+        Assertions.assertEquals(1, patches.size());
+        Assertions.assertTrue(patches.get(0).getAction() instanceof PatchAction.Insert);
+        ObjectId tags = listAt(ObjectId.ROOT, "tags");
+        Assertions.assertEquals("z", ((AmValue.Str) doc.get(tags, 0).get()).getValue());
+        Assertions.assertEquals(4, doc.length(tags));
+    }
+
+    @Test
+    public void testReconcileListRemoveFirstMap() {
+        Map<String, Object> tree = new HashMap<>();
+        tree.put("items", Arrays.asList(item("a", 1), item("b", 2), item("c", 3)));
+        reconcileForPatches(ObjectId.ROOT, tree, null);
+        ObjectId items = listAt(ObjectId.ROOT, "items");
+        ObjectId b = mapAt(items, 1);
+        ObjectId c = mapAt(items, 2);
+
+        tree.put("items", Arrays.asList(item("b", 2), item("c", 3)));
+        List<Patch> patches = reconcileForPatches(ObjectId.ROOT, tree, null);
+
+        // Only the first map is deleted, the others are not rewritten
+        Assertions.assertEquals(1, patches.size());
+        Assertions.assertTrue(patches.get(0).getAction() instanceof PatchAction.DeleteList);
+        Assertions.assertEquals(2, doc.length(items));
+        Assertions.assertEquals(b, mapAt(items, 0));
+        Assertions.assertEquals(c, mapAt(items, 1));
+    }
+
+    @Test
+    public void testReconcileKeyedListMove() {
+        Map<String, Object> tree = new HashMap<>();
+        tree.put("items", Arrays.asList(item("a", 1), item("b", 2), item("c", 3)));
+        reconcileForPatches(ObjectId.ROOT, tree, "id");
+        ObjectId items = listAt(ObjectId.ROOT, "items");
+        ObjectId b = mapAt(items, 1);
+        ObjectId c = mapAt(items, 2);
+
+        tree.put("items", Arrays.asList(item("b", 2), item("c", 30), item("a", 1)));
+        reconcileForPatches(ObjectId.ROOT, tree, "id");
+
+        // b and c keep their identity, only a is moved
+        Assertions.assertEquals(items, listAt(ObjectId.ROOT, "items"));
+        Assertions.assertEquals(3, doc.length(items));
+        Assertions.assertEquals(b, mapAt(items, 0));
+        Assertions.assertEquals(c, mapAt(items, 1));
+        Assertions.assertEquals(30, doc.getLong(c, "value", -1));
+        ObjectId a = mapAt(items, 2);
+        Assertions.assertEquals("a", ((AmValue.Str) doc.get(a, "id").get()).getValue());
+    }
+
+    @Test
+    public void testReconcileStringIntoText() {
+        ObjectId text;
+        try (Transaction tx = doc.startTransaction()) {
+            text = tx.set(ObjectId.ROOT, "text", ObjectType.TEXT);
+            tx.spliceText(text, 0, 0, "hello world");
+            tx.commit();
+        }
+        Map<String, Object> tree = new HashMap<>();
+        tree.put("text", "hello there world");
+        reconcileForPatches(ObjectId.ROOT, tree, null);
+        Assertions.assertTrue(doc.get(ObjectId.ROOT, "text").get() instanceof AmValue.Text);
+        Assertions.assertEquals(Optional.of("hello there world"), doc.text(text));
+    }
+
+    @Test
+    public void testReconcileInvalidTrees() {
+        try (Transaction tx = doc.startTransaction()) {
+            Assertions.assertThrows(AutomergeException.class, () -> {
+                tx.reconcile(ObjectId.ROOT, Arrays.asList(1, 2));
+            });
+            Assertions.assertThrows(IllegalArgumentException.class, () -> {
+                tx.reconcile(ObjectId.ROOT, Collections.singletonMap("key", new Object()));
+            });
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package org.automerge;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public final class TestSaveLoadBuffers {
+    private Document doc;
+
+    public TestSaveLoadBuffers() {
+        super();
+    }
+
+    @BeforeEach
+    public void setup() {
+        doc = new Document();
+        try (Transaction tx = doc.startTransaction()) {
+            tx.set(ObjectId.ROOT, "key", "value");
+            ObjectId text = tx.set(ObjectId.ROOT, "text", ObjectType.TEXT);
+            tx.spliceText(text, 0, 0, "hello world");
+            tx.commit();
+        }
+    }
+
+    private static String keyOf(Document doc) {
+        return ((AmValue.Str) doc.get(ObjectId.ROOT, "key").get()).getValue();
+    }
+
+    @Test
+    public void testSaveToStream() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        doc.save(out);
+        Assertions.assertArrayEquals(doc.save(), out.toByteArray());
+    }
+
+    @Test
+    public void testSaveToBuffer() {
+        byte[] expected = doc.save();
+        ByteBuffer dest = ByteBuffer.allocateDirect(expected.length + 10);
+        dest.put((byte) 1);
+        int written = doc.saveTo(dest);
+        Assertions.assertEquals(expected.length, written);
+        Assertions.assertEquals(expected.length + 1, dest.position());
+
+        dest.flip();
+        dest.get();
+        Document loaded = Document.load(dest);
+        Assertions.assertEquals("value", keyOf(loaded));
+        Assertions.assertFalse(dest.hasRemaining());
+    }
+
+    @Test
+    public void testSaveToBufferWhichIsTooSmall() {
+        ByteBuffer dest = ByteBuffer.allocate(1);
+        Assertions.assertThrows(BufferOverflowException.class, () -> {
+            doc.saveTo(dest);
+        });
+        Assertions.assertEquals(0, dest.position());
+    }
+
+    @Test
+    public void testLoadHeapBuffer() {
+        byte[] saved = doc.save();
+        byte[] padded = new byte[saved.length + 2];
+        System.arraycopy(saved, 0, padded, 1, saved.length);
+        ByteBuffer buffer = ByteBuffer.wrap(padded, 1, saved.length);
+        Assertions.assertEquals("value", keyOf(Document.load(buffer)));
+        Assertions.assertEquals(saved.length + 1, buffer.position());
+    }
+
+    @Test
+    public void testLoadPath() throws IOException {
+        Path file = Files.createTempFile("automerge", ".bin");
+        try {
+            Files.write(file, doc.save());
+            Assertions.assertEquals("value", keyOf(Document.load(file)));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testLoadInvalidBuffer() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(4);
+        buffer.put(new byte[]{1, 2, 3, 4});
+        buffer.flip();
+        Assertions.assertThrows(AutomergeException.class, () -> {
+            Document.load(buffer);
+        });
+    }
+
+    @Test
+    public void testApplyEncodedChangesFromBuffer() {
+        Document other = new Document();
+        byte[] changes = doc.encodeChangesSince(new ChangeHash[]{});
+        ByteBuffer buffer = ByteBuffer.allocateDirect(changes.length);
+        buffer.put(changes);
+        buffer.flip();
+        other.applyEncodedChanges(buffer);
+        Assertions.assertEquals("value", keyOf(other));
+        Assertions.assertFalse(buffer.hasRemaining());
+
+        Document third = new Document();
+        third.applyEncodedChanges(ByteBuffer.wrap(changes));
+        Assertions.assertEquals("value", keyOf(third));
+    }
+}
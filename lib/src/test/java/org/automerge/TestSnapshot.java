@@ -0,0 +1,88 @@
+package org.automerge;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public final class TestSnapshot {
+    private Document doc;
+    private ObjectId list;
+
+    public TestSnapshot() {
+        super();
+    }
+
+    @BeforeEach
+    public void setup() {
+        doc = new Document();
+        try (Transaction tx = doc.startTransaction()) {
+            tx.set(ObjectId.ROOT, "key", "before");
+            list = tx.set(ObjectId.ROOT, "list", ObjectType.LIST);
+            tx.insert(list, 0, 1);
+            tx.commit();
+        }
+    }
+
+    @Test
+    public void testSnapshotIsUnaffectedByLaterChanges() {
+        Snapshot snapshot = doc.snapshot();
+        try (Transaction tx = doc.startTransaction()) {
+            tx.set(ObjectId.ROOT, "key", "after");
+            tx.insert(list, 1, 2);
+            tx.commit();
+        }
+        Assertions.assertEquals("before", ((AmValue.Str) snapshot.get(ObjectId.ROOT, "key").get()).getValue());
+        Assertions.assertEquals(1, snapshot.length(list));
+        Assertions.assertEquals(1, snapshot.listItems(list).get().length);
+        Assertions.assertEquals(2, doc.length(list));
+        Assertions.assertFalse(Arrays.equals(snapshot.getHeads(), doc.getHeads()));
+        Assertions.assertEquals(1, ((Materialized.List) snapshot.materialize(list).get()).size());
+    }
+
+    @Test
+    public void testSnapshotObjectTypeAtItsHeads() {
+        Snapshot snapshot = doc.snapshot();
+        ObjectId map;
+        try (Transaction tx = doc.startTransaction()) {
+            map = tx.set(ObjectId.ROOT, "map", ObjectType.MAP);
+            tx.commit();
+        }
+        Assertions.assertEquals(ObjectType.LIST, snapshot.getObjectType(list).get());
+        Assertions.assertEquals(ObjectType.MAP, doc.getObjectType(map).get());
+        // The map was created after the snapshot
+        Assertions.assertFalse(snapshot.getObjectType(map).isPresent());
+        Assertions.assertEquals(ObjectType.MAP, doc.snapshot().getObjectType(map).get());
+    }
+
+    @Test
+    public void testSnapshotExcludesOpenTransaction() {
+        Transaction tx = doc.startTransaction();
+        tx.set(ObjectId.ROOT, "key", "uncommitted");
+        Snapshot snapshot = doc.snapshot();
+        tx.commit();
+        Assertions.assertEquals("before", ((AmValue.Str) snapshot.get(ObjectId.ROOT, "key").get()).getValue());
+    }
+
+    @Test
+    public void testReadSnapshotFromOtherThreads() throws Exception {
+        Snapshot snapshot = doc.snapshot();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Long> length = executor.submit(() -> snapshot.length(list));
+            for (int i = 0; i < 10; i++) {
+                try (Transaction tx = doc.startTransaction()) {
+                    tx.insert(list, 0, i);
+                    tx.commit();
+                }
+            }
+            Assertions.assertEquals(1, (long) length.get());
+            Assertions.assertEquals(1, (long) executor.submit(() -> snapshot.length(list)).get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package org.automerge;
+
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public final class TestSpans {
+    private Document doc;
+    private ObjectId text;
+
+    @BeforeEach
+    public void setup() {
+        doc = new Document();
+        try (Transaction tx = doc.startTransaction()) {
+            text = tx.set(ObjectId.ROOT, "text", ObjectType.TEXT);
+            tx.spliceText(text, 0, 0, "the quick brown fox");
+            tx.mark(text, 4, 9, "bold", true, ExpandMark.NONE);
+            tx.mark(text, 4, 15, "italic", true, ExpandMark.NONE);
+            tx.commit();
+        }
+    }
+
+    private static String concat(List<Span> spans) {
+        StringBuilder sb = new StringBuilder();
+        for (Span span : spans) {
+            sb.append(span.getText());
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void testSpans() {
+        List<Span> spans = doc.spans(text);
+        Assertions.assertEquals("the quick brown fox", concat(spans));
+        Assertions.assertEquals(4, spans.size());
+
+        Assertions.assertEquals("the ", spans.get(0).getText());
+        Assertions.assertTrue(spans.get(0).getMarks().isEmpty());
+
+        Span quick = spans.get(1);
+        Assertions.assertEquals("quick", quick.getText());
+        Assertions.assertEquals(4, quick.getStart());
+        Assertions.assertEquals(9, quick.getEnd());
+        Assertions.assertEquals(2, quick.getMarks().size());
+        Assertions.assertTrue(((AmValue.Bool) quick.getMarks().get("bold")).getValue());
+
+        Assertions.assertEquals(" brown", spans.get(2).getText());
+        Assertions.assertEquals(1, spans.get(2).getMarks().size());
+        Assertions.assertTrue(spans.get(2).getMarks().containsKey("italic"));
+
+        Assertions.assertEquals(" fox", spans.get(3).getText());
+        Assertions.assertFalse(spans.get(3).isBlock());
+    }
+
+    @Test
+    public void testSpansShareMarks() {
+        try (Transaction tx = doc.startTransaction()) {
+            tx.mark(text, 16, 19, "italic", true, ExpandMark.NONE);
+            tx.commit();
+        }
+        List<Span> spans = doc.spans(text);
+        Assertions.assertEquals("fox", spans.get(spans.size() - 1).getText());
+        Assertions.assertSame(spans.get(2).getMarks(), spans.get(spans.size() - 1).getMarks());
+    }
+
+    @Test
+    public void testSpansInRange() {
+        List<Span> spans = doc.spans(text, 6, 12);
+        Assertions.assertEquals("ick br", concat(spans));
+        Assertions.assertEquals(2, spans.size());
+        Assertions.assertEquals(6, spans.get(0).getStart());
+        Assertions.assertEquals(12, spans.get(1).getEnd());
+        Assertions.assertEquals(2, spans.get(0).getMarks().size());
+        Assertions.assertEquals(1, spans.get(1).getMarks().size());
+    }
+
+    @Test
+    public void testSpansAtHeads() {
+        ChangeHash[] heads = doc.getHeads();
+        try (Transaction tx = doc.startTransaction()) {
+            tx.spliceText(text, 0, 3, "a");
+            Assertions.assertEquals("a quick brown fox", concat(tx.spans(text)));
+            tx.commit();
+        }
+        Assertions.assertEquals("a quick brown fox", concat(doc.spans(text)));
+        Assertions.assertEquals("the quick brown fox", concat(doc.spans(text, heads)));
+        Assertions.assertEquals("the", concat(doc.spans(text, 0, 3, heads)));
+    }
+
+    @Test
+    public void testSpansEmptyText() {
+        try (Transaction tx = doc.startTransaction()) {
+            ObjectId empty = tx.set(ObjectId.ROOT, "empty", ObjectType.TEXT);
+            Assertions.assertTrue(tx.spans(empty).isEmpty());
+        }
+    }
+}
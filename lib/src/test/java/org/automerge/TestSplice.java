@@ -115,5 +115,52 @@ public final class TestSplice {
             Assertions.assertEquals(2, ((AmValue.Counter) elem2).getValue());
         });
     }
+
+    @Test
+    public void testSpliceLongArray() {
+        tx.insert(list, 0, 1);
+        tx.splice(list, 1, 0, new long[]{2, 3, 4});
+        Assertions.assertEquals(4, tx.length(list));
+        Assertions.assertEquals(3l, ((AmValue.Int) tx.get(list, 2).get()).getValue());
+        tx.splice(list, 0, 2, new long[0]);
+        Assertions.assertEquals(2, tx.length(list));
+        Assertions.assertEquals(3l, ((AmValue.Int) tx.get(list, 0).get()).getValue());
+    }
+
+    @Test
+    public void testSpliceDoubleArray() {
+        tx.splice(list, 0, 0, new double[]{1.5, 2.5});
+        Assertions.assertEquals(1.5, ((AmValue.F64) tx.get(list, 0).get()).getValue());
+        Assertions.assertEquals(2.5, ((AmValue.F64) tx.get(list, 1).get()).getValue());
+    }
+
+    @Test
+    public void testSpliceBooleanArray() {
+        tx.splice(list, 0, 0, new boolean[]{true, false});
+        Assertions.assertTrue(((AmValue.Bool) tx.get(list, 0).get()).getValue());
+        Assertions.assertFalse(((AmValue.Bool) tx.get(list, 1).get()).getValue());
+    }
+
+    @Test
+    public void testSpliceStringArray() {
+        tx.splice(list, 0, 0, new String[]{"a", "b"});
+        Assertions.assertEquals("a", ((AmValue.Str) tx.get(list, 0).get()).getValue());
+        Assertions.assertEquals("b", ((AmValue.Str) tx.get(list, 1).get()).getValue());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            tx.splice(list, 0, 0, new String[]{"c", null});
+        });
+        Assertions.assertEquals(2, tx.length(list));
+    }
+
+    @Test
+    public void testSpliceLargeLongArray() {
+        long[] values = new long[100_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i;
+        }
+        tx.splice(list, 0, 0, values);
+        Assertions.assertEquals(values.length, tx.length(list));
+        Assertions.assertEquals(99_999l, ((AmValue.Int) tx.get(list, 99_999).get()).getValue());
+    }
 }
 // Check that committing the transaction clears Document.transactionPtr
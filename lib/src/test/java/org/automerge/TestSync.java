@@ -182,4 +182,78 @@ class TestSync {
         Assertions.assertTrue(btoa.isInSync(doc2));
 
     }
+
+    @Test
+    public void testGenerateSyncMessages() {
+        Document server = new Document();
+        try (Transaction tx = server.startTransaction()) {
+            tx.set(ObjectId.ROOT, "key", "value");
+            tx.commit();
+        }
+        SyncState[] states = new SyncState[4];
+        Document[] clients = new Document[states.length];
+        for (int i = 0; i < states.length; i++) {
+            states[i] = new SyncState();
+            clients[i] = new Document();
+        }
+        // Bring one client up to date so the states are not all the same
+        sync(states[0], new SyncState(), server, clients[0]);
+
+        SyncState[] expectedStates = new SyncState[states.length];
+        for (int i = 0; i < states.length; i++) {
+            expectedStates[i] = SyncState.decode(states[i].encode());
+        }
+        Optional<byte[]>[] messages = server.generateSyncMessages(states);
+        Assertions.assertEquals(states.length, messages.length);
+        Assertions.assertFalse(messages[0].isPresent());
+        for (int i = 1; i < states.length; i++) {
+            byte[] expected = server.generateSyncMessage(expectedStates[i]).get();
+            Assertions.assertArrayEquals(expected, messages[i].get());
+        }
+        // Each state was advanced just as generating messages one at a time
+        // would have
+        Optional<byte[]>[] next = server.generateSyncMessages(states);
+        for (int i = 1; i < states.length; i++) {
+            Assertions.assertEquals(server.generateSyncMessage(expectedStates[i]).isPresent(), next[i].isPresent());
+        }
+    }
+
+    @Test
+    public void testGenerateSyncMessagesSyncsAllPeers() {
+        Document server = new Document();
+        try (Transaction tx = server.startTransaction()) {
+            tx.set(ObjectId.ROOT, "key", "value");
+            tx.commit();
+        }
+        int peers = 3;
+        SyncState[] serverStates = new SyncState[peers];
+        SyncState[] clientStates = new SyncState[peers];
+        Document[] clients = new Document[peers];
+        for (int i = 0; i < peers; i++) {
+            serverStates[i] = new SyncState();
+            clientStates[i] = new SyncState();
+            clients[i] = new Document();
+        }
+        for (int round = 0; round < 10; round++) {
+            Optional<byte[]>[] messages = server.generateSyncMessages(serverStates);
+            boolean sent = false;
+            for (int i = 0; i < peers; i++) {
+                if (messages[i].isPresent()) {
+                    clients[i].receiveSyncMessage(clientStates[i], messages[i].get());
+                    sent = true;
+                }
+                Optional<byte[]> reply = clients[i].generateSyncMessage(clientStates[i]);
+                if (reply.isPresent()) {
+                    server.receiveSyncMessage(serverStates[i], reply.get());
+                    sent = true;
+                }
+            }
+            if (!sent) {
+                break;
+            }
+        }
+        for (int i = 0; i < peers; i++) {
+            Assertions.assertEquals("value", clients[i].getStringOrNull(ObjectId.ROOT, "key"));
+        }
+    }
 }
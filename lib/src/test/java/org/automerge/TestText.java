@@ -1,5 +1,7 @@
 package org.automerge;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Optional;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -60,4 +62,88 @@ class TestText {
         tx.commit();
         Assertions.assertEquals(Optional.of("hello"), doc.text(text, heads));
     }
+
+    @Test
+    public void testSpliceCharSequence() {
+        Transaction tx = doc.startTransaction();
+        StringBuilder builder = new StringBuilder("hello");
+        builder.append(" world");
+        tx.spliceText(text, 0, 0, builder);
+        Assertions.assertEquals(Optional.of("hello world"), tx.text(text));
+    }
+
+    @Test
+    public void testSpliceCharArrayRange() {
+        Transaction tx = doc.startTransaction();
+        tx.spliceText(text, 0, 0, "ad");
+        char[] chars = "xxbcxx".toCharArray();
+        tx.spliceText(text, 1, 0, chars, 2, 2);
+        Assertions.assertEquals(Optional.of("abcd"), tx.text(text));
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> {
+            tx.spliceText(text, 0, 0, chars, 5, 2);
+        });
+    }
+
+    @Test
+    public void testSpliceUtf8Buffers() {
+        Transaction tx = doc.startTransaction();
+        byte[] utf8 = "héllo 🌍".getBytes(StandardCharsets.UTF_8);
+
+        ByteBuffer heap = ByteBuffer.wrap(utf8);
+        tx.spliceText(text, 0, 0, heap);
+        Assertions.assertFalse(heap.hasRemaining());
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(utf8.length + 2);
+        direct.put((byte) 'x');
+        direct.put(utf8);
+        direct.flip();
+        direct.position(1);
+        tx.spliceText(text, 0, 0, direct);
+        Assertions.assertFalse(direct.hasRemaining());
+
+        Assertions.assertEquals(Optional.of("héllo 🌍héllo 🌍"), tx.text(text));
+    }
+
+    @Test
+    public void testSpliceInvalidUtf8() {
+        Transaction tx = doc.startTransaction();
+        ByteBuffer invalid = ByteBuffer.wrap(new byte[]{(byte) 0xff, (byte) 0xfe});
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            tx.spliceText(text, 0, 0, invalid);
+        });
+        Assertions.assertEquals(Optional.of(""), tx.text(text));
+    }
+
+    @Test
+    public void testUpdateText() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            builder.append("line ").append(i).append('\n');
+        }
+        String before = builder.toString();
+        Transaction tx = doc.startTransaction();
+        tx.updateText(text, before);
+        tx.commit();
+        Assertions.assertEquals(Optional.of(before), doc.text(text));
+        ChangeHash[] heads = doc.getHeads();
+
+        String after = before.replace("line 500\n", "line five hundred\n");
+        tx = doc.startTransaction();
+        tx.updateText(text, after);
+        tx.commit();
+        Assertions.assertEquals(Optional.of(after), doc.text(text));
+
+        // Only the edit is recorded, not a delete and reinsert of the whole text
+        byte[] change = doc.encodeChangesSince(heads);
+        Assertions.assertTrue(change.length < 200, "change was " + change.length + " bytes");
+    }
+
+    @Test
+    public void testUpdateTextPreservesCursor() {
+        Transaction tx = doc.startTransaction();
+        tx.spliceText(text, 0, 0, "hello world");
+        Cursor cursor = tx.makeCursor(text, 6);
+        tx.updateText(text, "oh hello world");
+        Assertions.assertEquals(9, tx.lookupCursorIndex(text, cursor));
+    }
 }
@@ -0,0 +1,114 @@
+package org.automerge;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public final class TestTextEncoding {
+    // "😀" is a single code point made of two UTF-16 code units
+    private static final String TEXT = "a😀b";
+
+    private static ObjectId makeText(Document doc) {
+        try (Transaction tx = doc.startTransaction()) {
+            ObjectId text = tx.set(ObjectId.ROOT, "text", ObjectType.TEXT);
+            tx.spliceText(text, 0, 0, TEXT);
+            tx.commit();
+            return text;
+        }
+    }
+
+    @Test
+    public void testDefaultEncoding() {
+        Document doc = new Document();
+        Assertions.assertEquals(TextEncoding.UNICODE_CODE_POINT, doc.getTextEncoding());
+        ObjectId text = makeText(doc);
+        Assertions.assertEquals(3, doc.length(text));
+    }
+
+    @Test
+    public void testUtf16IndicesMatchJavaStrings() {
+        Document doc = new Document(TextEncoding.UTF16_CODE_UNIT);
+        Assertions.assertEquals(TextEncoding.UTF16_CODE_UNIT, doc.getTextEncoding());
+        ObjectId text = makeText(doc);
+        Assertions.assertEquals(TEXT.length(), doc.length(text));
+        Assertions.assertEquals(Optional.of("😀"), doc.text(text, 1, 3));
+
+        try (Transaction tx = doc.startTransaction()) {
+            tx.spliceText(text, TEXT.indexOf('b'), 1, "c");
+            tx.commit();
+        }
+        Assertions.assertEquals(Optional.of("a😀c"), doc.text(text));
+
+        Cursor cursor = doc.makeCursor(text, 3);
+        Assertions.assertEquals(3, doc.lookupCursorIndex(text, cursor));
+    }
+
+    @Test
+    public void testUtf16TextChunks() {
+        Document doc = new Document(TextEncoding.UTF16_CODE_UNIT);
+        String value = "ab😀cd😀efg";
+        ObjectId text;
+        try (Transaction tx = doc.startTransaction()) {
+            text = tx.set(ObjectId.ROOT, "text", ObjectType.TEXT);
+            tx.spliceText(text, 0, 0, value);
+            tx.commit();
+        }
+        // The first chunk ends in the middle of the first emoji
+        StringBuilder joined = new StringBuilder();
+        Iterator<String> chunks = doc.textChunks(text, 3);
+        while (chunks.hasNext()) {
+            joined.append(chunks.next());
+        }
+        Assertions.assertEquals(value, joined.toString());
+    }
+
+    @Test
+    public void testUtf16MarkRanges() {
+        Document doc = new Document(TextEncoding.UTF16_CODE_UNIT);
+        ObjectId text = makeText(doc);
+        try (Transaction tx = doc.startTransaction()) {
+            tx.mark(text, 1, 3, "bold", true, ExpandMark.NONE);
+            tx.commit();
+        }
+        List<Mark> marks = doc.marks(text);
+        Assertions.assertEquals(1, marks.size());
+        Assertions.assertEquals(1, marks.get(0).getStart());
+        Assertions.assertEquals(3, marks.get(0).getEnd());
+    }
+
+    @Test
+    public void testUtf16PatchIndices() {
+        Document doc = new Document(TextEncoding.UTF16_CODE_UNIT);
+        ObjectId text = makeText(doc);
+        PatchLog patchLog = new PatchLog(true);
+        try (Transaction tx = doc.startTransaction(patchLog)) {
+            tx.spliceText(text, 3, 0, "x");
+            tx.spliceText(text, 4, 0, "y");
+            tx.commit();
+        }
+        List<Patch> patches = doc.makePatches(patchLog);
+        Assertions.assertEquals(1, patches.size());
+        PatchAction.SpliceText splice = (PatchAction.SpliceText) patches.get(0).getAction();
+        Assertions.assertEquals(3, splice.getIndex());
+        Assertions.assertEquals("xy", splice.getText());
+    }
+
+    @Test
+    public void testLoadAndForkWithEncoding() {
+        Document doc = new Document();
+        ObjectId text = makeText(doc);
+        byte[] saved = doc.save();
+
+        Document loaded = Document.load(saved, TextEncoding.UTF16_CODE_UNIT);
+        Assertions.assertEquals(TextEncoding.UTF16_CODE_UNIT, loaded.getTextEncoding());
+        Assertions.assertEquals(TEXT.length(), loaded.length(text));
+
+        Document forked = loaded.fork();
+        Assertions.assertEquals(TextEncoding.UTF16_CODE_UNIT, forked.getTextEncoding());
+        Assertions.assertEquals(TEXT.length(), forked.length(text));
+
+        Assertions.assertEquals(TextEncoding.UNICODE_CODE_POINT, Document.load(saved).getTextEncoding());
+    }
+}
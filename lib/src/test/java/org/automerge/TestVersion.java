@@ -0,0 +1,78 @@
+package org.automerge;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public final class TestVersion {
+
+    @Test
+    public void testCommitIncrementsVersion() {
+        Document doc = new Document();
+        long before = doc.version();
+        Transaction tx = doc.startTransaction();
+        tx.set(ObjectId.ROOT, "key", "value");
+        Assertions.assertEquals(before, doc.version());
+        tx.commit();
+        Assertions.assertTrue(doc.version() > before);
+    }
+
+    @Test
+    public void testReadsDoNotChangeVersion() {
+        Document doc = new Document();
+        try (Transaction tx = doc.startTransaction()) {
+            tx.set(ObjectId.ROOT, "key", "value");
+            tx.commit();
+        }
+        long version = doc.version();
+        doc.get(ObjectId.ROOT, "key");
+        doc.getHeads();
+        doc.save();
+        Assertions.assertEquals(version, doc.version());
+    }
+
+    @Test
+    public void testMergeAndApplyIncrementVersion() {
+        Document doc = new Document();
+        Document other = new Document();
+        try (Transaction tx = other.startTransaction()) {
+            tx.set(ObjectId.ROOT, "key", "value");
+            tx.commit();
+        }
+
+        long version = doc.version();
+        doc.merge(other);
+        Assertions.assertTrue(doc.version() > version);
+
+        Document applied = new Document();
+        version = applied.version();
+        applied.applyEncodedChanges(other.encodeChangesSince(new ChangeHash[0]));
+        Assertions.assertTrue(applied.version() > version);
+    }
+
+    @Test
+    public void testIsInSyncDuringTransaction() {
+        Document doc = new Document();
+        SyncState state = new SyncState();
+        Assertions.assertTrue(state.isInSync(doc));
+        try (Transaction tx = doc.startTransaction()) {
+            tx.set(ObjectId.ROOT, "key", "value");
+            Assertions.assertTrue(state.isInSync(doc));
+            tx.commit();
+        }
+        Assertions.assertFalse(state.isInSync(doc));
+    }
+
+    @Test
+    public void testIsInSyncWithConcurrentReads() {
+        Document doc = new Document();
+        doc.setConcurrentReads(true);
+        SyncState state = new SyncState();
+        Assertions.assertTrue(state.isInSync(doc));
+        try (Transaction tx = doc.startTransaction()) {
+            tx.set(ObjectId.ROOT, "key", "value");
+            tx.commit();
+        }
+        Assertions.assertEquals("value", doc.getStringOrNull(ObjectId.ROOT, "key"));
+        Assertions.assertFalse(state.isInSync(doc));
+    }
+}
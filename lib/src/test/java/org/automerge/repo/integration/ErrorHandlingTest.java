@@ -5,6 +5,8 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import org.automerge.AmValue;
+import org.automerge.NativeMemory;
 import org.automerge.ObjectId;
 import org.automerge.Transaction;
 import org.automerge.repo.DocHandle;
@@ -228,6 +230,47 @@ class ErrorHandlingTest {
         }
     }
 
+    @Test
+    void testThrowingCallbackDoesNotFreeLentDocument() throws Exception {
+        RepoConfig config = RepoConfig.builder()
+                .peerId(PeerId.fromString("test"))
+                .build();
+
+        try (Repo repo = Repo.load(config)) {
+            DocHandle handle = waitFor(repo.create(), "create document");
+            waitFor(
+                    handle.withDocument(doc -> {
+                        try (Transaction tx = doc.startTransaction()) {
+                            tx.set(ObjectId.ROOT, "key", "value");
+                            tx.commit();
+                        }
+                        return null;
+                    }),
+                    "modify document");
+
+            long live = NativeMemory.getLiveCount(NativeMemory.Kind.DOCUMENT);
+            long reclaimed = NativeMemory.getReclaimedCount(NativeMemory.Kind.DOCUMENT);
+            CompletableFuture<Void> failing = handle.withDocument(doc -> {
+                throw new RuntimeException("Intentional test exception");
+            });
+            assertThrows(ExecutionException.class, () -> failing.get(2, java.util.concurrent.TimeUnit.SECONDS));
+
+            // The Document lent to the callback is owned by the repo, collecting
+            // it must not free the repo's document or touch the accounting
+            for (int i = 0; i < 5; i++) {
+                System.gc();
+                Thread.sleep(50);
+            }
+            assertEquals(live, NativeMemory.getLiveCount(NativeMemory.Kind.DOCUMENT));
+            assertEquals(reclaimed, NativeMemory.getReclaimedCount(NativeMemory.Kind.DOCUMENT));
+
+            String value = waitFor(
+                    handle.withDocument(doc -> ((AmValue.Str) doc.get(ObjectId.ROOT, "key").get()).getValue()),
+                    "read after exception");
+            assertEquals("value", value);
+        }
+    }
+
     @Test
     void testMultipleCloseIdempotent() throws Exception {
         RepoConfig config = RepoConfig.builder()
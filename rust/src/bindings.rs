@@ -61,6 +61,14 @@ bind_java_type! {
     },
 }
 
+bind_java_type! {
+    pub TextEncoding => org.automerge.TextEncoding,
+    type_map = { TextEncoding => org.automerge.TextEncoding },
+    methods {
+        fn ordinal() -> jint,
+    },
+}
+
 // java.util.Optional — static factory bindings.
 bind_java_type! {
     pub Optional => java.util.Optional,
@@ -138,7 +146,12 @@ bind_java_type! {
 
 // AutomergeSys inner classes (the long-pointer holders). No constructors:
 // Rust creates these via alloc_object + set_rust_field (see JavaPointer).
-bind_java_type! { pub DocPointer => org.automerge.AutomergeSys::DocPointer }
+// While concurrent reads are enabled the document is kept in the `shared`
+// field rather than in `pointer`, see `shared_doc`.
+bind_java_type! {
+    pub DocPointer => org.automerge.AutomergeSys::DocPointer,
+    fields { shared: jlong },
+}
 bind_java_type! { pub TransactionPointer => org.automerge.AutomergeSys::TransactionPointer }
 bind_java_type! { pub SyncStatePointer => org.automerge.AutomergeSys::SyncStatePointer }
 bind_java_type! { pub PatchLogPointer => org.automerge.AutomergeSys::PatchLogPointer }
@@ -147,13 +160,14 @@ bind_java_type! { pub PatchLogPointer => org.automerge.AutomergeSys::PatchLogPoi
 // Document around a borrowed pointer for the duration of a
 // `DocumentActor.with_document` callback, then calls `invalidate()` to
 // drop the Java-side reference once the native side has reclaimed the
-// underlying Automerge. JNI ignores Java access modifiers, so binding to
-// the private constructor and the package-private `invalidate` method
-// works.
+// underlying Automerge. The pointer is passed with `owned` false so the
+// Document never frees it, even if `invalidate()` cannot run because the
+// callback threw. JNI ignores Java access modifiers, so binding to the
+// private constructor and the package-private `invalidate` method works.
 bind_java_type! {
     pub Document => org.automerge.Document,
     type_map = { DocPointer => org.automerge.AutomergeSys::DocPointer },
-    constructors { fn new(pointer: DocPointer) },
+    constructors { fn new(pointer: DocPointer, owned: jboolean) },
     methods { fn invalidate() -> () },
 }
 
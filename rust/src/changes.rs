@@ -0,0 +1,120 @@
+//! Natives for reading the change history of a document
+//!
+//! The history is read in two steps so that Java can stream it. First the
+//! hashes of all the changes of interest are returned as one byte array of
+//! concatenated hashes, then the changes are fetched by hash in batches. Each
+//! batch is returned as a single byte array decoded by
+//! `org.automerge.ChangeHistory`, the layout here must match that class.
+use automerge::{self as am, Automerge};
+use jni::{
+    jni_str,
+    objects::{JByteArray, JClass, JObjectArray},
+    NativeMethod,
+};
+
+use crate::{
+    bindings,
+    interop::{heads_from_jobject, throw_illegal_argument},
+    materialize::write_bytes,
+    shared_doc,
+};
+
+const HASH_LEN: usize = 32;
+
+const _METHODS: &[NativeMethod] = &[
+    ams_native! { static extern fn get_change_hashes_since(doc: bindings::DocPointer, heads: bindings::ChangeHash[]) -> jbyte[] },
+    ams_native! { static extern fn get_change_metas_by_hash(doc: bindings::DocPointer, hashes: jbyte[]) -> jbyte[] },
+    ams_native! { static extern fn get_changes_by_hash(doc: bindings::DocPointer, hashes: jbyte[]) -> jbyte[] },
+];
+
+fn get_change_hashes_since<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    doc: bindings::DocPointer<'local>,
+    heads: JObjectArray<'local, bindings::ChangeHash<'local>>,
+) -> jni::errors::Result<JByteArray<'local>> {
+    let doc = unsafe { shared_doc::read_doc(env, doc)? };
+    let heads = heads_from_jobject(env, heads)?;
+    // Only the metadata is read from the change graph, `get_changes` would
+    // rebuild and compress every change just to take its hash
+    let metas = doc.get_changes_meta(&heads);
+    let mut hashes = Vec::with_capacity(metas.len() * HASH_LEN);
+    for meta in metas {
+        hashes.extend_from_slice(meta.hash.as_ref());
+    }
+    env.byte_array_from_slice(&hashes)
+}
+
+fn get_change_metas_by_hash<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    doc: bindings::DocPointer<'local>,
+    hashes: JByteArray<'local>,
+) -> jni::errors::Result<JByteArray<'local>> {
+    let doc = unsafe { shared_doc::read_doc(env, doc)? };
+    let hashes = env.convert_byte_array(&hashes)?;
+    let encoded = encode_changes(env, &doc, &hashes, false)?;
+    env.byte_array_from_slice(&encoded)
+}
+
+fn get_changes_by_hash<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    doc: bindings::DocPointer<'local>,
+    hashes: JByteArray<'local>,
+) -> jni::errors::Result<JByteArray<'local>> {
+    let doc = unsafe { shared_doc::read_doc(env, doc)? };
+    let hashes = env.convert_byte_array(&hashes)?;
+    let encoded = encode_changes(env, &doc, &hashes, true)?;
+    env.byte_array_from_slice(&encoded)
+}
+
+/// Encode the change with each hash in `hashes`
+///
+/// Each change starts with a byte which is 0 if the document has no change
+/// with that hash, in which case nothing else is written for it.
+fn encode_changes(
+    env: &mut jni::Env<'_>,
+    doc: &Automerge,
+    hashes: &[u8],
+    with_bytes: bool,
+) -> jni::errors::Result<Vec<u8>> {
+    if hashes.len() % HASH_LEN != 0 {
+        throw_illegal_argument(env, jni_str!("invalid change hashes"))?;
+        return Err(jni::errors::Error::JavaException);
+    }
+    let mut out = Vec::new();
+    for raw in hashes.chunks(HASH_LEN) {
+        // The length was checked above so this can't fail
+        let hash = am::ChangeHash::try_from(raw).unwrap();
+        match doc.get_change_by_hash(&hash) {
+            Some(change) => {
+                out.push(1);
+                encode_change(&mut out, &change, with_bytes);
+            }
+            None => out.push(0),
+        }
+    }
+    Ok(out)
+}
+
+fn encode_change(out: &mut Vec<u8>, change: &am::Change, with_bytes: bool) {
+    write_bytes(out, change.hash().as_ref());
+    write_bytes(out, change.actor_id().to_bytes());
+    out.extend_from_slice(&(change.seq() as i64).to_be_bytes());
+    out.extend_from_slice(&change.timestamp().to_be_bytes());
+    match change.message() {
+        Some(message) => {
+            out.push(1);
+            write_bytes(out, message.as_bytes());
+        }
+        None => out.push(0),
+    }
+    out.extend_from_slice(&(change.deps().len() as i32).to_be_bytes());
+    for dep in change.deps() {
+        write_bytes(out, dep.as_ref());
+    }
+    if with_bytes {
+        write_bytes(out, change.raw_bytes().as_ref());
+    }
+}
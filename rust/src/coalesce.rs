@@ -0,0 +1,161 @@
+//! Merging of redundant patches produced by a `PatchLog` in coalescing mode
+//!
+//! A patch log which collects patches across many small transactions records
+//! every intermediate state. `coalesce` merges each patch into the one before
+//! it where the pair is equivalent to a single patch: repeated puts to the same
+//! key or index, a put followed by a delete, runs of deletes and typing into or
+//! deleting from text which was just spliced. Only adjacent patches are merged,
+//! a patch is never moved past another one, so any patch which refers to an
+//! object created by an earlier patch still comes after it.
+use automerge as am;
+
+use crate::read_methods::{encoded_len, slice_encoded};
+
+pub(crate) enum Coalesced {
+    Patch(am::Patch),
+    /// A text splice, possibly several merged into one. Splices are converted
+    /// to this form so that the text can be edited.
+    SpliceText {
+        obj: am::ObjId,
+        path: Vec<(am::ObjId, am::Prop)>,
+        index: usize,
+        text: String,
+    },
+}
+
+enum Merge {
+    /// `next` was merged into the previous patch
+    Merged,
+    /// `next` cancelled out the previous patch, both should be dropped
+    Cancelled,
+    Separate(Coalesced),
+}
+
+pub(crate) fn coalesce(encoding: am::TextEncoding, patches: Vec<am::Patch>) -> Vec<Coalesced> {
+    let mut out: Vec<Coalesced> = Vec::with_capacity(patches.len());
+    for patch in patches {
+        let next = match patch.action {
+            am::PatchAction::SpliceText { index, value, .. } => Coalesced::SpliceText {
+                obj: patch.obj,
+                path: patch.path,
+                index,
+                text: value.make_string(),
+            },
+            _ => Coalesced::Patch(patch),
+        };
+        let next = match out.last_mut() {
+            Some(prev) => match merge(encoding, prev, next) {
+                Merge::Merged => continue,
+                Merge::Cancelled => {
+                    out.pop();
+                    continue;
+                }
+                Merge::Separate(next) => next,
+            },
+            None => next,
+        };
+        out.push(next);
+    }
+    out
+}
+
+fn merge(encoding: am::TextEncoding, prev: &mut Coalesced, next: Coalesced) -> Merge {
+    let mut replace = false;
+    match (&mut *prev, &next) {
+        (
+            Coalesced::SpliceText {
+                obj, index, text, ..
+            },
+            Coalesced::SpliceText {
+                obj: next_obj,
+                index: next_index,
+                text: next_text,
+                ..
+            },
+        ) if obj == next_obj => {
+            // Splice indices are in the units of the text encoding of the
+            // document
+            let len = encoded_len(encoding, text);
+            if *next_index >= *index && *next_index <= *index + len {
+                let at = byte_offset(encoding, text, *next_index - *index);
+                text.insert_str(at, next_text);
+                return Merge::Merged;
+            }
+        }
+        (
+            Coalesced::SpliceText {
+                obj, index, text, ..
+            },
+            Coalesced::Patch(am::Patch {
+                obj: next_obj,
+                action: am::PatchAction::DeleteSeq { index: del, length },
+                ..
+            }),
+        ) if obj == next_obj => {
+            let len = encoded_len(encoding, text);
+            if *del >= *index && del + length <= *index + len {
+                let start = byte_offset(encoding, text, del - *index);
+                let end = byte_offset(encoding, text, del - *index + length);
+                text.replace_range(start..end, "");
+                return if text.is_empty() {
+                    Merge::Cancelled
+                } else {
+                    Merge::Merged
+                };
+            }
+        }
+        (Coalesced::Patch(prev_patch), Coalesced::Patch(next_patch))
+            if prev_patch.obj == next_patch.obj =>
+        {
+            match (&mut prev_patch.action, &next_patch.action) {
+                (
+                    am::PatchAction::PutMap { key, .. } | am::PatchAction::DeleteMap { key },
+                    am::PatchAction::PutMap { key: next_key, .. }
+                    | am::PatchAction::DeleteMap { key: next_key },
+                ) => replace = key == next_key,
+                (
+                    am::PatchAction::PutSeq { index, .. },
+                    am::PatchAction::PutSeq {
+                        index: next_index, ..
+                    },
+                ) => replace = index == next_index,
+                (
+                    am::PatchAction::PutSeq { index, .. },
+                    am::PatchAction::DeleteSeq { index: del, length },
+                ) => replace = *del <= *index && *index < del + length,
+                (
+                    am::PatchAction::DeleteSeq { index, length },
+                    am::PatchAction::DeleteSeq {
+                        index: del,
+                        length: del_length,
+                    },
+                ) => {
+                    // Deleting forwards from the same index or backwards from
+                    // the start of the previous delete
+                    if del == index {
+                        *length += del_length;
+                        return Merge::Merged;
+                    }
+                    if del + del_length == *index {
+                        *index = *del;
+                        *length += del_length;
+                        return Merge::Merged;
+                    }
+                }
+                _ => {}
+            }
+        }
+        _ => {}
+    }
+    if replace {
+        *prev = next;
+        Merge::Merged
+    } else {
+        Merge::Separate(next)
+    }
+}
+
+/// The byte offset in `text` of `index`, which is in the units of `encoding`
+fn byte_offset(encoding: am::TextEncoding, text: &str, index: usize) -> usize {
+    slice_encoded(encoding, text, 0, index).len()
+}
@@ -1,13 +1,21 @@
-use automerge::{ActorId, Automerge, AutomergeError, PatchLog};
+use std::collections::HashSet;
+
+use automerge::{ActorId, Automerge, AutomergeError, Change, LoadOptions, PatchLog};
 use jni::{
-    objects::{JByteArray, JClass, JObject, JObjectArray},
+    objects::{JByteArray, JByteBuffer, JClass, JObject, JObjectArray},
+    sys::jint,
     NativeMethod,
 };
 
 use crate::{
     bindings,
-    interop::{heads_from_jobject, unwrap_or_throw_amg_exc, JavaPointer},
-    patches::to_patch_arraylist,
+    coalesce::coalesce,
+    interop::{direct_buffer_slice, heads_from_jobject, unwrap_or_throw_amg_exc, JavaPointer},
+    patches::{
+        coalesced_to_patch_arraylist, encode_coalesced_patches, encode_patches, to_patch_arraylist,
+    },
+    shared_doc,
+    text_encoding,
 };
 
 const _METHODS: &[NativeMethod] = &[
@@ -15,22 +23,37 @@ const _METHODS: &[NativeMethod] = &[
     ams_native! { static extern fn create_doc_with_actor(actor_id: jbyte[]) -> bindings::DocPointer },
     ams_native! { static extern fn load_doc(bytes: jbyte[]) -> bindings::DocPointer },
     ams_native! { static extern fn free_doc(doc: bindings::DocPointer) },
+    ams_native! { static extern fn load_doc_from_buffer(buffer: JByteBuffer, offset: jint, len: jint) -> bindings::DocPointer },
+    ams_native! { static extern fn create_doc_with_encoding(actor_id: jbyte[], encoding: bindings::TextEncoding) -> bindings::DocPointer },
+    ams_native! { static extern fn load_doc_with_encoding(bytes: jbyte[], encoding: bindings::TextEncoding) -> bindings::DocPointer },
+    ams_native! { static extern fn load_doc_from_buffer_with_encoding(buffer: JByteBuffer, offset: jint, len: jint, encoding: bindings::TextEncoding) -> bindings::DocPointer },
     ams_native! { static extern fn save_doc(doc: bindings::DocPointer) -> jbyte[] },
+    ams_native! { static extern fn save_incremental(doc: bindings::DocPointer) -> jbyte[] },
+    ams_native! { static extern fn save_doc_to_native_buffer(doc: bindings::DocPointer) -> JByteBuffer },
+    ams_native! { static extern fn free_native_buffer(buffer: JByteBuffer) },
     ams_native! { static extern fn fork_doc(doc: bindings::DocPointer) -> bindings::DocPointer },
     ams_native! { static extern fn fork_doc_with_actor(doc: bindings::DocPointer, actor_bytes: jbyte[]) -> bindings::DocPointer },
     ams_native! { static extern fn fork_doc_at(doc: bindings::DocPointer, heads: bindings::ChangeHash[]) -> bindings::DocPointer },
     ams_native! { static extern fn fork_doc_at_with_actor(doc: bindings::DocPointer, heads: bindings::ChangeHash[], actor_bytes: jbyte[]) -> bindings::DocPointer },
     ams_native! { static extern fn merge_doc(doc: bindings::DocPointer, other: bindings::DocPointer) },
     ams_native! { static extern fn merge_doc_log_patches(doc: bindings::DocPointer, other: bindings::DocPointer, patch_log: bindings::PatchLogPointer) },
+    ams_native! { static extern fn merge_docs(doc: bindings::DocPointer, others: bindings::DocPointer[]) },
+    ams_native! { static extern fn merge_docs_log_patches(doc: bindings::DocPointer, others: bindings::DocPointer[], patch_log: bindings::PatchLogPointer) },
     ams_native! { static extern fn get_actor_id(doc: bindings::DocPointer) -> jbyte[] },
+    ams_native! { static extern fn get_text_encoding(doc: bindings::DocPointer) -> jint },
     ams_native! { static extern fn start_transaction(doc: bindings::DocPointer) -> bindings::TransactionPointer },
     ams_native! { static extern fn start_transaction_log_patches(doc: bindings::DocPointer, patch_log: bindings::PatchLogPointer) -> bindings::TransactionPointer },
     ams_native! { static extern fn start_transaction_at(doc: bindings::DocPointer, patch_log: bindings::PatchLogPointer, heads: bindings::ChangeHash[]) -> bindings::TransactionPointer },
     ams_native! { static extern fn encode_changes_since(doc: bindings::DocPointer, heads: bindings::ChangeHash[]) -> jbyte[] },
     ams_native! { static extern fn apply_encoded_changes(doc: bindings::DocPointer, changes: jbyte[]) },
+    ams_native! { static extern fn apply_encoded_changes_from_buffer(doc: bindings::DocPointer, buffer: JByteBuffer, offset: jint, len: jint) },
     ams_native! { static extern fn apply_encoded_changes_log_patches(doc: bindings::DocPointer, patch_log: bindings::PatchLogPointer, changes: jbyte[]) },
     ams_native! { static extern fn make_patches(doc: bindings::DocPointer, patch_log: bindings::PatchLogPointer) -> JObject },
     ams_native! { static extern fn diff(doc: bindings::DocPointer, before_heads: bindings::ChangeHash[], after_heads: bindings::ChangeHash[]) -> JObject },
+    ams_native! { static extern fn make_patches_encoded(doc: bindings::DocPointer, patch_log: bindings::PatchLogPointer) -> jbyte[] },
+    ams_native! { static extern fn make_coalesced_patches(doc: bindings::DocPointer, patch_log: bindings::PatchLogPointer) -> JObject },
+    ams_native! { static extern fn make_coalesced_patches_encoded(doc: bindings::DocPointer, patch_log: bindings::PatchLogPointer) -> jbyte[] },
+    ams_native! { static extern fn diff_encoded(doc: bindings::DocPointer, before_heads: bindings::ChangeHash[], after_heads: bindings::ChangeHash[]) -> jbyte[] },
 ];
 
 fn create_doc<'local>(
@@ -63,12 +86,78 @@ fn load_doc<'local>(
     unsafe { doc.store_as_pointer(env) }
 }
 
+fn load_doc_from_buffer<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    buffer: JByteBuffer<'local>,
+    offset: jint,
+    len: jint,
+) -> jni::errors::Result<bindings::DocPointer<'local>> {
+    let bytes = unsafe { direct_buffer_slice(env, &buffer, offset, len)? };
+    let doc = unwrap_or_throw_amg_exc::<_, AutomergeError>(env, Automerge::load(bytes))?;
+    unsafe { doc.store_as_pointer(env) }
+}
+
+/// Create a document which uses `encoding` for text indices, `actor_id` may be
+/// null in which case a random actor ID is used
+fn create_doc_with_encoding<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    actor_id: JByteArray<'local>,
+    encoding: bindings::TextEncoding<'local>,
+) -> jni::errors::Result<bindings::DocPointer<'local>> {
+    let encoding = text_encoding::from_java(env, encoding)?;
+    let mut doc = Automerge::new_with_encoding(encoding);
+    if !actor_id.is_null() {
+        let actor = env.convert_byte_array(&actor_id)?;
+        doc = doc.with_actor(actor.into());
+    }
+    unsafe { doc.store_as_pointer(env) }
+}
+
+fn load_doc_with_encoding<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    bytes: JByteArray<'local>,
+    encoding: bindings::TextEncoding<'local>,
+) -> jni::errors::Result<bindings::DocPointer<'local>> {
+    let encoding = text_encoding::from_java(env, encoding)?;
+    let bytes = env.convert_byte_array(&bytes)?;
+    let options = LoadOptions::new().text_encoding(encoding);
+    let doc = unwrap_or_throw_amg_exc::<_, AutomergeError>(
+        env,
+        Automerge::load_with_options(&bytes, options),
+    )?;
+    unsafe { doc.store_as_pointer(env) }
+}
+
+fn load_doc_from_buffer_with_encoding<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    buffer: JByteBuffer<'local>,
+    offset: jint,
+    len: jint,
+    encoding: bindings::TextEncoding<'local>,
+) -> jni::errors::Result<bindings::DocPointer<'local>> {
+    let encoding = text_encoding::from_java(env, encoding)?;
+    let bytes = unsafe { direct_buffer_slice(env, &buffer, offset, len)? };
+    let options = LoadOptions::new().text_encoding(encoding);
+    let doc = unwrap_or_throw_amg_exc::<_, AutomergeError>(
+        env,
+        Automerge::load_with_options(bytes, options),
+    )?;
+    unsafe { doc.store_as_pointer(env) }
+}
+
 fn free_doc<'local>(
     env: &mut jni::Env<'local>,
     _class: JClass<'local>,
     doc: bindings::DocPointer<'local>,
 ) -> jni::errors::Result<()> {
-    let _doc = unsafe { Automerge::take_from_pointer(env, doc)? };
+    // A document freed by the cleaner may still be shared between readers
+    if unsafe { shared_doc::take_shared(env, &doc)? }.is_none() {
+        let _doc = unsafe { Automerge::take_from_pointer(env, doc)? };
+    }
     Ok(())
 }
 
@@ -77,16 +166,56 @@ fn save_doc<'local>(
     _class: JClass<'local>,
     doc: bindings::DocPointer<'local>,
 ) -> jni::errors::Result<JByteArray<'local>> {
-    let doc = unsafe { Automerge::borrow_from_pointer(env, doc)? };
+    let doc = unsafe { shared_doc::read_doc(env, doc)? };
     env.byte_array_from_slice(&doc.save())
 }
 
+fn save_incremental<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    doc: bindings::DocPointer<'local>,
+) -> jni::errors::Result<JByteArray<'local>> {
+    let mut doc = unsafe { Automerge::borrow_from_pointer(env, doc)? };
+    env.byte_array_from_slice(&doc.save_incremental())
+}
+
+/// Save the document into memory owned by Rust and hand it to Java as a direct
+/// `ByteBuffer`. The buffer must be released with `free_native_buffer`.
+fn save_doc_to_native_buffer<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    doc: bindings::DocPointer<'local>,
+) -> jni::errors::Result<JByteBuffer<'local>> {
+    let doc = unsafe { shared_doc::read_doc(env, doc)? };
+    let saved = Box::into_raw(doc.save().into_boxed_slice());
+    match unsafe { env.new_direct_byte_buffer(saved as *mut u8, saved.len()) } {
+        Ok(buffer) => Ok(buffer),
+        Err(e) => {
+            drop(unsafe { Box::from_raw(saved) });
+            Err(e)
+        }
+    }
+}
+
+fn free_native_buffer<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    buffer: JByteBuffer<'local>,
+) -> jni::errors::Result<()> {
+    let addr = env.get_direct_buffer_address(&buffer)?;
+    let len = env.get_direct_buffer_capacity(&buffer)?;
+    // Safety: the buffer was created by `save_doc_to_native_buffer` from a boxed
+    // slice of exactly `len` bytes
+    drop(unsafe { Box::from_raw(std::ptr::slice_from_raw_parts_mut(addr, len)) });
+    Ok(())
+}
+
 fn fork_doc<'local>(
     env: &mut jni::Env<'local>,
     _class: JClass<'local>,
     doc: bindings::DocPointer<'local>,
 ) -> jni::errors::Result<bindings::DocPointer<'local>> {
-    let doc = unsafe { Automerge::borrow_from_pointer(env, doc)? };
+    let doc = unsafe { shared_doc::read_doc(env, doc)? };
     unsafe { doc.fork().store_as_pointer(env) }
 }
 
@@ -97,7 +226,7 @@ fn fork_doc_with_actor<'local>(
     actor_bytes: JByteArray<'local>,
 ) -> jni::errors::Result<bindings::DocPointer<'local>> {
     let actor = ActorId::from(env.convert_byte_array(&actor_bytes)?);
-    let doc = unsafe { Automerge::borrow_from_pointer(env, doc)? };
+    let doc = unsafe { shared_doc::read_doc(env, doc)? };
     unsafe { doc.fork().with_actor(actor).store_as_pointer(env) }
 }
 
@@ -107,7 +236,7 @@ fn fork_doc_at<'local>(
     doc: bindings::DocPointer<'local>,
     heads: JObjectArray<'local, bindings::ChangeHash<'local>>,
 ) -> jni::errors::Result<bindings::DocPointer<'local>> {
-    unsafe { do_fork_at(env, doc.into(), heads, None) }
+    unsafe { do_fork_at(env, doc, heads, None) }
 }
 
 fn fork_doc_at_with_actor<'local>(
@@ -118,17 +247,17 @@ fn fork_doc_at_with_actor<'local>(
     actor_bytes: JByteArray<'local>,
 ) -> jni::errors::Result<bindings::DocPointer<'local>> {
     let actor = ActorId::from(env.convert_byte_array(&actor_bytes)?);
-    unsafe { do_fork_at(env, doc.into(), heads, Some(actor)) }
+    unsafe { do_fork_at(env, doc, heads, Some(actor)) }
 }
 
 unsafe fn do_fork_at<'local>(
     env: &mut jni::Env<'local>,
-    doc: JObject<'local>,
+    doc: bindings::DocPointer<'local>,
     heads: JObjectArray<'local, bindings::ChangeHash<'local>>,
     new_actor: Option<ActorId>,
 ) -> Result<bindings::DocPointer<'local>, jni::errors::Error> {
     let heads = heads_from_jobject(env, heads)?;
-    let doc = Automerge::borrow_from_pointer(env, doc)?;
+    let doc = shared_doc::read_doc(env, doc)?;
     let doc = unwrap_or_throw_amg_exc::<_, AutomergeError>(env, doc.fork_at(&heads))?;
     let doc = if let Some(new_actor) = new_actor {
         doc.with_actor(new_actor)
@@ -145,8 +274,8 @@ fn merge_doc<'local>(
     other: bindings::DocPointer<'local>,
 ) -> jni::errors::Result<()> {
     let mut doc1 = unsafe { Automerge::borrow_from_pointer(env, doc)? };
-    let mut other_doc = unsafe { Automerge::borrow_from_pointer(env, other)? };
-    unwrap_or_throw_amg_exc::<_, AutomergeError>(env, doc1.merge(&mut other_doc))?;
+    let changes = changes_added_by(env, &doc1, other)?;
+    unwrap_or_throw_amg_exc::<_, AutomergeError>(env, doc1.apply_changes(changes))?;
     Ok(())
 }
 
@@ -158,15 +287,84 @@ fn merge_doc_log_patches<'local>(
     patch_log: bindings::PatchLogPointer<'local>,
 ) -> jni::errors::Result<()> {
     let mut doc1 = unsafe { Automerge::borrow_from_pointer(env, doc)? };
-    let mut other_doc = unsafe { Automerge::borrow_from_pointer(env, other)? };
+    let changes = changes_added_by(env, &doc1, other)?;
+    let mut patch_log = unsafe { PatchLog::borrow_from_pointer(env, patch_log)? };
+    unwrap_or_throw_amg_exc::<_, AutomergeError>(
+        env,
+        doc1.apply_changes_log_patches(changes, &mut patch_log),
+    )?;
+    Ok(())
+}
+
+fn merge_docs<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    doc: bindings::DocPointer<'local>,
+    others: JObjectArray<'local, bindings::DocPointer<'local>>,
+) -> jni::errors::Result<()> {
+    let mut doc = unsafe { Automerge::borrow_from_pointer(env, doc)? };
+    let changes = changes_added_by_all(env, &doc, others)?;
+    unwrap_or_throw_amg_exc::<_, AutomergeError>(env, doc.apply_changes(changes))?;
+    Ok(())
+}
+
+fn merge_docs_log_patches<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    doc: bindings::DocPointer<'local>,
+    others: JObjectArray<'local, bindings::DocPointer<'local>>,
+    patch_log: bindings::PatchLogPointer<'local>,
+) -> jni::errors::Result<()> {
+    let mut doc = unsafe { Automerge::borrow_from_pointer(env, doc)? };
+    let changes = changes_added_by_all(env, &doc, others)?;
     let mut patch_log = unsafe { PatchLog::borrow_from_pointer(env, patch_log)? };
     unwrap_or_throw_amg_exc::<_, AutomergeError>(
         env,
-        doc1.merge_and_log_patches(&mut other_doc, &mut patch_log),
+        doc.apply_changes_log_patches(changes, &mut patch_log),
     )?;
     Ok(())
 }
 
+/// The changes which are in any of `others` but not in `doc`
+///
+/// Replicas of the same document mostly share the same changes so these are
+/// deduplicated by hash, each distinct change is applied once. The Java side
+/// read locks all the other documents before calling in here and keeps them
+/// locked until the merge is done, each one is only borrowed here while its
+/// changes are collected. `apply_changes` queues any change whose dependencies
+/// have not been applied yet so the order does not matter.
+fn changes_added_by_all<'local>(
+    env: &mut jni::Env<'local>,
+    doc: &Automerge,
+    others: JObjectArray<'local, bindings::DocPointer<'local>>,
+) -> jni::errors::Result<Vec<Change>> {
+    let mut seen = HashSet::new();
+    let mut changes = Vec::new();
+    for i in 0..others.len(env)? {
+        env.with_local_frame(1, |env| -> jni::errors::Result<()> {
+            let pointer = others.get_element(env, i)?;
+            let other = unsafe { shared_doc::read_doc(env, pointer)? };
+            for change in doc.get_changes_added(&other) {
+                if seen.insert(change.hash()) {
+                    changes.push(change);
+                }
+            }
+            Ok(())
+        })?;
+    }
+    Ok(changes)
+}
+
+/// The changes which are in `other` but not in `doc`
+fn changes_added_by<'local>(
+    env: &mut jni::Env<'local>,
+    doc: &Automerge,
+    other: bindings::DocPointer<'local>,
+) -> jni::errors::Result<Vec<Change>> {
+    let other = unsafe { shared_doc::read_doc(env, other)? };
+    Ok(doc.get_changes_added(&other))
+}
+
 fn get_actor_id<'local>(
     env: &mut jni::Env<'local>,
     _class: JClass<'local>,
@@ -176,6 +374,15 @@ fn get_actor_id<'local>(
     env.byte_array_from_slice(doc.get_actor().to_bytes())
 }
 
+fn get_text_encoding<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    doc: bindings::DocPointer<'local>,
+) -> jni::errors::Result<jint> {
+    let doc = unsafe { Automerge::borrow_from_pointer(env, doc)? };
+    Ok(text_encoding::to_ordinal(doc.text_encoding()))
+}
+
 fn start_transaction<'local>(
     env: &mut jni::Env<'local>,
     _class: JClass<'local>,
@@ -218,7 +425,7 @@ fn encode_changes_since<'local>(
     doc: bindings::DocPointer<'local>,
     heads: JObjectArray<'local, bindings::ChangeHash<'local>>,
 ) -> jni::errors::Result<JByteArray<'local>> {
-    let doc = unsafe { Automerge::borrow_from_pointer(env, doc)? };
+    let doc = unsafe { shared_doc::read_doc(env, doc)? };
     let heads = heads_from_jobject(env, heads)?;
     let mut bytes = Vec::new();
     for change in doc.get_changes(&heads) {
@@ -239,6 +446,20 @@ fn apply_encoded_changes<'local>(
     Ok(())
 }
 
+fn apply_encoded_changes_from_buffer<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    doc: bindings::DocPointer<'local>,
+    buffer: JByteBuffer<'local>,
+    offset: jint,
+    len: jint,
+) -> jni::errors::Result<()> {
+    let bytes = unsafe { direct_buffer_slice(env, &buffer, offset, len)? };
+    let mut doc = unsafe { Automerge::borrow_from_pointer(env, doc)? };
+    unwrap_or_throw_amg_exc::<_, AutomergeError>(env, doc.load_incremental(bytes))?;
+    Ok(())
+}
+
 fn apply_encoded_changes_log_patches<'local>(
     env: &mut jni::Env<'local>,
     _class: JClass<'local>,
@@ -262,7 +483,7 @@ fn make_patches<'local>(
     doc: bindings::DocPointer<'local>,
     patch_log: bindings::PatchLogPointer<'local>,
 ) -> jni::errors::Result<JObject<'local>> {
-    let doc = unsafe { Automerge::borrow_from_pointer(env, doc)? };
+    let doc = unsafe { shared_doc::read_doc(env, doc)? };
     let mut patch_log = unsafe { PatchLog::borrow_from_pointer(env, patch_log)? };
     to_patch_arraylist(env, doc.make_patches(&mut patch_log))
 }
@@ -274,8 +495,62 @@ fn diff<'local>(
     before_heads: JObjectArray<'local, bindings::ChangeHash<'local>>,
     after_heads: JObjectArray<'local, bindings::ChangeHash<'local>>,
 ) -> jni::errors::Result<JObject<'local>> {
-    let doc = unsafe { Automerge::borrow_from_pointer(env, doc)? };
+    let doc = unsafe { shared_doc::read_doc(env, doc)? };
     let before = heads_from_jobject(env, before_heads)?;
     let after = heads_from_jobject(env, after_heads)?;
     to_patch_arraylist(env, doc.diff(&before, &after))
 }
+
+fn make_patches_encoded<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    doc: bindings::DocPointer<'local>,
+    patch_log: bindings::PatchLogPointer<'local>,
+) -> jni::errors::Result<JByteArray<'local>> {
+    let doc = unsafe { shared_doc::read_doc(env, doc)? };
+    let mut patch_log = unsafe { PatchLog::borrow_from_pointer(env, patch_log)? };
+    let encoded = encode_patches(doc.make_patches(&mut patch_log));
+    env.byte_array_from_slice(&encoded)
+}
+
+fn make_coalesced_patches<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    doc: bindings::DocPointer<'local>,
+    patch_log: bindings::PatchLogPointer<'local>,
+) -> jni::errors::Result<JObject<'local>> {
+    let doc = unsafe { shared_doc::read_doc(env, doc)? };
+    let mut patch_log = unsafe { PatchLog::borrow_from_pointer(env, patch_log)? };
+    coalesced_to_patch_arraylist(
+        env,
+        coalesce(doc.text_encoding(), doc.make_patches(&mut patch_log)),
+    )
+}
+
+fn make_coalesced_patches_encoded<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    doc: bindings::DocPointer<'local>,
+    patch_log: bindings::PatchLogPointer<'local>,
+) -> jni::errors::Result<JByteArray<'local>> {
+    let doc = unsafe { shared_doc::read_doc(env, doc)? };
+    let mut patch_log = unsafe { PatchLog::borrow_from_pointer(env, patch_log)? };
+    let encoded = encode_coalesced_patches(coalesce(
+        doc.text_encoding(),
+        doc.make_patches(&mut patch_log),
+    ));
+    env.byte_array_from_slice(&encoded)
+}
+
+fn diff_encoded<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    doc: bindings::DocPointer<'local>,
+    before_heads: JObjectArray<'local, bindings::ChangeHash<'local>>,
+    after_heads: JObjectArray<'local, bindings::ChangeHash<'local>>,
+) -> jni::errors::Result<JByteArray<'local>> {
+    let doc = unsafe { shared_doc::read_doc(env, doc)? };
+    let before = heads_from_jobject(env, before_heads)?;
+    let after = heads_from_jobject(env, after_heads)?;
+    env.byte_array_from_slice(&encode_patches(doc.diff(&before, &after)))
+}
@@ -4,10 +4,10 @@ use am::PatchLog;
 use automerge::{self as am, ChangeHash};
 use jni::{
     jni_str,
-    objects::{JObject, JObjectArray},
+    objects::{JByteBuffer, JObject, JObjectArray},
     refs::Reference,
     strings::{JNIStr, JNIString},
-    sys::jlong,
+    sys::{jint, jlong},
 };
 
 use crate::{bindings, AUTOMERGE_EXCEPTION};
@@ -200,3 +200,40 @@ pub(crate) fn throw_illegal_argument<'local>(
 ) -> Result<(), jni::errors::Error> {
     env.throw_new(jni_str!("java/lang/IllegalArgumentException"), msg)
 }
+
+/// Borrow `len` bytes starting at `offset` from the memory backing a direct
+/// `java.nio.ByteBuffer`, throwing an `IllegalArgumentException` if the buffer
+/// is not direct or the range is out of bounds.
+///
+/// # Safety
+///
+/// The returned slice is only valid for as long as the buffer is reachable
+/// from Java and must not be used after returning from the native method.
+pub(crate) unsafe fn direct_buffer_slice<'a>(
+    env: &mut jni::Env<'_>,
+    buffer: &JByteBuffer<'_>,
+    offset: jint,
+    len: jint,
+) -> Result<&'a [u8], jni::errors::Error> {
+    let (addr, capacity) = match (
+        env.get_direct_buffer_address(buffer),
+        env.get_direct_buffer_capacity(buffer),
+    ) {
+        (Ok(addr), Ok(capacity)) if !addr.is_null() => (addr, capacity),
+        _ => {
+            throw_illegal_argument(env, jni_str!("buffer must be a direct ByteBuffer"))?;
+            return Err(jni::errors::Error::JavaException);
+        }
+    };
+    let in_bounds = offset >= 0
+        && len >= 0
+        && (offset as usize)
+            .checked_add(len as usize)
+            .is_some_and(|end| end <= capacity);
+    if !in_bounds {
+        throw_illegal_argument(env, jni_str!("range is outside of the buffer"))?;
+        return Err(jni::errors::Error::JavaException);
+    }
+    Ok(std::slice::from_raw_parts(addr.add(offset as usize), len as usize))
+}
+
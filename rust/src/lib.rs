@@ -3,16 +3,22 @@ use jni::NativeMethod;
 mod macros;
 
 mod bindings;
+mod changes;
+mod coalesce;
 mod conflicts;
 mod cursor;
 mod document;
 mod expand_mark;
 mod interop;
 mod mark;
+mod materialize;
+mod memory;
 mod obj_type;
 mod patch_log;
 mod patches;
 mod path_element;
+mod shared_doc;
+mod text_encoding;
 mod transaction;
 
 mod obj_id;
@@ -0,0 +1,174 @@
+//! Encoding of a whole subtree of a document into a single byte array
+//!
+//! This is used by `Read.materialize` to avoid crossing the JNI boundary once
+//! per node. The encoding is decoded by `org.automerge.Materialized`, the tag
+//! constants here must match the constants in that class.
+//!
+//! The value encoding is also used for the binary patch encoding in
+//! `patches.rs`.
+use automerge::{self as am, ObjType, ReadDoc, ScalarValue};
+
+const NULL: u8 = 0;
+const STR: u8 = 1;
+const INT: u8 = 2;
+const UINT: u8 = 3;
+const F64: u8 = 4;
+const BOOL: u8 = 5;
+const BYTES: u8 = 6;
+const COUNTER: u8 = 7;
+const TIMESTAMP: u8 = 8;
+const UNKNOWN: u8 = 9;
+pub(crate) const MAP: u8 = 16;
+pub(crate) const LIST: u8 = 17;
+pub(crate) const TEXT: u8 = 18;
+
+pub(crate) struct Encoder<'a, R> {
+    read: &'a R,
+    heads: Option<&'a [am::ChangeHash]>,
+    out: Vec<u8>,
+}
+
+impl<'a, R: ReadDoc> Encoder<'a, R> {
+    pub(crate) fn new(read: &'a R, heads: Option<&'a [am::ChangeHash]>) -> Self {
+        Self {
+            read,
+            heads,
+            out: Vec::new(),
+        }
+    }
+
+    pub(crate) fn finish(self) -> Vec<u8> {
+        self.out
+    }
+
+    pub(crate) fn encode_object(
+        &mut self,
+        obj: &am::ObjId,
+        obj_type: ObjType,
+    ) -> Result<(), am::AutomergeError> {
+        // Copy the reference out of `self` so that iterating the document does
+        // not hold a borrow of the encoder
+        let read = self.read;
+        match obj_type {
+            ObjType::Map | ObjType::Table => {
+                self.out.push(MAP);
+                self.write_bytes(&obj.to_bytes());
+                let count_offset = self.reserve_count();
+                let mut count = 0;
+                let entries = match self.heads {
+                    Some(h) => read.map_range_at(obj, .., h),
+                    None => read.map_range(obj, ..),
+                };
+                for item in entries {
+                    let id = item.id();
+                    self.write_bytes(item.key.as_bytes());
+                    self.encode_value(item.value.into_value(), id)?;
+                    count += 1;
+                }
+                self.patch_count(count_offset, count);
+            }
+            ObjType::List => {
+                self.out.push(LIST);
+                self.write_bytes(&obj.to_bytes());
+                let count_offset = self.reserve_count();
+                let mut count = 0;
+                let items = match self.heads {
+                    Some(h) => read.list_range_at(obj, .., h),
+                    None => read.list_range(obj, ..),
+                };
+                for item in items {
+                    let id = item.id();
+                    self.encode_value(item.value.into_value(), id)?;
+                    count += 1;
+                }
+                self.patch_count(count_offset, count);
+            }
+            ObjType::Text => {
+                let text = match self.heads {
+                    Some(h) => read.text_at(obj, h)?,
+                    None => read.text(obj)?,
+                };
+                self.out.push(TEXT);
+                self.write_bytes(&obj.to_bytes());
+                self.write_bytes(text.as_bytes());
+            }
+        }
+        Ok(())
+    }
+
+    fn encode_value(&mut self, value: am::Value, id: am::ObjId) -> Result<(), am::AutomergeError> {
+        match value {
+            am::Value::Object(obj_type) => self.encode_object(&id, obj_type),
+            am::Value::Scalar(s) => {
+                self.encode_scalar(s.as_ref());
+                Ok(())
+            }
+        }
+    }
+
+    fn encode_scalar(&mut self, value: &ScalarValue) {
+        encode_scalar(&mut self.out, value);
+    }
+
+    fn write_bytes(&mut self, bytes: &[u8]) {
+        write_bytes(&mut self.out, bytes);
+    }
+
+    fn reserve_count(&mut self) -> usize {
+        let offset = self.out.len();
+        self.out.extend_from_slice(&[0; 4]);
+        offset
+    }
+
+    fn patch_count(&mut self, offset: usize, count: i32) {
+        self.out[offset..offset + 4].copy_from_slice(&count.to_be_bytes());
+    }
+}
+
+pub(crate) fn encode_scalar(out: &mut Vec<u8>, value: &ScalarValue) {
+    match value {
+        ScalarValue::Null => out.push(NULL),
+        ScalarValue::Str(s) => {
+            out.push(STR);
+            write_bytes(out, s.as_bytes());
+        }
+        ScalarValue::Int(i) => {
+            out.push(INT);
+            out.extend_from_slice(&i.to_be_bytes());
+        }
+        ScalarValue::Uint(u) => {
+            out.push(UINT);
+            out.extend_from_slice(&u.to_be_bytes());
+        }
+        ScalarValue::F64(f) => {
+            out.push(F64);
+            out.extend_from_slice(&f.to_bits().to_be_bytes());
+        }
+        ScalarValue::Boolean(b) => {
+            out.push(BOOL);
+            out.push(*b as u8);
+        }
+        ScalarValue::Bytes(b) => {
+            out.push(BYTES);
+            write_bytes(out, b);
+        }
+        ScalarValue::Counter(c) => {
+            out.push(COUNTER);
+            out.extend_from_slice(&i64::from(c).to_be_bytes());
+        }
+        ScalarValue::Timestamp(t) => {
+            out.push(TIMESTAMP);
+            out.extend_from_slice(&t.to_be_bytes());
+        }
+        ScalarValue::Unknown { type_code, bytes } => {
+            out.push(UNKNOWN);
+            out.push(*type_code);
+            write_bytes(out, bytes);
+        }
+    }
+}
+
+pub(crate) fn write_bytes(out: &mut Vec<u8>, bytes: &[u8]) {
+    out.extend_from_slice(&(bytes.len() as i32).to_be_bytes());
+    out.extend_from_slice(bytes);
+}
@@ -0,0 +1,65 @@
+//! Accounting for the memory allocated by the native library
+//!
+//! All allocations go through [`CountingAllocator`], which keeps a running
+//! total of the bytes currently allocated so that `NativeMemory` on the Java
+//! side can report it. Counting starts when the library is loaded and is never
+//! reset. The bookkeeping is a single relaxed atomic add or subtract per
+//! allocation, which is cheap enough to leave on all the time, so it is
+//! independent of leak tracking.
+use std::{
+    alloc::{GlobalAlloc, Layout, System},
+    sync::atomic::{AtomicUsize, Ordering},
+};
+
+use jni::{objects::JClass, sys::jlong, NativeMethod};
+
+static ALLOCATED: AtomicUsize = AtomicUsize::new(0);
+
+struct CountingAllocator;
+
+#[global_allocator]
+static GLOBAL: CountingAllocator = CountingAllocator;
+
+unsafe impl GlobalAlloc for CountingAllocator {
+    unsafe fn alloc(&self, layout: Layout) -> *mut u8 {
+        let ptr = System.alloc(layout);
+        if !ptr.is_null() {
+            ALLOCATED.fetch_add(layout.size(), Ordering::Relaxed);
+        }
+        ptr
+    }
+
+    unsafe fn alloc_zeroed(&self, layout: Layout) -> *mut u8 {
+        let ptr = System.alloc_zeroed(layout);
+        if !ptr.is_null() {
+            ALLOCATED.fetch_add(layout.size(), Ordering::Relaxed);
+        }
+        ptr
+    }
+
+    unsafe fn dealloc(&self, ptr: *mut u8, layout: Layout) {
+        System.dealloc(ptr, layout);
+        ALLOCATED.fetch_sub(layout.size(), Ordering::Relaxed);
+    }
+
+    unsafe fn realloc(&self, ptr: *mut u8, layout: Layout, new_size: usize) -> *mut u8 {
+        let new_ptr = System.realloc(ptr, layout, new_size);
+        if !new_ptr.is_null() {
+            if new_size >= layout.size() {
+                ALLOCATED.fetch_add(new_size - layout.size(), Ordering::Relaxed);
+            } else {
+                ALLOCATED.fetch_sub(layout.size() - new_size, Ordering::Relaxed);
+            }
+        }
+        new_ptr
+    }
+}
+
+const _METHODS: &[NativeMethod] = &[ams_native! { static extern fn native_allocated_bytes() -> jlong }];
+
+fn native_allocated_bytes<'local>(
+    _env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+) -> jni::errors::Result<jlong> {
+    Ok(ALLOCATED.load(Ordering::Relaxed) as jlong)
+}
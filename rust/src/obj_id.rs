@@ -1,13 +1,7 @@
-use std::{
-    collections::hash_map::DefaultHasher,
-    hash::{Hash, Hasher},
-};
-
 use jni::{
     jni_str,
     objects::{JClass, JObject, JString},
     strings::JNIString,
-    sys::{jboolean, jint},
     NativeMethod,
 };
 
@@ -69,10 +63,7 @@ impl JavaObjId {
 
 const _METHODS: &[NativeMethod] = &[
     ams_native! { static extern fn root_object_id() -> bindings::ObjectId },
-    ams_native! { static extern fn is_root_object_id(obj: bindings::ObjectId) -> jboolean },
     ams_native! { static extern fn object_id_to_string(obj: bindings::ObjectId) -> JString },
-    ams_native! { static extern fn object_id_hash(obj: bindings::ObjectId) -> jint },
-    ams_native! { static extern fn object_ids_equal(left: bindings::ObjectId, right: bindings::ObjectId) -> jboolean },
 ];
 
 fn root_object_id<'local>(
@@ -82,15 +73,6 @@ fn root_object_id<'local>(
     JavaObjId(automerge::ObjId::Root).into_object_id(env)
 }
 
-fn is_root_object_id<'local>(
-    env: &mut jni::Env<'local>,
-    _class: JClass<'local>,
-    obj: bindings::ObjectId<'local>,
-) -> jni::errors::Result<jboolean> {
-    let obj = JavaObjId::from_object_id(env, obj)?;
-    Ok(obj.as_ref() == &automerge::ROOT)
-}
-
 fn object_id_to_string<'local>(
     env: &mut jni::Env<'local>,
     _class: JClass<'local>,
@@ -99,25 +81,3 @@ fn object_id_to_string<'local>(
     let obj = JavaObjId::from_object_id(env, obj)?;
     env.new_string(obj.as_ref().to_string())
 }
-
-fn object_id_hash<'local>(
-    env: &mut jni::Env<'local>,
-    _class: JClass<'local>,
-    obj: bindings::ObjectId<'local>,
-) -> jni::errors::Result<jint> {
-    let obj = JavaObjId::from_object_id(env, obj)?;
-    let mut hasher = DefaultHasher::new();
-    obj.as_ref().hash(&mut hasher);
-    Ok(hasher.finish() as i32)
-}
-
-fn object_ids_equal<'local>(
-    env: &mut jni::Env<'local>,
-    _class: JClass<'local>,
-    left: bindings::ObjectId<'local>,
-    right: bindings::ObjectId<'local>,
-) -> jni::errors::Result<jboolean> {
-    let left = JavaObjId::from_object_id(env, left)?;
-    let right = JavaObjId::from_object_id(env, right)?;
-    Ok(left.as_ref() == right.as_ref())
-}
@@ -7,7 +7,9 @@ use crate::{
         AmValue, ArrayList, DeleteList, DeleteMap, FlagConflict, Increment, Mark, Patch,
         PatchAction, PatchActionInsert, PatchActionMark, PutList, PutMap, SpliceText,
     },
+    coalesce::Coalesced,
     mark::mark_to_java,
+    materialize::{self, write_bytes},
     obj_id::JavaObjId,
     path_element::{path_to_java, prop_to_java},
 };
@@ -92,3 +94,201 @@ pub(crate) fn to_patch_arraylist<'local>(
     }
     Ok(list.into())
 }
+
+pub(crate) fn coalesced_to_patch_arraylist<'local>(
+    env: &mut jni::Env<'local>,
+    patches: Vec<Coalesced>,
+) -> jni::errors::Result<JObject<'local>> {
+    let list = ArrayList::new(env)?;
+    for patch in patches {
+        let jpatch = match patch {
+            Coalesced::Patch(patch) => match to_jni_patch(env, patch)? {
+                Some(jpatch) => jpatch,
+                None => continue,
+            },
+            Coalesced::SpliceText {
+                obj,
+                path,
+                index,
+                text,
+            } => {
+                let jtext = env.new_string(text)?;
+                let jaction: PatchAction = SpliceText::new(env, index as i64, &jtext)?.into();
+                let jpath = path_to_java(env, path.iter())?;
+                let jid = JavaObjId::from(obj).into_object_id(env)?;
+                Patch::new(env, &jid, &jpath, &jaction)?
+            }
+        };
+        let jpatch_obj: JObject = jpatch.into();
+        list.add(env, &jpatch_obj)?;
+    }
+    Ok(list.into())
+}
+
+// Tags for the binary patch encoding, these must match the constants in
+// `org.automerge.PatchDecoder`
+const ACTION_PUT_MAP: u8 = 0;
+const ACTION_PUT_LIST: u8 = 1;
+const ACTION_INSERT: u8 = 2;
+const ACTION_SPLICE_TEXT: u8 = 3;
+const ACTION_INCREMENT: u8 = 4;
+const ACTION_DELETE_MAP: u8 = 5;
+const ACTION_DELETE_LIST: u8 = 6;
+const ACTION_MARK: u8 = 7;
+const ACTION_CONFLICT: u8 = 8;
+
+const PROP_KEY: u8 = 0;
+const PROP_INDEX: u8 = 1;
+
+/// Encode patches into a single byte array which is decoded one patch at a
+/// time by `org.automerge.PatchDecoder`
+///
+/// Consecutive patches usually share most of their path, so each path is
+/// encoded as the number of elements it has in common with the path of the
+/// previous patch followed by the elements which differ.
+pub(crate) fn encode_patches(patches: Vec<am::Patch>) -> Vec<u8> {
+    encode_coalesced_patches(patches.into_iter().map(Coalesced::Patch))
+}
+
+pub(crate) fn encode_coalesced_patches<I: IntoIterator<Item = Coalesced>>(patches: I) -> Vec<u8> {
+    let mut out = Vec::new();
+    let mut previous_path: Vec<(am::ObjId, am::Prop)> = Vec::new();
+    for patch in patches {
+        let (obj, path) = match &patch {
+            Coalesced::Patch(patch) => (&patch.obj, &patch.path),
+            Coalesced::SpliceText { obj, path, .. } => (obj, path),
+        };
+        let shared = previous_path
+            .iter()
+            .zip(path.iter())
+            .take_while(|(a, b)| a == b)
+            .count();
+        write_i32(&mut out, shared as i32);
+        write_i32(&mut out, (path.len() - shared) as i32);
+        for (id, prop) in &path[shared..] {
+            write_bytes(&mut out, &id.to_bytes());
+            write_prop(&mut out, prop);
+        }
+        write_bytes(&mut out, &obj.to_bytes());
+        previous_path = match patch {
+            Coalesced::Patch(patch) => {
+                encode_action(&mut out, patch.action);
+                patch.path
+            }
+            Coalesced::SpliceText {
+                path, index, text, ..
+            } => {
+                out.push(ACTION_SPLICE_TEXT);
+                write_i64(&mut out, index as i64);
+                write_bytes(&mut out, text.as_bytes());
+                path
+            }
+        };
+    }
+    out
+}
+
+fn encode_action(out: &mut Vec<u8>, action: am::PatchAction) {
+    match action {
+        am::PatchAction::PutMap {
+            key,
+            value,
+            conflict,
+        } => {
+            out.push(ACTION_PUT_MAP);
+            write_bytes(out, key.as_bytes());
+            encode_value(out, value);
+            out.push(conflict as u8);
+        }
+        am::PatchAction::PutSeq {
+            index,
+            value,
+            conflict,
+        } => {
+            out.push(ACTION_PUT_LIST);
+            write_i64(out, index as i64);
+            encode_value(out, value);
+            out.push(conflict as u8);
+        }
+        am::PatchAction::Insert { index, values } => {
+            out.push(ACTION_INSERT);
+            write_i64(out, index as i64);
+            write_i32(out, values.len() as i32);
+            for (value, id, _conflict) in values.into_iter() {
+                encode_value(out, (value.clone(), id.clone()));
+            }
+        }
+        am::PatchAction::SpliceText {
+            index,
+            value,
+            marks: _,
+        } => {
+            out.push(ACTION_SPLICE_TEXT);
+            write_i64(out, index as i64);
+            write_bytes(out, value.make_string().as_bytes());
+        }
+        am::PatchAction::Increment { prop, value } => {
+            out.push(ACTION_INCREMENT);
+            write_prop(out, &prop);
+            write_i64(out, value);
+        }
+        am::PatchAction::DeleteMap { key } => {
+            out.push(ACTION_DELETE_MAP);
+            write_bytes(out, key.as_bytes());
+        }
+        am::PatchAction::DeleteSeq { index, length } => {
+            out.push(ACTION_DELETE_LIST);
+            write_i64(out, index as i64);
+            write_i64(out, length as i64);
+        }
+        am::PatchAction::Mark { marks } => {
+            out.push(ACTION_MARK);
+            write_i32(out, marks.len() as i32);
+            for mark in marks.into_iter() {
+                write_i64(out, mark.start as i64);
+                write_i64(out, mark.end as i64);
+                write_bytes(out, mark.name().as_bytes());
+                materialize::encode_scalar(out, mark.value());
+            }
+        }
+        am::PatchAction::Conflict { prop } => {
+            out.push(ACTION_CONFLICT);
+            write_prop(out, &prop);
+        }
+    }
+}
+
+fn encode_value(out: &mut Vec<u8>, (value, id): (am::Value, am::ObjId)) {
+    match value {
+        am::Value::Object(obj_type) => {
+            out.push(match obj_type {
+                am::ObjType::Map | am::ObjType::Table => materialize::MAP,
+                am::ObjType::List => materialize::LIST,
+                am::ObjType::Text => materialize::TEXT,
+            });
+            write_bytes(out, &id.to_bytes());
+        }
+        am::Value::Scalar(s) => materialize::encode_scalar(out, s.as_ref()),
+    }
+}
+
+fn write_prop(out: &mut Vec<u8>, prop: &am::Prop) {
+    match prop {
+        am::Prop::Map(key) => {
+            out.push(PROP_KEY);
+            write_bytes(out, key.as_bytes());
+        }
+        am::Prop::Seq(index) => {
+            out.push(PROP_INDEX);
+            write_i64(out, *index as i64);
+        }
+    }
+}
+
+fn write_i32(out: &mut Vec<u8>, value: i32) {
+    out.extend_from_slice(&value.to_be_bytes());
+}
+
+fn write_i64(out: &mut Vec<u8>, value: i64) {
+    out.extend_from_slice(&value.to_be_bytes());
+}
@@ -1,24 +1,26 @@
-use std::ops::RangeBounds;
+use std::ops::{Bound, RangeBounds};
 use std::sync::MutexGuard;
 
 use am::ReadDoc;
 use jni::jni_str;
-use jni::objects::{JObject, JObjectArray};
+use jni::objects::{JByteArray, JLongArray, JObject, JObjectArray, JString};
 use jni::sys::{jint, jlong};
 
 use crate::am_value::{scalar_to_amvalue, to_amvalue, to_optional_amvalue};
-use crate::bindings::{ArrayList, ChangeHash, Cursor, Optional};
+use crate::bindings::{AmValue, ArrayList, ChangeHash, Cursor, Optional};
 use crate::conflicts::make_java_conflicts;
 use crate::cursor::JavaCursor;
 use crate::interop::{
-    heads_from_jobject, heads_to_jobject_array, throw_amg_exc, throw_illegal_argument,
-    unwrap_or_throw_amg_exc,
+    heads_from_jobject, heads_to_jobject_array, read_usize, throw_amg_exc,
+    throw_illegal_argument, unwrap_or_throw_amg_exc,
 };
 use crate::java_option::make_optional;
 use crate::mark::mark_to_java;
+use crate::materialize::Encoder;
 use crate::obj_id::JavaObjId;
 use crate::obj_type::JavaObjType;
 use crate::prop::JProp;
+use crate::shared_doc::{read_doc, DocRead};
 use crate::{interop::JavaPointer, read_ops::ReadOps};
 use automerge as am;
 use automerge::transaction::OwnedTransaction;
@@ -34,6 +36,11 @@ mod length;
 mod list_items;
 mod map_entries;
 mod marks;
+mod materialize;
+mod path;
+mod primitives;
+mod ranges;
+mod spans;
 mod text;
 
 pub(crate) enum SomeReadPointer<'local> {
@@ -287,6 +294,57 @@ impl<'local> SomeReadPointer<'local> {
         Ok(list)
     }
 
+    unsafe fn marks_in_range(
+        self,
+        env: &mut jni::Env<'local>,
+        obj: JObject<'local>,
+        start: jlong,
+        end: jlong,
+        heads_option: Optional<'local>,
+    ) -> Result<ArrayList<'local>, jni::errors::Error> {
+        let range = index_range(env, start, end)?;
+        let read = SomeRead::from_pointer(env, self)?;
+        let obj = JavaObjId::from_jobject(env, obj)?;
+        let heads = maybe_heads(env, heads_option)?;
+        let spans = match &heads {
+            Some(h) => read.spans_at(&obj, h),
+            None => read.spans(&obj),
+        };
+        let spans = unwrap_or_throw_amg_exc(env, spans)?;
+        let marks = marks_in_range(spans, read.text_encoding(), range);
+        let list = crate::bindings::ArrayList::new(env)?;
+        for mark in marks {
+            env.with_local_frame(4, |env| {
+                let jmark = mark_to_java(env, &mark)?;
+                let jmark_obj: JObject = jmark.into();
+                list.add(env, &jmark_obj)?;
+                Ok::<_, jni::errors::Error>(())
+            })?;
+        }
+        Ok(list)
+    }
+
+    unsafe fn spans(
+        self,
+        env: &mut jni::Env<'local>,
+        obj: JObject<'local>,
+        start: jlong,
+        end: jlong,
+        heads_option: Optional<'local>,
+    ) -> Result<JByteArray<'local>, jni::errors::Error> {
+        let range = index_range(env, start, end)?;
+        let read = SomeRead::from_pointer(env, self)?;
+        let obj = JavaObjId::from_jobject(env, obj)?;
+        let heads = maybe_heads(env, heads_option)?;
+        let spans = match &heads {
+            Some(h) => read.spans_at(&obj, h),
+            None => read.spans(&obj),
+        };
+        let spans = unwrap_or_throw_amg_exc(env, spans)?;
+        let encoded = spans::encode_spans(spans, read.text_encoding(), range);
+        env.byte_array_from_slice(&encoded)
+    }
+
     unsafe fn marks_at_index(
         self,
         env: &mut jni::Env<'local>,
@@ -354,16 +412,87 @@ impl<'local> SomeReadPointer<'local> {
         Ok(index as i64)
     }
 
+    unsafe fn make_cursors(
+        self,
+        env: &mut jni::Env<'local>,
+        obj: JObject<'local>,
+        indexes: JLongArray<'local>,
+        heads: Optional<'local>,
+    ) -> Result<JObjectArray<'local, Cursor<'local>>, jni::errors::Error> {
+        let obj = JavaObjId::from_jobject(env, obj)?;
+        let heads = maybe_heads(env, heads)?;
+        let len = indexes.len(env)?;
+        let mut raw_indexes = vec![0; len];
+        env.get_long_array_region(&indexes, 0, &mut raw_indexes)?;
+        if raw_indexes.iter().any(|i| *i < 0) {
+            throw_illegal_argument(env, jni_str!("Index must be >= 0"))?;
+            return Err(jni::errors::Error::JavaException);
+        }
+        let read = SomeRead::from_pointer(env, self)?;
+
+        let cursors = JObjectArray::<Cursor>::new(env, len, &Cursor::null())?;
+        for (i, index) in raw_indexes.into_iter().enumerate() {
+            let cursor = unwrap_or_throw_amg_exc(
+                env,
+                read.get_cursor(&obj, index as usize, heads.as_deref()),
+            )?;
+            env.with_local_frame(4, |env| {
+                let cursor = JavaCursor::from(cursor).into_cursor(env)?;
+                cursors.set_element(env, i, cursor)
+            })?;
+        }
+        Ok(cursors)
+    }
+
+    unsafe fn lookup_cursor_indices(
+        self,
+        env: &mut jni::Env<'local>,
+        obj: JObject<'local>,
+        cursors: JObjectArray<'local, Cursor<'local>>,
+        heads: Optional<'local>,
+    ) -> Result<JLongArray<'local>, jni::errors::Error> {
+        let obj = JavaObjId::from_jobject(env, obj)?;
+        let heads = maybe_heads(env, heads)?;
+        let len = cursors.len(env)?;
+        // Decode every cursor before locking the document
+        let mut decoded = Vec::with_capacity(len);
+        for i in 0..len {
+            let cursor = env.with_local_frame(4, |env| {
+                let cursor_obj = cursors.get_element(env, i)?;
+                JavaCursor::from_cursor(env, cursor_obj)
+            })?;
+            decoded.push(cursor);
+        }
+        let read = SomeRead::from_pointer(env, self)?;
+
+        let mut indexes = Vec::with_capacity(len);
+        for cursor in &decoded {
+            let index = unwrap_or_throw_amg_exc(
+                env,
+                read.get_cursor_position(&obj, cursor.as_ref(), heads.as_deref()),
+            )?;
+            indexes.push(index as i64);
+        }
+        drop(read);
+        let result = env.new_long_array(len)?;
+        env.set_long_array_region(&result, 0, &indexes)?;
+        Ok(result)
+    }
+
     unsafe fn get_object_type(
         self,
         env: &mut jni::Env<'local>,
         obj: JObject<'local>,
+        heads: Optional<'local>,
     ) -> Result<Optional<'local>, jni::errors::Error> {
         let obj = JavaObjId::from_jobject(env, obj)?;
+        let heads = maybe_heads(env, heads)?;
         let read = SomeRead::from_pointer(env, self)?;
-        let obj_type = match read.object_type(obj) {
+        let obj_type = match read.object_type_at_heads(&obj, heads.as_deref()) {
             Ok(o) => o,
-            Err(automerge::AutomergeError::InvalidObjId(_)) => {
+            Err(am::AutomergeError::InvalidObjId(_)) => return make_optional(env, None),
+            // The object did not exist yet, or no longer existed, at the heads
+            Err(am::AutomergeError::NotAnObject) if heads.is_some() => {
                 return make_optional(env, None);
             }
             Err(e) => {
@@ -374,6 +503,309 @@ impl<'local> SomeReadPointer<'local> {
         let val = JavaObjType::from(obj_type).to_java_enum(env)?;
         make_optional(env, Some(val.into()))
     }
+
+    unsafe fn materialize(
+        self,
+        env: &mut jni::Env<'local>,
+        obj: JObject<'local>,
+        heads: Optional<'local>,
+    ) -> Result<Optional<'local>, jni::errors::Error> {
+        let obj = JavaObjId::from_jobject(env, obj)?;
+        let heads = maybe_heads(env, heads)?;
+        let read = SomeRead::from_pointer(env, self)?;
+        let obj_type = match read.object_type_at_heads(&obj, heads.as_deref()) {
+            Ok(o) => o,
+            Err(am::AutomergeError::InvalidObjId(_)) | Err(am::AutomergeError::NotAnObject) => {
+                return make_optional(env, None);
+            }
+            Err(e) => {
+                throw_amg_exc(env, e)?;
+                return Err(jni::errors::Error::JavaException);
+            }
+        };
+        let mut encoder = Encoder::new(&read, heads.as_deref());
+        unwrap_or_throw_amg_exc(env, encoder.encode_object(obj.as_ref(), obj_type))?;
+        let bytes = env.byte_array_from_slice(&encoder.finish())?;
+        make_optional(env, Some(bytes.into()))
+    }
+
+    unsafe fn list_items_range(
+        self,
+        env: &mut jni::Env<'local>,
+        obj: JObject<'local>,
+        start: jlong,
+        end: jlong,
+        heads: Optional<'local>,
+    ) -> Result<Optional<'local>, jni::errors::Error> {
+        let range = index_range(env, start, end)?;
+        let obj = JavaObjId::from_jobject(env, obj)?;
+        let heads = maybe_heads(env, heads)?;
+        let read = SomeRead::from_pointer(env, self)?;
+        let items = match read.object_type(&obj) {
+            Ok(am::ObjType::List) => match heads {
+                Some(h) => read.list_range_at(obj, range, &h).collect::<Vec<_>>(),
+                None => read.list_range(obj, range).collect::<Vec<_>>(),
+            },
+            Ok(_) | Err(am::AutomergeError::NotAnObject) => return make_optional(env, None),
+            Err(e) => {
+                throw_amg_exc(env, e)?;
+                return Err(jni::errors::Error::JavaException);
+            }
+        };
+
+        let jitems = env.new_object_array(
+            items.len() as i32,
+            am_classname!("AmValue"),
+            JObject::null(),
+        )?;
+        for (idx, item) in items.into_iter().enumerate() {
+            let id = item.id();
+            let val = to_amvalue(env, (item.value.into_value(), id))?;
+            jitems.set_element(env, idx, val)?;
+        }
+        make_optional(env, Some(jitems.into()))
+    }
+
+    unsafe fn text_range(
+        self,
+        env: &mut jni::Env<'local>,
+        obj: JObject<'local>,
+        start: jlong,
+        end: jlong,
+        heads: Optional<'local>,
+    ) -> Result<Optional<'local>, jni::errors::Error> {
+        let range = index_range(env, start, end)?;
+        let obj = JavaObjId::from_jobject(env, obj)?;
+        let heads = maybe_heads(env, heads)?;
+        let read = SomeRead::from_pointer(env, self)?;
+        match read.object_type(&obj) {
+            Ok(am::ObjType::Text) => {}
+            Ok(..) | Err(am::AutomergeError::NotAnObject) => {
+                return make_optional(env, None);
+            }
+            Err(e) => {
+                throw_amg_exc(env, e)?;
+                return Err(jni::errors::Error::JavaException);
+            }
+        };
+        // The indices of a range over a text object are in the units of the text
+        // encoding of the document, so only the characters which start within
+        // the range are visited rather than the whole text
+        let mut slice = String::new();
+        let mut push = |value: am::Value<'_>| match value {
+            am::Value::Scalar(s) => {
+                if let am::ScalarValue::Str(s) = s.as_ref() {
+                    slice.push_str(s.as_str());
+                }
+            }
+            // Blocks are rendered as the object replacement character, as in
+            // `ReadDoc::text`
+            am::Value::Object(_) => slice.push('\u{fffc}'),
+        };
+        match heads {
+            Some(h) => read
+                .list_range_at(&obj, range, &h)
+                .for_each(|item| push(item.value.into_value())),
+            None => read
+                .list_range(&obj, range)
+                .for_each(|item| push(item.value.into_value())),
+        }
+        let slice = env.new_string(slice)?;
+        make_optional(env, Some(slice.into()))
+    }
+
+    unsafe fn keys_range(
+        self,
+        env: &mut jni::Env<'local>,
+        obj: JObject<'local>,
+        from_key: JString<'local>,
+        limit: jint,
+        heads: Optional<'local>,
+    ) -> Result<Optional<'local>, jni::errors::Error> {
+        let range = key_range(env, &from_key, limit)?;
+        let obj = JavaObjId::from_jobject(env, obj)?;
+        let heads = maybe_heads(env, heads)?;
+        let read = SomeRead::from_pointer(env, self)?;
+        let keys = match read.object_type(&obj) {
+            Ok(am::ObjType::Map) => match heads {
+                Some(h) => read
+                    .map_range_at(obj, range, &h)
+                    .take(limit as usize)
+                    .map(|item| item.key.to_string())
+                    .collect::<Vec<_>>(),
+                None => read
+                    .map_range(obj, range)
+                    .take(limit as usize)
+                    .map(|item| item.key.to_string())
+                    .collect::<Vec<_>>(),
+            },
+            Ok(..) | Err(am::AutomergeError::NotAnObject) => return make_optional(env, None),
+            Err(e) => {
+                throw_amg_exc(env, e)?;
+                return Err(jni::errors::Error::JavaException);
+            }
+        };
+        let keys_arr = env.new_object_array(
+            keys.len() as i32,
+            jni_str!("java/lang/String"),
+            JObject::null(),
+        )?;
+        for (index, k) in keys.into_iter().enumerate() {
+            let k = env.new_string(k)?;
+            keys_arr.set_element(env, index, k)?;
+        }
+        make_optional(env, Some(keys_arr.into()))
+    }
+
+    unsafe fn map_entries_range(
+        self,
+        env: &mut jni::Env<'local>,
+        obj: JObject<'local>,
+        from_key: JString<'local>,
+        limit: jint,
+        heads: Optional<'local>,
+    ) -> Result<Optional<'local>, jni::errors::Error> {
+        let range = key_range(env, &from_key, limit)?;
+        let obj = JavaObjId::from_jobject(env, obj)?;
+        let heads = maybe_heads(env, heads)?;
+        let read = SomeRead::from_pointer(env, self)?;
+        let entries = match read.object_type(&obj) {
+            Ok(am::ObjType::Map) => match heads {
+                Some(h) => read
+                    .map_range_at(obj, range, &h)
+                    .take(limit as usize)
+                    .collect::<Vec<_>>(),
+                None => read
+                    .map_range(obj, range)
+                    .take(limit as usize)
+                    .collect::<Vec<_>>(),
+            },
+            Ok(..) | Err(am::AutomergeError::NotAnObject) => return make_optional(env, None),
+            Err(e) => {
+                throw_amg_exc(env, e)?;
+                return Err(jni::errors::Error::JavaException);
+            }
+        };
+        let entries_arr = env.new_object_array(
+            entries.len() as i32,
+            am_classname!("MapEntry"),
+            JObject::null(),
+        )?;
+        for (i, item) in entries.into_iter().enumerate() {
+            let id = item.id();
+            let entry = crate::bindings::MapEntry::new(env)?;
+            let key_str = env.new_string(item.key)?;
+            entry.set_key(env, &key_str)?;
+            let am_val = to_amvalue(env, (item.value.into_value(), id))?;
+            entry.set_value(env, &am_val)?;
+            entries_arr.set_element(env, i, entry)?;
+        }
+        make_optional(env, Some(entries_arr.into()))
+    }
+
+    /// Look up a single value and convert it with `f` without allocating an
+    /// `AmValue`. Returns `None` if there is no value or the value is an object.
+    unsafe fn get_scalar<P: Into<JProp<'local>>, T>(
+        self,
+        env: &mut jni::Env<'local>,
+        obj: JObject<'local>,
+        key: P,
+        f: impl FnOnce(&am::ScalarValue) -> Option<T>,
+    ) -> Result<Option<T>, jni::errors::Error> {
+        let read = SomeRead::from_pointer(env, self)?;
+        let obj = JavaObjId::from_jobject(env, obj)?;
+
+        let key = key.into().try_into_prop(env)?;
+        let result = unwrap_or_throw_amg_exc(env, read.get(obj, key))?;
+
+        Ok(match result {
+            Some((am::Value::Scalar(s), _)) => f(s.as_ref()),
+            _ => None,
+        })
+    }
+
+    unsafe fn get_path(
+        self,
+        env: &mut jni::Env<'local>,
+        obj: JObject<'local>,
+        path: JByteArray<'local>,
+        heads: Optional<'local>,
+    ) -> Result<Optional<'local>, jni::errors::Error> {
+        let bytes = env.convert_byte_array(&path)?;
+        let segments = match path::decode_path(&bytes) {
+            Some(segments) if !segments.is_empty() => segments,
+            _ => {
+                throw_illegal_argument(env, jni_str!("malformed path"))?;
+                return Err(jni::errors::Error::JavaException);
+            }
+        };
+        let mut props = Vec::with_capacity(segments.len());
+        for segment in segments {
+            props.push(match segment {
+                path::Segment::Key(key) => am::Prop::Map(key),
+                path::Segment::Index(idx) => am::Prop::Seq(read_usize(env, idx)?),
+            });
+        }
+        let obj = JavaObjId::from_jobject(env, obj)?;
+        let heads = maybe_heads(env, heads)?;
+        let read = SomeRead::from_pointer(env, self)?;
+
+        // Walk every segment but the last, any missing or scalar value along the
+        // way means the path does not exist
+        let (last, parents) = props.split_last().unwrap();
+        let mut current = obj.as_ref().clone();
+        for prop in parents {
+            let next = match &heads {
+                Some(h) => read.get_at(&current, prop.clone(), h),
+                None => read.get(&current, prop.clone()),
+            };
+            match unwrap_or_throw_amg_exc(env, next)? {
+                Some((am::Value::Object(_), id)) => current = id,
+                _ => return make_optional(env, None),
+            }
+        }
+        let result = match &heads {
+            Some(h) => read.get_at(&current, last.clone(), h),
+            None => read.get(&current, last.clone()),
+        };
+        let result = unwrap_or_throw_amg_exc(env, result)?;
+        to_optional_amvalue(env, result)
+    }
+
+    unsafe fn get_many(
+        self,
+        env: &mut jni::Env<'local>,
+        obj: JObject<'local>,
+        keys: JByteArray<'local>,
+        heads: Optional<'local>,
+    ) -> Result<JObjectArray<'local, AmValue<'local>>, jni::errors::Error> {
+        let bytes = env.convert_byte_array(&keys)?;
+        let keys = match path::decode_keys(&bytes) {
+            Some(keys) => keys,
+            None => {
+                throw_illegal_argument(env, jni_str!("malformed keys"))?;
+                return Err(jni::errors::Error::JavaException);
+            }
+        };
+        let obj = JavaObjId::from_jobject(env, obj)?;
+        let heads = maybe_heads(env, heads)?;
+        let read = SomeRead::from_pointer(env, self)?;
+
+        let values = JObjectArray::<AmValue>::new(env, keys.len(), &AmValue::null())?;
+        for (i, key) in keys.into_iter().enumerate() {
+            let value = match &heads {
+                Some(h) => read.get_at(&obj, key, h),
+                None => read.get(&obj, key),
+            };
+            if let Some(value) = unwrap_or_throw_amg_exc(env, value)? {
+                env.with_local_frame(4, |env| {
+                    let value = to_amvalue(env, value)?;
+                    values.set_element(env, i, value)
+                })?;
+            }
+        }
+        Ok(values)
+    }
 }
 
 unsafe fn maybe_heads<'local>(
@@ -389,10 +821,175 @@ unsafe fn maybe_heads<'local>(
     }
 }
 
+/// A span which overlaps a range, see `clipped_spans`
+struct ClippedSpan {
+    span: am::iter::Span,
+    /// Where the whole span starts
+    span_start: usize,
+    /// Where the part of the span inside the range starts
+    start: usize,
+    /// Where the part of the span inside the range ends
+    end: usize,
+}
+
+/// The spans which overlap `range`, with the part of each inside the range
+///
+/// This walks the spans of the text from the start and stops at the end of the
+/// range, so the text after the range is never visited. An empty range
+/// overlaps no spans.
+fn clipped_spans<'a>(
+    spans: am::iter::Spans<'a>,
+    encoding: am::TextEncoding,
+    range: std::ops::Range<usize>,
+) -> impl Iterator<Item = ClippedSpan> + 'a {
+    let mut pos = 0;
+    spans
+        .map_while(move |span| {
+            if pos >= range.end {
+                return None;
+            }
+            let span_start = pos;
+            pos += match &span {
+                am::iter::Span::Text { text, .. } => encoded_len(encoding, text),
+                am::iter::Span::Block(_) => 1,
+            };
+            Some(ClippedSpan {
+                span,
+                span_start,
+                start: span_start.max(range.start),
+                end: pos.min(range.end),
+            })
+        })
+        .filter(|clipped| clipped.start < clipped.end)
+}
+
+/// The marks which overlap `range`, clipped to it
+///
+/// A mark is a run of consecutive spans which all have the same value for a
+/// mark name.
+fn marks_in_range(
+    spans: am::iter::Spans<'_>,
+    encoding: am::TextEncoding,
+    range: std::ops::Range<usize>,
+) -> Vec<am::marks::Mark> {
+    let mut result = Vec::new();
+    // The marks which cover the span before the current one and where they
+    // started
+    let mut open: Vec<(String, am::ScalarValue, usize)> = Vec::new();
+    let mut last_end = range.start;
+    for clipped in clipped_spans(spans, encoding, range) {
+        let marks = match &clipped.span {
+            am::iter::Span::Text { marks, .. } => marks.as_deref(),
+            am::iter::Span::Block(_) => None,
+        };
+
+        // Close the marks which do not continue into this span
+        let mut i = 0;
+        while i < open.len() {
+            let (name, value, _) = &open[i];
+            let continues = marks
+                .map(|m| m.iter().any(|(n, v)| n == name.as_str() && v == value))
+                .unwrap_or(false);
+            if continues {
+                i += 1;
+            } else {
+                let (name, value, mark_start) = open.remove(i);
+                result.push(am::marks::Mark::new(name, value, mark_start, clipped.start));
+            }
+        }
+        if let Some(marks) = marks {
+            for (name, value) in marks.iter() {
+                if !open.iter().any(|(n, _, _)| n.as_str() == name) {
+                    open.push((name.to_string(), value.clone(), clipped.start));
+                }
+            }
+        }
+        last_end = clipped.end;
+    }
+    for (name, value, mark_start) in open {
+        result.push(am::marks::Mark::new(name, value, mark_start, last_end));
+    }
+    result.sort_by(|a, b| (a.start, a.name()).cmp(&(b.start, b.name())));
+    result
+}
+
+/// The part of `text` from `start` to `end`, in the units of the text encoding
+/// of the document
+///
+/// A character which straddles `start` or `end` (which can only happen with a
+/// UTF-8 or UTF-16 encoding) is included if it starts within the range.
+pub(crate) fn slice_encoded(
+    encoding: am::TextEncoding,
+    text: &str,
+    start: usize,
+    end: usize,
+) -> &str {
+    let mut pos = 0;
+    let mut from = text.len();
+    let mut to = text.len();
+    for (offset, c) in text.char_indices() {
+        if pos >= end {
+            to = offset;
+            break;
+        }
+        if pos >= start && from == text.len() {
+            from = offset;
+        }
+        pos += match encoding {
+            am::TextEncoding::Utf8CodeUnit => c.len_utf8(),
+            am::TextEncoding::Utf16CodeUnit => c.len_utf16(),
+            _ => 1,
+        };
+    }
+    if from > to {
+        return "";
+    }
+    &text[from..to]
+}
+
+/// The length of `text` in the units of the text encoding of the document
+pub(crate) fn encoded_len(encoding: am::TextEncoding, text: &str) -> usize {
+    match encoding {
+        am::TextEncoding::Utf8CodeUnit => text.len(),
+        am::TextEncoding::Utf16CodeUnit => text.encode_utf16().count(),
+        _ => text.chars().count(),
+    }
+}
+
+/// Validate the `[start, end)` range passed to a ranged read
+fn index_range(
+    env: &mut jni::Env<'_>,
+    start: jlong,
+    end: jlong,
+) -> Result<std::ops::Range<usize>, jni::errors::Error> {
+    if start < 0 || end < start {
+        throw_illegal_argument(env, jni_str!("invalid range"))?;
+        return Err(jni::errors::Error::JavaException);
+    }
+    Ok(start as usize..end as usize)
+}
+
+/// The range of keys starting at `from_key`, or at the first key if it is null
+fn key_range(
+    env: &mut jni::Env<'_>,
+    from_key: &JString<'_>,
+    limit: jint,
+) -> Result<(Bound<String>, Bound<String>), jni::errors::Error> {
+    if limit < 0 {
+        throw_illegal_argument(env, jni_str!("limit must not be negative"))?;
+        return Err(jni::errors::Error::JavaException);
+    }
+    if from_key.is_null() {
+        Ok((Bound::Unbounded, Bound::Unbounded))
+    } else {
+        Ok((Bound::Included(from_key.to_string()), Bound::Unbounded))
+    }
+}
+
 // Existential type over all implementations of ReadOps
 enum SomeRead<'a> {
     Transaction(MutexGuard<'a, OwnedTransaction>),
-    Doc(MutexGuard<'a, automerge::Automerge>),
+    Doc(DocRead<'a>),
 }
 
 impl<'local> SomeRead<'local> {
@@ -418,8 +1015,27 @@ impl<'local> SomeRead<'local> {
         env: &'_ mut jni::Env<'local>,
         pointer: JObject<'local>,
     ) -> Result<SomeRead<'local>, jni::errors::Error> {
-        let am = automerge::Automerge::borrow_from_pointer(env, pointer)?;
-        Ok(SomeRead::Doc(am))
+        let doc = crate::bindings::DocPointer::cast_local(env, pointer)?;
+        Ok(SomeRead::Doc(read_doc(env, doc)?))
+    }
+
+    /// The type of `obj` as of `heads`, or as of the current state of the
+    /// document if there are no heads
+    ///
+    /// An object which had not been created yet or had already been deleted at
+    /// `heads` is reported as `NotAnObject`.
+    fn object_type_at_heads(
+        &self,
+        obj: &am::ObjId,
+        heads: Option<&[am::ChangeHash]>,
+    ) -> Result<am::ObjType, am::AutomergeError> {
+        let obj_type = self.object_type(obj)?;
+        if let Some(heads) = heads {
+            if !self.parents_at(obj, heads)?.all(|parent| parent.visible) {
+                return Err(am::AutomergeError::NotAnObject);
+            }
+        }
+        Ok(obj_type)
     }
 }
 
@@ -1,4 +1,8 @@
-use jni::{objects::JClass, sys::jlong, NativeMethod};
+use jni::{
+    objects::{JClass, JLongArray, JObjectArray},
+    sys::jlong,
+    NativeMethod,
+};
 
 use super::SomeReadPointer;
 
@@ -9,6 +13,10 @@ const _METHODS: &[NativeMethod] = &[
     ams_native! { static extern fn make_cursor_in_tx(tx: bindings::TransactionPointer, obj: bindings::ObjectId, index: jlong, heads: java.util.Optional) -> bindings::Cursor },
     ams_native! { static extern fn lookup_cursor_index_in_doc(doc: bindings::DocPointer, obj: bindings::ObjectId, cursor: bindings::Cursor, heads: java.util.Optional) -> jlong },
     ams_native! { static extern fn lookup_cursor_index_in_tx(tx: bindings::TransactionPointer, obj: bindings::ObjectId, cursor: bindings::Cursor, heads: java.util.Optional) -> jlong },
+    ams_native! { static extern fn make_cursors_in_doc(doc: bindings::DocPointer, obj: bindings::ObjectId, indexes: jlong[], heads: java.util.Optional) -> bindings::Cursor[] },
+    ams_native! { static extern fn make_cursors_in_tx(tx: bindings::TransactionPointer, obj: bindings::ObjectId, indexes: jlong[], heads: java.util.Optional) -> bindings::Cursor[] },
+    ams_native! { static extern fn lookup_cursor_indices_in_doc(doc: bindings::DocPointer, obj: bindings::ObjectId, cursors: bindings::Cursor[], heads: java.util.Optional) -> jlong[] },
+    ams_native! { static extern fn lookup_cursor_indices_in_tx(tx: bindings::TransactionPointer, obj: bindings::ObjectId, cursors: bindings::Cursor[], heads: java.util.Optional) -> jlong[] },
 ];
 
 fn make_cursor_in_doc<'local>(
@@ -58,3 +66,51 @@ fn lookup_cursor_index_in_tx<'local>(
         SomeReadPointer::tx(tx.into()).lookup_cursor_index(env, obj.into(), cursor.into(), heads)
     }
 }
+
+fn make_cursors_in_doc<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    doc: bindings::DocPointer<'local>,
+    obj: bindings::ObjectId<'local>,
+    indexes: JLongArray<'local>,
+    heads: bindings::Optional<'local>,
+) -> jni::errors::Result<JObjectArray<'local, bindings::Cursor<'local>>> {
+    unsafe { SomeReadPointer::doc(doc.into()).make_cursors(env, obj.into(), indexes, heads) }
+}
+
+fn make_cursors_in_tx<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    tx: bindings::TransactionPointer<'local>,
+    obj: bindings::ObjectId<'local>,
+    indexes: JLongArray<'local>,
+    heads: bindings::Optional<'local>,
+) -> jni::errors::Result<JObjectArray<'local, bindings::Cursor<'local>>> {
+    unsafe { SomeReadPointer::tx(tx.into()).make_cursors(env, obj.into(), indexes, heads) }
+}
+
+fn lookup_cursor_indices_in_doc<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    doc: bindings::DocPointer<'local>,
+    obj: bindings::ObjectId<'local>,
+    cursors: JObjectArray<'local, bindings::Cursor<'local>>,
+    heads: bindings::Optional<'local>,
+) -> jni::errors::Result<JLongArray<'local>> {
+    unsafe {
+        SomeReadPointer::doc(doc.into()).lookup_cursor_indices(env, obj.into(), cursors, heads)
+    }
+}
+
+fn lookup_cursor_indices_in_tx<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    tx: bindings::TransactionPointer<'local>,
+    obj: bindings::ObjectId<'local>,
+    cursors: JObjectArray<'local, bindings::Cursor<'local>>,
+    heads: bindings::Optional<'local>,
+) -> jni::errors::Result<JLongArray<'local>> {
+    unsafe {
+        SomeReadPointer::tx(tx.into()).lookup_cursor_indices(env, obj.into(), cursors, heads)
+    }
+}
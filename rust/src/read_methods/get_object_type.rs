@@ -5,8 +5,8 @@ use super::SomeReadPointer;
 use crate::bindings;
 
 const _METHODS: &[NativeMethod] = &[
-    ams_native! { static extern fn get_object_type_in_doc(doc: bindings::DocPointer, obj: bindings::ObjectId) -> bindings::Optional },
-    ams_native! { static extern fn get_object_type_in_tx(tx: bindings::TransactionPointer, obj: bindings::ObjectId) -> bindings::Optional },
+    ams_native! { static extern fn get_object_type_in_doc(doc: bindings::DocPointer, obj: bindings::ObjectId, heads: java.util.Optional) -> bindings::Optional },
+    ams_native! { static extern fn get_object_type_in_tx(tx: bindings::TransactionPointer, obj: bindings::ObjectId, heads: java.util.Optional) -> bindings::Optional },
 ];
 
 fn get_object_type_in_doc<'local>(
@@ -14,8 +14,9 @@ fn get_object_type_in_doc<'local>(
     _class: JClass<'local>,
     doc: bindings::DocPointer<'local>,
     obj: bindings::ObjectId<'local>,
+    heads: bindings::Optional<'local>,
 ) -> jni::errors::Result<bindings::Optional<'local>> {
-    unsafe { SomeReadPointer::doc(doc.into()).get_object_type(env, obj.into()) }
+    unsafe { SomeReadPointer::doc(doc.into()).get_object_type(env, obj.into(), heads) }
 }
 
 fn get_object_type_in_tx<'local>(
@@ -23,6 +24,7 @@ fn get_object_type_in_tx<'local>(
     _class: JClass<'local>,
     tx: bindings::TransactionPointer<'local>,
     obj: bindings::ObjectId<'local>,
+    heads: bindings::Optional<'local>,
 ) -> jni::errors::Result<bindings::Optional<'local>> {
-    unsafe { SomeReadPointer::tx(tx.into()).get_object_type(env, obj.into()) }
+    unsafe { SomeReadPointer::tx(tx.into()).get_object_type(env, obj.into(), heads) }
 }
@@ -0,0 +1,30 @@
+use jni::{objects::JClass, NativeMethod};
+
+use crate::bindings;
+
+use super::SomeReadPointer;
+
+const _METHODS: &[NativeMethod] = &[
+    ams_native! { static extern fn materialize_in_doc(doc: bindings::DocPointer, obj: bindings::ObjectId, heads: java.util.Optional) -> bindings::Optional },
+    ams_native! { static extern fn materialize_in_tx(tx: bindings::TransactionPointer, obj: bindings::ObjectId, heads: java.util.Optional) -> bindings::Optional },
+];
+
+fn materialize_in_doc<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    doc: bindings::DocPointer<'local>,
+    obj: bindings::ObjectId<'local>,
+    heads: bindings::Optional<'local>,
+) -> jni::errors::Result<bindings::Optional<'local>> {
+    unsafe { SomeReadPointer::doc(doc.into()).materialize(env, obj.into(), heads) }
+}
+
+fn materialize_in_tx<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    tx: bindings::TransactionPointer<'local>,
+    obj: bindings::ObjectId<'local>,
+    heads: bindings::Optional<'local>,
+) -> jni::errors::Result<bindings::Optional<'local>> {
+    unsafe { SomeReadPointer::tx(tx.into()).materialize(env, obj.into(), heads) }
+}
@@ -0,0 +1,128 @@
+//! Natives for `Read.getPath` and `Read.getMany`
+//!
+//! Paths and key lists are passed from Java as a single byte array rather than
+//! as an array of Java objects. The encoding is written by
+//! `org.automerge.ReadPath`, the constants here must match that class.
+use jni::{
+    objects::{JByteArray, JClass},
+    NativeMethod,
+};
+
+use crate::bindings;
+
+use super::SomeReadPointer;
+
+const SEGMENT_KEY: u8 = 0;
+const SEGMENT_INDEX: u8 = 1;
+
+pub(super) enum Segment {
+    Key(String),
+    Index(i64),
+}
+
+/// Decode a path, returns `None` if the encoding is malformed
+pub(super) fn decode_path(bytes: &[u8]) -> Option<Vec<Segment>> {
+    let mut reader = Reader { bytes, offset: 0 };
+    let mut segments = Vec::new();
+    while reader.offset < bytes.len() {
+        let segment = match reader.read_u8()? {
+            SEGMENT_KEY => Segment::Key(reader.read_string()?),
+            SEGMENT_INDEX => Segment::Index(reader.read_i64()?),
+            _ => return None,
+        };
+        segments.push(segment);
+    }
+    Some(segments)
+}
+
+/// Decode a list of keys, returns `None` if the encoding is malformed
+pub(super) fn decode_keys(bytes: &[u8]) -> Option<Vec<String>> {
+    let mut reader = Reader { bytes, offset: 0 };
+    let mut keys = Vec::new();
+    while reader.offset < bytes.len() {
+        keys.push(reader.read_string()?);
+    }
+    Some(keys)
+}
+
+struct Reader<'a> {
+    bytes: &'a [u8],
+    offset: usize,
+}
+
+impl<'a> Reader<'a> {
+    fn take(&mut self, len: usize) -> Option<&'a [u8]> {
+        let end = self
+            .offset
+            .checked_add(len)
+            .filter(|end| *end <= self.bytes.len())?;
+        let result = &self.bytes[self.offset..end];
+        self.offset = end;
+        Some(result)
+    }
+
+    fn read_u8(&mut self) -> Option<u8> {
+        Some(self.take(1)?[0])
+    }
+
+    fn read_i64(&mut self) -> Option<i64> {
+        Some(i64::from_be_bytes(self.take(8)?.try_into().ok()?))
+    }
+
+    fn read_string(&mut self) -> Option<String> {
+        let len = i32::from_be_bytes(self.take(4)?.try_into().ok()?);
+        let len = usize::try_from(len).ok()?;
+        String::from_utf8(self.take(len)?.to_vec()).ok()
+    }
+}
+
+const _METHODS: &[NativeMethod] = &[
+    ams_native! { static extern fn get_path_in_doc(doc: bindings::DocPointer, obj: bindings::ObjectId, path: jbyte[], heads: java.util.Optional) -> bindings::Optional },
+    ams_native! { static extern fn get_path_in_tx(tx: bindings::TransactionPointer, obj: bindings::ObjectId, path: jbyte[], heads: java.util.Optional) -> bindings::Optional },
+    ams_native! { static extern fn get_many_in_doc(doc: bindings::DocPointer, obj: bindings::ObjectId, keys: jbyte[], heads: java.util.Optional) -> bindings::AmValue[] },
+    ams_native! { static extern fn get_many_in_tx(tx: bindings::TransactionPointer, obj: bindings::ObjectId, keys: jbyte[], heads: java.util.Optional) -> bindings::AmValue[] },
+];
+
+fn get_path_in_doc<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    doc: bindings::DocPointer<'local>,
+    obj: bindings::ObjectId<'local>,
+    path: JByteArray<'local>,
+    heads: bindings::Optional<'local>,
+) -> jni::errors::Result<bindings::Optional<'local>> {
+    unsafe { SomeReadPointer::doc(doc.into()).get_path(env, obj.into(), path, heads) }
+}
+
+fn get_path_in_tx<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    tx: bindings::TransactionPointer<'local>,
+    obj: bindings::ObjectId<'local>,
+    path: JByteArray<'local>,
+    heads: bindings::Optional<'local>,
+) -> jni::errors::Result<bindings::Optional<'local>> {
+    unsafe { SomeReadPointer::tx(tx.into()).get_path(env, obj.into(), path, heads) }
+}
+
+fn get_many_in_doc<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    doc: bindings::DocPointer<'local>,
+    obj: bindings::ObjectId<'local>,
+    keys: JByteArray<'local>,
+    heads: bindings::Optional<'local>,
+) -> jni::errors::Result<jni::objects::JObjectArray<'local, bindings::AmValue<'local>>> {
+    unsafe { SomeReadPointer::doc(doc.into()).get_many(env, obj.into(), keys, heads) }
+}
+
+fn get_many_in_tx<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    tx: bindings::TransactionPointer<'local>,
+    obj: bindings::ObjectId<'local>,
+    keys: JByteArray<'local>,
+    heads: bindings::Optional<'local>,
+) -> jni::errors::Result<jni::objects::JObjectArray<'local, bindings::AmValue<'local>>> {
+    unsafe { SomeReadPointer::tx(tx.into()).get_many(env, obj.into(), keys, heads) }
+}
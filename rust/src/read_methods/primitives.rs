@@ -0,0 +1,282 @@
+//! Accessors which return a single scalar as a JNI primitive
+//!
+//! These back the `getLong`, `getDouble`, `getBoolean` and `getStringOrNull`
+//! methods on `Read`. They avoid allocating an `Optional` and an `AmValue` for
+//! every lookup. A missing value, an object or a value of a different type
+//! results in the default passed in from Java.
+use automerge::ScalarValue;
+use jni::{
+    objects::{JClass, JString},
+    sys::{jboolean, jdouble, jlong},
+    NativeMethod,
+};
+
+use crate::bindings;
+
+use super::SomeReadPointer;
+
+const _METHODS: &[NativeMethod] = &[
+    ams_native! { static extern fn get_long_in_map_in_doc(doc: bindings::DocPointer, obj: bindings::ObjectId, key: JString, default: jlong) -> jlong },
+    ams_native! { static extern fn get_long_in_map_in_tx(tx: bindings::TransactionPointer, obj: bindings::ObjectId, key: JString, default: jlong) -> jlong },
+    ams_native! { static extern fn get_long_in_list_in_doc(doc: bindings::DocPointer, obj: bindings::ObjectId, idx: jlong, default: jlong) -> jlong },
+    ams_native! { static extern fn get_long_in_list_in_tx(tx: bindings::TransactionPointer, obj: bindings::ObjectId, idx: jlong, default: jlong) -> jlong },
+    ams_native! { static extern fn get_double_in_map_in_doc(doc: bindings::DocPointer, obj: bindings::ObjectId, key: JString, default: jdouble) -> jdouble },
+    ams_native! { static extern fn get_double_in_map_in_tx(tx: bindings::TransactionPointer, obj: bindings::ObjectId, key: JString, default: jdouble) -> jdouble },
+    ams_native! { static extern fn get_double_in_list_in_doc(doc: bindings::DocPointer, obj: bindings::ObjectId, idx: jlong, default: jdouble) -> jdouble },
+    ams_native! { static extern fn get_double_in_list_in_tx(tx: bindings::TransactionPointer, obj: bindings::ObjectId, idx: jlong, default: jdouble) -> jdouble },
+    ams_native! { static extern fn get_boolean_in_map_in_doc(doc: bindings::DocPointer, obj: bindings::ObjectId, key: JString, default: jboolean) -> jboolean },
+    ams_native! { static extern fn get_boolean_in_map_in_tx(tx: bindings::TransactionPointer, obj: bindings::ObjectId, key: JString, default: jboolean) -> jboolean },
+    ams_native! { static extern fn get_boolean_in_list_in_doc(doc: bindings::DocPointer, obj: bindings::ObjectId, idx: jlong, default: jboolean) -> jboolean },
+    ams_native! { static extern fn get_boolean_in_list_in_tx(tx: bindings::TransactionPointer, obj: bindings::ObjectId, idx: jlong, default: jboolean) -> jboolean },
+    ams_native! { static extern fn get_string_in_map_in_doc(doc: bindings::DocPointer, obj: bindings::ObjectId, key: JString) -> JString },
+    ams_native! { static extern fn get_string_in_map_in_tx(tx: bindings::TransactionPointer, obj: bindings::ObjectId, key: JString) -> JString },
+    ams_native! { static extern fn get_string_in_list_in_doc(doc: bindings::DocPointer, obj: bindings::ObjectId, idx: jlong) -> JString },
+    ams_native! { static extern fn get_string_in_list_in_tx(tx: bindings::TransactionPointer, obj: bindings::ObjectId, idx: jlong) -> JString },
+];
+
+fn get_long_in_map_in_doc<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    doc: bindings::DocPointer<'local>,
+    obj: bindings::ObjectId<'local>,
+    key: JString<'local>,
+    default: jlong,
+) -> jni::errors::Result<jlong> {
+    let value =
+        unsafe { SomeReadPointer::doc(doc.into()).get_scalar(env, obj.into(), key, as_long)? };
+    Ok(value.unwrap_or(default))
+}
+
+fn get_long_in_map_in_tx<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    tx: bindings::TransactionPointer<'local>,
+    obj: bindings::ObjectId<'local>,
+    key: JString<'local>,
+    default: jlong,
+) -> jni::errors::Result<jlong> {
+    let value =
+        unsafe { SomeReadPointer::tx(tx.into()).get_scalar(env, obj.into(), key, as_long)? };
+    Ok(value.unwrap_or(default))
+}
+
+fn get_long_in_list_in_doc<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    doc: bindings::DocPointer<'local>,
+    obj: bindings::ObjectId<'local>,
+    idx: jlong,
+    default: jlong,
+) -> jni::errors::Result<jlong> {
+    let value =
+        unsafe { SomeReadPointer::doc(doc.into()).get_scalar(env, obj.into(), idx, as_long)? };
+    Ok(value.unwrap_or(default))
+}
+
+fn get_long_in_list_in_tx<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    tx: bindings::TransactionPointer<'local>,
+    obj: bindings::ObjectId<'local>,
+    idx: jlong,
+    default: jlong,
+) -> jni::errors::Result<jlong> {
+    let value =
+        unsafe { SomeReadPointer::tx(tx.into()).get_scalar(env, obj.into(), idx, as_long)? };
+    Ok(value.unwrap_or(default))
+}
+
+fn get_double_in_map_in_doc<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    doc: bindings::DocPointer<'local>,
+    obj: bindings::ObjectId<'local>,
+    key: JString<'local>,
+    default: jdouble,
+) -> jni::errors::Result<jdouble> {
+    let value =
+        unsafe { SomeReadPointer::doc(doc.into()).get_scalar(env, obj.into(), key, as_double)? };
+    Ok(value.unwrap_or(default))
+}
+
+fn get_double_in_map_in_tx<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    tx: bindings::TransactionPointer<'local>,
+    obj: bindings::ObjectId<'local>,
+    key: JString<'local>,
+    default: jdouble,
+) -> jni::errors::Result<jdouble> {
+    let value =
+        unsafe { SomeReadPointer::tx(tx.into()).get_scalar(env, obj.into(), key, as_double)? };
+    Ok(value.unwrap_or(default))
+}
+
+fn get_double_in_list_in_doc<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    doc: bindings::DocPointer<'local>,
+    obj: bindings::ObjectId<'local>,
+    idx: jlong,
+    default: jdouble,
+) -> jni::errors::Result<jdouble> {
+    let value =
+        unsafe { SomeReadPointer::doc(doc.into()).get_scalar(env, obj.into(), idx, as_double)? };
+    Ok(value.unwrap_or(default))
+}
+
+fn get_double_in_list_in_tx<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    tx: bindings::TransactionPointer<'local>,
+    obj: bindings::ObjectId<'local>,
+    idx: jlong,
+    default: jdouble,
+) -> jni::errors::Result<jdouble> {
+    let value =
+        unsafe { SomeReadPointer::tx(tx.into()).get_scalar(env, obj.into(), idx, as_double)? };
+    Ok(value.unwrap_or(default))
+}
+
+fn get_boolean_in_map_in_doc<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    doc: bindings::DocPointer<'local>,
+    obj: bindings::ObjectId<'local>,
+    key: JString<'local>,
+    default: jboolean,
+) -> jni::errors::Result<jboolean> {
+    let value =
+        unsafe { SomeReadPointer::doc(doc.into()).get_scalar(env, obj.into(), key, as_boolean)? };
+    Ok(value.unwrap_or(default))
+}
+
+fn get_boolean_in_map_in_tx<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    tx: bindings::TransactionPointer<'local>,
+    obj: bindings::ObjectId<'local>,
+    key: JString<'local>,
+    default: jboolean,
+) -> jni::errors::Result<jboolean> {
+    let value =
+        unsafe { SomeReadPointer::tx(tx.into()).get_scalar(env, obj.into(), key, as_boolean)? };
+    Ok(value.unwrap_or(default))
+}
+
+fn get_boolean_in_list_in_doc<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    doc: bindings::DocPointer<'local>,
+    obj: bindings::ObjectId<'local>,
+    idx: jlong,
+    default: jboolean,
+) -> jni::errors::Result<jboolean> {
+    let value =
+        unsafe { SomeReadPointer::doc(doc.into()).get_scalar(env, obj.into(), idx, as_boolean)? };
+    Ok(value.unwrap_or(default))
+}
+
+fn get_boolean_in_list_in_tx<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    tx: bindings::TransactionPointer<'local>,
+    obj: bindings::ObjectId<'local>,
+    idx: jlong,
+    default: jboolean,
+) -> jni::errors::Result<jboolean> {
+    let value =
+        unsafe { SomeReadPointer::tx(tx.into()).get_scalar(env, obj.into(), idx, as_boolean)? };
+    Ok(value.unwrap_or(default))
+}
+
+fn get_string_in_map_in_doc<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    doc: bindings::DocPointer<'local>,
+    obj: bindings::ObjectId<'local>,
+    key: JString<'local>,
+) -> jni::errors::Result<JString<'local>> {
+    let value =
+        unsafe { SomeReadPointer::doc(doc.into()).get_scalar(env, obj.into(), key, as_string)? };
+    match value {
+        Some(s) => env.new_string(s),
+        None => Ok(JString::null()),
+    }
+}
+
+fn get_string_in_map_in_tx<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    tx: bindings::TransactionPointer<'local>,
+    obj: bindings::ObjectId<'local>,
+    key: JString<'local>,
+) -> jni::errors::Result<JString<'local>> {
+    let value =
+        unsafe { SomeReadPointer::tx(tx.into()).get_scalar(env, obj.into(), key, as_string)? };
+    match value {
+        Some(s) => env.new_string(s),
+        None => Ok(JString::null()),
+    }
+}
+
+fn get_string_in_list_in_doc<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    doc: bindings::DocPointer<'local>,
+    obj: bindings::ObjectId<'local>,
+    idx: jlong,
+) -> jni::errors::Result<JString<'local>> {
+    let value =
+        unsafe { SomeReadPointer::doc(doc.into()).get_scalar(env, obj.into(), idx, as_string)? };
+    match value {
+        Some(s) => env.new_string(s),
+        None => Ok(JString::null()),
+    }
+}
+
+fn get_string_in_list_in_tx<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    tx: bindings::TransactionPointer<'local>,
+    obj: bindings::ObjectId<'local>,
+    idx: jlong,
+) -> jni::errors::Result<JString<'local>> {
+    let value =
+        unsafe { SomeReadPointer::tx(tx.into()).get_scalar(env, obj.into(), idx, as_string)? };
+    match value {
+        Some(s) => env.new_string(s),
+        None => Ok(JString::null()),
+    }
+}
+
+fn as_long(value: &ScalarValue) -> Option<jlong> {
+    match value {
+        ScalarValue::Int(i) => Some(*i),
+        ScalarValue::Uint(u) => Some(*u as jlong),
+        ScalarValue::Counter(c) => Some(i64::from(c)),
+        ScalarValue::Timestamp(t) => Some(*t),
+        _ => None,
+    }
+}
+
+fn as_double(value: &ScalarValue) -> Option<jdouble> {
+    match value {
+        ScalarValue::F64(f) => Some(*f),
+        _ => None,
+    }
+}
+
+fn as_boolean(value: &ScalarValue) -> Option<jboolean> {
+    match value {
+        ScalarValue::Boolean(b) => Some(*b as jboolean),
+        _ => None,
+    }
+}
+
+fn as_string(value: &ScalarValue) -> Option<String> {
+    match value {
+        ScalarValue::Str(s) => Some(s.to_string()),
+        _ => None,
+    }
+}
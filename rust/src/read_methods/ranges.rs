@@ -0,0 +1,120 @@
+use jni::{
+    objects::{JClass, JString},
+    sys::{jint, jlong},
+    NativeMethod,
+};
+
+use crate::bindings;
+
+use super::SomeReadPointer;
+
+const _METHODS: &[NativeMethod] = &[
+    ams_native! { static extern fn get_list_items_range_in_doc(doc: bindings::DocPointer, obj: bindings::ObjectId, start: jlong, end: jlong, heads: java.util.Optional) -> bindings::Optional },
+    ams_native! { static extern fn get_list_items_range_in_tx(tx: bindings::TransactionPointer, obj: bindings::ObjectId, start: jlong, end: jlong, heads: java.util.Optional) -> bindings::Optional },
+    ams_native! { static extern fn get_text_range_in_doc(doc: bindings::DocPointer, obj: bindings::ObjectId, start: jlong, end: jlong, heads: java.util.Optional) -> bindings::Optional },
+    ams_native! { static extern fn get_text_range_in_tx(tx: bindings::TransactionPointer, obj: bindings::ObjectId, start: jlong, end: jlong, heads: java.util.Optional) -> bindings::Optional },
+    ams_native! { static extern fn get_keys_range_in_doc(doc: bindings::DocPointer, obj: bindings::ObjectId, from_key: JString, limit: jint, heads: java.util.Optional) -> bindings::Optional },
+    ams_native! { static extern fn get_keys_range_in_tx(tx: bindings::TransactionPointer, obj: bindings::ObjectId, from_key: JString, limit: jint, heads: java.util.Optional) -> bindings::Optional },
+    ams_native! { static extern fn get_map_entries_range_in_doc(doc: bindings::DocPointer, obj: bindings::ObjectId, from_key: JString, limit: jint, heads: java.util.Optional) -> bindings::Optional },
+    ams_native! { static extern fn get_map_entries_range_in_tx(tx: bindings::TransactionPointer, obj: bindings::ObjectId, from_key: JString, limit: jint, heads: java.util.Optional) -> bindings::Optional },
+];
+
+fn get_list_items_range_in_doc<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    doc: bindings::DocPointer<'local>,
+    obj: bindings::ObjectId<'local>,
+    start: jlong,
+    end: jlong,
+    heads: bindings::Optional<'local>,
+) -> jni::errors::Result<bindings::Optional<'local>> {
+    unsafe { SomeReadPointer::doc(doc.into()).list_items_range(env, obj.into(), start, end, heads) }
+}
+
+fn get_list_items_range_in_tx<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    tx: bindings::TransactionPointer<'local>,
+    obj: bindings::ObjectId<'local>,
+    start: jlong,
+    end: jlong,
+    heads: bindings::Optional<'local>,
+) -> jni::errors::Result<bindings::Optional<'local>> {
+    unsafe { SomeReadPointer::tx(tx.into()).list_items_range(env, obj.into(), start, end, heads) }
+}
+
+fn get_text_range_in_doc<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    doc: bindings::DocPointer<'local>,
+    obj: bindings::ObjectId<'local>,
+    start: jlong,
+    end: jlong,
+    heads: bindings::Optional<'local>,
+) -> jni::errors::Result<bindings::Optional<'local>> {
+    unsafe { SomeReadPointer::doc(doc.into()).text_range(env, obj.into(), start, end, heads) }
+}
+
+fn get_text_range_in_tx<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    tx: bindings::TransactionPointer<'local>,
+    obj: bindings::ObjectId<'local>,
+    start: jlong,
+    end: jlong,
+    heads: bindings::Optional<'local>,
+) -> jni::errors::Result<bindings::Optional<'local>> {
+    unsafe { SomeReadPointer::tx(tx.into()).text_range(env, obj.into(), start, end, heads) }
+}
+
+fn get_keys_range_in_doc<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    doc: bindings::DocPointer<'local>,
+    obj: bindings::ObjectId<'local>,
+    from_key: JString<'local>,
+    limit: jint,
+    heads: bindings::Optional<'local>,
+) -> jni::errors::Result<bindings::Optional<'local>> {
+    unsafe { SomeReadPointer::doc(doc.into()).keys_range(env, obj.into(), from_key, limit, heads) }
+}
+
+fn get_keys_range_in_tx<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    tx: bindings::TransactionPointer<'local>,
+    obj: bindings::ObjectId<'local>,
+    from_key: JString<'local>,
+    limit: jint,
+    heads: bindings::Optional<'local>,
+) -> jni::errors::Result<bindings::Optional<'local>> {
+    unsafe { SomeReadPointer::tx(tx.into()).keys_range(env, obj.into(), from_key, limit, heads) }
+}
+
+fn get_map_entries_range_in_doc<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    doc: bindings::DocPointer<'local>,
+    obj: bindings::ObjectId<'local>,
+    from_key: JString<'local>,
+    limit: jint,
+    heads: bindings::Optional<'local>,
+) -> jni::errors::Result<bindings::Optional<'local>> {
+    unsafe {
+        SomeReadPointer::doc(doc.into()).map_entries_range(env, obj.into(), from_key, limit, heads)
+    }
+}
+
+fn get_map_entries_range_in_tx<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    tx: bindings::TransactionPointer<'local>,
+    obj: bindings::ObjectId<'local>,
+    from_key: JString<'local>,
+    limit: jint,
+    heads: bindings::Optional<'local>,
+) -> jni::errors::Result<bindings::Optional<'local>> {
+    unsafe {
+        SomeReadPointer::tx(tx.into()).map_entries_range(env, obj.into(), from_key, limit, heads)
+    }
+}
@@ -0,0 +1,116 @@
+//! Natives for reading a text object as runs of text with the same marks
+//!
+//! The spans are returned as a single byte array decoded by
+//! `org.automerge.Span`, the layout here must match that class. The distinct
+//! sets of marks come first, each span then refers to its set by index so that
+//! runs with the same marks share one set:
+//!
+//! ```text
+//! i32 number of mark sets
+//!   i32 number of marks, then for each mark its name (i32 length + utf8) and
+//!   its value in the encoding of materialize.rs
+//! for each span:
+//!   u8 kind (0 = text, 1 = block), i64 start, i64 end
+//!   text only: i32 length + utf8 text, i32 index of its mark set or -1
+//! ```
+use std::collections::HashMap;
+use std::ops::Range;
+
+use automerge as am;
+use jni::{objects::JClass, sys::jlong, NativeMethod};
+
+use crate::bindings;
+use crate::materialize::{encode_scalar, write_bytes};
+
+use super::{clipped_spans, slice_encoded, SomeReadPointer};
+
+const SPAN_TEXT: u8 = 0;
+const SPAN_BLOCK: u8 = 1;
+
+const _METHODS: &[NativeMethod] = &[
+    ams_native! { static extern fn get_spans_in_doc(doc: bindings::DocPointer, obj: bindings::ObjectId, start: jlong, end: jlong, heads: java.util.Optional) -> jbyte[] },
+    ams_native! { static extern fn get_spans_in_tx(tx: bindings::TransactionPointer, obj: bindings::ObjectId, start: jlong, end: jlong, heads: java.util.Optional) -> jbyte[] },
+];
+
+fn get_spans_in_doc<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    doc: bindings::DocPointer<'local>,
+    obj: bindings::ObjectId<'local>,
+    start: jlong,
+    end: jlong,
+    heads: bindings::Optional<'local>,
+) -> jni::errors::Result<jni::objects::JByteArray<'local>> {
+    unsafe { SomeReadPointer::doc(doc.into()).spans(env, obj.into(), start, end, heads) }
+}
+
+fn get_spans_in_tx<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    tx: bindings::TransactionPointer<'local>,
+    obj: bindings::ObjectId<'local>,
+    start: jlong,
+    end: jlong,
+    heads: bindings::Optional<'local>,
+) -> jni::errors::Result<jni::objects::JByteArray<'local>> {
+    unsafe { SomeReadPointer::tx(tx.into()).spans(env, obj.into(), start, end, heads) }
+}
+
+/// Encode the spans which overlap `range`, clipped to it
+pub(super) fn encode_spans(
+    spans: am::iter::Spans<'_>,
+    encoding: am::TextEncoding,
+    range: Range<usize>,
+) -> Vec<u8> {
+    let mut mark_sets: Vec<u8> = Vec::new();
+    let mut mark_set_count: i32 = 0;
+    let mut mark_set_indexes: HashMap<Vec<u8>, i32> = HashMap::new();
+    let mut body = Vec::new();
+
+    for clipped in clipped_spans(spans, encoding, range) {
+        let (start, end) = (clipped.start, clipped.end);
+        match clipped.span {
+            am::iter::Span::Text { text, marks } => {
+                let from = start - clipped.span_start;
+                let text = slice_encoded(encoding, &text, from, end - clipped.span_start);
+
+                let mark_set = match marks {
+                    Some(marks) if marks.iter().next().is_some() => {
+                        let mut encoded = Vec::new();
+                        let mut count: i32 = 0;
+                        for (name, value) in marks.iter() {
+                            write_bytes(&mut encoded, name.as_bytes());
+                            encode_scalar(&mut encoded, value);
+                            count += 1;
+                        }
+                        let mut set = count.to_be_bytes().to_vec();
+                        set.extend_from_slice(&encoded);
+                        *mark_set_indexes.entry(set).or_insert_with_key(|set| {
+                            mark_sets.extend_from_slice(set);
+                            mark_set_count += 1;
+                            mark_set_count - 1
+                        })
+                    }
+                    _ => -1,
+                };
+
+                body.push(SPAN_TEXT);
+                body.extend_from_slice(&(start as i64).to_be_bytes());
+                body.extend_from_slice(&(end as i64).to_be_bytes());
+                write_bytes(&mut body, text.as_bytes());
+                body.extend_from_slice(&mark_set.to_be_bytes());
+            }
+            am::iter::Span::Block(_) => {
+                body.push(SPAN_BLOCK);
+                body.extend_from_slice(&(start as i64).to_be_bytes());
+                body.extend_from_slice(&(end as i64).to_be_bytes());
+            }
+        }
+    }
+
+    let mut out = Vec::with_capacity(4 + mark_sets.len() + body.len());
+    out.extend_from_slice(&mark_set_count.to_be_bytes());
+    out.extend_from_slice(&mark_sets);
+    out.extend_from_slice(&body);
+    out
+}
@@ -6,7 +6,7 @@ use jni::{
     jni_str,
     objects::{JByteArray, JClass, JList, JObject},
     strings::JNIString,
-    sys::{jboolean, jlong},
+    sys::{jboolean, jlong, JNI_FALSE},
     NativeMethod,
 };
 use samod_core::actors::document::io::{DocumentIoResult, DocumentIoTask};
@@ -180,7 +180,7 @@ fn invoke_apply<'local>(
     fn_obj: &bindings::Function<'local>,
     doc_ptr: &bindings::DocPointer<'local>,
 ) -> jni::errors::Result<JObject<'local>> {
-    let document_obj = bindings::Document::new(env, doc_ptr)?;
+    let document_obj = bindings::Document::new(env, doc_ptr, JNI_FALSE)?;
 
     let apply_result = fn_obj.apply(env, &document_obj);
 
@@ -188,6 +188,8 @@ fn invoke_apply<'local>(
     // so any stashed handle stops working. Swallow failures here — if
     // `invalidate` itself fails (e.g. because an exception is already
     // pending from the callback) we prefer to surface the original error.
+    // The Document was created as not owned, so a stale handle can never
+    // free the pointer.
     let _ = document_obj.invalidate(env);
 
     apply_result
@@ -0,0 +1,105 @@
+//! Storage for documents which are read from many threads at once
+//!
+//! A document normally lives in the `pointer` field of its `DocPointer`, behind
+//! the `Mutex` which jni-rs puts around Rust fields, so reads of the same
+//! document run one at a time. While concurrent reads are enabled on the Java
+//! `Document` the document is moved into the `shared` field instead, behind an
+//! `RwLock`, and reads take a shared borrow of it. Anything which needs the
+//! document exclusively moves it back with `unshare_doc` first.
+//!
+//! Moving the document between the two fields is not synchronized here. The
+//! Java `Document` only shares or unshares a document while holding the write
+//! half of its read/write lock, and holds the read half (or its monitor, which
+//! also excludes unsharing) while a read uses the shared document.
+use std::ops::Deref;
+use std::sync::{MutexGuard, PoisonError, RwLock, RwLockReadGuard};
+
+use automerge::Automerge;
+use jni::{objects::JClass, sys::jlong, NativeMethod};
+
+use crate::{bindings, interop::JavaPointer};
+
+const _METHODS: &[NativeMethod] = &[
+    ams_native! { static extern fn share_doc(doc: bindings::DocPointer) },
+    ams_native! { static extern fn unshare_doc(doc: bindings::DocPointer) },
+];
+
+/// A borrow of a document for reading, from whichever field it is stored in
+pub(crate) enum DocRead<'a> {
+    Exclusive(MutexGuard<'a, Automerge>),
+    Shared(RwLockReadGuard<'a, Automerge>),
+}
+
+impl Deref for DocRead<'_> {
+    type Target = Automerge;
+
+    fn deref(&self) -> &Automerge {
+        match self {
+            DocRead::Exclusive(doc) => doc,
+            DocRead::Shared(doc) => doc,
+        }
+    }
+}
+
+/// Borrow the document behind `doc` for reading
+///
+/// # Safety
+///
+/// `doc` must have been created by `store_as_pointer` and, if the document is
+/// shared, the caller must ensure it is not unshared or freed until the borrow
+/// is dropped.
+pub(crate) unsafe fn read_doc<'local>(
+    env: &mut jni::Env<'local>,
+    doc: bindings::DocPointer<'local>,
+) -> Result<DocRead<'local>, jni::errors::Error> {
+    let shared = doc.shared(env)?;
+    if shared == 0 {
+        return Ok(DocRead::Exclusive(Automerge::borrow_from_pointer(env, doc)?));
+    }
+    // SAFETY: a non zero `shared` field was set by `share_doc` and the caller
+    // guarantees the lock it points to stays alive
+    let lock = &*(shared as *const RwLock<Automerge>);
+    Ok(DocRead::Shared(lock.read().unwrap_or_else(PoisonError::into_inner)))
+}
+
+/// Move a shared document out of the `shared` field, if it is there
+///
+/// # Safety
+///
+/// No reads may be using the shared document.
+pub(crate) unsafe fn take_shared<'local>(
+    env: &mut jni::Env<'local>,
+    doc: &bindings::DocPointer<'local>,
+) -> Result<Option<Automerge>, jni::errors::Error> {
+    let shared = doc.shared(env)?;
+    if shared == 0 {
+        return Ok(None);
+    }
+    doc.set_shared(env, 0)?;
+    let lock = *Box::from_raw(shared as *mut RwLock<Automerge>);
+    Ok(Some(lock.into_inner().unwrap_or_else(PoisonError::into_inner)))
+}
+
+fn share_doc<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    doc: bindings::DocPointer<'local>,
+) -> jni::errors::Result<()> {
+    if doc.shared(env)? != 0 {
+        return Ok(());
+    }
+    let am = unsafe { Automerge::take_from_pointer(env, &doc)? };
+    let lock = Box::into_raw(Box::new(RwLock::new(am)));
+    doc.set_shared(env, lock as jlong)
+}
+
+fn unshare_doc<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    doc: bindings::DocPointer<'local>,
+) -> jni::errors::Result<()> {
+    match unsafe { take_shared(env, &doc)? } {
+        Some(am) => unsafe { am.return_to_pointer(env, &doc) },
+        None => Ok(()),
+    }
+}
@@ -1,3 +1,5 @@
+use std::collections::HashMap;
+
 use automerge::{
     self as am,
     sync::{Message, State as AmSyncState, SyncDoc},
@@ -5,22 +7,25 @@ use automerge::{
 };
 use jni::{
     objects::{JByteArray, JClass, JObjectArray},
+    sys::jboolean,
     NativeMethod,
 };
 
 use crate::interop::{heads_to_jobject_array, unwrap_or_throw_amg_exc, JavaPointer};
 
-use crate::bindings;
+use crate::{bindings, shared_doc};
 
 const _METHODS: &[NativeMethod] = &[
     ams_native! { static extern fn create_sync_state() -> bindings::SyncStatePointer },
     ams_native! { static extern fn generate_sync_message(state: bindings::SyncStatePointer, doc: bindings::DocPointer) -> bindings::Optional },
+    ams_native! { static extern fn generate_sync_messages(states: bindings::SyncStatePointer[], doc: bindings::DocPointer) -> bindings::Optional[] },
     ams_native! { static extern fn receive_sync_message(state: bindings::SyncStatePointer, doc: bindings::DocPointer, message: jbyte[]) },
     ams_native! { static extern fn receive_sync_message_log_patches(state: bindings::SyncStatePointer, doc: bindings::DocPointer, patch_log: bindings::PatchLogPointer, message: jbyte[]) },
     ams_native! { static extern fn encode_sync_state(state: bindings::SyncStatePointer) -> jbyte[] },
     ams_native! { static extern fn decode_sync_state(bytes: jbyte[]) -> bindings::SyncStatePointer },
     ams_native! { static extern fn free_sync_state(state: bindings::SyncStatePointer) },
     ams_native! { static extern fn sync_state_shared_heads(state: bindings::SyncStatePointer) -> bindings::ChangeHash[] },
+    ams_native! { static extern fn sync_state_is_in_sync(state: bindings::SyncStatePointer, doc: bindings::DocPointer) -> jboolean },
 ];
 
 fn create_sync_state<'local>(
@@ -37,7 +42,7 @@ fn generate_sync_message<'local>(
     doc: bindings::DocPointer<'local>,
 ) -> jni::errors::Result<bindings::Optional<'local>> {
     let mut state = unsafe { AmSyncState::borrow_from_pointer(env, state)? };
-    let doc = unsafe { Automerge::borrow_from_pointer(env, doc)? };
+    let doc = unsafe { shared_doc::read_doc(env, doc)? };
     match doc.generate_sync_message(&mut state) {
         None => bindings::Optional::empty(env),
         Some(m) => {
@@ -47,6 +52,67 @@ fn generate_sync_message<'local>(
     }
 }
 
+/// A sync state before and after generating a message and the message which
+/// was generated
+struct Generated {
+    before: AmSyncState,
+    after: AmSyncState,
+    message: Option<Vec<u8>>,
+}
+
+fn generate_sync_messages<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    states: JObjectArray<'local, bindings::SyncStatePointer<'local>>,
+    doc: bindings::DocPointer<'local>,
+) -> jni::errors::Result<JObjectArray<'local, bindings::Optional<'local>>> {
+    let doc = unsafe { shared_doc::read_doc(env, doc)? };
+    let len = states.len(env)?;
+    let messages = JObjectArray::<bindings::Optional>::new(env, len, &bindings::Optional::null())?;
+
+    // Generating a message is a deterministic function of the document and the
+    // sync state, so peers whose states are equal get the same message and end
+    // up in the same state. Each distinct state is only computed once, the
+    // states are bucketed by their shared heads to make finding equal states
+    // cheap.
+    let mut generated: HashMap<Vec<am::ChangeHash>, Vec<Generated>> = HashMap::new();
+    for i in 0..len {
+        // Each iteration makes a few local references, free them as we go so
+        // that many peers don't fill up the local reference table
+        env.with_local_frame(4, |env| {
+            let pointer = states.get_element(env, i)?;
+            let mut state = unsafe { AmSyncState::borrow_from_pointer(env, pointer)? };
+            let bucket = generated.entry(state.shared_heads.clone()).or_default();
+            let message = match bucket.iter().find(|g| g.before == *state) {
+                Some(g) => {
+                    *state = g.after.clone();
+                    g.message.clone()
+                }
+                None => {
+                    let before = state.clone();
+                    let message = doc.generate_sync_message(&mut state).map(|m| m.encode());
+                    bucket.push(Generated {
+                        before,
+                        after: state.clone(),
+                        message: message.clone(),
+                    });
+                    message
+                }
+            };
+            drop(state);
+            let optional = match message {
+                None => bindings::Optional::empty(env)?,
+                Some(m) => {
+                    let bytes = env.byte_array_from_slice(m.as_slice())?;
+                    bindings::Optional::of(env, &bytes)?
+                }
+            };
+            messages.set_element(env, i, optional)
+        })?;
+    }
+    Ok(messages)
+}
+
 fn receive_sync_message<'local>(
     env: &mut jni::Env<'local>,
     _class: JClass<'local>,
@@ -116,3 +182,19 @@ fn sync_state_shared_heads<'local>(
     let state = unsafe { AmSyncState::borrow_from_pointer(env, state)? };
     heads_to_jobject_array(env, &state.shared_heads)
 }
+
+fn sync_state_is_in_sync<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    state: bindings::SyncStatePointer<'local>,
+    doc: bindings::DocPointer<'local>,
+) -> jni::errors::Result<jboolean> {
+    let state = unsafe { AmSyncState::borrow_from_pointer(env, state)? };
+    let doc = unsafe { shared_doc::read_doc(env, doc)? };
+    // Heads are compared as sets. There are rarely more than a handful of heads
+    // so a quadratic comparison is cheaper than building sets.
+    let heads = doc.get_heads();
+    let shared = &state.shared_heads;
+    let in_sync = heads.len() == shared.len() && heads.iter().all(|h| shared.contains(h));
+    Ok(in_sync as jboolean)
+}
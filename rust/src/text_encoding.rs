@@ -0,0 +1,31 @@
+use automerge::TextEncoding;
+use jni::jni_str;
+
+use crate::{bindings, interop::throw_illegal_argument};
+
+// Ordinal positions of variants in the `org.automerge.TextEncoding` enum.
+const UNICODE_CODE_POINT_ORDINAL: i32 = 0;
+const UTF16_CODE_UNIT_ORDINAL: i32 = 1;
+
+pub(crate) fn from_java<'a>(
+    env: &mut jni::Env<'a>,
+    enum_obj: bindings::TextEncoding<'a>,
+) -> Result<TextEncoding, jni::errors::Error> {
+    match enum_obj.ordinal(env)? {
+        UNICODE_CODE_POINT_ORDINAL => Ok(TextEncoding::UnicodeCodePoint),
+        UTF16_CODE_UNIT_ORDINAL => Ok(TextEncoding::Utf16CodeUnit),
+        _ => env.with_local_frame(1, |env| {
+            throw_illegal_argument(env, jni_str!("invalid ordinal"))?;
+
+            Err(jni::errors::Error::JavaException)
+        }),
+    }
+}
+
+/// The ordinal of the `org.automerge.TextEncoding` variant for `encoding`
+pub(crate) fn to_ordinal(encoding: TextEncoding) -> i32 {
+    match encoding {
+        TextEncoding::Utf16CodeUnit => UTF16_CODE_UNIT_ORDINAL,
+        _ => UNICODE_CODE_POINT_ORDINAL,
+    }
+}
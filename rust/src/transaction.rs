@@ -7,13 +7,16 @@ use jni::{
 
 use crate::interop::{changehash_to_jobject, JavaPointer};
 
+mod batch;
 mod delete;
 mod increment;
 mod insert;
 mod mark;
+mod reconcile;
 mod set;
 mod splice;
 mod splice_text;
+mod update_text;
 
 trait TransactionOp {
     type Output<'a>;
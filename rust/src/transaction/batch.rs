@@ -0,0 +1,421 @@
+use automerge::{self as am, marks::ExpandMark, transaction::Transactable, ObjType, ScalarValue};
+use jni::{
+    objects::{JByteArray, JClass, JObjectArray},
+    strings::JNIString,
+    NativeMethod,
+};
+
+use crate::{
+    bindings,
+    interop::{read_usize, throw_amg_exc, throw_illegal_argument, unwrap_or_throw_amg_exc},
+    obj_id::JavaObjId,
+};
+
+use super::{do_tx_op, TransactionOp};
+
+// Opcodes, these must match the constants in `org.automerge.MutationBatch`
+const OP_PUT: u8 = 0;
+const OP_PUT_OBJECT: u8 = 1;
+const OP_INSERT: u8 = 2;
+const OP_INSERT_OBJECT: u8 = 3;
+const OP_INCREMENT: u8 = 4;
+const OP_DELETE: u8 = 5;
+const OP_SPLICE_TEXT: u8 = 6;
+const OP_MARK: u8 = 7;
+
+const PROP_KEY: u8 = 0;
+const PROP_INDEX: u8 = 1;
+
+const VALUE_NULL: u8 = 0;
+const VALUE_STR: u8 = 1;
+const VALUE_INT: u8 = 2;
+const VALUE_UINT: u8 = 3;
+const VALUE_F64: u8 = 4;
+const VALUE_BOOL: u8 = 5;
+const VALUE_BYTES: u8 = 6;
+const VALUE_COUNTER: u8 = 7;
+const VALUE_TIMESTAMP: u8 = 8;
+
+/// The object an operation applies to. Existing objects are passed from Java
+/// in a separate array, objects created by the batch are referred to by the
+/// order in which they were created.
+#[derive(Clone, Copy)]
+enum Target {
+    Existing(usize),
+    Created(usize),
+}
+
+enum BatchOp {
+    Put {
+        obj: Target,
+        prop: am::Prop,
+        value: ScalarValue,
+    },
+    PutObject {
+        obj: Target,
+        prop: am::Prop,
+        obj_type: ObjType,
+    },
+    Insert {
+        obj: Target,
+        index: usize,
+        value: ScalarValue,
+    },
+    InsertObject {
+        obj: Target,
+        index: usize,
+        obj_type: ObjType,
+    },
+    Increment {
+        obj: Target,
+        prop: am::Prop,
+        by: i64,
+    },
+    Delete {
+        obj: Target,
+        prop: am::Prop,
+    },
+    SpliceText {
+        obj: Target,
+        index: usize,
+        delete: isize,
+        text: String,
+    },
+    Mark {
+        obj: Target,
+        mark: am::marks::Mark,
+        expand: ExpandMark,
+    },
+}
+
+pub(super) enum DecodeError {
+    Malformed(String),
+    /// A Java exception has already been thrown
+    Java(jni::errors::Error),
+}
+
+impl From<jni::errors::Error> for DecodeError {
+    fn from(e: jni::errors::Error) -> Self {
+        DecodeError::Java(e)
+    }
+}
+
+pub(super) struct BatchReader<'a> {
+    bytes: &'a [u8],
+    offset: usize,
+}
+
+impl<'a> BatchReader<'a> {
+    pub(super) fn new(bytes: &'a [u8]) -> Self {
+        Self { bytes, offset: 0 }
+    }
+
+    pub(super) fn is_empty(&self) -> bool {
+        self.offset >= self.bytes.len()
+    }
+
+    fn take(&mut self, len: usize) -> Result<&'a [u8], DecodeError> {
+        let end = self
+            .offset
+            .checked_add(len)
+            .filter(|end| *end <= self.bytes.len())
+            .ok_or_else(|| DecodeError::Malformed("unexpected end of batch".to_string()))?;
+        let result = &self.bytes[self.offset..end];
+        self.offset = end;
+        Ok(result)
+    }
+
+    pub(super) fn read_u8(&mut self) -> Result<u8, DecodeError> {
+        Ok(self.take(1)?[0])
+    }
+
+    pub(super) fn read_i32(&mut self) -> Result<i32, DecodeError> {
+        let bytes = self.take(4)?;
+        Ok(i32::from_be_bytes(bytes.try_into().unwrap()))
+    }
+
+    fn read_i64(&mut self) -> Result<i64, DecodeError> {
+        let bytes = self.take(8)?;
+        Ok(i64::from_be_bytes(bytes.try_into().unwrap()))
+    }
+
+    fn read_bytes(&mut self) -> Result<&'a [u8], DecodeError> {
+        let len = self.read_i32()?;
+        let len = usize::try_from(len)
+            .map_err(|_| DecodeError::Malformed(format!("invalid length: {}", len)))?;
+        self.take(len)
+    }
+
+    pub(super) fn read_string(&mut self) -> Result<String, DecodeError> {
+        let bytes = self.read_bytes()?;
+        String::from_utf8(bytes.to_vec())
+            .map_err(|e| DecodeError::Malformed(format!("invalid string: {}", e)))
+    }
+
+    fn read_target(&mut self) -> Result<Target, DecodeError> {
+        let raw = self.read_i32()?;
+        if raw >= 0 {
+            Ok(Target::Existing(raw as usize))
+        } else {
+            Ok(Target::Created((-(raw as i64) - 1) as usize))
+        }
+    }
+
+    fn read_index(&mut self, env: &jni::Env<'_>) -> Result<usize, DecodeError> {
+        let idx = self.read_i64()?;
+        Ok(read_usize(env, idx)?)
+    }
+
+    fn read_prop(&mut self, env: &jni::Env<'_>) -> Result<am::Prop, DecodeError> {
+        match self.read_u8()? {
+            PROP_KEY => Ok(am::Prop::Map(self.read_string()?)),
+            PROP_INDEX => Ok(am::Prop::Seq(self.read_index(env)?)),
+            other => Err(DecodeError::Malformed(format!("unknown prop tag: {}", other))),
+        }
+    }
+
+    pub(super) fn read_value(&mut self) -> Result<ScalarValue, DecodeError> {
+        let tag = self.read_u8()?;
+        self.read_value_with_tag(tag)
+    }
+
+    /// Read a value whose tag has already been read
+    pub(super) fn read_value_with_tag(&mut self, tag: u8) -> Result<ScalarValue, DecodeError> {
+        match tag {
+            VALUE_NULL => Ok(ScalarValue::Null),
+            VALUE_STR => Ok(ScalarValue::Str(self.read_string()?.into())),
+            VALUE_INT => Ok(ScalarValue::Int(self.read_i64()?)),
+            VALUE_UINT => Ok(ScalarValue::Uint(self.read_i64()? as u64)),
+            VALUE_F64 => Ok(ScalarValue::F64(f64::from_bits(self.read_i64()? as u64))),
+            VALUE_BOOL => Ok(ScalarValue::Boolean(self.read_u8()? != 0)),
+            VALUE_BYTES => Ok(ScalarValue::Bytes(self.read_bytes()?.to_vec())),
+            VALUE_COUNTER => Ok(ScalarValue::counter(self.read_i64()?)),
+            VALUE_TIMESTAMP => Ok(ScalarValue::Timestamp(self.read_i64()?)),
+            other => Err(DecodeError::Malformed(format!("unknown value tag: {}", other))),
+        }
+    }
+
+    fn read_obj_type(&mut self) -> Result<ObjType, DecodeError> {
+        // Ordinals of `org.automerge.ObjectType`
+        match self.read_u8()? {
+            0 => Ok(ObjType::Map),
+            1 => Ok(ObjType::List),
+            2 => Ok(ObjType::Text),
+            other => Err(DecodeError::Malformed(format!("unknown object type: {}", other))),
+        }
+    }
+
+    fn read_expand(&mut self) -> Result<ExpandMark, DecodeError> {
+        // Ordinals of `org.automerge.ExpandMark`
+        match self.read_u8()? {
+            0 => Ok(ExpandMark::Before),
+            1 => Ok(ExpandMark::After),
+            2 => Ok(ExpandMark::Both),
+            3 => Ok(ExpandMark::None),
+            other => Err(DecodeError::Malformed(format!("unknown expand: {}", other))),
+        }
+    }
+
+    fn read_op(&mut self, env: &jni::Env<'_>) -> Result<BatchOp, DecodeError> {
+        let opcode = self.read_u8()?;
+        let obj = self.read_target()?;
+        match opcode {
+            OP_PUT => Ok(BatchOp::Put {
+                obj,
+                prop: self.read_prop(env)?,
+                value: self.read_value()?,
+            }),
+            OP_PUT_OBJECT => Ok(BatchOp::PutObject {
+                obj,
+                prop: self.read_prop(env)?,
+                obj_type: self.read_obj_type()?,
+            }),
+            OP_INSERT => Ok(BatchOp::Insert {
+                obj,
+                index: self.read_index(env)?,
+                value: self.read_value()?,
+            }),
+            OP_INSERT_OBJECT => Ok(BatchOp::InsertObject {
+                obj,
+                index: self.read_index(env)?,
+                obj_type: self.read_obj_type()?,
+            }),
+            OP_INCREMENT => Ok(BatchOp::Increment {
+                obj,
+                prop: self.read_prop(env)?,
+                by: self.read_i64()?,
+            }),
+            OP_DELETE => Ok(BatchOp::Delete {
+                obj,
+                prop: self.read_prop(env)?,
+            }),
+            OP_SPLICE_TEXT => Ok(BatchOp::SpliceText {
+                obj,
+                index: self.read_index(env)?,
+                delete: self.read_i64()? as isize,
+                text: self.read_string()?,
+            }),
+            OP_MARK => {
+                let start = self.read_index(env)?;
+                let end = self.read_index(env)?;
+                let name = self.read_string()?;
+                let value = self.read_value()?;
+                let expand = self.read_expand()?;
+                Ok(BatchOp::Mark {
+                    obj,
+                    mark: am::marks::Mark::new(name, value, start, end),
+                    expand,
+                })
+            }
+            other => Err(DecodeError::Malformed(format!("unknown opcode: {}", other))),
+        }
+    }
+}
+
+struct ApplyBatchOp {
+    existing: Vec<am::ObjId>,
+    ops: Vec<BatchOp>,
+}
+
+fn resolve<'a>(
+    env: &jni::Env<'_>,
+    existing: &'a [am::ObjId],
+    created: &'a [am::ObjId],
+    target: Target,
+) -> Result<&'a am::ObjId, jni::errors::Error> {
+    let found = match target {
+        Target::Existing(i) => existing.get(i),
+        Target::Created(i) => created.get(i),
+    };
+    match found {
+        Some(obj) => Ok(obj),
+        None => {
+            throw_amg_exc(env, "batch refers to an object which does not exist")?;
+            Err(jni::errors::Error::JavaException)
+        }
+    }
+}
+
+impl TransactionOp for ApplyBatchOp {
+    type Output<'local> = Vec<am::ObjId>;
+
+    unsafe fn execute<'local, T: Transactable>(
+        self,
+        env: &jni::Env<'local>,
+        tx: &mut T,
+    ) -> Result<Self::Output<'local>, jni::errors::Error> {
+        let ApplyBatchOp { existing, ops } = self;
+        let mut created = Vec::new();
+        for op in ops {
+            match op {
+                BatchOp::Put { obj, prop, value } => {
+                    let obj = resolve(env, &existing, &created, obj)?;
+                    unwrap_or_throw_amg_exc(env, tx.put(obj, prop, value))?;
+                }
+                BatchOp::PutObject {
+                    obj,
+                    prop,
+                    obj_type,
+                } => {
+                    let obj = resolve(env, &existing, &created, obj)?;
+                    let new_obj = unwrap_or_throw_amg_exc(env, tx.put_object(obj, prop, obj_type))?;
+                    created.push(new_obj);
+                }
+                BatchOp::Insert { obj, index, value } => {
+                    let obj = resolve(env, &existing, &created, obj)?;
+                    unwrap_or_throw_amg_exc(env, tx.insert(obj, index, value))?;
+                }
+                BatchOp::InsertObject {
+                    obj,
+                    index,
+                    obj_type,
+                } => {
+                    let obj = resolve(env, &existing, &created, obj)?;
+                    let new_obj =
+                        unwrap_or_throw_amg_exc(env, tx.insert_object(obj, index, obj_type))?;
+                    created.push(new_obj);
+                }
+                BatchOp::Increment { obj, prop, by } => {
+                    let obj = resolve(env, &existing, &created, obj)?;
+                    unwrap_or_throw_amg_exc(env, tx.increment(obj, prop, by))?;
+                }
+                BatchOp::Delete { obj, prop } => {
+                    let obj = resolve(env, &existing, &created, obj)?;
+                    unwrap_or_throw_amg_exc(env, tx.delete(obj, prop))?;
+                }
+                BatchOp::SpliceText {
+                    obj,
+                    index,
+                    delete,
+                    text,
+                } => {
+                    let obj = resolve(env, &existing, &created, obj)?;
+                    unwrap_or_throw_amg_exc(env, tx.splice_text(obj, index, delete, &text))?;
+                }
+                BatchOp::Mark { obj, mark, expand } => {
+                    let obj = resolve(env, &existing, &created, obj)?;
+                    unwrap_or_throw_amg_exc(env, tx.mark(obj, mark, expand))?;
+                }
+            }
+        }
+        Ok(created)
+    }
+}
+
+const _METHODS: &[NativeMethod] = &[
+    ams_native! { static extern fn apply_batch(tx: bindings::TransactionPointer, objects: bindings::ObjectId[], ops: jbyte[]) -> bindings::ObjectId[] },
+];
+
+fn apply_batch<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    tx: bindings::TransactionPointer<'local>,
+    objects: JObjectArray<'local, bindings::ObjectId<'local>>,
+    ops: JByteArray<'local>,
+) -> jni::errors::Result<JObjectArray<'local, bindings::ObjectId<'local>>> {
+    let num_objects = objects.len(env)?;
+    let mut existing = Vec::with_capacity(num_objects);
+    for i in 0..num_objects {
+        let obj = env.with_local_frame(4, |env| {
+            let jobj = objects.get_element(env, i)?;
+            JavaObjId::from_object_id(env, jobj)
+        })?;
+        existing.push(obj.as_ref().clone());
+    }
+
+    let bytes = env.convert_byte_array(&ops)?;
+    let mut reader = BatchReader::new(&bytes);
+    let mut decoded = Vec::new();
+    while !reader.is_empty() {
+        match reader.read_op(env) {
+            Ok(op) => decoded.push(op),
+            Err(DecodeError::Java(e)) => return Err(e),
+            Err(DecodeError::Malformed(msg)) => {
+                let msg = JNIString::from(format!("malformed mutation batch: {}", msg));
+                throw_illegal_argument(env, &msg)?;
+                return Err(jni::errors::Error::JavaException);
+            }
+        }
+    }
+
+    let created = unsafe {
+        do_tx_op(
+            env,
+            tx.into(),
+            ApplyBatchOp {
+                existing,
+                ops: decoded,
+            },
+        )?
+    };
+
+    let result =
+        env.new_object_type_array::<bindings::ObjectId>(created.len(), bindings::ObjectId::null())?;
+    for (i, obj) in created.into_iter().enumerate() {
+        env.with_local_frame(4, |env| {
+            let jobj = JavaObjId::from(obj).into_object_id(env)?;
+            result.set_element(env, i, jobj)
+        })?;
+    }
+    Ok(result)
+}
@@ -0,0 +1,492 @@
+//! Reconciliation of a tree of plain Java values into a document
+//!
+//! `Transaction.reconcile` encodes a tree of Java maps, lists and scalars with
+//! `org.automerge.Reconciler`. The tree is compared with the current state of
+//! the document here and only the operations needed to make the document match
+//! it are applied, so reconciling a tree which has not changed applies no
+//! operations at all.
+use std::collections::{HashMap, HashSet};
+
+use automerge::{self as am, transaction::Transactable, ObjType, ReadDoc, ScalarValue};
+use jni::{
+    jni_str,
+    objects::{JByteArray, JClass, JString},
+    strings::JNIString,
+    NativeMethod,
+};
+
+use crate::{
+    bindings,
+    interop::{throw_amg_exc, throw_illegal_argument, unwrap_or_throw_amg_exc},
+    materialize::encode_scalar,
+    obj_id::JavaObjId,
+};
+
+use super::{
+    batch::{BatchReader, DecodeError},
+    do_tx_op, TransactionOp,
+};
+
+// Node tags, these must match the constants in `org.automerge.Reconciler`.
+// Any other tag is a scalar value encoded as in `MutationBatch`.
+const NODE_MAP: u8 = 16;
+const NODE_LIST: u8 = 17;
+
+enum Node {
+    Map(Vec<(String, Node)>),
+    List(Vec<Node>),
+    Scalar(ScalarValue),
+}
+
+fn read_node(reader: &mut BatchReader<'_>) -> Result<Node, DecodeError> {
+    match reader.read_u8()? {
+        NODE_MAP => {
+            let len = read_len(reader)?;
+            let mut entries = Vec::new();
+            for _ in 0..len {
+                let key = reader.read_string()?;
+                entries.push((key, read_node(reader)?));
+            }
+            Ok(Node::Map(entries))
+        }
+        NODE_LIST => {
+            let len = read_len(reader)?;
+            let mut items = Vec::new();
+            for _ in 0..len {
+                items.push(read_node(reader)?);
+            }
+            Ok(Node::List(items))
+        }
+        tag => Ok(Node::Scalar(reader.read_value_with_tag(tag)?)),
+    }
+}
+
+fn read_len(reader: &mut BatchReader<'_>) -> Result<usize, DecodeError> {
+    let len = reader.read_i32()?;
+    usize::try_from(len).map_err(|_| DecodeError::Malformed(format!("invalid length: {}", len)))
+}
+
+/// The value currently at a property of the document
+enum Current {
+    Missing,
+    Scalar(ScalarValue),
+    Object(ObjType, am::ObjId),
+}
+
+impl Current {
+    fn new(value: am::Value<'_>, id: am::ObjId) -> Self {
+        match value {
+            am::Value::Scalar(s) => Current::Scalar(s.into_owned()),
+            am::Value::Object(obj_type) => Current::Object(obj_type, id),
+        }
+    }
+}
+
+struct Reconciler<'a, T> {
+    tx: &'a mut T,
+    /// The name of the map entry which identifies the elements of keyed lists
+    key_field: Option<String>,
+}
+
+impl<'a, T: Transactable> Reconciler<'a, T> {
+    fn current<P: Into<am::Prop>>(
+        &self,
+        obj: &am::ObjId,
+        prop: P,
+    ) -> Result<Current, am::AutomergeError> {
+        Ok(match self.tx.get(obj, prop)? {
+            Some((value, id)) => Current::new(value, id),
+            None => Current::Missing,
+        })
+    }
+
+    /// Whether `current` already holds exactly the value of `node`, so that
+    /// reconciling it would apply no operations. Maps and lists are compared
+    /// by their whole contents.
+    fn unchanged(&self, current: &Current, node: &Node) -> Result<bool, am::AutomergeError> {
+        match (current, node) {
+            (Current::Scalar(old), Node::Scalar(new)) => Ok(old == new),
+            (Current::Object(ObjType::Text, id), Node::Scalar(ScalarValue::Str(new))) => {
+                Ok(self.tx.text(id)? == new.as_str())
+            }
+            (Current::Object(ObjType::Map | ObjType::Table, id), Node::Map(entries)) => {
+                if self.tx.length(id) != entries.len() {
+                    return Ok(false);
+                }
+                for (key, node) in entries {
+                    if !self.unchanged(&self.current(id, key.as_str())?, node)? {
+                        return Ok(false);
+                    }
+                }
+                Ok(true)
+            }
+            (Current::Object(ObjType::List, id), Node::List(items)) => {
+                if self.tx.length(id) != items.len() {
+                    return Ok(false);
+                }
+                for (index, node) in items.iter().enumerate() {
+                    if !self.unchanged(&self.current(id, index)?, node)? {
+                        return Ok(false);
+                    }
+                }
+                Ok(true)
+            }
+            _ => Ok(false),
+        }
+    }
+
+    fn reconcile_map(
+        &mut self,
+        obj: &am::ObjId,
+        entries: Vec<(String, Node)>,
+    ) -> Result<(), am::AutomergeError> {
+        let stale = {
+            let keep = entries.iter().map(|(k, _)| k.as_str()).collect::<HashSet<_>>();
+            self.tx
+                .keys(obj)
+                .filter(|k| !keep.contains(k.as_str()))
+                .collect::<Vec<_>>()
+        };
+        for key in stale {
+            self.tx.delete(obj, key)?;
+        }
+        for (key, node) in entries {
+            let current = self.current(obj, key.as_str())?;
+            self.put(obj, am::Prop::Map(key), current, node)?;
+        }
+        Ok(())
+    }
+
+    fn reconcile_list(
+        &mut self,
+        obj: &am::ObjId,
+        items: Vec<Node>,
+    ) -> Result<(), am::AutomergeError> {
+        let old = self
+            .tx
+            .list_range(obj, ..)
+            .map(|item| {
+                let id = item.id();
+                Current::new(item.value.into_value(), id)
+            })
+            .collect::<Vec<_>>();
+        if let Some(new_keys) = self.keys_of(&items) {
+            return self.reconcile_keyed_list(obj, old, items, new_keys);
+        }
+
+        // Elements at the start and end which have not changed are kept so
+        // that inserting or removing elements only touches the elements around
+        // the edit. Maps and lists must be unchanged all the way down, any map
+        // would otherwise be kept for any other map and removing the first of
+        // a list of maps would rewrite every map after it.
+        let mut prefix = 0;
+        while prefix < old.len()
+            && prefix < items.len()
+            && self.unchanged(&old[prefix], &items[prefix])?
+        {
+            prefix += 1;
+        }
+        let mut suffix = 0;
+        while suffix < old.len() - prefix
+            && suffix < items.len() - prefix
+            && self.unchanged(&old[old.len() - 1 - suffix], &items[items.len() - 1 - suffix])?
+        {
+            suffix += 1;
+        }
+        // The remaining elements are paired up by position
+        let paired = (old.len() - prefix - suffix).min(items.len() - prefix - suffix);
+        let keep = (0..old.len())
+            .map(|i| i < prefix + paired || i >= old.len() - suffix)
+            .collect::<Vec<_>>();
+        let targets = (0..items.len())
+            .map(|j| {
+                if j < prefix + paired {
+                    Some(j)
+                } else if j >= items.len() - suffix {
+                    Some(j + old.len() - items.len())
+                } else {
+                    None
+                }
+            })
+            .collect::<Vec<_>>();
+        self.apply_list(obj, old, &keep, items, targets)
+    }
+
+    /// The encoded key of every element of `items` if this is a keyed list,
+    /// which is the case if every element is a map with a scalar value for the
+    /// key field
+    fn keys_of(&self, items: &[Node]) -> Option<Vec<Vec<u8>>> {
+        let key_field = self.key_field.as_deref()?;
+        if items.is_empty() {
+            return None;
+        }
+        items
+            .iter()
+            .map(|item| match item {
+                Node::Map(entries) => entries.iter().find_map(|(k, v)| match v {
+                    Node::Scalar(s) if k == key_field => Some(encode_key(s)),
+                    _ => None,
+                }),
+                _ => None,
+            })
+            .collect()
+    }
+
+    fn reconcile_keyed_list(
+        &mut self,
+        obj: &am::ObjId,
+        old: Vec<Current>,
+        items: Vec<Node>,
+        new_keys: Vec<Vec<u8>>,
+    ) -> Result<(), am::AutomergeError> {
+        let key_field = self.key_field.clone().unwrap_or_default();
+        let mut old_keys = Vec::with_capacity(old.len());
+        for current in &old {
+            let key = match current {
+                Current::Object(ObjType::Map | ObjType::Table, id) => {
+                    match self.current(id, key_field.as_str())? {
+                        Current::Scalar(s) => Some(encode_key(&s)),
+                        _ => None,
+                    }
+                }
+                _ => None,
+            };
+            old_keys.push(key);
+        }
+
+        // Match each new element with the first unused old element with the
+        // same key
+        let mut available: HashMap<&[u8], Vec<usize>> = HashMap::new();
+        for (i, key) in old_keys.iter().enumerate().rev() {
+            if let Some(key) = key {
+                available.entry(key.as_slice()).or_default().push(i);
+            }
+        }
+        let matched = new_keys
+            .iter()
+            .map(|key| available.get_mut(key.as_slice()).and_then(|olds| olds.pop()))
+            .collect::<Vec<_>>();
+
+        // Automerge has no move operation. The largest set of matched elements
+        // which are already in the right order is kept and reconciled in
+        // place, every other element is deleted and the elements which moved
+        // are inserted again at their new position.
+        let matched_old = matched.iter().flatten().copied().collect::<Vec<_>>();
+        let mut keep = vec![false; old.len()];
+        for i in longest_increasing(&matched_old) {
+            keep[matched_old[i]] = true;
+        }
+        let targets = matched
+            .into_iter()
+            .map(|m| m.filter(|o| keep[*o]))
+            .collect::<Vec<_>>();
+        self.apply_list(obj, old, &keep, items, targets)
+    }
+
+    /// Delete every element of `old` which is not kept and then make the list
+    /// match `items`. `targets` is the index in `old` of the element which
+    /// each item is reconciled into, or `None` if the item is inserted. The
+    /// targets must be in increasing order.
+    fn apply_list(
+        &mut self,
+        obj: &am::ObjId,
+        old: Vec<Current>,
+        keep: &[bool],
+        items: Vec<Node>,
+        targets: Vec<Option<usize>>,
+    ) -> Result<(), am::AutomergeError> {
+        // Delete runs of elements from the end so the indices of the elements
+        // before them do not change
+        let mut i = old.len();
+        while i > 0 {
+            if keep[i - 1] {
+                i -= 1;
+                continue;
+            }
+            let end = i;
+            while i > 0 && !keep[i - 1] {
+                i -= 1;
+            }
+            self.tx
+                .splice(obj, i, (end - i) as isize, Vec::<ScalarValue>::new())?;
+        }
+        let mut old = old.into_iter().map(Some).collect::<Vec<_>>();
+        for (index, (node, target)) in items.into_iter().zip(targets).enumerate() {
+            match target.and_then(|o| old[o].take()) {
+                Some(current) => self.put(obj, am::Prop::Seq(index), current, node)?,
+                None => self.insert(obj, index, node)?,
+            }
+        }
+        Ok(())
+    }
+
+    fn put(
+        &mut self,
+        obj: &am::ObjId,
+        prop: am::Prop,
+        current: Current,
+        node: Node,
+    ) -> Result<(), am::AutomergeError> {
+        match (current, node) {
+            (Current::Scalar(old), Node::Scalar(new)) if old == new => Ok(()),
+            (
+                Current::Scalar(ScalarValue::Counter(old)),
+                Node::Scalar(ScalarValue::Counter(new)),
+            ) => self.tx.increment(obj, prop, i64::from(&new) - i64::from(&old)),
+            (Current::Object(ObjType::Text, id), Node::Scalar(ScalarValue::Str(new))) => {
+                self.tx.update_text(&id, new.as_str())
+            }
+            (Current::Object(ObjType::Map | ObjType::Table, id), Node::Map(entries)) => {
+                self.reconcile_map(&id, entries)
+            }
+            (Current::Object(ObjType::List, id), Node::List(items)) => {
+                self.reconcile_list(&id, items)
+            }
+            (_, Node::Scalar(new)) => self.tx.put(obj, prop, new),
+            (_, Node::Map(entries)) => {
+                let id = self.tx.put_object(obj, prop, ObjType::Map)?;
+                self.reconcile_map(&id, entries)
+            }
+            (_, Node::List(items)) => {
+                let id = self.tx.put_object(obj, prop, ObjType::List)?;
+                self.reconcile_list(&id, items)
+            }
+        }
+    }
+
+    fn insert(
+        &mut self,
+        obj: &am::ObjId,
+        index: usize,
+        node: Node,
+    ) -> Result<(), am::AutomergeError> {
+        match node {
+            Node::Scalar(value) => self.tx.insert(obj, index, value),
+            Node::Map(entries) => {
+                let id = self.tx.insert_object(obj, index, ObjType::Map)?;
+                self.reconcile_map(&id, entries)
+            }
+            Node::List(items) => {
+                let id = self.tx.insert_object(obj, index, ObjType::List)?;
+                self.reconcile_list(&id, items)
+            }
+        }
+    }
+}
+
+/// A hashable form of a key, which distinguishes values of different types
+fn encode_key(value: &ScalarValue) -> Vec<u8> {
+    let mut out = Vec::new();
+    encode_scalar(&mut out, value);
+    out
+}
+
+/// The indices into `seq` of a longest strictly increasing subsequence
+fn longest_increasing(seq: &[usize]) -> Vec<usize> {
+    // `tails[l]` is the index of the smallest element which ends an increasing
+    // subsequence of length `l + 1`
+    let mut tails: Vec<usize> = Vec::new();
+    let mut prev = vec![None; seq.len()];
+    for i in 0..seq.len() {
+        let len = tails.partition_point(|t| seq[*t] < seq[i]);
+        if len > 0 {
+            prev[i] = Some(tails[len - 1]);
+        }
+        if len == tails.len() {
+            tails.push(i);
+        } else {
+            tails[len] = i;
+        }
+    }
+    let mut result = Vec::with_capacity(tails.len());
+    let mut next = tails.last().copied();
+    while let Some(i) = next {
+        result.push(i);
+        next = prev[i];
+    }
+    result.reverse();
+    result
+}
+
+struct ReconcileOp {
+    obj: JavaObjId,
+    tree: Node,
+    key_field: Option<String>,
+}
+
+impl TransactionOp for ReconcileOp {
+    type Output<'local> = ();
+
+    unsafe fn execute<'local, T: Transactable>(
+        self,
+        env: &jni::Env<'local>,
+        tx: &mut T,
+    ) -> Result<Self::Output<'local>, jni::errors::Error> {
+        let obj: &am::ObjId = self.obj.as_ref();
+        let obj_type = unwrap_or_throw_amg_exc(env, tx.object_type(obj))?;
+        let mut reconciler = Reconciler {
+            tx,
+            key_field: self.key_field,
+        };
+        let result = match (obj_type, self.tree) {
+            (ObjType::Map | ObjType::Table, Node::Map(entries)) => {
+                reconciler.reconcile_map(obj, entries)
+            }
+            (ObjType::List, Node::List(items)) => reconciler.reconcile_list(obj, items),
+            (ObjType::Text, Node::Scalar(ScalarValue::Str(text))) => {
+                reconciler.tx.update_text(obj, text.as_str())
+            }
+            _ => {
+                throw_amg_exc(env, "the tree does not match the type of the object")?;
+                return Err(jni::errors::Error::JavaException);
+            }
+        };
+        unwrap_or_throw_amg_exc(env, result)
+    }
+}
+
+const _METHODS: &[NativeMethod] = &[
+    ams_native! { static extern fn reconcile(tx: bindings::TransactionPointer, obj: bindings::ObjectId, tree: jbyte[], key_field: JString) },
+];
+
+fn reconcile<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    tx: bindings::TransactionPointer<'local>,
+    obj: bindings::ObjectId<'local>,
+    tree: JByteArray<'local>,
+    key_field: JString<'local>,
+) -> jni::errors::Result<()> {
+    let obj = JavaObjId::from_object_id(env, obj)?;
+    let key_field = if key_field.is_null() {
+        None
+    } else {
+        Some(key_field.to_string())
+    };
+    let bytes = env.convert_byte_array(&tree)?;
+    let mut reader = BatchReader::new(&bytes);
+    let tree = match read_node(&mut reader) {
+        Ok(tree) if reader.is_empty() => tree,
+        Ok(_) => {
+            throw_illegal_argument(env, jni_str!("malformed tree: trailing bytes"))?;
+            return Err(jni::errors::Error::JavaException);
+        }
+        Err(DecodeError::Java(e)) => return Err(e),
+        Err(DecodeError::Malformed(msg)) => {
+            let msg = JNIString::from(format!("malformed tree: {}", msg));
+            throw_illegal_argument(env, &msg)?;
+            return Err(jni::errors::Error::JavaException);
+        }
+    };
+    unsafe {
+        do_tx_op(
+            env,
+            tx.into(),
+            ReconcileOp {
+                obj,
+                tree,
+                key_field,
+            },
+        )
+    }
+}
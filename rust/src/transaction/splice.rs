@@ -1,9 +1,11 @@
 use automerge::{transaction::Transactable, ScalarValue};
 use jni::{
     jni_sig, jni_str,
-    objects::{JClass, JIterator, JObject},
+    objects::{
+        JBooleanArray, JClass, JDoubleArray, JIterator, JLongArray, JObject, JObjectArray, JString,
+    },
     refs::Reference,
-    sys::jlong,
+    sys::{jlong, JNI_FALSE},
     NativeMethod,
 };
 
@@ -13,7 +15,7 @@ use crate::bindings::{
     NewValueStr, NewValueTimestamp, NewValueUInt,
 };
 use crate::{
-    interop::{throw_amg_exc, unwrap_or_throw_amg_exc},
+    interop::{throw_amg_exc, throw_illegal_argument, unwrap_or_throw_amg_exc},
     JavaObjId,
 };
 
@@ -43,6 +45,10 @@ impl TransactionOp for SpliceOp {
 
 const _METHODS: &[NativeMethod] = &[
     ams_native! { static extern fn splice(tx: bindings::TransactionPointer, obj: bindings::ObjectId, idx: jlong, delete: jlong, values: java.util.Iterator) },
+    ams_native! { static extern fn splice_longs(tx: bindings::TransactionPointer, obj: bindings::ObjectId, idx: jlong, delete: jlong, values: jlong[]) },
+    ams_native! { static extern fn splice_doubles(tx: bindings::TransactionPointer, obj: bindings::ObjectId, idx: jlong, delete: jlong, values: jdouble[]) },
+    ams_native! { static extern fn splice_booleans(tx: bindings::TransactionPointer, obj: bindings::ObjectId, idx: jlong, delete: jlong, values: jboolean[]) },
+    ams_native! { static extern fn splice_strings(tx: bindings::TransactionPointer, obj: bindings::ObjectId, idx: jlong, delete: jlong, values: JString[]) },
 ];
 
 fn splice<'local>(
@@ -60,6 +66,100 @@ fn splice<'local>(
         env,
     }
     .collect::<Result<Vec<_>, _>>()?;
+    splice_values(env, tx, obj, idx, delete, values)
+}
+
+// The array variants below copy the whole array out of the JVM in one call
+// rather than calling back into Java for every element like `splice` does
+
+fn splice_longs<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    tx: bindings::TransactionPointer<'local>,
+    obj: bindings::ObjectId<'local>,
+    idx: jlong,
+    delete: jlong,
+    values: JLongArray<'local>,
+) -> jni::errors::Result<()> {
+    let obj = JavaObjId::from_object_id(env, obj)?;
+    let mut raw = vec![0; values.len(env)?];
+    env.get_long_array_region(&values, 0, &mut raw)?;
+    let values = raw.into_iter().map(ScalarValue::Int).collect();
+    splice_values(env, tx, obj, idx, delete, values)
+}
+
+fn splice_doubles<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    tx: bindings::TransactionPointer<'local>,
+    obj: bindings::ObjectId<'local>,
+    idx: jlong,
+    delete: jlong,
+    values: JDoubleArray<'local>,
+) -> jni::errors::Result<()> {
+    let obj = JavaObjId::from_object_id(env, obj)?;
+    let mut raw = vec![0.0; values.len(env)?];
+    env.get_double_array_region(&values, 0, &mut raw)?;
+    let values = raw.into_iter().map(ScalarValue::F64).collect();
+    splice_values(env, tx, obj, idx, delete, values)
+}
+
+fn splice_booleans<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    tx: bindings::TransactionPointer<'local>,
+    obj: bindings::ObjectId<'local>,
+    idx: jlong,
+    delete: jlong,
+    values: JBooleanArray<'local>,
+) -> jni::errors::Result<()> {
+    let obj = JavaObjId::from_object_id(env, obj)?;
+    let mut raw = vec![JNI_FALSE; values.len(env)?];
+    env.get_boolean_array_region(&values, 0, &mut raw)?;
+    let values = raw
+        .into_iter()
+        .map(|b| ScalarValue::Boolean(b != JNI_FALSE))
+        .collect();
+    splice_values(env, tx, obj, idx, delete, values)
+}
+
+fn splice_strings<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    tx: bindings::TransactionPointer<'local>,
+    obj: bindings::ObjectId<'local>,
+    idx: jlong,
+    delete: jlong,
+    values: JObjectArray<'local, JString<'local>>,
+) -> jni::errors::Result<()> {
+    let obj = JavaObjId::from_object_id(env, obj)?;
+    let len = values.len(env)?;
+    let mut strings = Vec::with_capacity(len);
+    for i in 0..len {
+        let value = env.with_local_frame(4, |env| {
+            let elem = values.get_element(env, i)?;
+            if elem.is_null() {
+                return Ok(None);
+            }
+            Ok::<_, jni::errors::Error>(Some(ScalarValue::Str(elem.to_string().into())))
+        })?;
+        let Some(value) = value else {
+            throw_illegal_argument(env, jni_str!("values must not contain null"))?;
+            return Err(jni::errors::Error::JavaException);
+        };
+        strings.push(value);
+    }
+    splice_values(env, tx, obj, idx, delete, strings)
+}
+
+fn splice_values<'local>(
+    env: &mut jni::Env<'local>,
+    tx: bindings::TransactionPointer<'local>,
+    obj: JavaObjId,
+    idx: jlong,
+    delete: jlong,
+    values: Vec<ScalarValue>,
+) -> jni::errors::Result<()> {
     unsafe {
         do_tx_op(
             env,
@@ -1,10 +1,14 @@
 use jni::{
-    objects::{JClass, JString},
-    sys::jlong,
+    jni_str,
+    objects::{JByteArray, JByteBuffer, JCharArray, JClass, JString},
+    sys::{jint, jlong},
     NativeMethod,
 };
 
-use crate::{interop::unwrap_or_throw_amg_exc, obj_id::JavaObjId};
+use crate::{
+    interop::{direct_buffer_slice, throw_illegal_argument, unwrap_or_throw_amg_exc},
+    obj_id::JavaObjId,
+};
 
 use super::{do_tx_op, TransactionOp};
 
@@ -12,7 +16,7 @@ struct SpliceTextOp<'a> {
     obj: JavaObjId,
     idx: jlong,
     delete: jlong,
-    value: JString<'a>,
+    value: &'a str,
 }
 
 impl<'a> TransactionOp for SpliceTextOp<'a> {
@@ -29,7 +33,7 @@ impl<'a> TransactionOp for SpliceTextOp<'a> {
                 self.obj,
                 self.idx as usize,
                 self.delete as isize,
-                &self.value.to_string(),
+                self.value,
             ),
         )
     }
@@ -39,6 +43,9 @@ use crate::bindings;
 
 const _METHODS: &[NativeMethod] = &[
     ams_native! { static extern fn splice_text(tx: bindings::TransactionPointer, obj: bindings::ObjectId, start_idx: jlong, delete_count: jlong, chars: JString) },
+    ams_native! { static extern fn splice_text_chars(tx: bindings::TransactionPointer, obj: bindings::ObjectId, start_idx: jlong, delete_count: jlong, chars: jchar[], offset: jint, len: jint) },
+    ams_native! { static extern fn splice_text_utf8(tx: bindings::TransactionPointer, obj: bindings::ObjectId, start_idx: jlong, delete_count: jlong, bytes: jbyte[], offset: jint, len: jint) },
+    ams_native! { static extern fn splice_text_utf8_buffer(tx: bindings::TransactionPointer, obj: bindings::ObjectId, start_idx: jlong, delete_count: jlong, buffer: JByteBuffer, offset: jint, len: jint) },
 ];
 
 fn splice_text<'local>(
@@ -51,6 +58,104 @@ fn splice_text<'local>(
     chars: JString<'local>,
 ) -> jni::errors::Result<()> {
     let obj = JavaObjId::from_object_id(env, obj)?;
+    let text = chars.to_string();
+    unsafe {
+        do_tx_op(
+            env,
+            tx.into(),
+            SpliceTextOp {
+                obj,
+                idx: start_idx,
+                delete: delete_count,
+                value: &text,
+            },
+        )
+    }
+}
+
+fn splice_text_chars<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    tx: bindings::TransactionPointer<'local>,
+    obj: bindings::ObjectId<'local>,
+    start_idx: jlong,
+    delete_count: jlong,
+    chars: JCharArray<'local>,
+    offset: jint,
+    len: jint,
+) -> jni::errors::Result<()> {
+    let obj = JavaObjId::from_object_id(env, obj)?;
+    let mut units = vec![0; len.max(0) as usize];
+    env.get_char_array_region(&chars, offset, &mut units)?;
+    let Ok(text) = String::from_utf16(&units) else {
+        throw_illegal_argument(env, jni_str!("text is not valid UTF-16"))?;
+        return Err(jni::errors::Error::JavaException);
+    };
+    unsafe {
+        do_tx_op(
+            env,
+            tx.into(),
+            SpliceTextOp {
+                obj,
+                idx: start_idx,
+                delete: delete_count,
+                value: &text,
+            },
+        )
+    }
+}
+
+fn splice_text_utf8<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    tx: bindings::TransactionPointer<'local>,
+    obj: bindings::ObjectId<'local>,
+    start_idx: jlong,
+    delete_count: jlong,
+    bytes: JByteArray<'local>,
+    offset: jint,
+    len: jint,
+) -> jni::errors::Result<()> {
+    let obj = JavaObjId::from_object_id(env, obj)?;
+    let mut raw = vec![0; len.max(0) as usize];
+    env.get_byte_array_region(&bytes, offset, &mut raw)?;
+    let raw = raw.into_iter().map(|b| b as u8).collect::<Vec<u8>>();
+    let Ok(text) = std::str::from_utf8(&raw) else {
+        throw_illegal_argument(env, jni_str!("text is not valid UTF-8"))?;
+        return Err(jni::errors::Error::JavaException);
+    };
+    unsafe {
+        do_tx_op(
+            env,
+            tx.into(),
+            SpliceTextOp {
+                obj,
+                idx: start_idx,
+                delete: delete_count,
+                value: text,
+            },
+        )
+    }
+}
+
+fn splice_text_utf8_buffer<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    tx: bindings::TransactionPointer<'local>,
+    obj: bindings::ObjectId<'local>,
+    start_idx: jlong,
+    delete_count: jlong,
+    buffer: JByteBuffer<'local>,
+    offset: jint,
+    len: jint,
+) -> jni::errors::Result<()> {
+    let obj = JavaObjId::from_object_id(env, obj)?;
+    // Safety: the slice is only used before this method returns
+    let bytes = unsafe { direct_buffer_slice(env, &buffer, offset, len)? };
+    let Ok(text) = std::str::from_utf8(bytes) else {
+        throw_illegal_argument(env, jni_str!("text is not valid UTF-8"))?;
+        return Err(jni::errors::Error::JavaException);
+    };
     unsafe {
         do_tx_op(
             env,
@@ -59,7 +164,7 @@ fn splice_text<'local>(
                 obj,
                 idx: start_idx,
                 delete: delete_count,
-                value: chars,
+                value: text,
             },
         )
     }
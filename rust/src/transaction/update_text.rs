@@ -0,0 +1,45 @@
+use jni::{
+    objects::{JClass, JString},
+    NativeMethod,
+};
+
+use crate::{interop::unwrap_or_throw_amg_exc, obj_id::JavaObjId};
+
+use super::{do_tx_op, TransactionOp};
+
+struct UpdateTextOp {
+    obj: JavaObjId,
+    value: String,
+}
+
+impl TransactionOp for UpdateTextOp {
+    type Output<'local> = ();
+
+    unsafe fn execute<'local, T: automerge::transaction::Transactable>(
+        self,
+        env: &jni::Env<'local>,
+        tx: &mut T,
+    ) -> Result<Self::Output<'local>, jni::errors::Error> {
+        // `update_text` diffs the new value against the current text and only
+        // applies the splices needed to turn one into the other
+        unwrap_or_throw_amg_exc(env, tx.update_text(self.obj.as_ref(), &self.value))
+    }
+}
+
+use crate::bindings;
+
+const _METHODS: &[NativeMethod] = &[
+    ams_native! { static extern fn update_text(tx: bindings::TransactionPointer, obj: bindings::ObjectId, value: JString) },
+];
+
+fn update_text<'local>(
+    env: &mut jni::Env<'local>,
+    _class: JClass<'local>,
+    tx: bindings::TransactionPointer<'local>,
+    obj: bindings::ObjectId<'local>,
+    value: JString<'local>,
+) -> jni::errors::Result<()> {
+    let obj = JavaObjId::from_object_id(env, obj)?;
+    let value = value.to_string();
+    unsafe { do_tx_op(env, tx.into(), UpdateTextOp { obj, value }) }
+}